@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.KnowledgeBase;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures DefaultAgenda.fireAllRules() with each of the conflict
+ * resolvers. Every fact activates the rule of its group, so the agenda
+ * holds factCount activations when firing starts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AgendaBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int                       ruleCount;
+
+    @Param({"1000", "10000"})
+    public int                       factCount;
+
+    @Param({"DepthConflictResolver", "FifoConflictResolver", "LifoConflictResolver", "SalienceConflictResolver", "RecencyConflictResolver", "TotalRecencyConflictResolver", "ComplexityConflictResolver", "SimplicityConflictResolver", "LoadOrderConflictResolver", "RandomConflictResolver"})
+    public String                    conflictResolver;
+
+    private KnowledgeBase            kbase;
+    private Fact[]                   facts;
+    private StatefulKnowledgeSession ksession;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.kbase = BenchmarkUtil.newKnowledgeBase( BenchmarkUtil.newAlphaRules( this.ruleCount ),
+                                                     BenchmarkUtil.newProperties( "drools.conflictResolver",
+                                                                                  "org.drools.conflict." + this.conflictResolver ) );
+        this.facts = BenchmarkUtil.newFacts( this.factCount,
+                                             this.ruleCount,
+                                             this.factCount );
+    }
+
+    @Setup(Level.Invocation)
+    public void newSession() {
+        this.ksession = this.kbase.newStatefulKnowledgeSession();
+        BenchmarkUtil.insert( this.ksession,
+                              this.facts );
+    }
+
+    @TearDown(Level.Invocation)
+    public void dispose() {
+        this.ksession.dispose();
+    }
+
+    @Benchmark
+    public int fireAllRules() {
+        return this.ksession.fireAllRules();
+    }
+
+}
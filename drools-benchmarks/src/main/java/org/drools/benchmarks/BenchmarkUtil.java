@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.util.Properties;
+
+import org.drools.KnowledgeBase;
+import org.drools.KnowledgeBaseConfiguration;
+import org.drools.KnowledgeBaseFactory;
+import org.drools.builder.KnowledgeBuilder;
+import org.drools.builder.KnowledgeBuilderFactory;
+import org.drools.builder.ResourceType;
+import org.drools.definition.type.FactType;
+import org.drools.io.ResourceFactory;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+
+/**
+ * Helpers shared by the benchmarks to generate rules and facts and to build
+ * the knowledge bases they run against.
+ */
+public final class BenchmarkUtil {
+
+    public static final String PACKAGE = "package org.drools.benchmarks\n\nimport " + Fact.class.getName() + "\n\n";
+
+    private BenchmarkUtil() {
+    }
+
+    /**
+     * Builds a knowledge base from the given DRL, using the given properties,
+     * if any, as rulebase configuration options.
+     */
+    public static KnowledgeBase newKnowledgeBase(final String drl,
+                                                 final Properties properties) {
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( drl.getBytes() ),
+                      ResourceType.DRL );
+        if ( kbuilder.hasErrors() ) {
+            throw new IllegalStateException( "Unable to compile the benchmark rules: " + kbuilder.getErrors() );
+        }
+
+        KnowledgeBaseConfiguration conf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration( properties,
+                                                                                               (ClassLoader[]) null );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase( conf );
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+        return kbase;
+    }
+
+    /**
+     * Returns ruleCount rules, each one matching the facts of its own group
+     * through a single alpha constraint.
+     */
+    public static String newAlphaRules(final int ruleCount) {
+        StringBuilder drl = new StringBuilder( PACKAGE );
+        for ( int i = 0; i < ruleCount; i++ ) {
+            drl.append( "rule \"alpha" ).append( i ).append( "\"\n" );
+            drl.append( "when\n" );
+            drl.append( "    Fact( group == " ).append( i ).append( " )\n" );
+            drl.append( "then\n" );
+            drl.append( "end\n\n" );
+        }
+        return drl.toString();
+    }
+
+    /**
+     * Returns ruleCount rules, each one joining the facts of its own group
+     * on their values.
+     */
+    public static String newJoinRules(final int ruleCount) {
+        StringBuilder drl = new StringBuilder( PACKAGE );
+        for ( int i = 0; i < ruleCount; i++ ) {
+            drl.append( "rule \"join" ).append( i ).append( "\"\n" );
+            drl.append( "when\n" );
+            drl.append( "    $f : Fact( group == " ).append( i ).append( " )\n" );
+            drl.append( "    Fact( group == " ).append( i ).append( ", value == $f.value )\n" );
+            drl.append( "then\n" );
+            drl.append( "end\n\n" );
+        }
+        return drl.toString();
+    }
+
+    /**
+     * Returns the same rules as newJoinRules, on a DeclaredFact type that is
+     * declared in the DRL instead of the Fact class.
+     */
+    public static String newDeclaredJoinRules(final int ruleCount) {
+        StringBuilder drl = new StringBuilder( PACKAGE );
+        drl.append( "declare DeclaredFact\n" );
+        drl.append( "    id : int\n" );
+        drl.append( "    group : int\n" );
+        drl.append( "    value : int\n" );
+        drl.append( "end\n\n" );
+        for ( int i = 0; i < ruleCount; i++ ) {
+            drl.append( "rule \"join" ).append( i ).append( "\"\n" );
+            drl.append( "when\n" );
+            drl.append( "    $f : DeclaredFact( group == " ).append( i ).append( " )\n" );
+            drl.append( "    DeclaredFact( group == " ).append( i ).append( ", value == $f.value )\n" );
+            drl.append( "then\n" );
+            drl.append( "end\n\n" );
+        }
+        return drl.toString();
+    }
+
+    /**
+     * Returns ruleCount rules, each one applying the given accumulate function
+     * to the values of the facts of its own group.
+     */
+    public static String newAccumulateRules(final int ruleCount,
+                                            final String function) {
+        StringBuilder drl = new StringBuilder( PACKAGE );
+        for ( int i = 0; i < ruleCount; i++ ) {
+            drl.append( "rule \"accumulate" ).append( i ).append( "\"\n" );
+            drl.append( "when\n" );
+            drl.append( "    $r : Object() from accumulate( Fact( group == " ).append( i ).append( ", $v : value ),\n" );
+            drl.append( "                                   " ).append( function ).append( "( $v ) )\n" );
+            drl.append( "then\n" );
+            drl.append( "end\n\n" );
+        }
+        return drl.toString();
+    }
+
+    /**
+     * Returns factCount facts spread evenly over groupCount groups. Values
+     * repeat every valueRange facts, so joins on the value find matches.
+     */
+    public static Fact[] newFacts(final int factCount,
+                                  final int groupCount,
+                                  final int valueRange) {
+        Fact[] facts = new Fact[factCount];
+        for ( int i = 0; i < factCount; i++ ) {
+            facts[i] = new Fact( i,
+                                 i % groupCount,
+                                 i % valueRange );
+        }
+        return facts;
+    }
+
+    public static FactHandle[] insert(final StatefulKnowledgeSession ksession,
+                                      final Fact[] facts) {
+        FactHandle[] handles = new FactHandle[facts.length];
+        for ( int i = 0; i < facts.length; i++ ) {
+            handles[i] = ksession.insert( facts[i] );
+        }
+        return handles;
+    }
+
+    /**
+     * Inserts factCount DeclaredFacts, with the same values as the Facts
+     * returned by newFacts.
+     */
+    public static void insertDeclared(final KnowledgeBase kbase,
+                                      final StatefulKnowledgeSession ksession,
+                                      final int factCount,
+                                      final int groupCount,
+                                      final int valueRange) {
+        FactType type = kbase.getFactType( "org.drools.benchmarks",
+                                           "DeclaredFact" );
+        try {
+            for ( int i = 0; i < factCount; i++ ) {
+                Object fact = type.newInstance();
+                type.set( fact,
+                          "id",
+                          i );
+                type.set( fact,
+                          "group",
+                          i % groupCount );
+                type.set( fact,
+                          "value",
+                          i % valueRange );
+                ksession.insert( fact );
+            }
+        } catch ( Exception e ) {
+            throw new IllegalStateException( "Unable to create the declared facts",
+                                             e );
+        }
+    }
+
+    public static Properties newProperties(final String... nameValuePairs) {
+        Properties properties = new Properties();
+        for ( int i = 0; i < nameValuePairs.length; i += 2 ) {
+            properties.setProperty( nameValuePairs[i],
+                                    nameValuePairs[i + 1] );
+        }
+        return properties;
+    }
+
+}
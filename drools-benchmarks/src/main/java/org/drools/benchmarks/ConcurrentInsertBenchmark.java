@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.drools.KnowledgeBase;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the insert throughput of several producer threads feeding the
+ * same session, with and without the entry point locks striped by object
+ * type node (see the drools.lockStripes option). Each producer inserts a
+ * different fact type, so with striping the producers never contend on
+ * the same object type node.
+ *
+ * There is one benchmark per number of producers, so a single run reports
+ * the throughput with 1, 4 and 16 producer threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConcurrentInsertBenchmark {
+
+    private static final String[]    TYPES = {"Integer", "Long", "Double", "String"};
+
+    @Param({"0", "16"})
+    public int                       lockStripes;
+
+    private KnowledgeBase            kbase;
+    private StatefulKnowledgeSession ksession;
+    private final AtomicInteger      producers = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder drl = new StringBuilder( BenchmarkUtil.PACKAGE );
+        for ( int i = 0; i < TYPES.length; i++ ) {
+            drl.append( "rule \"" ).append( TYPES[i] ).append( "\"\n" );
+            drl.append( "when\n" );
+            drl.append( "    " ).append( TYPES[i] ).append( "()\n" );
+            drl.append( "then\n" );
+            drl.append( "end\n\n" );
+        }
+        this.kbase = BenchmarkUtil.newKnowledgeBase( drl.toString(),
+                                                     BenchmarkUtil.newProperties( "drools.multithreadEvaluation",
+                                                                                  "true",
+                                                                                  "drools.lockStripes",
+                                                                                  Integer.toString( this.lockStripes ) ) );
+    }
+
+    @Setup(Level.Iteration)
+    public void newSession() {
+        this.ksession = this.kbase.newStatefulKnowledgeSession();
+    }
+
+    @TearDown(Level.Iteration)
+    public void dispose() {
+        this.ksession.dispose();
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        int  type;
+        long next;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentInsertBenchmark benchmark) {
+            this.type = benchmark.producers.getAndIncrement() % TYPES.length;
+        }
+
+        Object newFact() {
+            long value = ++this.next;
+            switch ( this.type ) {
+                case 0 :
+                    return new Integer( (int) value );
+                case 1 :
+                    return new Long( value );
+                case 2 :
+                    return new Double( value );
+                default :
+                    return Long.toString( value );
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public FactHandle insert1Producer(Producer producer) {
+        return this.ksession.insert( producer.newFact() );
+    }
+
+    @Benchmark
+    @Threads(4)
+    public FactHandle insert4Producers(Producer producer) {
+        return this.ksession.insert( producer.newFact() );
+    }
+
+    @Benchmark
+    @Threads(16)
+    public FactHandle insert16Producers(Producer producer) {
+        return this.ksession.insert( producer.newFact() );
+    }
+
+}
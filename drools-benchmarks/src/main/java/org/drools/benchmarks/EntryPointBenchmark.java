@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.KnowledgeBase;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures inserting, updating and retracting all the facts through the
+ * default entry point, with one alpha constrained rule per fact group.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EntryPointBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int            ruleCount;
+
+    @Param({"1000", "10000"})
+    public int            factCount;
+
+    private KnowledgeBase kbase;
+    private Fact[]        facts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.kbase = BenchmarkUtil.newKnowledgeBase( BenchmarkUtil.newAlphaRules( this.ruleCount ),
+                                                     null );
+        this.facts = BenchmarkUtil.newFacts( this.factCount,
+                                             this.ruleCount,
+                                             this.factCount );
+    }
+
+    @State(Scope.Thread)
+    public static class EmptySession {
+        StatefulKnowledgeSession ksession;
+
+        @Setup(Level.Invocation)
+        public void setUp(EntryPointBenchmark benchmark) {
+            this.ksession = benchmark.kbase.newStatefulKnowledgeSession();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            this.ksession.dispose();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PopulatedSession {
+        StatefulKnowledgeSession ksession;
+        FactHandle[]             handles;
+
+        @Setup(Level.Invocation)
+        public void setUp(EntryPointBenchmark benchmark) {
+            this.ksession = benchmark.kbase.newStatefulKnowledgeSession();
+            this.handles = BenchmarkUtil.insert( this.ksession,
+                                                 benchmark.facts );
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            this.ksession.dispose();
+        }
+    }
+
+    @Benchmark
+    public FactHandle[] insert(EmptySession session) {
+        return BenchmarkUtil.insert( session.ksession,
+                                     this.facts );
+    }
+
+    @Benchmark
+    public StatefulKnowledgeSession update(PopulatedSession session) {
+        for ( int i = 0; i < this.facts.length; i++ ) {
+            Fact fact = this.facts[i];
+            fact.setValue( fact.getValue() + 1 );
+            session.ksession.update( session.handles[i],
+                                     fact );
+        }
+        return session.ksession;
+    }
+
+    @Benchmark
+    public StatefulKnowledgeSession retract(PopulatedSession session) {
+        for ( int i = 0; i < session.handles.length; i++ ) {
+            session.ksession.retract( session.handles[i] );
+        }
+        return session.ksession;
+    }
+
+}
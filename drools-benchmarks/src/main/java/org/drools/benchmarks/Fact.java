@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.io.Serializable;
+
+/**
+ * The fact type all the benchmark rules match on. Facts are spread over
+ * groups, one per generated rule, so that every rule sees the same share
+ * of the facts.
+ */
+public class Fact
+    implements
+    Serializable {
+
+    private static final long serialVersionUID = 510l;
+
+    private int               id;
+    private int               group;
+    private int               value;
+
+    public Fact() {
+    }
+
+    public Fact(int id,
+                int group,
+                int value) {
+        this.id = id;
+        this.group = group;
+        this.value = value;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getGroup() {
+        return group;
+    }
+
+    public void setGroup(int group) {
+        this.group = group;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    public String toString() {
+        return "Fact[id=" + id + ", group=" + group + ", value=" + value + "]";
+    }
+
+}
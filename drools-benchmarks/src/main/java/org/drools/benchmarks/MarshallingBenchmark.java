@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.KnowledgeBase;
+import org.drools.marshalling.Marshaller;
+import org.drools.marshalling.MarshallerFactory;
+import org.drools.marshalling.ObjectMarshallingStrategy;
+import org.drools.marshalling.impl.DeclaredTypeMarshallingStrategy;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing a session with the OutputMarshaller and reading it
+ * back with the InputMarshaller. The session holds the facts and the
+ * join memories and activations of one join rule per fact group.
+ *
+ * The facts are of a declared type, written either with java serialization
+ * (serializable) or with the DeclaredTypeMarshallingStrategy (declared).
+ * The size of the written session is reported next to the marshall times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MarshallingBenchmark {
+
+    @Param({"1", "10"})
+    public int                       ruleCount;
+
+    @Param({"1000", "10000"})
+    public int                       factCount;
+
+    @Param({"serializable", "declared"})
+    public String                    strategy;
+
+    private Marshaller               marshaller;
+    private StatefulKnowledgeSession ksession;
+    private byte[]                   bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        KnowledgeBase kbase = BenchmarkUtil.newKnowledgeBase( BenchmarkUtil.newDeclaredJoinRules( this.ruleCount ),
+                                                              null );
+        if ( "declared".equals( this.strategy ) ) {
+            this.marshaller = MarshallerFactory.newMarshaller( kbase,
+                                                               new ObjectMarshallingStrategy[]{new DeclaredTypeMarshallingStrategy( kbase ), MarshallerFactory.newSerializeMarshallingStrategy()} );
+        } else {
+            this.marshaller = MarshallerFactory.newMarshaller( kbase );
+        }
+        this.ksession = kbase.newStatefulKnowledgeSession();
+        BenchmarkUtil.insertDeclared( kbase,
+                                      this.ksession,
+                                      this.factCount,
+                                      this.ruleCount,
+                                      100 );
+        this.bytes = write();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.ksession.dispose();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class SessionSize {
+        public long sessionBytes;
+    }
+
+    @Benchmark
+    public byte[] marshall(SessionSize size) throws IOException {
+        byte[] bytes = write();
+        size.sessionBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public StatefulKnowledgeSession unmarshall() throws IOException,
+                                                 ClassNotFoundException {
+        StatefulKnowledgeSession session = this.marshaller.unmarshall( new ByteArrayInputStream( this.bytes ) );
+        session.dispose();
+        return session;
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.marshaller.marshall( out,
+                                  this.ksession );
+        return out.toByteArray();
+    }
+
+}
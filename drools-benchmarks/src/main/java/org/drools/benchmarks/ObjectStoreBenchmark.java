@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.drools.RuleBaseConfiguration;
+import org.drools.common.InternalFactHandle;
+import org.drools.common.ObjectStore;
+import org.drools.common.PrimitiveObjectStore;
+import org.drools.common.SingleThreadedObjectStore;
+import org.drools.reteoo.ReteooFactHandleFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the hash map based SingleThreadedObjectStore with the
+ * PrimitiveObjectStore (see the drools.primitiveObjectStore option).
+ *
+ * Run it with "-prof gc" to compare the footprint: the normalized
+ * allocation rate of the fill benchmark is the memory each store
+ * allocates to hold factCount handles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ObjectStoreBenchmark {
+
+    @Param({"default", "primitive"})
+    public String                 store;
+
+    @Param({"equality", "identity"})
+    public String                 assertBehaviour;
+
+    @Param({"10000", "1000000"})
+    public int                    factCount;
+
+    private RuleBaseConfiguration conf;
+    private InternalFactHandle[]  handles;
+    private ObjectStore           filled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.conf = new RuleBaseConfiguration( BenchmarkUtil.newProperties( "drools.assertBehaviour",
+                                                                            this.assertBehaviour ) );
+        ReteooFactHandleFactory factory = new ReteooFactHandleFactory();
+        Fact[] facts = BenchmarkUtil.newFacts( this.factCount,
+                                               1,
+                                               this.factCount );
+        this.handles = new InternalFactHandle[facts.length];
+        for ( int i = 0; i < facts.length; i++ ) {
+            this.handles[i] = factory.newFactHandle( facts[i],
+                                                     null,
+                                                     null,
+                                                     null );
+        }
+        this.filled = fill();
+    }
+
+    private ObjectStore newStore() {
+        if ( "primitive".equals( this.store ) ) {
+            return new PrimitiveObjectStore( this.conf,
+                                             new ReentrantLock() );
+        }
+        return new SingleThreadedObjectStore( this.conf,
+                                              new ReentrantLock() );
+    }
+
+    @Benchmark
+    public ObjectStore fill() {
+        ObjectStore objectStore = newStore();
+        for ( int i = 0; i < this.handles.length; i++ ) {
+            objectStore.addHandle( this.handles[i],
+                                   this.handles[i].getObject() );
+        }
+        return objectStore;
+    }
+
+    @Benchmark
+    public int lookup() {
+        int found = 0;
+        for ( int i = 0; i < this.handles.length; i++ ) {
+            if ( this.filled.getHandleForObject( this.handles[i].getObject() ) != null ) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.time.Job;
+import org.drools.time.JobContext;
+import org.drools.time.JobHandle;
+import org.drools.time.TimerService;
+import org.drools.time.impl.JDKTimerService;
+import org.drools.time.impl.PointInTimeTrigger;
+import org.drools.time.impl.TimingWheelTimerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the JDKTimerService with the TimingWheelTimerService (see the
+ * drools.timerService option) holding jobCount pending jobs, as event
+ * expirations do in STREAM mode.
+ *
+ * scheduleAndRemove schedules the jobs over the next hour and removes them
+ * all, as when the events are retracted before they expire. expire
+ * schedules the jobs over the next second and waits for all of them to run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TimerServiceBenchmark {
+
+    @Param({"jdk", "wheel"})
+    public String          service;
+
+    @Param({"1000000"})
+    public int             jobCount;
+
+    private TimerService   timerService;
+    private JobHandle[]    handles;
+    private CountDownLatch latch;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        this.timerService = "jdk".equals( this.service ) ? new JDKTimerService() : new TimingWheelTimerService();
+        this.handles = new JobHandle[this.jobCount];
+        this.latch = new CountDownLatch( this.jobCount );
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdown() {
+        this.timerService.shutdown();
+    }
+
+    private void schedule(final long range) {
+        final Job job = new CountDownJob( this.latch );
+        final long now = System.currentTimeMillis();
+        for ( int i = 0; i < this.jobCount; i++ ) {
+            this.handles[i] = this.timerService.scheduleJob( job,
+                                                             null,
+                                                             new PointInTimeTrigger( now + (i * range) / this.jobCount,
+                                                                                     null,
+                                                                                     null ) );
+        }
+    }
+
+    @Benchmark
+    public int scheduleAndRemove() {
+        schedule( TimeUnit.HOURS.toMillis( 1 ) );
+        int removed = 0;
+        for ( int i = 0; i < this.jobCount; i++ ) {
+            if ( this.timerService.removeJob( this.handles[i] ) ) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Benchmark
+    public long expire() throws InterruptedException {
+        schedule( TimeUnit.SECONDS.toMillis( 1 ) );
+        this.latch.await();
+        return this.latch.getCount();
+    }
+
+    private static class CountDownJob
+        implements
+        Job {
+        private final CountDownLatch latch;
+
+        public CountDownJob(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        public void execute(JobContext ctx) {
+            this.latch.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.drools.RuntimeDroolsException;
+import org.drools.base.evaluators.EvaluatorRegistry;
+import org.drools.core.util.DroolsStreamUtils;
+import org.drools.rule.ImportDeclaration;
+import org.drools.rule.Package;
+import org.drools.rule.builder.dialect.java.JavaDialectConfiguration;
+
+/**
+ * A directory of compiled packages, each stored in a file named after the
+ * digest of the source it was compiled from, so an unchanged source is
+ * never parsed nor compiled again. The packages are stored in their
+ * serialized form, which includes the bytecode of their generated classes.
+ *
+ * The key of a source also covers the configuration of the builder, the
+ * bytecode of its evaluators and accumulate functions, and the keys of the
+ * sources previously added to the same builder, as the outcome of a
+ * compilation depends on them. Cached packages are only hit when the same
+ * sources are added to a builder in the same order. The builder stops using
+ * the cache once anything else than a DRL source is added to it.
+ *
+ * Each entry also records the digest of the bytecode of the classes the
+ * package uses, as its fact classes, imports and globals, so an entry
+ * compiled against other versions of those classes is not hit.
+ *
+ * Failing to read or write an entry is never an error, the source is just
+ * compiled as if it was not cached.
+ */
+public class CompilationCache {
+
+    private static final String FORMAT    = "2";
+
+    private static final String MISSING   = "-";
+
+    private static final String EXTENSION = ".pkg";
+
+    private final File          directory;
+
+    private final byte[]        configuration;
+
+    public CompilationCache(final File directory,
+                            final PackageBuilderConfiguration configuration) {
+        this.directory = directory;
+        this.configuration = toBytes( getSignature( configuration,
+                                                    configuration.getClassLoader() ) );
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the key of a source, given the key of the source added to the
+     * builder before it, or null for the first one.
+     */
+    public String getKey(final String previousKey,
+                         final byte[] source) {
+        final MessageDigest digest = newDigest();
+        digest.update( this.configuration );
+        if ( previousKey != null ) {
+            digest.update( toBytes( previousKey ) );
+        }
+        digest.update( source );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Returns the package stored for the key, or null if there is none, if
+     * it can't be read anymore or if the classes it uses changed, in which
+     * case the entry is removed.
+     */
+    public Package load(final String key,
+                        final ClassLoader classLoader) {
+        final File file = new File( this.directory,
+                                    key + EXTENSION );
+        if ( !file.isFile() ) {
+            return null;
+        }
+
+        InputStream in = null;
+        try {
+            in = new FileInputStream( file );
+            final DataInputStream data = new DataInputStream( in );
+            for ( int i = data.readInt(); i > 0; i-- ) {
+                final String className = data.readUTF();
+                if ( !data.readUTF().equals( getClassDigest( className,
+                                                             classLoader ) ) ) {
+                    close( in );
+                    in = null;
+                    file.delete();
+                    return null;
+                }
+            }
+            return (Package) DroolsStreamUtils.streamIn( in,
+                                                         classLoader,
+                                                         true );
+        } catch ( Exception e ) {
+            // written by another version, or partially written
+            close( in );
+            in = null;
+            file.delete();
+            return null;
+        } finally {
+            close( in );
+        }
+    }
+
+    /**
+     * Stores the package for the key, along with the digests of the classes
+     * it uses, as loaded by the class loader. The package is first written
+     * to a temporary file that is then renamed, so concurrent builders never
+     * read a partially written entry.
+     */
+    public void store(final String key,
+                      final Package pkg,
+                      final ClassLoader classLoader) {
+        File tmp = null;
+        OutputStream out = null;
+        try {
+            tmp = File.createTempFile( key,
+                                       ".tmp",
+                                       this.directory );
+            out = new FileOutputStream( tmp );
+            final Set<String> classNames = getClassNames( pkg );
+            final DataOutputStream data = new DataOutputStream( out );
+            data.writeInt( classNames.size() );
+            for ( String className : classNames ) {
+                data.writeUTF( className );
+                data.writeUTF( getClassDigest( className,
+                                               classLoader ) );
+            }
+            data.flush();
+            DroolsStreamUtils.streamOut( out,
+                                         pkg,
+                                         true );
+            out.close();
+            out = null;
+            if ( tmp.renameTo( new File( this.directory,
+                                         key + EXTENSION ) ) ) {
+                tmp = null;
+            }
+        } catch ( IOException e ) {
+            // not cached, the package is compiled again next time
+        } finally {
+            close( out );
+            if ( tmp != null ) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the whole source, that is both digested and parsed.
+     */
+    public static byte[] read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        for ( int read = in.read( buffer ); read != -1; read = in.read( buffer ) ) {
+            bytes.write( buffer,
+                         0,
+                         read );
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the names of the classes, outside of the JDK, the package
+     * reads facts from or refers to by its imports and globals.
+     */
+    private static Set<String> getClassNames(final Package pkg) {
+        final Set<String> classNames = new TreeSet<String>( pkg.getClassFieldAccessorStore().getClassNames() );
+        for ( ImportDeclaration importDeclaration : pkg.getImports().values() ) {
+            if ( !importDeclaration.getTarget().endsWith( "*" ) ) {
+                classNames.add( importDeclaration.getTarget() );
+            }
+        }
+        classNames.addAll( pkg.getGlobals().values() );
+        for ( Iterator<String> it = classNames.iterator(); it.hasNext(); ) {
+            final String className = it.next();
+            if ( className.startsWith( "java." ) || className.indexOf( '.' ) == -1 ) {
+                it.remove();
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Returns the digest of the bytecode of the class, as found by the class
+     * loader, or a marker if it can't be found.
+     */
+    private static String getClassDigest(final String className,
+                                         final ClassLoader classLoader) {
+        final InputStream in = classLoader.getResourceAsStream( className.replace( '.',
+                                                                                   '/' ) + ".class" );
+        if ( in == null ) {
+            return MISSING;
+        }
+        try {
+            final MessageDigest digest = newDigest();
+            digest.update( read( in ) );
+            return toHex( digest.digest() );
+        } catch ( IOException e ) {
+            return MISSING;
+        } finally {
+            close( in );
+        }
+    }
+
+    private static String getSignature(final PackageBuilderConfiguration configuration,
+                                       final ClassLoader classLoader) {
+        final StringBuilder signature = new StringBuilder();
+        signature.append( FORMAT ).append( '|' );
+        signature.append( Package.class.getPackage() != null ? Package.class.getPackage().getImplementationVersion() : null ).append( '|' );
+        signature.append( configuration.getDefaultDialect() ).append( '|' );
+        signature.append( configuration.getDefaultPackageName() ).append( '|' );
+        signature.append( configuration.isAllowMultipleNamespaces() ).append( '|' );
+        signature.append( configuration.isProcessStringEscapes() ).append( '|' );
+        if ( configuration.getDialectConfiguration( "java" ) instanceof JavaDialectConfiguration ) {
+            final JavaDialectConfiguration java = (JavaDialectConfiguration) configuration.getDialectConfiguration( "java" );
+            signature.append( java.getCompiler() ).append( '|' );
+            signature.append( java.getJavaLanguageLevel() ).append( '|' );
+        }
+        for ( Map.Entry<String, String> entry : new TreeMap<String, String>( configuration.getAccumulateFunctionsMap() ).entrySet() ) {
+            signature.append( entry.getKey() ).append( '=' ).append( entry.getValue() ).append( ':' );
+            signature.append( getClassDigest( entry.getValue(),
+                                              classLoader ) ).append( '|' );
+        }
+        final EvaluatorRegistry evaluators = configuration.getEvaluatorRegistry();
+        for ( String id : new TreeSet<String>( evaluators.keySet() ) ) {
+            final String className = evaluators.getEvaluatorDefinition( id ).getClass().getName();
+            signature.append( id ).append( '=' ).append( className ).append( ':' );
+            signature.append( getClassDigest( className,
+                                              classLoader ) ).append( '|' );
+        }
+        return signature.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance( "SHA-1" );
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new RuntimeDroolsException( "Unable to create the digest of the compilation cache",
+                                              e );
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder( bytes.length * 2 );
+        for ( int i = 0; i < bytes.length; i++ ) {
+            hex.append( Character.forDigit( (bytes[i] >> 4) & 0xF,
+                                            16 ) );
+            hex.append( Character.forDigit( bytes[i] & 0xF,
+                                            16 ) );
+        }
+        return hex.toString();
+    }
+
+    private static byte[] toBytes(final String string) {
+        try {
+            return string.getBytes( "UTF-8" );
+        } catch ( UnsupportedEncodingException e ) {
+            throw new RuntimeDroolsException( e );
+        }
+    }
+
+    private static void close(final Closeable closeable) {
+        if ( closeable != null ) {
+            try {
+                closeable.close();
+            } catch ( IOException e ) {
+                // nothing to do
+            }
+        }
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.drools.compiler;
 
 import java.beans.IntrospectionException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -33,6 +34,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.drools.ChangeSet;
 import org.drools.PackageIntegrationException;
@@ -48,6 +55,7 @@ import org.drools.builder.ResourceType;
 import org.drools.builder.conf.impl.JaxbConfigurationImpl;
 import org.drools.common.InternalRuleBase;
 import org.drools.commons.jci.problems.CompilationProblem;
+import org.drools.commons.jci.compilers.CompilationResult;
 import org.drools.compiler.xml.XmlPackageReader;
 import org.drools.core.util.ClassUtils;
 import org.drools.core.util.DroolsStreamUtils;
@@ -90,6 +98,7 @@ import org.drools.rule.TypeDeclaration;
 import org.drools.rule.builder.RuleBuildContext;
 import org.drools.rule.builder.RuleBuilder;
 import org.drools.rule.builder.dialect.DialectError;
+import org.drools.rule.builder.dialect.java.JavaDialect;
 import org.drools.runtime.pipeline.impl.DroolsJaxbHelperProviderImpl;
 import org.drools.spi.InternalReadAccessor;
 import org.drools.type.DateFormats;
@@ -146,6 +155,14 @@ public class PackageBuilder {
 
     private Map<String, TypeDeclaration>      builtinTypes;
 
+    private CompilationCache                  compilationCache;
+
+    // the cache key of the last DRL resource added, that the key of the next one is chained to
+    private String                            compilationCacheKey;
+
+    // true while a DRL resource is added through the compilation cache
+    private boolean                           addingCachedPackage;
+
     /**
      * Use this when package is starting from scratch.
      */
@@ -250,6 +267,12 @@ public class PackageBuilder {
 
         this.ruleBase = (ReteooRuleBase) ruleBase;
 
+        // the packages of a rulebase are not covered by the cache keys
+        if ( ruleBase == null && this.configuration.getCompilationCacheDir() != null ) {
+            this.compilationCache = new CompilationCache( this.configuration.getCompilationCacheDir(),
+                                                          this.configuration );
+        }
+
         globals = new HashMap<String, Class< ? >>();
 
         processBuilder = createProcessBuilder();
@@ -303,13 +326,117 @@ public class PackageBuilder {
     public void addPackageFromDrl(Resource resource) throws DroolsParserException,
                                                       IOException {
         this.resource = resource;
+        if ( this.compilationCache != null ) {
+            addCachedPackageFromDrl( resource );
+        } else {
+            final DrlParser parser = new DrlParser();
+            final PackageDescr pkg = parser.parse( resource.getInputStream() );
+            this.results.addAll( parser.getErrors() );
+            if ( !parser.hasErrors() ) {
+                addPackage( pkg );
+            }
+        }
+        this.resource = null;
+    }
+
+    /**
+     * Adds the package cached for the DRL resource, if any, otherwise
+     * compiles the resource and caches the resulting package. Only packages
+     * built without errors or warnings, that didn't exist in this builder
+     * before, are cached, so the cached package is exactly what the resource
+     * compiles to.
+     */
+    private void addCachedPackageFromDrl(final Resource resource) throws DroolsParserException,
+                                                                   IOException {
+        final InputStream is = resource.getInputStream();
+        final byte[] source;
+        try {
+            source = CompilationCache.read( is );
+        } finally {
+            is.close();
+        }
+
+        final String key = this.compilationCache.getKey( this.compilationCacheKey,
+                                                         source );
+        this.compilationCacheKey = key;
+
+        this.addingCachedPackage = true;
+        try {
+            addCachedPackageFromDrl( resource,
+                                     source,
+                                     key );
+        } finally {
+            this.addingCachedPackage = false;
+        }
+    }
+
+    private void addCachedPackageFromDrl(final Resource resource,
+                                         final byte[] source,
+                                         final String key) throws DroolsParserException {
+        final Package cached = this.compilationCache.load( key,
+                                                           this.rootClassLoader );
+        if ( cached != null ) {
+            setResource( cached,
+                         resource );
+            addPackage( cached );
+            return;
+        }
+
         final DrlParser parser = new DrlParser();
-        final PackageDescr pkg = parser.parse( resource.getInputStream() );
+        final PackageDescr packageDescr = parser.parse( new ByteArrayInputStream( source ) );
         this.results.addAll( parser.getErrors() );
-        if ( !parser.hasErrors() ) {
-            addPackage( pkg );
+        if ( parser.hasErrors() ) {
+            return;
+        }
+
+        final Set<String> existing = new HashSet<String>( this.pkgRegistryMap.keySet() );
+        final int results = this.results.size();
+        addPackage( packageDescr );
+        if ( this.results.size() == results && this.pkgRegistryMap.size() == existing.size() + 1 ) {
+            for ( PackageRegistry pkgRegistry : this.pkgRegistryMap.values() ) {
+                if ( !existing.contains( pkgRegistry.getPackage().getName() ) ) {
+                    // the resource is set back when the package is loaded, and may not be serializable
+                    setResource( pkgRegistry.getPackage(),
+                                 null );
+                    try {
+                        this.compilationCache.store( key,
+                                                     pkgRegistry.getPackage(),
+                                                     this.rootClassLoader );
+                    } finally {
+                        setResource( pkgRegistry.getPackage(),
+                                     resource );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops using the compilation cache once anything else than a DRL
+     * resource is added, as the keys of the resources added after it would
+     * not cover it.
+     */
+    private void disableCompilationCache() {
+        if ( !this.addingCachedPackage ) {
+            this.compilationCache = null;
+        }
+    }
+
+    private void setResource(final Package pkg,
+                             final Resource resource) {
+        for ( Rule rule : pkg.getRules() ) {
+            rule.setResource( resource );
+        }
+        if ( pkg.getFunctions() != null ) {
+            for ( Function function : pkg.getFunctions().values() ) {
+                function.setResource( resource );
+            }
+        }
+        if ( pkg.getTypeDeclarations() != null ) {
+            for ( TypeDeclaration type : pkg.getTypeDeclarations().values() ) {
+                type.setResource( resource );
+            }
         }
-        this.resource = null;
     }
 
     /**
@@ -433,6 +560,7 @@ public class PackageBuilder {
     }
 
     public void addDsl(Resource resource) throws IOException {
+        disableCompilationCache();
         this.resource = resource;
 
         DSLTokenizedMappingFile file = new DSLTokenizedMappingFile();
@@ -455,6 +583,7 @@ public class PackageBuilder {
     }
 
     public void addProcessFromXml(Resource resource) {
+        disableCompilationCache();
         this.resource = resource;
 
         try {
@@ -580,6 +709,7 @@ public class PackageBuilder {
      * there are any generated classes to compile of course.
      */
     public void addPackage(final PackageDescr packageDescr) {
+        disableCompilationCache();
         validateUniqueRuleNames( packageDescr );
 
         String dialectName = this.defaultDialect;
@@ -700,11 +830,63 @@ public class PackageBuilder {
     }
 
     public void compileAll() {
+        if ( this.configuration.getCompilerThreads() > 1 ) {
+            compileBatches( this.configuration.getCompilerThreads() );
+        }
         for ( PackageRegistry pkgRegistry : this.pkgRegistryMap.values() ) {
             pkgRegistry.compileAll();
         }
     }
 
+    /**
+     * Compiles the classes generated for the rules of the java dialect in
+     * concurrent batches. The compiled classes are only added to the packages,
+     * in the order the rules were added, by the compileAll() of each dialect,
+     * so errors are reported as if all the classes were compiled at once.
+     */
+    private void compileBatches(final int threads) {
+        final List<Callable<CompilationResult>> batches = new ArrayList<Callable<CompilationResult>>();
+        for ( PackageRegistry pkgRegistry : this.pkgRegistryMap.values() ) {
+            Dialect dialect = pkgRegistry.getDialectCompiletimeRegistry().getDialect( "java" );
+            if ( dialect instanceof JavaDialect ) {
+                batches.addAll( ((JavaDialect) dialect).createCompileBatches( threads ) );
+            }
+        }
+        if ( batches.size() < 2 ) {
+            // a single batch is compiled by the dialect itself
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads,
+                                                                                 batches.size() ),
+                                                                       new CompilerThreadFactory() );
+        try {
+            for ( Future<CompilationResult> future : executor.invokeAll( batches ) ) {
+                future.get();
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeDroolsException( "Interrupted while compiling the rules",
+                                              e );
+        } catch ( ExecutionException e ) {
+            throw new RuntimeDroolsException( "Unable to compile the rules",
+                                              e.getCause() );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static class CompilerThreadFactory
+        implements
+        ThreadFactory {
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread( runnable,
+                                              "drools-compiler" );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+
     public void reloadAll() {
         for ( PackageRegistry pkgRegistry : this.pkgRegistryMap.values() ) {
             pkgRegistry.getDialectRuntimeRegistry().onBeforeExecute();
@@ -719,6 +901,7 @@ public class PackageBuilder {
     }
 
     public synchronized void addPackage(final Package newPkg) {
+        disableCompilationCache();
         PackageRegistry pkgRegistry = this.pkgRegistryMap.get( newPkg.getName() );
         Package pkg = null;
         if ( pkgRegistry != null ) {
@@ -1525,6 +1708,10 @@ public class PackageBuilder {
             this.message = message;
         }
 
+        public Rule getRule() {
+            return this.rule;
+        }
+
         public DroolsError getError() {
             return new RuleBuildError( this.rule,
                                        this.descr,
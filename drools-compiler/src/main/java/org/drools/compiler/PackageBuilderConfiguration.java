@@ -68,6 +68,8 @@ import org.drools.xml.SemanticModules;
  * drools.evaluator.<ident> = <qualified class>
  * drools.dump.dir = <String>
  * drools.classLoaderCacheEnabled = true|false
+ * drools.compiler.threads = <int>
+ * drools.compiler.cache.dir = <String>
  *
  * default dialect is java.
  * Available preconfigured Accumulate functions are:
@@ -105,6 +107,10 @@ public class PackageBuilderConfiguration
 
     private boolean                           classLoaderCache        = true;
 
+    private int                               compilerThreads         = 1;
+
+    private File                              compilationCacheDir;
+
     private String                            defaultPackageName;
 
     public boolean isAllowMultipleNamespaces() {
@@ -186,6 +192,14 @@ public class PackageBuilderConfiguration
         setProperty( DefaultPackageNameOption.PROPERTY_NAME,
                      this.chainedProperties.getProperty( DefaultPackageNameOption.PROPERTY_NAME,
                                                          "defaultpkg" ) );
+
+        setProperty( "drools.compiler.threads",
+                     this.chainedProperties.getProperty( "drools.compiler.threads",
+                                                         "1" ) );
+
+        setProperty( "drools.compiler.cache.dir",
+                     this.chainedProperties.getProperty( "drools.compiler.cache.dir",
+                                                         null ) );
     }
 
     public void setProperty(String name,
@@ -210,6 +224,10 @@ public class PackageBuilderConfiguration
             setProcessStringEscapes( Boolean.parseBoolean( value ) );
         } else if ( name.equals( ClassLoaderCacheOption.PROPERTY_NAME ) ) {
             setClassLoaderCacheEnabled( Boolean.parseBoolean( value ) );
+        } else if ( name.equals( "drools.compiler.threads" ) ) {
+            setCompilerThreads( StringUtils.isEmpty( value ) ? 1 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.compiler.cache.dir" ) ) {
+            setCompilationCacheDir( StringUtils.isEmpty( value ) ? null : new File( value ) );
         }
     }
 
@@ -237,6 +255,10 @@ public class PackageBuilderConfiguration
             return String.valueOf( isProcessStringEscapes() );
         } else if ( name.equals( ClassLoaderCacheOption.PROPERTY_NAME ) ) {
             return String.valueOf( isClassLoaderCacheEnabled() );
+        } else if ( name.equals( "drools.compiler.threads" ) ) {
+            return String.valueOf( getCompilerThreads() );
+        } else if ( name.equals( "drools.compiler.cache.dir" ) ) {
+            return this.compilationCacheDir != null ? this.compilationCacheDir.toString() : null;
         }
         return null;
     }
@@ -581,6 +603,41 @@ public class PackageBuilderConfiguration
         this.classLoader.setCachingEnabled( this.classLoaderCache );
     }
 
+    public int getCompilerThreads() {
+        return compilerThreads;
+    }
+
+    /**
+     * Sets the number of threads used to compile the classes generated for the rules.
+     * With a single thread, the default, all the classes are compiled at once by the
+     * thread building the package.
+     */
+    public void setCompilerThreads(int compilerThreads) {
+        if ( compilerThreads < 1 ) {
+            throw new IllegalArgumentException( "The number of compiler threads must be at least 1: " + compilerThreads );
+        }
+        this.compilerThreads = compilerThreads;
+    }
+
+    public File getCompilationCacheDir() {
+        return this.compilationCacheDir;
+    }
+
+    /**
+     * Sets the directory the packages compiled from DRL resources are cached in,
+     * see CompilationCache. The directory is created if it does not exist.
+     * Caching is disabled when it is null, the default.
+     */
+    public void setCompilationCacheDir(File compilationCacheDir) {
+        if ( compilationCacheDir != null ) {
+            compilationCacheDir.mkdirs();
+            if ( !compilationCacheDir.isDirectory() || !compilationCacheDir.canWrite() || !compilationCacheDir.canRead() ) {
+                throw new RuntimeDroolsException( "Drools compilation cache directory is not accessible: " + compilationCacheDir.toString() );
+            }
+        }
+        this.compilationCacheDir = compilationCacheDir;
+    }
+
     public String getDefaultPackageName() {
         return defaultPackageName;
     }
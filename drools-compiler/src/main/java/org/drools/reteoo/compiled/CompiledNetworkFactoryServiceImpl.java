@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo.compiled;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.drools.compiler.PackageBuilder;
+import org.drools.compiler.PackageBuilderConfiguration;
+import org.drools.reteoo.ObjectTypeNode;
+
+/**
+ * Compiles the networks with a new {@link PackageBuilder}, whose class loader delegates to the rulebase's
+ * class loader, so that the generated classes can see the fact classes of the rulebase.
+ */
+public class CompiledNetworkFactoryServiceImpl
+    implements
+    CompiledNetworkFactoryService {
+
+    public Map<ObjectTypeNode, CompiledNetwork> newCompiledNetworks(Collection<ObjectTypeNode> objectTypeNodes,
+                                                                    ClassLoader classLoader) {
+        PackageBuilder builder = new PackageBuilder( new PackageBuilderConfiguration( classLoader ) );
+        return ObjectTypeNodeCompiler.compile( builder,
+                                               objectTypeNodes );
+    }
+
+}
@@ -1,7 +1,7 @@
 package org.drools.reteoo.compiled;
 
+import org.drools.RuntimeDroolsException;
 import org.drools.base.ClassObjectType;
-import org.drools.base.ValueType;
 import org.drools.compiler.PackageBuilder;
 import org.drools.compiler.PackageRegistry;
 import org.drools.lang.descr.PackageDescr;
@@ -9,19 +9,18 @@ import org.drools.reteoo.ObjectTypeNode;
 import org.drools.rule.builder.dialect.java.JavaDialect;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * todo: document
+ * Generates and compiles a subclass of {@link CompiledNetwork} for an {@link ObjectTypeNode}. The generated class
+ * replaces the interpreted propagation of asserted facts to the alpha network below the OTN.
  */
 public class ObjectTypeNodeCompiler {
     private static final String NEWLINE = "\n";
     private static final String PACKAGE_NAME = "org.drools.reteoo.compiled";
     private static final String BINARY_PACKAGE_NAME = PACKAGE_NAME.replaceAll("\\.", "/");
-    /**
-     * This field hold the fully qualified class name that the {@link org.drools.reteoo.ObjectTypeNode} is representing.
-     */
-    private String className;
-
     /**
      * This field will hold the "simple" name of the generated class
      */
@@ -38,8 +37,9 @@ public class ObjectTypeNodeCompiler {
         this.objectTypeNode = objectTypeNode;
 
         ClassObjectType classObjectType = (ClassObjectType) objectTypeNode.getObjectType();
-        this.className = classObjectType.getClassName();
-        generatedClassSimpleName = "Compiled" + classObjectType.getClassName().replaceAll("\\.", "_") + "Network";
+        // the node id is appended, as there is an OTN for the same class in each entry point
+        generatedClassSimpleName = "Compiled" + classObjectType.getClassName().replaceAll("[.$]", "_") + "Network"
+                + objectTypeNode.getId();
     }
 
     private String generateSource() {
@@ -61,7 +61,7 @@ public class ObjectTypeNodeCompiler {
         parser.accept(setNode);
 
         // create assert method
-        AssertHandler assertHandler = new AssertHandler(builder, className, hashedAlphaDeclarations.size() > 0);
+        AssertHandler assertHandler = new AssertHandler(builder, hashedAlphaDeclarations.size() > 0);
         parser.accept(assertHandler);
 
         // end of class
@@ -95,16 +95,13 @@ public class ObjectTypeNodeCompiler {
             String mapVariableName = declaration.getVariableName();
 
             for (Object hashedValue : declaration.getHashedValues()) {
-                Object value = hashedValue;
-                // need to quote value if it is a string
-                if (declaration.getValueType() == ValueType.STRING_TYPE) {
-                    value = "\"" + value + "\"";
-                }
+                String value = declaration.getKeySource(hashedValue);
 
                 String nodeId = declaration.getNodeId(hashedValue);
 
                 // generate the map.put(hashedValue, nodeId) call
-                builder.append(mapVariableName).append(".put(").append(value).append(", ").append(nodeId).append(");");
+                builder.append(mapVariableName).append(".put(").append(value).append(", Integer.valueOf(").
+                        append(nodeId).append("));");
                 builder.append(NEWLINE);
             }
         }
@@ -141,43 +138,97 @@ public class ObjectTypeNodeCompiler {
      * @param pkgBuilder     builder used to compile and load class
      * @param objectTypeNode OTN we are generating a compiled network for
      * @return CompiledNetwork
+     * @throws IllegalArgumentException if the network below the OTN can not be compiled
      */
     public static CompiledNetwork compile(PackageBuilder pkgBuilder, ObjectTypeNode objectTypeNode) {
         if (objectTypeNode == null) {
             throw new IllegalArgumentException("ObjectTypeNode cannot be null!");
         }
+        if (!isCompilable(objectTypeNode)) {
+            throw new IllegalArgumentException("The network of " + objectTypeNode + " can not be compiled");
+        }
+
+        return compile(pkgBuilder, Collections.singletonList(objectTypeNode)).get(objectTypeNode);
+    }
+
+    /**
+     * Creates a {@link CompiledNetwork} for each of the specified {@link ObjectTypeNode}s that can be compiled. All
+     * the generated sources are compiled at once by the {@link PackageBuilder}, which is also used to load
+     * the classes.
+     *
+     * @param pkgBuilder      builder used to compile and load classes
+     * @param objectTypeNodes OTNs we are generating compiled networks for
+     * @return the CompiledNetworks by OTN, OTNs that can't be compiled are left out
+     */
+    public static Map<ObjectTypeNode, CompiledNetwork> compile(PackageBuilder pkgBuilder,
+                                                               Collection<ObjectTypeNode> objectTypeNodes) {
         if (pkgBuilder == null) {
             throw new IllegalArgumentException("PackageBuilder cannot be null!");
         }
-        ObjectTypeNodeCompiler compiler = new ObjectTypeNodeCompiler(objectTypeNode);
 
-        String packageName = compiler.getPackageName();
-
-        PackageRegistry pkgReg = pkgBuilder.getPackageRegistry(packageName);
+        PackageRegistry pkgReg = pkgBuilder.getPackageRegistry(PACKAGE_NAME);
         if (pkgReg == null) {
-            pkgBuilder.addPackage(new PackageDescr(packageName));
-            pkgReg = pkgBuilder.getPackageRegistry(packageName);
+            pkgBuilder.addPackage(new PackageDescr(PACKAGE_NAME));
+            pkgReg = pkgBuilder.getPackageRegistry(PACKAGE_NAME);
+        }
+        JavaDialect dialect = (JavaDialect) pkgReg.getDialectCompiletimeRegistry().getDialect("java");
+
+        Map<ObjectTypeNode, String> generatedNames = new LinkedHashMap<ObjectTypeNode, String>();
+        for (ObjectTypeNode objectTypeNode : objectTypeNodes) {
+            if (!isCompilable(objectTypeNode)) {
+                continue;
+            }
+            ObjectTypeNodeCompiler compiler = new ObjectTypeNodeCompiler(objectTypeNode);
+
+            String source;
+            try {
+                source = compiler.generateSource();
+            } catch (IllegalArgumentException e) {
+                // the network contains nodes or values that are not supported, keep it interpreted
+                continue;
+            }
+
+            dialect.addSrc(compiler.getBinaryName(), source.getBytes());
+            generatedNames.put(objectTypeNode, compiler.getName());
         }
 
-        String source = compiler.generateSource();
-        String generatedSourceName = compiler.getName();
+        if (generatedNames.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-        JavaDialect dialect = (JavaDialect) pkgReg.getDialectCompiletimeRegistry().getDialect("java");
-        dialect.addSrc(compiler.getBinaryName(), source.getBytes());
         pkgBuilder.compileAll();
         pkgBuilder.updateResults();
+        if (pkgBuilder.hasErrors()) {
+            throw new RuntimeDroolsException("Unable to compile the alpha network: " + pkgBuilder.getErrors());
+        }
 
-        CompiledNetwork network;
-        try {
-            network = (CompiledNetwork) Class.forName(generatedSourceName, true, pkgBuilder.getRootClassLoader()).newInstance();
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("This is a bug. Please contact the development team", e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("This is a bug. Please contact the development team", e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException("This is a bug. Please contact the development team", e);
+        Map<ObjectTypeNode, CompiledNetwork> networks = new LinkedHashMap<ObjectTypeNode, CompiledNetwork>();
+        for (Map.Entry<ObjectTypeNode, String> entry : generatedNames.entrySet()) {
+            CompiledNetwork network;
+            try {
+                network = (CompiledNetwork) Class.forName(entry.getValue(), true, pkgBuilder.getRootClassLoader()).newInstance();
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("This is a bug. Please contact the development team", e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("This is a bug. Please contact the development team", e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException("This is a bug. Please contact the development team", e);
+            }
+            networks.put(entry.getKey(), network);
         }
 
-        return network;
+        return networks;
+    }
+
+    /**
+     * Only OTNs for classes, with at least one child, are compiled. Whether the nodes below the OTN are supported
+     * is only known when the source is generated.
+     *
+     * @param objectTypeNode OTN to check
+     * @return true if a network can be generated for the OTN
+     */
+    private static boolean isCompilable(ObjectTypeNode objectTypeNode) {
+        return objectTypeNode.getObjectType() instanceof ClassObjectType
+                && objectTypeNode.getSinkPropagator().size() > 0;
     }
 }
@@ -31,7 +31,10 @@ import org.drools.base.DroolsQuery;
 import org.drools.base.FieldFactory;
 import org.drools.base.ValueType;
 import org.drools.base.evaluators.EvaluatorDefinition;
+import org.drools.base.evaluators.SetEvaluatorsDefinition;
 import org.drools.base.evaluators.EvaluatorDefinition.Target;
+import org.drools.base.field.LiteralSet;
+import org.drools.base.field.ObjectFieldImpl;
 import org.drools.compiler.AnalysisResult;
 import org.drools.compiler.BoundIdentifiers;
 import org.drools.compiler.DescrBuildError;
@@ -49,6 +52,7 @@ import org.drools.lang.descr.AtomicExprDescr;
 import org.drools.lang.descr.BaseDescr;
 import org.drools.lang.descr.BehaviorDescr;
 import org.drools.lang.descr.BindingDescr;
+import org.drools.lang.descr.ConnectiveType;
 import org.drools.lang.descr.ConstraintConnectiveDescr;
 import org.drools.lang.descr.ExprConstraintDescr;
 import org.drools.lang.descr.LiteralRestrictionDescr;
@@ -334,6 +338,17 @@ public class PatternBuilder
                 }
             }
 
+            if ( d instanceof ConstraintConnectiveDescr && context.isTypesafe() ) {
+                // "field in ( a, b, c )" is parsed to "field == a || field == b || field == c"
+                LiteralConstraint constraint = buildLiteralSetConstraint( context,
+                                                                          pattern,
+                                                                          (ConstraintConnectiveDescr) d );
+                if ( constraint != null ) {
+                    pattern.addConstraint( constraint );
+                    continue;
+                }
+            }
+
             if ( expr.startsWith( "eval" ) ) {
                 // strip evals, as mvel won't understand those.
                 int startParen = expr.indexOf( '(' ) + 1;
@@ -922,6 +937,104 @@ public class PatternBuilder
                                        extractor );
     }
 
+    /**
+     * Builds a single memberOf constraint against a hashed set of literals for a disjunction of equality checks of
+     * the same field against literals, which is how the "in" operator is parsed, so the field is looked up once
+     * in the set instead of being compared to each literal in an eval. Returns null, without reporting any error,
+     * when the disjunction is not of that form, so it is built the usual way.
+     */
+    private LiteralConstraint buildLiteralSetConstraint( final RuleBuildContext context,
+                                                         final Pattern pattern,
+                                                         final ConstraintConnectiveDescr descr ) {
+        if ( descr.getConnective() != ConnectiveType.OR || descr.getDescrs().size() < 2 ) {
+            return null;
+        }
+
+        String fieldName = null;
+        final List<String> values = new ArrayList<String>( descr.getDescrs().size() );
+        for ( BaseDescr d : descr.getDescrs() ) {
+            if ( !(d instanceof RelationalExprDescr) ) {
+                return null;
+            }
+            RelationalExprDescr relDescr = (RelationalExprDescr) d;
+            if ( !"==".equals( relDescr.getOperator().trim() ) || relDescr.isNegated() || !(relDescr.getLeft() instanceof AtomicExprDescr) || !(relDescr.getRight() instanceof AtomicExprDescr) || !((AtomicExprDescr) relDescr.getRight()).isLiteral() ) {
+                return null;
+            }
+            String left = ((AtomicExprDescr) relDescr.getLeft()).getExpression().trim();
+            if ( fieldName == null ) {
+                fieldName = left;
+            } else if ( !fieldName.equals( left ) ) {
+                return null;
+            }
+            values.add( ((AtomicExprDescr) relDescr.getRight()).getExpression().trim() );
+        }
+
+        if ( fieldName.indexOf( '.' ) >= 0 || fieldName.indexOf( '[' ) >= 0 || fieldName.indexOf( '(' ) >= 0 ) {
+            return null;
+        }
+
+        final EvaluatorDefinition def = context.getConfiguration().getEvaluatorRegistry().getEvaluatorDefinition( SetEvaluatorsDefinition.MEMBEROF.getOperatorString() );
+        if ( def == null ) {
+            return null;
+        }
+
+        final InternalReadAccessor extractor = getFieldReadAccessor( context,
+                                                                     descr,
+                                                                     pattern.getObjectType(),
+                                                                     fieldName,
+                                                                     null,
+                                                                     false );
+        if ( extractor == null || !isLiteralSetType( extractor.getValueType() ) || !def.supportsType( extractor.getValueType() ) ) {
+            return null;
+        }
+
+        final FieldValue[] fields = new FieldValue[values.size()];
+        try {
+            MVELDialect dialect = (MVELDialect) context.getDialect( "mvel" );
+            ParserConfiguration pconf = new ParserConfiguration();
+            pconf.setImports( dialect.getImports() );
+            pconf.setPackageImports( (HashSet) dialect.getPackgeImports() );
+            ParserContext pctx = new ParserContext( pconf );
+
+            for ( int i = 0; i < fields.length; i++ ) {
+                fields[i] = FieldFactory.getFieldValue( MVEL.executeExpression( MVEL.compileExpression( values.get( i ),
+                                                                                                        pctx ) ),
+                                                        extractor.getValueType(),
+                                                        context.getPackageBuilder().getDateFormats() );
+                if ( fields[i] == null || fields[i].isNull() ) {
+                    return null;
+                }
+            }
+        } catch ( final Exception e ) {
+            // the usual build reports the literal that can't be converted
+            return null;
+        }
+
+        final Evaluator evaluator = def.getEvaluator( extractor.getValueType(),
+                                                      SetEvaluatorsDefinition.MEMBEROF.getOperatorString(),
+                                                      false,
+                                                      null,
+                                                      Target.FACT,
+                                                      getRightTarget( extractor ) );
+        if ( evaluator == null ) {
+            return null;
+        }
+
+        return new LiteralConstraint( extractor,
+                                      new LiteralRestriction( new ObjectFieldImpl( LiteralSet.newInstance( extractor.getValueType(),
+                                                                                                           fields ) ),
+                                                              evaluator,
+                                                              extractor ) );
+    }
+
+    /**
+     * The literal sets look values up with equals, which only agrees with == for these types: big decimals are
+     * compared with compareTo, doubles and floats tell -0.0 from 0.0 and objects may use any evaluator.
+     */
+    private boolean isLiteralSetType( final ValueType type ) {
+        return (type.isIntegerNumber() && type != ValueType.BIG_INTEGER_TYPE) || type.isChar() || type.isBoolean() || type == ValueType.STRING_TYPE;
+    }
+
     private Target getRightTarget( final InternalReadAccessor extractor ) {
         Target right = (extractor.isSelfReference() && !(Date.class.isAssignableFrom( extractor.getExtractToClass() ) || Number.class.isAssignableFrom( extractor.getExtractToClass() ))) ? Target.HANDLE : Target.FACT;
         return right;
@@ -108,7 +108,7 @@ public class RuleBuilder {
         Rule rule = context.getRule();
         for ( String metaAttr : context.getRuleDescr().getAnnotationNames() ) {
             String value = context.getRuleDescr().getAnnotation(metaAttr).getValue();
-            if( value.startsWith( "\"" ) && value.endsWith( "\"" ) && value.length() > 2 ) {
+            if( value != null && value.startsWith( "\"" ) && value.endsWith( "\"" ) && value.length() > 2 ) {
                 value = value.substring( 1, value.length()-1 );
             }
             rule.addMetaAttribute( metaAttr, value );
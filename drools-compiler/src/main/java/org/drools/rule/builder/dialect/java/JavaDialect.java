@@ -6,10 +6,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.drools.base.TypeResolver;
 import org.drools.commons.jci.compilers.CompilationResult;
@@ -19,6 +22,7 @@ import org.drools.commons.jci.compilers.JavaCompilerSettings;
 import org.drools.commons.jci.problems.CompilationProblem;
 import org.drools.commons.jci.readers.MemoryResourceReader;
 import org.drools.commons.jci.readers.ResourceReader;
+import org.drools.commons.jci.stores.ResourceStore;
 import org.drools.compiler.AnalysisResult;
 import org.drools.compiler.BoundIdentifiers;
 import org.drools.compiler.DescrBuildError;
@@ -127,6 +131,9 @@ public class JavaDialect
 
     private PackageRegistry                          packageRegistry;
 
+    // batches of the generated classes compiled ahead of compileAll(), see createCompileBatches()
+    private List<CompileBatch>                       compileBatches;
+
     public JavaDialect(PackageBuilder builder,
                        PackageRegistry pkgRegistry,
                        Package pkg) {
@@ -136,7 +143,8 @@ public class JavaDialect
 
         this.configuration = (JavaDialectConfiguration) builder.getPackageBuilderConfiguration().getDialectConfiguration( "java" );
 
-        this.errorHandlers = new HashMap();
+        // keep the handlers in the order the classes were added, so errors are reported in that order
+        this.errorHandlers = new LinkedHashMap();
         this.results = new ArrayList();
 
         this.src = new MemoryResourceReader();
@@ -365,10 +373,15 @@ public class JavaDialect
                            dumpDir );
         }
 
-        final CompilationResult result = this.compiler.compile( classes,
-                                                                this.src,
-                                                                this.packageStoreWrapper,
-                                                                this.packageBuilder.getRootClassLoader() );
+        final CompilationResult result;
+        if ( this.compileBatches != null ) {
+            result = writeCompileBatches();
+        } else {
+            result = this.compiler.compile( classes,
+                                            this.src,
+                                            this.packageStoreWrapper,
+                                            this.packageBuilder.getRootClassLoader() );
+        }
 
         //this will sort out the errors based on what class/file they happened in
         if ( result.getErrors().length > 0 ) {
@@ -394,6 +407,133 @@ public class JavaDialect
         this.generatedClassList.clear();
     }
 
+    /**
+     * Splits the classes waiting to be compiled into at most maxBatches batches,
+     * keeping each rule class together with its invokers, so that the batches
+     * can be compiled concurrently. Each batch compiles into its own store and
+     * the compiled classes are only written to the package, batch by batch,
+     * when compileAll() is called, so the result does not depend on which
+     * batch finishes first.
+     * 
+     * Returns an empty list when the classes can't be split, for instance
+     * because functions, that any rule may use, are waiting to be compiled.
+     * compileAll() then compiles all the classes at once, as usual.
+     */
+    public List<? extends Callable<CompilationResult>> createCompileBatches(final int maxBatches) {
+        this.compileBatches = null;
+        // only the eclipse compiler is known to support concurrent compilations
+        if ( maxBatches < 2 || this.configuration.getCompiler() != JavaDialectConfiguration.ECLIPSE ) {
+            return Collections.emptyList();
+        }
+
+        final Map<Rule, List<String>> groups = new LinkedHashMap<Rule, List<String>>();
+        for ( final Iterator it = this.generatedClassList.iterator(); it.hasNext(); ) {
+            final String className = (String) it.next();
+            final Object handler = this.errorHandlers.get( className );
+            if ( !(handler instanceof RuleErrorHandler) || ((RuleErrorHandler) handler).getRule() == null ) {
+                return Collections.emptyList();
+            }
+            final Rule rule = ((RuleErrorHandler) handler).getRule();
+            List<String> group = groups.get( rule );
+            if ( group == null ) {
+                group = new ArrayList<String>();
+                groups.put( rule,
+                            group );
+            }
+            group.add( className );
+        }
+        if ( groups.size() < 2 ) {
+            return Collections.emptyList();
+        }
+
+        // contiguous runs of rules, so the classes are written in the order the rules were added
+        final int rulesPerBatch = (groups.size() + maxBatches - 1) / maxBatches;
+        final List<CompileBatch> batches = new ArrayList<CompileBatch>();
+        List<String> classes = new ArrayList<String>();
+        int rules = 0;
+        for ( final List<String> group : groups.values() ) {
+            classes.addAll( group );
+            if ( ++rules == rulesPerBatch ) {
+                batches.add( new CompileBatch( classes.toArray( new String[classes.size()] ) ) );
+                classes = new ArrayList<String>();
+                rules = 0;
+            }
+        }
+        if ( !classes.isEmpty() ) {
+            batches.add( new CompileBatch( classes.toArray( new String[classes.size()] ) ) );
+        }
+
+        this.compileBatches = batches;
+        return batches;
+    }
+
+    /**
+     * Writes the classes compiled by each batch to the package, compiling the
+     * batches that were not compiled yet, and returns all their problems.
+     */
+    private CompilationResult writeCompileBatches() {
+        final List<CompileBatch> batches = this.compileBatches;
+        this.compileBatches = null;
+
+        final List<CompilationProblem> problems = new ArrayList<CompilationProblem>();
+        for ( final CompileBatch batch : batches ) {
+            if ( batch.result == null ) {
+                batch.call();
+            }
+            for ( final Map.Entry<String, byte[]> entry : batch.classes.entrySet() ) {
+                this.packageStoreWrapper.write( entry.getKey(),
+                                                entry.getValue() );
+            }
+            Collections.addAll( problems,
+                                batch.result.getErrors() );
+            Collections.addAll( problems,
+                                batch.result.getWarnings() );
+        }
+        return new CompilationResult( problems.toArray( new CompilationProblem[problems.size()] ) );
+    }
+
+    /**
+     * A set of classes compiled on its own. The compiled classes are kept in
+     * the batch until compileAll() writes them, while the classes already in
+     * the package are read from the package store, that is not written to
+     * while batches are being compiled.
+     */
+    private class CompileBatch
+        implements
+        Callable<CompilationResult>,
+        ResourceStore {
+        private final String[]            sources;
+        private final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        private CompilationResult         result;
+
+        CompileBatch(final String[] sources) {
+            this.sources = sources;
+        }
+
+        public CompilationResult call() {
+            this.result = compiler.compile( this.sources,
+                                            src,
+                                            this,
+                                            packageBuilder.getRootClassLoader() );
+            return this.result;
+        }
+
+        public void write(final String resourceName,
+                          final byte[] clazzData) {
+            this.classes.put( resourceName,
+                              clazzData );
+        }
+
+        public byte[] read(final String resourceName) {
+            final byte[] clazzData = this.classes.get( resourceName );
+            return (clazzData != null) ? clazzData : packageStoreWrapper.read( resourceName );
+        }
+
+        public void remove(final String resourceName) {
+            this.classes.remove( resourceName );
+        }
+    }
+
     /**
      * @param classes
      * @param dumpDir
@@ -11,7 +11,9 @@ import org.drools.io.impl.UrlResource;
 import org.drools.io.impl.ResourceChangeScannerImpl;
 import org.drools.io.impl.ResourceChangeNotifierImpl;
 import org.drools.io.ResourceFactory;
+import org.mortbay.jetty.Request;
 import org.mortbay.jetty.Server;
+import org.mortbay.jetty.handler.AbstractHandler;
 import org.mortbay.jetty.handler.ResourceHandler;
 
 import java.io.File;
@@ -22,8 +24,12 @@ import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.io.IOException;
 import java.net.URL;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 public class UrlResourceTest {
     private FileManager fileManager;
     private Server server;
@@ -146,6 +152,61 @@ public class UrlResourceTest {
 
 
 
+    }
+
+    @Test
+    public void testNotModifiedResponse() throws Exception {
+        final int[] notModified = new int[1];
+        // a generated resource: its last modified date moves on each request, but its ETag does not
+        Server generator = new Server( 0 );
+        generator.setHandler( new AbstractHandler() {
+            private long lastModified = 1000000000000L;
+
+            public void handle(String target,
+                               HttpServletRequest request,
+                               HttpServletResponse response,
+                               int dispatch) throws IOException {
+                this.lastModified += 2000;
+                if ( "\"v1\"".equals( request.getHeader( "If-None-Match" ) ) ) {
+                    notModified[0]++;
+                    response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+                } else {
+                    response.setStatus( HttpServletResponse.SC_OK );
+                    response.setHeader( "ETag",
+                                        "\"v1\"" );
+                    response.setDateHeader( "Last-Modified",
+                                            this.lastModified );
+                    if ( !"HEAD".equals( request.getMethod() ) ) {
+                        response.getWriter().write( "Some data" );
+                    }
+                }
+                ((Request) request).setHandled( true );
+            }
+        } );
+        generator.start();
+        try {
+            UrlResource.CACHE_DIR = null;
+            UrlResource ur = new UrlResource( new URL( "http://localhost:" + generator.getConnectors()[0].getLocalPort() + "/rule1.drl" ) );
+
+            BufferedReader rdr = new BufferedReader( new InputStreamReader( ur.getInputStream() ) );
+            assertEquals( "Some data",
+                          rdr.readLine() );
+            rdr.close();
+            long lastRead = ur.getLastRead();
+            assertTrue( lastRead > 0 );
+
+            // the server answers the conditional request with 304, so the resource is not modified
+            assertEquals( lastRead,
+                          ur.getLastModified() );
+            assertEquals( 1,
+                          notModified[0] );
+            assertEquals( lastRead,
+                          ur.getLastModified() );
+            assertEquals( 2,
+                          notModified[0] );
+        } finally {
+            generator.stop();
+        }
     }
 
     @Test
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.Cheese;
+import org.drools.RuleBase;
+import org.drools.RuleBaseFactory;
+import org.drools.WorkingMemory;
+import org.drools.base.evaluators.SoundslikeEvaluatorsDefinition;
+import org.drools.io.impl.ByteArrayResource;
+import org.drools.lang.descr.PackageDescr;
+import org.drools.rule.Package;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompilationCacheTest {
+
+    private static final String DRL = "package org.drools.test\n" +
+                                      "import org.drools.Cheese\n" +
+                                      "global java.util.List list\n" +
+                                      "rule \"expensive\"\n" +
+                                      "when\n" +
+                                      "    Cheese( price > 10 )\n" +
+                                      "then\n" +
+                                      "    list.add( \"expensive\" );\n" +
+                                      "end\n";
+
+    private File                directory;
+
+    @Before
+    public void setUp() throws Exception {
+        this.directory = File.createTempFile( "drools-cache",
+                                              "" );
+        this.directory.delete();
+        this.directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for ( File file : this.directory.listFiles() ) {
+            file.delete();
+        }
+        this.directory.delete();
+    }
+
+    private PackageBuilder newBuilder() {
+        PackageBuilderConfiguration conf = new PackageBuilderConfiguration();
+        conf.setCompilationCacheDir( this.directory );
+        return new PackageBuilder( conf );
+    }
+
+    private List fire(PackageBuilder builder) throws Exception {
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+        RuleBase ruleBase = RuleBaseFactory.newRuleBase();
+        ruleBase.addPackage( builder.getPackage() );
+        WorkingMemory workingMemory = ruleBase.newStatefulSession();
+        List list = new ArrayList();
+        workingMemory.setGlobal( "list",
+                                 list );
+        workingMemory.insert( new Cheese( "stilton",
+                                          20 ) );
+        workingMemory.fireAllRules();
+        return list;
+    }
+
+    @Test
+    public void testCachedPackage() throws Exception {
+        PackageBuilder builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.getBytes() ) );
+        assertEquals( 1,
+                      fire( builder ).size() );
+        assertEquals( 1,
+                      this.directory.listFiles().length );
+
+        // the second builder loads the package compiled by the first one
+        builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.getBytes() ) );
+        assertEquals( 1,
+                      fire( builder ).size() );
+        assertEquals( 1,
+                      this.directory.listFiles().length );
+
+        // a different source has a different key
+        builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.replace( "10",
+                                                                       "30" ).getBytes() ) );
+        assertEquals( 0,
+                      fire( builder ).size() );
+        assertEquals( 2,
+                      this.directory.listFiles().length );
+    }
+
+    @Test
+    public void testCorruptEntryIsCompiledAgain() throws Exception {
+        PackageBuilder builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.getBytes() ) );
+        File entry = this.directory.listFiles()[0];
+
+        FileOutputStream out = new FileOutputStream( entry );
+        out.write( new byte[]{1, 2, 3} );
+        out.close();
+
+        builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.getBytes() ) );
+        assertEquals( 1,
+                      fire( builder ).size() );
+        assertTrue( entry.length() > 3 );
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws Exception {
+        PackageBuilder builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.replace( "list.add",
+                                                                       "undefined.add" ).getBytes() ) );
+        assertTrue( builder.hasErrors() );
+        assertEquals( 0,
+                      this.directory.listFiles().length );
+    }
+
+    @Test
+    public void testKeyIsChained() throws Exception {
+        CompilationCache cache = new CompilationCache( this.directory,
+                                                       new PackageBuilderConfiguration() );
+        String first = cache.getKey( null,
+                                     DRL.getBytes() );
+        assertEquals( first,
+                      cache.getKey( null,
+                                    DRL.getBytes() ) );
+        assertFalse( first.equals( cache.getKey( first,
+                                                 DRL.getBytes() ) ) );
+    }
+
+    @Test
+    public void testKeyCoversEvaluators() throws Exception {
+        String key = new CompilationCache( this.directory,
+                                           new PackageBuilderConfiguration() ).getKey( null,
+                                                                                         DRL.getBytes() );
+
+        PackageBuilderConfiguration conf = new PackageBuilderConfiguration();
+        conf.addEvaluatorDefinition( new SoundslikeEvaluatorsDefinition() {
+        } );
+        assertFalse( key.equals( new CompilationCache( this.directory,
+                                                       conf ).getKey( null,
+                                                                      DRL.getBytes() ) ) );
+    }
+
+    @Test
+    public void testChangedFactClassIsNotHit() throws Exception {
+        PackageBuilder builder = new PackageBuilder();
+        builder.addPackage( new DrlParser().parse( DRL ) );
+        Package pkg = builder.getPackage();
+
+        CompilationCache cache = new CompilationCache( this.directory,
+                                                       new PackageBuilderConfiguration() );
+        String key = cache.getKey( null,
+                                   DRL.getBytes() );
+        ClassLoader classLoader = getClass().getClassLoader();
+        cache.store( key,
+                     pkg,
+                     classLoader );
+        assertNotNull( cache.load( key,
+                                   classLoader ) );
+
+        // another version of the fact class
+        ClassLoader changed = new ClassLoader( classLoader ) {
+            public InputStream getResourceAsStream(String name) {
+                if ( name.equals( "org/drools/Cheese.class" ) ) {
+                    return new ByteArrayInputStream( new byte[]{1, 2, 3} );
+                }
+                return super.getResourceAsStream( name );
+            }
+        };
+        assertNull( cache.load( key,
+                                changed ) );
+        assertEquals( 0,
+                      this.directory.listFiles().length );
+    }
+
+    @Test
+    public void testNotUsedAfterOtherResources() throws Exception {
+        PackageBuilder builder = newBuilder();
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.getBytes() ) );
+        assertEquals( 1,
+                      this.directory.listFiles().length );
+
+        // the key of the next resource would not cover the package added before it
+        builder = newBuilder();
+        builder.addPackage( new PackageDescr( "org.drools.other" ) );
+        builder.addPackageFromDrl( new ByteArrayResource( DRL.replace( "10",
+                                                                       "30" ).getBytes() ) );
+        assertFalse( builder.hasErrors() );
+        assertEquals( 1,
+                      this.directory.listFiles().length );
+    }
+
+}
@@ -26,6 +26,7 @@ import static org.junit.Assert.fail;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -880,6 +881,72 @@ public class PackageBuilderTest extends DroolsTestCase {
                     compiler.getClass() );
     }
 
+    @Test
+    public void testParallelCompilation() throws Exception {
+        final StringBuilder drl = new StringBuilder();
+        drl.append( "package org.drools.test\n" );
+        drl.append( "import org.drools.Cheese\n" );
+        drl.append( "global java.util.List list\n" );
+        for ( int i = 0; i < 8; i++ ) {
+            drl.append( "rule rule" + i + "\n" );
+            drl.append( "when\n" );
+            drl.append( "    $c : Cheese( eval( price > " + i + " ) )\n" );
+            drl.append( "then\n" );
+            drl.append( "    list.add( \"rule" + i + "\" );\n" );
+            drl.append( "end\n" );
+        }
+
+        final PackageBuilderConfiguration conf = new PackageBuilderConfiguration();
+        conf.setCompilerThreads( 4 );
+        final PackageBuilder builder = new PackageBuilder( conf );
+        builder.addPackageFromDrl( new StringReader( drl.toString() ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        final RuleBase ruleBase = RuleBaseFactory.newRuleBase();
+        ruleBase.addPackage( builder.getPackage() );
+        final WorkingMemory workingMemory = ruleBase.newStatefulSession();
+        final List list = new ArrayList();
+        workingMemory.setGlobal( "list",
+                                 list );
+        workingMemory.insert( new Cheese( "stilton",
+                                          5 ) );
+        workingMemory.fireAllRules();
+
+        assertEquals( 5,
+                      list.size() );
+    }
+
+    @Test
+    public void testParallelCompilationErrors() throws Exception {
+        final StringBuilder drl = new StringBuilder();
+        drl.append( "package org.drools.test\n" );
+        drl.append( "import org.drools.Cheese\n" );
+        for ( int i = 0; i < 6; i++ ) {
+            drl.append( "rule rule" + i + "\n" );
+            drl.append( "when\n" );
+            drl.append( "    Cheese( )\n" );
+            drl.append( "then\n" );
+            // rules 1 and 4 don't compile
+            drl.append( (i % 3 == 1) ? "    undefined();\n" : "    System.out.println( \"rule" + i + "\" );\n" );
+            drl.append( "end\n" );
+        }
+
+        final PackageBuilderConfiguration conf = new PackageBuilderConfiguration();
+        conf.setCompilerThreads( 3 );
+        final PackageBuilder builder = new PackageBuilder( conf );
+        builder.addPackageFromDrl( new StringReader( drl.toString() ) );
+
+        // the errors are reported in the order of the rules, whatever batch compiled them
+        final PackageBuilderErrors errors = builder.getErrors();
+        assertEquals( 2,
+                      errors.getErrors().length );
+        assertEquals( "rule1",
+                      ((RuleBuildError) errors.getErrors()[0]).getRule().getName() );
+        assertEquals( "rule4",
+                      ((RuleBuildError) errors.getErrors()[1]).getRule().getName() );
+    }
+
     @Test
     public void testTypeDeclaration() throws Exception {
         PackageDescr pkgDescr = new PackageDescr( "org.drools" );
@@ -1287,6 +1287,138 @@ public class DynamicRulesTest {
         session.dispose();
     }
 
+    @Test
+    public void testBackgroundRulePropagation() {
+        KnowledgeBaseConfiguration config = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+        ((RuleBaseConfiguration) config).setBackgroundRulePropagation( true );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase( config );
+        StatefulKnowledgeSession session = kbase.newStatefulKnowledgeSession();
+
+        for ( int i = 0; i < 10; i++ ) {
+            session.insert( new Cheese( "stilton",
+                                        i ) );
+            session.insert( new Person( "person" + i,
+                                        "stilton",
+                                        i ) );
+        }
+
+        String rule = "package org.drools\n";
+        rule += "rule \"cheese of the same price as the person's age\"\n";
+        rule += "when\n";
+        rule += "    Cheese( $type : type, $price : price )\n";
+        rule += "    Person( likes == $type, age == $price )\n";
+        rule += "then\n";
+        rule += "end\n";
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( rule.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        // the session is brought up to date with the new rule before the insert
+        session.insert( new Person( "person10",
+                                    "stilton",
+                                    5 ) );
+        assertEquals( 11,
+                      session.fireAllRules() );
+
+        session.dispose();
+    }
+
+    @Test
+    public void testBackgroundRulePropagationWithSharedNodes() {
+        KnowledgeBaseConfiguration config = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+        ((RuleBaseConfiguration) config).setBackgroundRulePropagation( true );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase( config );
+
+        String rule1 = "package org.drools\n";
+        rule1 += "global java.util.List list\n";
+        rule1 += "rule \"old\"\n";
+        rule1 += "when\n";
+        rule1 += "    Cheese( $type : type )\n";
+        rule1 += "    Person( likes == $type )\n";
+        rule1 += "then\n";
+        rule1 += "    list.add( drools.getRule().getName() );\n";
+        rule1 += "end\n";
+        kbase.addKnowledgePackages( buildPackages( rule1 ) );
+
+        StatefulKnowledgeSession[] sessions = new StatefulKnowledgeSession[2];
+        List[] lists = new List[sessions.length];
+        for ( int i = 0; i < sessions.length; i++ ) {
+            sessions[i] = kbase.newStatefulKnowledgeSession();
+            lists[i] = new ArrayList();
+            sessions[i].setGlobal( "list",
+                                   lists[i] );
+            for ( int j = 0; j < 3; j++ ) {
+                sessions[i].insert( new Cheese( "stilton",
+                                                j ) );
+            }
+            for ( int j = 0; j < 2; j++ ) {
+                sessions[i].insert( new Person( "person" + j,
+                                                "stilton",
+                                                j ) );
+                sessions[i].insert( new Cheesery() );
+            }
+            assertEquals( 6,
+                          sessions[i].fireAllRules() );
+        }
+
+        // "shared" shares the object type nodes, the left input adapter and the join
+        // of "old", and adds a join with the new Cheesery object type node, that
+        // "new" shares with a new left input adapter
+        String rule2 = "package org.drools\n";
+        rule2 += "global java.util.List list\n";
+        rule2 += "rule \"shared\"\n";
+        rule2 += "when\n";
+        rule2 += "    Cheese( $type : type )\n";
+        rule2 += "    Person( likes == $type )\n";
+        rule2 += "    Cheesery()\n";
+        rule2 += "then\n";
+        rule2 += "    list.add( drools.getRule().getName() );\n";
+        rule2 += "end\n";
+        rule2 += "rule \"new\"\n";
+        rule2 += "when\n";
+        rule2 += "    Cheesery()\n";
+        rule2 += "    Cheese( type == \"stilton\" )\n";
+        rule2 += "then\n";
+        rule2 += "    list.add( drools.getRule().getName() );\n";
+        rule2 += "end\n";
+        kbase.addKnowledgePackages( buildPackages( rule2 ) );
+
+        for ( int i = 0; i < sessions.length; i++ ) {
+            lists[i].clear();
+            assertEquals( 18,
+                          sessions[i].fireAllRules() );
+            assertEquals( 0,
+                          Collections.frequency( lists[i],
+                                                 "old" ) );
+            assertEquals( 12,
+                          Collections.frequency( lists[i],
+                                                 "shared" ) );
+            assertEquals( 6,
+                          Collections.frequency( lists[i],
+                                                 "new" ) );
+
+            // and the new rules see the facts inserted after the update once
+            lists[i].clear();
+            sessions[i].insert( new Cheese( "stilton",
+                                            3 ) );
+            assertEquals( 2 + 4 + 2,
+                          sessions[i].fireAllRules() );
+            sessions[i].dispose();
+        }
+    }
+
+    private Collection<KnowledgePackage> buildPackages(String drl) {
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( drl.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+        return kbuilder.getKnowledgePackages();
+    }
+
     private void addDrlToKBase(KnowledgeBase kbase, String drlName) {
         KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
         kbuilder.add( ResourceFactory.newClassPathResource( drlName,
@@ -3,6 +3,7 @@ package org.drools.integrationtests;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,6 +25,7 @@ import org.drools.RuleBase;
 import org.drools.RuleBaseConfiguration;
 import org.drools.RuleBaseFactory;
 import org.drools.StatefulSession;
+import org.drools.StatelessSession;
 import org.drools.WorkingMemory;
 import org.drools.builder.KnowledgeBuilder;
 import org.drools.builder.KnowledgeBuilderFactory;
@@ -94,6 +96,102 @@ public class ExecutionFlowControlTest {
                              list.get( 2 ) );
     }
 
+    private List<String> executeAgenda(final RuleBaseConfiguration config) throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule dropBrie salience 20 \n";
+        str += "  when \n";
+        str += "    Person( likes == \"brie\" ) \n";
+        str += "    $c : Cheese( type == \"brie\" ) \n";
+        str += "  then \n";
+        str += "    retract( $c ); \n";
+        str += "    list.add( \"dropBrie\" ); \n";
+        str += "end \n";
+        str += "rule a salience 10 \n";
+        str += "  when \n";
+        str += "    $c : Cheese() \n";
+        str += "  then \n";
+        str += "    list.add( \"a \" + $c.getType() ); \n";
+        str += "end \n";
+        str += "rule b \n";
+        str += "  when \n";
+        str += "    $c : Cheese( price > 5 ) \n";
+        str += "  then \n";
+        str += "    list.add( \"b \" + $c.getType() ); \n";
+        str += "end \n";
+        str += "rule focus salience -10 \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    drools.setFocus( \"g1\" ); \n";
+        str += "    list.add( \"focus \" + $p.getName() ); \n";
+        str += "end \n";
+        str += "rule c agenda-group \"g1\" \n";
+        str += "  when \n";
+        str += "    $c : Cheese() \n";
+        str += "  then \n";
+        str += "    list.add( \"c \" + $c.getType() ); \n";
+        str += "end \n";
+        str += "rule d agenda-group \"g1\" salience 5 \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( \"d \" + $p.getName() ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        final RuleBase ruleBase = getRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+        StatefulSession session = ruleBase.newStatefulSession();
+        final List<String> list = new ArrayList<String>();
+        session.setGlobal( "list",
+                           list );
+
+        session.insert( new Cheese( "stilton",
+                                    10 ) );
+        session.insert( new Cheese( "brie",
+                                    8 ) );
+        session.insert( new Cheese( "cheddar",
+                                    3 ) );
+        session.insert( new Person( "bob",
+                                    "brie" ) );
+
+        // the activations are still pending in the lazy groups
+        session = SerializationHelper.getSerialisedStatefulSession( session );
+        session.fireAllRules();
+
+        session.insert( new Cheese( "gouda",
+                                    12 ) );
+        session.fireAllRules();
+        session.insert( new Person( "mary",
+                                    "stilton" ) );
+        session.fireAllRules();
+        session.dispose();
+        return list;
+    }
+
+    @Test
+    public void testLazyAgendaFiresAsDefaultAgenda() throws Exception {
+        final List<String> expected = executeAgenda( new RuleBaseConfiguration() );
+        assertEquals( 13,
+                      expected.size() );
+        assertEquals( "dropBrie",
+                      expected.get( 0 ) );
+        assertFalse( expected.contains( "c brie" ) );
+
+        final RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setProperty( "drools.lazyAgenda",
+                            "true" );
+        assertTrue( config.isLazyAgenda() );
+        assertEquals( expected,
+                      executeAgenda( config ) );
+    }
+
     @Test
     public void testSalienceExpression() throws Exception {
         final PackageBuilder builder = new PackageBuilder();
@@ -894,4 +992,170 @@ public class ExecutionFlowControlTest {
         assertFalse( message.isFired() );
 
     }
+
+    @Test
+    public void testParallelConsequencesInStatelessSession() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule a @parallel \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( $p.getName() ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        // fewer threads than activations, the calling thread fires the others
+        RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setConsequenceThreads( 1 );
+        RuleBase ruleBase = getRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+
+        for ( int execution = 0; execution < 3; execution++ ) {
+            StatelessSession session = ruleBase.newStatelessSession();
+            final List list = java.util.Collections.synchronizedList( new ArrayList() );
+            session.setGlobal( "list",
+                               list );
+            List<Person> people = new ArrayList<Person>();
+            for ( int i = 0; i < 10; i++ ) {
+                people.add( new Person( "person" + i ) );
+            }
+            session.execute( people );
+            assertEquals( 10,
+                          list.size() );
+        }
+    }
+
+    @Test
+    public void testParallelConsequences() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule a @parallel salience 10 \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( \"a\" ); \n";
+        str += "end \n";
+        str += "rule b @parallel salience 5 \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( \"b\" ); \n";
+        str += "end \n";
+        str += "rule c \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( \"c\" ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setConsequenceThreads( 4 );
+        RuleBase ruleBase = getRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+        StatefulSession session = ruleBase.newStatefulSession();
+
+        final List list = java.util.Collections.synchronizedList( new ArrayList() );
+        session.setGlobal( "list",
+                           list );
+        final List fired = new ArrayList();
+        session.addEventListener( new DefaultAgendaEventListener() {
+            public void afterActivationFired(org.drools.event.AfterActivationFiredEvent event,
+                                             WorkingMemory workingMemory) {
+                fired.add( event.getActivation().getRule().getName() );
+            }
+        } );
+
+        for ( int i = 0; i < 5; i++ ) {
+            session.insert( new Person( "person" + i ) );
+        }
+        assertEquals( 15,
+                      session.fireAllRules() );
+        assertEquals( 15,
+                      list.size() );
+
+        // the after events are still fired in salience order
+        for ( int i = 0; i < 15; i++ ) {
+            assertEquals( i < 5 ? "a" : i < 10 ? "b" : "c",
+                          fired.get( i ) );
+        }
+        session.dispose();
+
+        // the first activation of "c" is taken from the agenda and put back
+        // after the parallel activations, while their consequences retract or
+        // modify its fact
+        str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule \"retract\" @parallel salience 10 \n";
+        str += "  when \n";
+        str += "    Cheese( type == \"retract\" ) \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    retract( $p ); \n";
+        str += "end \n";
+        str += "rule \"modify\" @parallel salience 10 \n";
+        str += "  when \n";
+        str += "    Cheese( type == \"modify\" ) \n";
+        str += "    $p : Person( age == 0 ) \n";
+        str += "  then \n";
+        str += "    modify( $p ) { setAge( 1 ) }; \n";
+        str += "end \n";
+        str += "rule c \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( $p.getName() ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder2 = new PackageBuilder();
+        builder2.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder2.getErrors().toString(),
+                     builder2.hasErrors() );
+        ruleBase = getRuleBase( config );
+        ruleBase.addPackage( builder2.getPackage() );
+
+        session = ruleBase.newStatefulSession();
+        list.clear();
+        session.setGlobal( "list",
+                           list );
+        for ( int i = 0; i < 5; i++ ) {
+            session.insert( new Person( "person" + i,
+                                        0 ) );
+        }
+        session.insert( new Cheese( "retract",
+                                    0 ) );
+        assertEquals( 5,
+                      session.fireAllRules() );
+        assertEquals( 0,
+                      list.size() );
+        session.dispose();
+
+        session = ruleBase.newStatefulSession();
+        list.clear();
+        session.setGlobal( "list",
+                           list );
+        for ( int i = 0; i < 5; i++ ) {
+            session.insert( new Person( "person" + i,
+                                        0 ) );
+        }
+        session.insert( new Cheese( "modify",
+                                    0 ) );
+        assertEquals( 10,
+                      session.fireAllRules() );
+        assertEquals( 5,
+                      list.size() );
+        session.dispose();
+    }
 }
@@ -10,7 +10,10 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
  
 import org.junit.After;
@@ -1451,4 +1454,149 @@ public class FirstOrderLogicTest {
                              ((Collection) results.get( 0 )).size() );
     }
  
+    @Test
+    public void testFromResultCache() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.Map cheeses \n";
+        str += "global java.util.List results \n";
+        str += "rule likes \n";
+        str += "  when \n";
+        str += "    $p : Person( $likes : likes ) \n";
+        str += "    Cheese( $type : type ) from cheeses.get( $likes ) \n";
+        str += "  then \n";
+        str += "    results.add( $p.getName() ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setFromResultCacheSize( 10 );
+        RuleBase ruleBase = getRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+        StatefulSession wm = ruleBase.newStatefulSession();
+
+        final int[] calls = new int[1];
+        Map cheeses = new HashMap() {
+            public Object get(Object key) {
+                calls[0]++;
+                return super.get( key );
+            }
+        };
+        cheeses.put( "stilton",
+                     new Cheese( "stilton",
+                                 10 ) );
+        cheeses.put( "brie",
+                     new Cheese( "brie",
+                                 5 ) );
+        List results = new ArrayList();
+        wm.setGlobal( "cheeses",
+                      cheeses );
+        wm.setGlobal( "results",
+                      results );
+
+        Person bob = new Person( "bob",
+                                 "stilton" );
+        FactHandle bobHandle = wm.insert( bob );
+        wm.insert( new Person( "mark",
+                               "stilton" ) );
+        wm.insert( new Person( "jill",
+                               "brie" ) );
+        wm.fireAllRules();
+        assertEquals( 3,
+                      results.size() );
+        // the expression is evaluated once per distinct value of $likes
+        assertEquals( 2,
+                      calls[0] );
+
+        results.clear();
+        bob.setAge( 30 );
+        wm.update( bobHandle,
+                   bob );
+        wm.fireAllRules();
+        assertEquals( Collections.singletonList( "bob" ),
+                      results );
+        assertEquals( 2,
+                      calls[0] );
+
+        results.clear();
+        bob.setLikes( "cheddar" );
+        wm.update( bobHandle,
+                   bob );
+        wm.fireAllRules();
+        assertEquals( 0,
+                      results.size() );
+        assertEquals( 3,
+                      calls[0] );
+    }
+
+    @Test
+    public void testFromResultCacheWithModifiedFact() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List results \n";
+        str += "rule stilton \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "    Cheese( type == \"stilton\" ) from $p.cheese \n";
+        str += "  then \n";
+        str += "    results.add( $p.getName() ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setFromResultCacheSize( 10 );
+        RuleBase ruleBase = getRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+        StatefulSession wm = ruleBase.newStatefulSession();
+
+        List results = new ArrayList();
+        wm.setGlobal( "results",
+                      results );
+
+        Person bob = new Person( "bob" );
+        bob.setCheese( new Cheese( "stilton",
+                                   10 ) );
+        FactHandle bobHandle = wm.insert( bob );
+        wm.fireAllRules();
+        assertEquals( Collections.singletonList( "bob" ),
+                      results );
+
+        // the person is still equal to itself, but its cheese changed
+        results.clear();
+        bob.setCheese( new Cheese( "brie",
+                                   5 ) );
+        wm.update( bobHandle,
+                   bob );
+        wm.fireAllRules();
+        assertEquals( 0,
+                      results.size() );
+
+        results.clear();
+        bob.setCheese( new Cheese( "stilton",
+                                   10 ) );
+        wm.update( bobHandle,
+                   bob );
+        wm.fireAllRules();
+        assertEquals( Collections.singletonList( "bob" ),
+                      results );
+
+        // an equal person with another cheese gets its own results
+        results.clear();
+        Person bob2 = new Person( "bob" );
+        bob2.setCheese( new Cheese( "brie",
+                                    5 ) );
+        wm.insert( bob2 );
+        wm.fireAllRules();
+        assertEquals( 0,
+                      results.size() );
+    }
+
 }
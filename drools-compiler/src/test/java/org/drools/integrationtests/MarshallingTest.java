@@ -12,8 +12,10 @@ import java.io.OptionalDataException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URL;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.jar.JarEntry;
@@ -40,6 +42,7 @@ import org.drools.RuleBase;
 import org.drools.RuleBaseConfiguration;
 import org.drools.RuleBaseFactory;
 import org.drools.StatefulSession;
+import org.drools.StockTick;
 import org.drools.WorkingMemory;
 import org.drools.base.ClassObjectType;
 import org.drools.builder.KnowledgeBuilder;
@@ -52,6 +55,7 @@ import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalRuleBase;
 import org.drools.compiler.PackageBuilder;
 import org.drools.compiler.PackageBuilderConfiguration;
+import org.drools.definition.type.FactType;
 import org.drools.core.util.DroolsStreamUtils;
 import org.drools.core.util.KeyStoreHelper;
 import org.drools.impl.EnvironmentFactory;
@@ -63,6 +67,8 @@ import org.drools.marshalling.MarshallerFactory;
 import org.drools.marshalling.ObjectMarshallingStrategy;
 import org.drools.marshalling.ObjectMarshallingStrategyAcceptor;
 import org.drools.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
+import org.drools.marshalling.impl.DeclaredTypeMarshallingStrategy;
+import org.drools.marshalling.impl.DefaultMarshaller;
 import org.drools.marshalling.impl.IdentityPlaceholderResolverStrategy;
 import org.drools.marshalling.impl.RuleBaseNodes;
 import org.drools.reteoo.ObjectTypeNode;
@@ -2667,6 +2673,438 @@ public class MarshallingTest {
         ksession.dispose();
     }
 
+    @Test
+    public void testDeclaredTypeMarshallingStrategy() throws Exception {
+        String source = "package org.drools.test\n";
+        source += "global java.util.List list\n";
+        source += "declare Item\n";
+        source += "    id : int\n";
+        source += "    name : String\n";
+        source += "    price : double\n";
+        source += "    available : boolean\n";
+        source += "end\n";
+        source += "rule expensive\n";
+        source += "when\n";
+        source += "    Item( available == true, price > 10, $name : name )\n";
+        source += "then\n";
+        source += "    list.add( $name );\n";
+        source += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( source.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        FactType itemType = kbase.getFactType( "org.drools.test",
+                                               "Item" );
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        for ( int i = 0; i < 20; i++ ) {
+            Object item = itemType.newInstance();
+            itemType.set( item,
+                          "id",
+                          i );
+            itemType.set( item,
+                          "name",
+                          "item" + i );
+            itemType.set( item,
+                          "price",
+                          i * 1.5 );
+            itemType.set( item,
+                          "available",
+                          i % 2 == 0 );
+            ksession.insert( item );
+        }
+
+        DeclaredTypeMarshallingStrategy strategy = new DeclaredTypeMarshallingStrategy( kbase );
+        assertTrue( strategy.accept( itemType.newInstance() ) );
+        assertFalse( strategy.accept( new Person( "bob" ) ) );
+
+        Marshaller marshaller = MarshallerFactory.newMarshaller( kbase,
+                                                                 new ObjectMarshallingStrategy[]{strategy, MarshallerFactory.newSerializeMarshallingStrategy()} );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshall( out,
+                             ksession );
+        ksession.dispose();
+
+        ksession = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+        List list = new ArrayList();
+        ksession.setGlobal( "list",
+                            list );
+
+        assertEquals( 20,
+                      ksession.getObjects().size() );
+        for ( Object item : ksession.getObjects() ) {
+            int id = ((Integer) itemType.get( item,
+                                              "id" )).intValue();
+            assertEquals( "item" + id,
+                          itemType.get( item,
+                                        "name" ) );
+            assertEquals( id * 1.5,
+                          ((Double) itemType.get( item,
+                                                  "price" )).doubleValue(),
+                          0 );
+            assertEquals( id % 2 == 0,
+                          itemType.get( item,
+                                        "available" ) );
+        }
+
+        // the items 8 to 18 that are available
+        assertEquals( 6,
+                      ksession.fireAllRules() );
+        assertEquals( 6,
+                      list.size() );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testDeclaredTypeMarshallingStrategyKeepsReferences() throws Exception {
+        String source = "package org.drools.test\n";
+        source += "global java.util.List list\n";
+        source += "declare Customer\n";
+        source += "    name : String\n";
+        source += "end\n";
+        source += "declare Order\n";
+        source += "    id : int\n";
+        source += "    customer : Customer\n";
+        source += "end\n";
+        source += "rule orders\n";
+        source += "when\n";
+        source += "    $c : Customer()\n";
+        source += "    Order( customer == $c, $id : id )\n";
+        source += "then\n";
+        source += "    list.add( $id );\n";
+        source += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( source.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        FactType customerType = kbase.getFactType( "org.drools.test",
+                                                   "Customer" );
+        FactType orderType = kbase.getFactType( "org.drools.test",
+                                                "Order" );
+        DefaultMarshaller marshaller = (DefaultMarshaller) MarshallerFactory.newMarshaller( kbase,
+                                                                                            new ObjectMarshallingStrategy[]{new DeclaredTypeMarshallingStrategy( kbase ), MarshallerFactory.newSerializeMarshallingStrategy()} );
+
+        // written by marshall, then by snapshot, where the customer is encoded apart from the orders
+        for ( boolean snapshot : new boolean[]{false, true} ) {
+            StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+            List list = new ArrayList();
+            ksession.setGlobal( "list",
+                                list );
+            Object customer = customerType.newInstance();
+            customerType.set( customer,
+                              "name",
+                              "bob" );
+            for ( int i = 0; i < 2; i++ ) {
+                Object order = orderType.newInstance();
+                orderType.set( order,
+                               "id",
+                               i );
+                orderType.set( order,
+                               "customer",
+                               customer );
+                ksession.insert( order );
+            }
+            ksession.insert( customer );
+            assertEquals( 2,
+                          ksession.fireAllRules() );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if ( snapshot ) {
+                marshaller.snapshot( Channels.newChannel( out ),
+                                     ksession );
+            } else {
+                marshaller.marshall( out,
+                                     ksession );
+            }
+            ksession.dispose();
+
+            ksession = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+            list = new ArrayList();
+            ksession.setGlobal( "list",
+                                list );
+
+            customer = null;
+            List<Object> orders = new ArrayList<Object>();
+            for ( Object object : ksession.getObjects() ) {
+                if ( object.getClass() == customerType.getFactClass() ) {
+                    customer = object;
+                } else {
+                    orders.add( object );
+                }
+            }
+            assertNotNull( customer );
+            assertEquals( 2,
+                          orders.size() );
+            for ( Object order : orders ) {
+                assertSame( customer,
+                            orderType.get( order,
+                                           "customer" ) );
+            }
+
+            // the orders still join the customer once it is updated
+            ksession.update( ksession.getFactHandle( customer ),
+                             customer );
+            assertEquals( 2,
+                          ksession.fireAllRules() );
+            assertEquals( 2,
+                          list.size() );
+            ksession.dispose();
+        }
+    }
+
+    @Test
+    public void testDeclaredTypeMarshallingStrategyConvertsChangedFields() throws Exception {
+        String source = "package org.drools.test\n";
+        source += "declare Item\n";
+        source += "    id : int\n";
+        source += "    count : int\n";
+        source += "    name : String\n";
+        source += "    price : long\n";
+        source += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( source.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        FactType itemType = kbase.getFactType( "org.drools.test",
+                                               "Item" );
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        Object item = itemType.newInstance();
+        itemType.set( item,
+                      "id",
+                      7 );
+        itemType.set( item,
+                      "count",
+                      3 );
+        itemType.set( item,
+                      "name",
+                      "widget" );
+        itemType.set( item,
+                      "price",
+                      12L );
+        ksession.insert( item );
+
+        Marshaller marshaller = MarshallerFactory.newMarshaller( kbase,
+                                                                 new ObjectMarshallingStrategy[]{new DeclaredTypeMarshallingStrategy( kbase ), MarshallerFactory.newSerializeMarshallingStrategy()} );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshall( out,
+                             ksession );
+        ksession.dispose();
+
+        // the same type, declared again with other field types
+        source = "package org.drools.test\n";
+        source += "declare Item\n";
+        source += "    id : long\n";
+        source += "    count : Integer\n";
+        source += "    name : int\n";
+        source += "    price : String\n";
+        source += "end\n";
+
+        kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( source.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+        kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        itemType = kbase.getFactType( "org.drools.test",
+                                      "Item" );
+        marshaller = MarshallerFactory.newMarshaller( kbase,
+                                                      new ObjectMarshallingStrategy[]{new DeclaredTypeMarshallingStrategy( kbase ), MarshallerFactory.newSerializeMarshallingStrategy()} );
+        ksession = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+
+        assertEquals( 1,
+                      ksession.getObjects().size() );
+        item = ksession.getObjects().iterator().next();
+        // the numbers are converted to the new types
+        assertEquals( Long.valueOf( 7 ),
+                      itemType.get( item,
+                                    "id" ) );
+        assertEquals( Integer.valueOf( 3 ),
+                      itemType.get( item,
+                                    "count" ) );
+        // the values that can not be converted leave the fields to their default value
+        assertEquals( Integer.valueOf( 0 ),
+                      itemType.get( item,
+                                    "name" ) );
+        assertNull( itemType.get( item,
+                                  "price" ) );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        String source = "package org.drools.test\n";
+        source += "import org.drools.StockTick\n";
+        source += "global java.util.List list\n";
+        source += "rule expensive\n";
+        source += "when\n";
+        source += "    $t : StockTick( price >= 9990 )\n";
+        source += "then\n";
+        source += "    list.add( $t );\n";
+        source += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( source.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        // more facts than fit in one chunk, so they are encoded in parallel
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        for ( int i = 0; i < 10000; i++ ) {
+            ksession.insert( new StockTick( i,
+                                            "ACME" + i,
+                                            i,
+                                            0 ) );
+        }
+
+        DefaultMarshaller marshaller = (DefaultMarshaller) MarshallerFactory.newMarshaller( kbase );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.snapshot( Channels.newChannel( out ),
+                             ksession );
+        ksession.dispose();
+
+        ksession = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+        List list = new ArrayList();
+        ksession.setGlobal( "list",
+                            list );
+
+        assertEquals( 10000,
+                      ksession.getObjects().size() );
+        assertEquals( 10,
+                      ksession.fireAllRules() );
+        for ( Object tick : list ) {
+            assertEquals( "ACME" + ((StockTick) tick).getSeq(),
+                          ((StockTick) tick).getCompany() );
+        }
+        ksession.dispose();
+
+        // the same snapshot, with the fact objects decoded in parallel
+        ksession = marshaller.restore( new ByteArrayInputStream( out.toByteArray() ),
+                                       null,
+                                       null );
+        list = new ArrayList();
+        ksession.setGlobal( "list",
+                            list );
+
+        assertEquals( 10000,
+                      ksession.getObjects().size() );
+        assertEquals( 10,
+                      ksession.fireAllRules() );
+        assertEquals( 10,
+                      list.size() );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testSnapshotKeepsFactReferences() throws Exception {
+        String source = "package org.drools.test\n";
+        source += "import org.drools.StockTick\n";
+        source += "import java.util.List\n";
+        source += "global java.util.List list\n";
+        source += "rule ticks\n";
+        source += "when\n";
+        source += "    $ticks : List() from collect( StockTick() )\n";
+        source += "then\n";
+        source += "    list.add( $ticks );\n";
+        source += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( source.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        // the ticks are encoded in parallel, the persons referencing them with their handles
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        List list = new ArrayList();
+        ksession.setGlobal( "list",
+                            list );
+        for ( int i = 0; i < 10; i++ ) {
+            StockTick tick = new StockTick( i,
+                                            "ACME" + i,
+                                            i,
+                                            0 );
+            Person person = new Person( "person" + i );
+            person.setObject( tick );
+            ksession.insert( tick );
+            ksession.insert( person );
+        }
+        assertEquals( 1,
+                      ksession.fireAllRules() );
+
+        DefaultMarshaller marshaller = (DefaultMarshaller) MarshallerFactory.newMarshaller( kbase );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.snapshot( Channels.newChannel( out ),
+                             ksession );
+        ksession.dispose();
+
+        ksession = marshaller.restore( new ByteArrayInputStream( out.toByteArray() ),
+                                       null,
+                                       null );
+        list = new ArrayList();
+        ksession.setGlobal( "list",
+                            list );
+
+        Map<Object, Object> ticks = new IdentityHashMap<Object, Object>();
+        List<Person> persons = new ArrayList<Person>();
+        for ( Object object : ksession.getObjects() ) {
+            if ( object instanceof StockTick ) {
+                ticks.put( object,
+                           object );
+            } else {
+                persons.add( (Person) object );
+            }
+        }
+        assertEquals( 10,
+                      ticks.size() );
+        assertEquals( 10,
+                      persons.size() );
+        for ( Person person : persons ) {
+            assertSame( ticks.get( person.getObject() ),
+                        person.getObject() );
+        }
+
+        // the collected list holds the restored ticks, so that a retracted one is removed from it
+        StockTick retracted = (StockTick) persons.get( 0 ).getObject();
+        ksession.retract( ksession.getFactHandle( retracted ) );
+        assertEquals( 1,
+                      ksession.fireAllRules() );
+        List collected = (List) list.get( 0 );
+        assertEquals( 9,
+                      collected.size() );
+        for ( Object tick : collected ) {
+            assertNotSame( retracted,
+                           tick );
+            assertSame( ticks.get( tick ),
+                        tick );
+        }
+        ksession.dispose();
+    }
+
     private Marshaller createSerializableMarshaller(KnowledgeBase knowledgeBase) {
         ObjectMarshallingStrategyAcceptor acceptor = MarshallerFactory.newClassFilterAcceptor( new String[]{ "*.*" } );
         ObjectMarshallingStrategy strategy = MarshallerFactory.newSerializeMarshallingStrategy( acceptor );
@@ -35,6 +35,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -53,6 +54,7 @@ import static org.junit.Assert.*;
 import org.acme.insurance.Driver;
 import org.acme.insurance.Policy;
 import org.drools.Cheesery.Maturity;
+import org.drools.base.field.LiteralSet;
 import org.drools.builder.KnowledgeBuilder;
 import org.drools.builder.KnowledgeBuilderConfiguration;
 import org.drools.builder.KnowledgeBuilderError;
@@ -104,7 +106,9 @@ import org.drools.marshalling.impl.IdentityPlaceholderResolverStrategy;
 import org.drools.reteoo.LeftTuple;
 import org.drools.reteoo.ReteooWorkingMemory;
 import org.drools.rule.InvalidRulePackage;
+import org.drools.rule.LiteralConstraint;
 import org.drools.rule.Package;
+import org.drools.rule.Pattern;
 import org.drools.rule.builder.dialect.java.JavaDialectConfiguration;
 import org.drools.runtime.Environment;
 import org.drools.runtime.EnvironmentName;
@@ -7725,4 +7729,69 @@ public class MiscTest {
                 fired);
     }
 
+    @Test
+    public void testInOperatorKeepsEqualitySemantics() throws Exception {
+        String drl = "package org.drools\n";
+        drl += "global java.util.List list\n";
+        drl += "rule bigDecimal\n";
+        drl += "when\n";
+        drl += "    $p : Person( bigDecimal in ( 1, 2 ) )\n";
+        drl += "then\n";
+        drl += "    list.add( $p.getName() );\n";
+        drl += "end\n";
+        drl += "rule doublePrimitive\n";
+        drl += "when\n";
+        drl += "    Primitives( doublePrimitive in ( 0.0, 1.5 ) )\n";
+        drl += "then\n";
+        drl += "end\n";
+        drl += "rule type\n";
+        drl += "when\n";
+        drl += "    Cheese( type in ( \"stilton\", \"brie\" ) )\n";
+        drl += "then\n";
+        drl += "end\n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( drl ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+        final Package pkg = builder.getPackage();
+
+        // only the string field is looked up in a literal set, as equals agrees with == for it
+        assertFalse( hasLiteralSetConstraint( pkg,
+                                              "bigDecimal" ) );
+        assertFalse( hasLiteralSetConstraint( pkg,
+                                              "doublePrimitive" ) );
+        assertTrue( hasLiteralSetConstraint( pkg,
+                                             "type" ) );
+
+        RuleBase ruleBase = getRuleBase();
+        ruleBase.addPackage( pkg );
+        final WorkingMemory workingMemory = ruleBase.newStatefulSession();
+        final List list = new ArrayList();
+        workingMemory.setGlobal( "list",
+                                 list );
+
+        // 1.00 is not equal to 1, but they compare the same
+        final Person bob = new Person( "bob" );
+        bob.setBigDecimal( new BigDecimal( "1.00" ) );
+        workingMemory.insert( bob );
+        final Person mark = new Person( "mark" );
+        mark.setBigDecimal( new BigDecimal( "3" ) );
+        workingMemory.insert( mark );
+        assertEquals( 1,
+                      workingMemory.fireAllRules() );
+        assertEquals( Collections.singletonList( "bob" ),
+                      list );
+    }
+
+    private boolean hasLiteralSetConstraint(final Package pkg,
+                                            final String ruleName) {
+        final Pattern pattern = (Pattern) pkg.getRule( ruleName ).getLhs().getChildren().get( 0 );
+        for ( Object constraint : pattern.getConstraints() ) {
+            if ( constraint instanceof LiteralConstraint && ((LiteralConstraint) constraint).getField().getValue() instanceof LiteralSet ) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -21,10 +21,18 @@ package org.drools.integrationtests;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
@@ -35,30 +43,40 @@ import static org.junit.Assert.*;
 
 import org.drools.Cheese;
 import org.drools.Child;
+import org.drools.FactHandle;
 import org.drools.GrandParent;
 import org.drools.KnowledgeBase;
 import org.drools.KnowledgeBaseConfiguration;
 import org.drools.KnowledgeBaseFactory;
 import org.drools.Order;
 import org.drools.Parent;
+import org.drools.Person;
 import org.drools.RuleBase;
+import org.drools.RuleBaseConfiguration;
 import org.drools.RuleBaseFactory;
 import org.drools.StatefulSession;
 import org.drools.StatelessSession;
 import org.drools.StockTick;
+import org.drools.base.ClassObjectType;
 import org.drools.builder.KnowledgeBuilder;
 import org.drools.builder.KnowledgeBuilderFactory;
 import org.drools.builder.ResourceType;
 import org.drools.compiler.DroolsParserException;
+import org.drools.common.InternalWorkingMemory;
 import org.drools.compiler.PackageBuilder;
 import org.drools.conf.EventProcessingOption;
+import org.drools.core.util.ObjectHashSet;
 import org.drools.event.rule.AgendaEventListener;
 import org.drools.event.rule.ObjectRetractedEvent;
 import org.drools.event.rule.WorkingMemoryEventListener;
 import org.drools.io.ResourceFactory;
+import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.rule.EntryPoint;
 import org.drools.rule.Package;
 import org.drools.runtime.StatefulKnowledgeSession;
 import org.drools.runtime.rule.WorkingMemoryEntryPoint;
+import org.drools.spi.ObjectType;
 import org.mockito.Mockito;
 
 import static org.mockito.Mockito.*;
@@ -72,6 +90,177 @@ public class MultithreadTest {
     public void testDummy() {
         
     }
+
+    @Test
+    public void testLockStripesConcurrentEntryPointOperations() throws Exception {
+        final String str = "package org.drools\n" +
+                           "global java.util.List list\n" +
+                           "rule cheese when Cheese( $type : type, $price : price ) from entry-point \"stream\" then list.add( $type + \"/\" + $price ); end\n" +
+                           "rule person when Person( $name : name ) from entry-point \"stream\" then list.add( $name ); end\n";
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        final RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setMultithreadEvaluation( true );
+        config.setProperty( "drools.lockStripes",
+                            "4" );
+        assertEquals( 4,
+                      config.getLockStripes() );
+        final RuleBase ruleBase = RuleBaseFactory.newRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+        final StatefulSession session = ruleBase.newStatefulSession();
+        final List<String> list = new ArrayList<String>();
+        session.setGlobal( "list",
+                           list );
+        final org.drools.WorkingMemoryEntryPoint entryPoint = session.getWorkingMemoryEntryPoint( "stream" );
+
+        final int threads = 8;
+        final int facts = 200;
+        // inserted by all the threads at once, they must all get the same handle
+        final Cheese shared = new Cheese( "shared",
+                                          0 );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        final List<Future<FactHandle[][]>> results = new ArrayList<Future<FactHandle[][]>>();
+        try {
+            for ( int t = 0; t < threads; t++ ) {
+                final int thread = t;
+                results.add( executor.submit( new Callable<FactHandle[][]>() {
+                    public FactHandle[][] call() throws Exception {
+                        start.await();
+                        final FactHandle sharedHandle = entryPoint.insert( shared );
+                        final FactHandle[] cheeses = new FactHandle[facts];
+                        final FactHandle[] people = new FactHandle[facts];
+                        for ( int i = 0; i < facts; i++ ) {
+                            final Cheese cheese = new Cheese( "cheese" + thread,
+                                                              i );
+                            cheeses[i] = entryPoint.insert( cheese );
+                            people[i] = entryPoint.insert( new Person( "person" + thread + "-" + i,
+                                                                       "cheese" + thread,
+                                                                       i ) );
+                            if ( i % 2 == 0 ) {
+                                cheese.setPrice( i * 2 );
+                                entryPoint.update( cheeses[i],
+                                                   cheese );
+                            }
+                            if ( i % 3 == 0 ) {
+                                entryPoint.retract( people[i] );
+                            }
+                        }
+                        return new FactHandle[][]{cheeses, people, {sharedHandle}};
+                    }
+                } ) );
+            }
+            start.countDown();
+
+            final List<String> expected = new ArrayList<String>();
+            expected.add( "shared/0" );
+            FactHandle sharedHandle = null;
+            int people = 0;
+            for ( int t = 0; t < threads; t++ ) {
+                final FactHandle[][] handles = results.get( t ).get( 60,
+                                                                     TimeUnit.SECONDS );
+                if ( sharedHandle == null ) {
+                    sharedHandle = handles[2][0];
+                }
+                assertSame( sharedHandle,
+                            handles[2][0] );
+                for ( int i = 0; i < facts; i++ ) {
+                    final Cheese cheese = (Cheese) entryPoint.getObject( handles[0][i] );
+                    assertEquals( "cheese" + t,
+                                  cheese.getType() );
+                    assertEquals( i % 2 == 0 ? i * 2 : i,
+                                  cheese.getPrice() );
+                    expected.add( cheese.getType() + "/" + cheese.getPrice() );
+                    if ( i % 3 == 0 ) {
+                        assertNull( entryPoint.getObject( handles[1][i] ) );
+                    } else {
+                        final Person person = (Person) entryPoint.getObject( handles[1][i] );
+                        assertEquals( "person" + t + "-" + i,
+                                      person.getName() );
+                        expected.add( person.getName() );
+                        people++;
+                    }
+                }
+            }
+            assertEquals( threads * facts + 1 + people,
+                          entryPoint.getObjects().size() );
+            // nothing leaked into the default entry point
+            assertFalse( session.iterateObjects().hasNext() );
+
+            // the object type nodes hold the facts left in the entry point
+            final Map<ObjectType, ObjectTypeNode> nodes = ((ReteooRuleBase) ruleBase).getRete().getObjectTypeNodes( new EntryPoint( "stream" ) );
+            assertEquals( threads * facts + 1,
+                          ((ObjectHashSet) ((InternalWorkingMemory) session).getNodeMemory( nodes.get( new ClassObjectType( Cheese.class ) ) )).size() );
+            assertEquals( people,
+                          ((ObjectHashSet) ((InternalWorkingMemory) session).getNodeMemory( nodes.get( new ClassObjectType( Person.class ) ) )).size() );
+
+            // each fact left has one activation, with the values of its last update
+            assertEquals( expected.size(),
+                          session.fireAllRules() );
+            Collections.sort( expected );
+            Collections.sort( list );
+            assertEquals( expected,
+                          list );
+        } finally {
+            executor.shutdownNow();
+            session.dispose();
+        }
+    }
+    
+    @Test
+    public void testLockStripesNoLoopInsertFromConsequence() throws Exception {
+        final String str = "package org.drools\n" +
+                           "rule grow no-loop when\n" +
+                           "    $c : Cheese( price < 10 )\n" +
+                           "then\n" +
+                           "    modify( $c ) { setPrice( $c.getPrice() + 1 ) }\n" +
+                           "    insert( new Cheese( \"copy\", $c.getPrice() ) );\n" +
+                           "end\n";
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        final RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setMultithreadEvaluation( true );
+        config.setProperty( "drools.lockStripes",
+                            "4" );
+        final RuleBase ruleBase = RuleBaseFactory.newRuleBase( config );
+        ruleBase.addPackage( builder.getPackage() );
+        final StatefulSession session = ruleBase.newStatefulSession();
+        final List<org.drools.event.ObjectInsertedEvent> inserted = new ArrayList<org.drools.event.ObjectInsertedEvent>();
+        session.addEventListener( new org.drools.event.DefaultWorkingMemoryEventListener() {
+            public void objectInserted(org.drools.event.ObjectInsertedEvent event) {
+                inserted.add( event );
+            }
+        } );
+        try {
+            final Cheese stilton = new Cheese( "stilton",
+                                               0 );
+            session.insert( stilton );
+
+            // the copy is inserted by the rule, so no-loop keeps it from activating the rule again
+            assertEquals( 1,
+                          session.fireAllRules() );
+            assertEquals( 1,
+                          stilton.getPrice() );
+            assertEquals( 2,
+                          inserted.size() );
+            assertNull( inserted.get( 0 ).getPropagationContext().getRuleOrigin() );
+            final Cheese copy = (Cheese) inserted.get( 1 ).getObject();
+            assertEquals( "copy",
+                          copy.getType() );
+            assertEquals( 1,
+                          copy.getPrice() );
+            assertEquals( "grow",
+                          inserted.get( 1 ).getPropagationContext().getRuleOrigin().getName() );
+        } finally {
+            session.dispose();
+        }
+    }
     
     // FIXME
 //    
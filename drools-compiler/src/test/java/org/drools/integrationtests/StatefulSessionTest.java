@@ -8,6 +8,7 @@ import org.drools.Cheese;
 import org.drools.FactHandle;
 import org.drools.KnowledgeBase;
 import org.drools.KnowledgeBaseFactory;
+import org.drools.Person;
 import org.drools.RuleBase;
 import org.drools.RuleBaseConfiguration;
 import org.drools.RuleBaseFactory;
@@ -248,6 +249,115 @@ public class StatefulSessionTest {
         }
     }
     
+    @Test
+    public void testInsertAllAndUpdateAll() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule likes \n";
+        str += "  when \n";
+        str += "    $p : Person( $likes : likes ) \n";
+        str += "    Cheese( type == $likes ) \n";
+        str += "  then \n";
+        str += "    list.add( $p.getName() ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+        RuleBase ruleBase = getRuleBase();
+        ruleBase.addPackage( builder.getPackage() );
+        StatefulSession session = ruleBase.newStatefulSession();
+        session.setGlobal( "list",
+                           this.list );
+
+        final Cheese stilton = new Cheese( "stilton",
+                                           5 );
+        final Person mark = new Person( "mark",
+                                        "stilton" );
+        final Person bob = new Person( "bob",
+                                       "brie" );
+
+        List<FactHandle> handles = session.insertAll( Arrays.asList( new Object[]{mark, stilton, null, bob, mark} ) );
+        assertEquals( 5,
+                      handles.size() );
+        assertNull( handles.get( 2 ) );
+        assertSame( handles.get( 0 ),
+                    handles.get( 4 ) );
+        assertSame( stilton,
+                    session.getObject( handles.get( 1 ) ) );
+        assertEquals( 3,
+                      session.getFactCount() );
+
+        session.fireAllRules();
+        assertEquals( Arrays.asList( new Object[]{"mark"} ),
+                      this.list );
+
+        this.list.clear();
+        bob.setLikes( "stilton" );
+        session.updateAll( Arrays.asList( new FactHandle[]{handles.get( 3 ), handles.get( 0 )} ),
+                           Arrays.asList( new Object[]{bob, mark} ) );
+        session.fireAllRules();
+        assertEquals( 2,
+                      this.list.size() );
+        assertTrue( this.list.contains( "bob" ) );
+        assertTrue( this.list.contains( "mark" ) );
+    }
+
+    @Test
+    public void testInsertAllFiresAsInserts() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule cheese \n";
+        str += "  when \n";
+        str += "    $c : Cheese() \n";
+        str += "  then \n";
+        str += "    list.add( $c.getType() + ( drools.getActivation().getPropagationContext().getFactHandleOrigin() == drools.getWorkingMemory().getFactHandle( $c ) ? \"\" : \" wrong origin\" ) ); \n";
+        str += "end \n";
+        str += "rule person \n";
+        str += "  when \n";
+        str += "    $p : Person() \n";
+        str += "  then \n";
+        str += "    list.add( $p.getName() + ( drools.getActivation().getPropagationContext().getFactHandleOrigin() == drools.getWorkingMemory().getFactHandle( $p ) ? \"\" : \" wrong origin\" ) ); \n";
+        str += "end \n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new java.io.StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+        RuleBase ruleBase = getRuleBase();
+        ruleBase.addPackage( builder.getPackage() );
+
+        final List<Object> objects = Arrays.asList( new Object[]{new Cheese( "brie",
+                                                                             5 ), new Person( "mark" ), new Cheese( "stilton",
+                                                                                                                    7 ), new Person( "bob" )} );
+
+        StatefulSession session = ruleBase.newStatefulSession();
+        session.setGlobal( "list",
+                           this.list );
+        for ( Object object : objects ) {
+            session.insert( object );
+        }
+        session.fireAllRules();
+        session.dispose();
+        final List<Object> expected = new ArrayList<Object>( this.list );
+        assertEquals( Arrays.asList( new Object[]{"bob", "stilton", "mark", "brie"} ),
+                      expected );
+
+        // the facts of a batch are propagated in their order, each with its own context
+        this.list.clear();
+        session = ruleBase.newStatefulSession();
+        session.setGlobal( "list",
+                           this.list );
+        session.insertAll( objects );
+        session.fireAllRules();
+        session.dispose();
+        assertEquals( expected,
+                      this.list );
+    }
+
     private StatefulSession getExceptionSession() throws Exception {
         final PackageBuilder builder = new PackageBuilder();
         builder.addPackageFromDrl( new InputStreamReader( getClass().getResourceAsStream( "test_ConsequenceException.drl" ) ) );
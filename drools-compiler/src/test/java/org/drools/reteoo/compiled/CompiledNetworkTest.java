@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo.compiled;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.drools.Cheese;
+import org.drools.FactHandle;
+import org.drools.Person;
+import org.drools.RuleBase;
+import org.drools.RuleBaseConfiguration;
+import org.drools.RuleBaseFactory;
+import org.drools.StatefulSession;
+import org.drools.compiler.PackageBuilder;
+import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.rule.Package;
+import org.junit.Test;
+
+public class CompiledNetworkTest {
+
+    private static final String DRL = "package org.drools.test\n" +
+                                      "import org.drools.Cheese\n" +
+                                      "import org.drools.Person\n" +
+                                      "global java.util.List list\n" +
+                                      "rule stilton when $f : Cheese( type == \"stilton\" ) then list.add( drools.getRule().getName() + \" \" + $f.getType() + $f.getPrice() ); end\n" +
+                                      "rule brie when $f : Cheese( type == \"brie\" ) then list.add( drools.getRule().getName() + \" \" + $f.getType() + $f.getPrice() ); end\n" +
+                                      "rule cheddar when $f : Cheese( type == \"cheddar\" ) then list.add( drools.getRule().getName() + \" \" + $f.getType() + $f.getPrice() ); end\n" +
+                                      "rule cheapBrie when $f : Cheese( type == \"brie\", price < 5 ) then list.add( drools.getRule().getName() + \" \" + $f.getType() + $f.getPrice() ); end\n" +
+                                      "rule expensive when $f : Cheese( price > 10 ) then list.add( drools.getRule().getName() + \" \" + $f.getType() + $f.getPrice() ); end\n" +
+                                      "rule notBrie when $f : Cheese( type != \"brie\" ) then list.add( drools.getRule().getName() + \" \" + $f.getType() + $f.getPrice() ); end\n" +
+                                      "rule bob when $f : Person( name == \"bob\" ) then list.add( drools.getRule().getName() + \" \" + $f.getName() + $f.getAge() ); end\n" +
+                                      "rule thirty when $f : Person( age == 30 ) then list.add( drools.getRule().getName() + \" \" + $f.getName() + $f.getAge() ); end\n" +
+                                      "rule likesStilton when $f : Person( likes == \"stilton\" ) Cheese( type == \"stilton\" ) then list.add( drools.getRule().getName() + \" \" + $f.getName() + $f.getAge() ); end\n";
+
+    private Package getPackage() throws Exception {
+        PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( DRL ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+        return builder.getPackage();
+    }
+
+    private boolean isCompiled(RuleBase ruleBase) {
+        boolean compiled = false;
+        for ( ObjectTypeNode node : ((ReteooRuleBase) ruleBase).getRete().getObjectTypeNodes() ) {
+            compiled |= node.getCompiledNetwork() != null;
+        }
+        return compiled;
+    }
+
+    /**
+     * Inserts, updates and retracts facts, and returns the rules fired by each
+     * call to fireAllRules, sorted as the order of activations with the same
+     * salience and recency is not specified.
+     */
+    private List<List<String>> execute(RuleBase ruleBase) {
+        StatefulSession session = ruleBase.newStatefulSession();
+        List<String> list = new ArrayList<String>();
+        session.setGlobal( "list",
+                           list );
+        List<List<String>> fired = new ArrayList<List<String>>();
+
+        Cheese stilton = new Cheese( "stilton",
+                                     20 );
+        Cheese brie = new Cheese( "brie",
+                                  3 );
+        Cheese cheddar = new Cheese( "cheddar",
+                                     8 );
+        FactHandle stiltonHandle = session.insert( stilton );
+        FactHandle brieHandle = session.insert( brie );
+        session.insert( cheddar );
+        session.insert( new Cheese( "camembert",
+                                    12 ) );
+        session.insert( new Person( "bob",
+                                    "stilton",
+                                    30 ) );
+        FactHandle maryHandle = session.insert( new Person( "mary",
+                                                            "brie",
+                                                            30 ) );
+        session.fireAllRules();
+        fired.add( sorted( list ) );
+
+        list.clear();
+        brie.setPrice( 15 );
+        session.update( brieHandle,
+                        brie );
+        stilton.setType( "brie" );
+        stilton.setPrice( 2 );
+        session.update( stiltonHandle,
+                        stilton );
+        session.fireAllRules();
+        fired.add( sorted( list ) );
+
+        list.clear();
+        session.retract( maryHandle );
+        session.insert( new Cheese( "stilton",
+                                    4 ) );
+        session.insert( new Person( "bob",
+                                    "cheddar",
+                                    25 ) );
+        session.fireAllRules();
+        fired.add( sorted( list ) );
+
+        session.dispose();
+        return fired;
+    }
+
+    private List<String> sorted(List<String> list) {
+        List<String> sorted = new ArrayList<String>( list );
+        Collections.sort( sorted );
+        return sorted;
+    }
+
+    @Test
+    public void testCompiledNetworkFiresAsInterpreted() throws Exception {
+        RuleBase interpreted = RuleBaseFactory.newRuleBase( new RuleBaseConfiguration() );
+        interpreted.addPackage( getPackage() );
+        assertFalse( isCompiled( interpreted ) );
+
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setCompiledAlphaNetwork( true );
+        RuleBase compiled = RuleBaseFactory.newRuleBase( conf );
+        compiled.addPackage( getPackage() );
+        assertTrue( isCompiled( compiled ) );
+
+        List<List<String>> expected = execute( interpreted );
+        assertEquals( 13,
+                      expected.get( 0 ).size() );
+        assertTrue( expected.get( 0 ).contains( "cheapBrie brie3" ) );
+        assertEquals( expected,
+                      execute( compiled ) );
+    }
+
+    @Test
+    public void testCompiledNetworkFromProperty() throws Exception {
+        System.setProperty( "drools.compiledAlphaNetwork",
+                            "true" );
+        RuleBase ruleBase;
+        try {
+            RuleBaseConfiguration conf = new RuleBaseConfiguration();
+            assertTrue( conf.isCompiledAlphaNetwork() );
+            ruleBase = RuleBaseFactory.newRuleBase( conf );
+        } finally {
+            System.clearProperty( "drools.compiledAlphaNetwork" );
+        }
+        ruleBase.addPackage( getPackage() );
+        assertTrue( isCompiled( ruleBase ) );
+
+        RuleBase interpreted = RuleBaseFactory.newRuleBase( new RuleBaseConfiguration() );
+        interpreted.addPackage( getPackage() );
+        assertEquals( execute( interpreted ),
+                      execute( ruleBase ) );
+    }
+
+}
@@ -18,6 +18,7 @@ import org.drools.QueryResults;
 import org.drools.RuleBase;
 import org.drools.SessionConfiguration;
 import org.drools.WorkingMemoryEntryPoint;
+import org.drools.common.BaseNode;
 import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalKnowledgeRuntime;
 import org.drools.common.InternalRuleBase;
@@ -444,6 +445,14 @@ public class MockWorkingMemory implements InternalWorkingMemory {
         return null;
     }
 
+    public List<FactHandle> insertAll(Collection< ? > objects) throws FactException {
+        List<FactHandle> handles = new ArrayList<FactHandle>();
+        for ( Object object : objects ) {
+            handles.add( insert( object ) );
+        }
+        return handles;
+    }
+
     public void modifyInsert(FactHandle factHandle,
                              Object object) {
         // TODO Auto-generated method stub
@@ -466,6 +475,12 @@ public class MockWorkingMemory implements InternalWorkingMemory {
         
     }
 
+    public void updateAll(List< ? extends org.drools.runtime.rule.FactHandle> handles,
+                          List< ? > objects) throws FactException {
+        // TODO Auto-generated method stub
+        
+    }
+
     public InternalKnowledgeRuntime getKnowledgeRuntime() {
         // TODO Auto-generated method stub
         return null;
@@ -536,6 +551,21 @@ public class MockWorkingMemory implements InternalWorkingMemory {
         
     }
 
+    public void queueNodeUpdate(BaseNode node) {
+        // TODO Auto-generated method stub
+        
+    }
+
+    public boolean isNodeUpdateQueued(BaseNode node) {
+        // TODO Auto-generated method stub
+        return false;
+    }
+
+    public void updateQueuedNodes() {
+        // TODO Auto-generated method stub
+        
+    }
+
     public long getTimeToNextJob() {
         // TODO Auto-generated method stub
         return 0;
@@ -26,9 +26,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.drools.base.evaluators.RegexPatternCache;
 import org.drools.builder.conf.ClassLoaderCacheOption;
 import org.drools.common.AgendaGroupFactory;
 import org.drools.common.ArrayAgendaGroupFactory;
+import org.drools.common.LazyAgendaGroupFactory;
 import org.drools.common.PriorityQueueAgendaGroupFactory;
 import org.drools.concurrent.DefaultExecutorService;
 import org.drools.conf.AlphaThresholdOption;
@@ -87,7 +89,7 @@ import org.mvel2.MVEL;
  * drools.shareAlphaNodes  = &lt;true|false&gt;
  * drools.shareBetaNodes = &lt;true|false&gt;
  * drools.alphaNodeHashingThreshold = &lt;1...n&gt;
- * drools.compositeKeyDepth  =&lt;1..3&gt;
+ * drools.compositeKeyDepth  =&lt;1..n&gt;
  * drools.indexLeftBetaMemory = &lt;true/false&gt;
  * drools.indexRightBetaMemory = &lt;true/false&gt;
  * drools.assertBehaviour = &lt;identity|equality&gt;
@@ -101,6 +103,15 @@ import org.mvel2.MVEL;
  * drools.multithreadEvaluation = &lt;true|false&gt;
  * drools.mbeans = &lt;enabled|disabled&gt;
  * drools.classLoaderCacheEnabled = &lt;true|false&gt;
+ * drools.regexPatternCacheSize = &lt;1..n&gt;
+ * drools.compiledAlphaNetwork = &lt;true|false&gt;
+ * drools.lockStripes = &lt;0..n&gt;
+ * drools.primitiveObjectStore = &lt;true|false&gt;
+ * drools.fromResultCacheSize = &lt;0..n&gt;
+ * drools.lazyAgenda = &lt;true|false&gt;
+ * drools.consequenceThreads = &lt;0..n&gt;
+ * drools.partitionQueueSize = &lt;0..n&gt;
+ * drools.backgroundRulePropagation = &lt;true|false&gt;
  * </pre>
  */
 public class RuleBaseConfiguration
@@ -132,6 +143,15 @@ public class RuleBaseConfiguration
     private String                         consequenceExceptionHandler;
     private String                         ruleBaseUpdateHandler;
     private boolean                        classLoaderCacheEnabled;
+    private int                            regexPatternCacheSize;
+    private boolean                        compiledAlphaNetwork;
+    private int                            lockStripes;
+    private boolean                        primitiveObjectStore;
+    private int                            fromResultCacheSize;
+    private boolean                        lazyAgenda;
+    private int                            consequenceThreads;
+    private int                            partitionQueueSize;
+    private boolean                        backgroundRulePropagation;
 
     private EventProcessingOption          eventProcessingMode;
 
@@ -181,6 +201,15 @@ public class RuleBaseConfiguration
         out.writeInt( maxThreads );
         out.writeObject( eventProcessingMode );
         out.writeBoolean( classLoaderCacheEnabled );
+        out.writeInt( regexPatternCacheSize );
+        out.writeBoolean( compiledAlphaNetwork );
+        out.writeInt( lockStripes );
+        out.writeBoolean( primitiveObjectStore );
+        out.writeInt( fromResultCacheSize );
+        out.writeBoolean( lazyAgenda );
+        out.writeInt( consequenceThreads );
+        out.writeInt( partitionQueueSize );
+        out.writeBoolean( backgroundRulePropagation );
     }
 
     public void readExternal(ObjectInput in) throws IOException,
@@ -208,6 +237,15 @@ public class RuleBaseConfiguration
         maxThreads = in.readInt();
         eventProcessingMode = (EventProcessingOption) in.readObject();
         classLoaderCacheEnabled = in.readBoolean();
+        regexPatternCacheSize = in.readInt();
+        compiledAlphaNetwork = in.readBoolean();
+        lockStripes = in.readInt();
+        primitiveObjectStore = in.readBoolean();
+        fromResultCacheSize = in.readInt();
+        lazyAgenda = in.readBoolean();
+        consequenceThreads = in.readInt();
+        partitionQueueSize = in.readInt();
+        backgroundRulePropagation = in.readBoolean();
     }
 
     /**
@@ -299,6 +337,24 @@ public class RuleBaseConfiguration
             setMBeansEnabled( MBeansOption.isEnabled( value ) );
         } else if ( name.equals( ClassLoaderCacheOption.PROPERTY_NAME ) ) {
             setClassLoaderCacheEnabled( StringUtils.isEmpty( value ) ? true : Boolean.valueOf( value ) );
+        } else if ( name.equals( "drools.regexPatternCacheSize" ) ) {
+            setRegexPatternCacheSize( StringUtils.isEmpty( value ) ? RegexPatternCache.DEFAULT_MAX_SIZE : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.compiledAlphaNetwork" ) ) {
+            setCompiledAlphaNetwork( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
+        } else if ( name.equals( "drools.lockStripes" ) ) {
+            setLockStripes( StringUtils.isEmpty( value ) ? 0 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.primitiveObjectStore" ) ) {
+            setPrimitiveObjectStore( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
+        } else if ( name.equals( "drools.fromResultCacheSize" ) ) {
+            setFromResultCacheSize( StringUtils.isEmpty( value ) ? 0 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.lazyAgenda" ) ) {
+            setLazyAgenda( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
+        } else if ( name.equals( "drools.consequenceThreads" ) ) {
+            setConsequenceThreads( StringUtils.isEmpty( value ) ? 0 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.partitionQueueSize" ) ) {
+            setPartitionQueueSize( StringUtils.isEmpty( value ) ? 0 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.backgroundRulePropagation" ) ) {
+            setBackgroundRulePropagation( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
         }
     }
 
@@ -352,6 +408,24 @@ public class RuleBaseConfiguration
             return isMBeansEnabled() ? "enabled" : "disabled";
         } else if ( name.equals( ClassLoaderCacheOption.PROPERTY_NAME ) ) {
             return Boolean.toString( isClassLoaderCacheEnabled() );
+        } else if ( name.equals( "drools.regexPatternCacheSize" ) ) {
+            return Integer.toString( getRegexPatternCacheSize() );
+        } else if ( name.equals( "drools.compiledAlphaNetwork" ) ) {
+            return Boolean.toString( isCompiledAlphaNetwork() );
+        } else if ( name.equals( "drools.lockStripes" ) ) {
+            return Integer.toString( getLockStripes() );
+        } else if ( name.equals( "drools.primitiveObjectStore" ) ) {
+            return Boolean.toString( isPrimitiveObjectStore() );
+        } else if ( name.equals( "drools.fromResultCacheSize" ) ) {
+            return Integer.toString( getFromResultCacheSize() );
+        } else if ( name.equals( "drools.lazyAgenda" ) ) {
+            return Boolean.toString( isLazyAgenda() );
+        } else if ( name.equals( "drools.consequenceThreads" ) ) {
+            return Integer.toString( getConsequenceThreads() );
+        } else if ( name.equals( "drools.partitionQueueSize" ) ) {
+            return Integer.toString( getPartitionQueueSize() );
+        } else if ( name.equals( "drools.backgroundRulePropagation" ) ) {
+            return Boolean.toString( isBackgroundRulePropagation() );
         }
 
         return null;
@@ -448,6 +522,33 @@ public class RuleBaseConfiguration
 
         setClassLoaderCacheEnabled( Boolean.valueOf( this.chainedProperties.getProperty( ClassLoaderCacheOption.PROPERTY_NAME,
                                                                                          "true" ) ) );
+
+        setRegexPatternCacheSize( Integer.parseInt( this.chainedProperties.getProperty( "drools.regexPatternCacheSize",
+                                                                                        Integer.toString( RegexPatternCache.DEFAULT_MAX_SIZE ) ) ) );
+
+        setCompiledAlphaNetwork( Boolean.valueOf( this.chainedProperties.getProperty( "drools.compiledAlphaNetwork",
+                                                                                      "false" ) ) );
+
+        setLockStripes( Integer.parseInt( this.chainedProperties.getProperty( "drools.lockStripes",
+                                                                              "0" ) ) );
+
+        setPrimitiveObjectStore( Boolean.valueOf( this.chainedProperties.getProperty( "drools.primitiveObjectStore",
+                                                                                      "false" ) ) );
+
+        setFromResultCacheSize( Integer.parseInt( this.chainedProperties.getProperty( "drools.fromResultCacheSize",
+                                                                                      "0" ) ) );
+
+        setLazyAgenda( Boolean.valueOf( this.chainedProperties.getProperty( "drools.lazyAgenda",
+                                                                            "false" ) ) );
+
+        setConsequenceThreads( Integer.parseInt( this.chainedProperties.getProperty( "drools.consequenceThreads",
+                                                                                     "0" ) ) );
+
+        setPartitionQueueSize( Integer.parseInt( this.chainedProperties.getProperty( "drools.partitionQueueSize",
+                                                                                     "0" ) ) );
+
+        setBackgroundRulePropagation( Boolean.valueOf( this.chainedProperties.getProperty( "drools.backgroundRulePropagation",
+                                                                                           "false" ) ) );
     }
 
     /**
@@ -550,9 +651,6 @@ public class RuleBaseConfiguration
 
     public void setCompositeKeyDepth(final int compositeKeyDepth) {
         if ( !this.immutable ) {
-            if ( compositeKeyDepth > 3 ) {
-                throw new UnsupportedOperationException( "compositeKeyDepth cannot be greater than 3" );
-            }
             this.compositeKeyDepth = compositeKeyDepth;
         } else {
             throw new UnsupportedOperationException( "Can't set a property after configuration becomes immutable" );
@@ -620,6 +718,8 @@ public class RuleBaseConfiguration
             } else {
                 return PriorityQueueAgendaGroupFactory.getInstance();
             }
+        } else if ( isLazyAgenda() ) {
+            return LazyAgendaGroupFactory.getInstance();
         } else {
             return PriorityQueueAgendaGroupFactory.getInstance();
         }
@@ -691,6 +791,167 @@ public class RuleBaseConfiguration
         this.classLoader.setCachingEnabled( this.classLoaderCacheEnabled );
     }
 
+    /**
+     * Returns the maximum number of compiled regular expressions each rulebase
+     * keeps for "matches" constraints that are not literals.
+     * 
+     * @return
+     */
+    public int getRegexPatternCacheSize() {
+        return this.regexPatternCacheSize;
+    }
+
+    public void setRegexPatternCacheSize(final int regexPatternCacheSize) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.regexPatternCacheSize = regexPatternCacheSize;
+    }
+
+    /**
+     * Returns true if the alpha network below each ObjectTypeNode is compiled
+     * into a class, instead of being interpreted, when facts are asserted.
+     * Compiling the network requires drools-compiler on the classpath.
+     * 
+     * @return
+     */
+    public boolean isCompiledAlphaNetwork() {
+        return this.compiledAlphaNetwork;
+    }
+
+    public void setCompiledAlphaNetwork(final boolean compiledAlphaNetwork) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.compiledAlphaNetwork = compiledAlphaNetwork;
+    }
+
+    /**
+     * Returns the number of locks the object type nodes of each entry point
+     * are striped over. When greater than 0 and multithread evaluation is
+     * enabled, inserts of facts into independent object type nodes propagate
+     * concurrently instead of being serialized by the entry point lock.
+     * A fact inserted this way is only added to the entry point, and can
+     * only be updated or retracted, once it is fully propagated.
+     * 0, the default, keeps a single lock per entry point.
+     * 
+     * @return
+     */
+    public int getLockStripes() {
+        return this.lockStripes;
+    }
+
+    public void setLockStripes(final int lockStripes) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.lockStripes = lockStripes;
+    }
+
+    /**
+     * Returns true if the sessions keep their facts in a PrimitiveObjectStore,
+     * that does not allocate an entry object per fact, instead of the default
+     * hash map based store.
+     * 
+     * @return
+     */
+    public boolean isPrimitiveObjectStore() {
+        return this.primitiveObjectStore;
+    }
+
+    public void setPrimitiveObjectStore(final boolean primitiveObjectStore) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.primitiveObjectStore = primitiveObjectStore;
+    }
+
+    /**
+     * Returns the number of result sets each "from" node keeps per session,
+     * keyed by the values of the declarations its expression uses, or 0 if
+     * the expressions are evaluated again on every propagation. Caching is
+     * only correct when every "from" expression is a pure function of those
+     * values, so it must not be enabled when an expression reads mutable
+     * globals, or facts or collections that are changed in place. The
+     * expressions using a whole fact, as "from $p.items", are not cached, as
+     * a fact changes without changing its key.
+     * 
+     * @return
+     */
+    public int getFromResultCacheSize() {
+        return this.fromResultCacheSize;
+    }
+
+    public void setFromResultCacheSize(final int fromResultCacheSize) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.fromResultCacheSize = fromResultCacheSize;
+    }
+
+    /**
+     * Returns true if the agenda groups only sort their activations when
+     * the group is asked for them, that is when it has the focus, instead of
+     * as each activation is created. This is cheaper for agenda and rule
+     * flow groups that collect many activations before they are fired, or
+     * that never get the focus.
+     * 
+     * @return
+     */
+    public boolean isLazyAgenda() {
+        return this.lazyAgenda;
+    }
+
+    public void setLazyAgenda(final boolean lazyAgenda) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.lazyAgenda = lazyAgenda;
+    }
+
+    /**
+     * Returns the number of threads that fire the consequences of the rules
+     * annotated with @parallel, or 0 if all consequences are fired by the
+     * thread that fires the rules. Consecutive activations of such rules in
+     * the agenda group with the focus are fired as one batch, whose before
+     * and after events are still fired in salience order by the calling
+     * thread.
+     * 
+     * @return
+     */
+    public int getConsequenceThreads() {
+        return this.consequenceThreads;
+    }
+
+    public void setConsequenceThreads(final int consequenceThreads) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.consequenceThreads = consequenceThreads;
+    }
+
+    /**
+     * Returns the number of actions each partition may have queued, when
+     * multi-thread evaluation is enabled, before the thread inserting facts
+     * waits for the partition to catch up, or 0 if the queues are unbounded.
+     * Default is 0.
+     * 
+     * @return
+     */
+    public int getPartitionQueueSize() {
+        return this.partitionQueueSize;
+    }
+
+    public void setPartitionQueueSize(final int partitionQueueSize) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.partitionQueueSize = partitionQueueSize;
+    }
+
+    /**
+     * Returns true if the facts and tuples already in the sessions are
+     * propagated to the nodes of new rules after the rulebase is unlocked,
+     * one session at a time, instead of to all the sessions while the
+     * rulebase is locked. Each session is brought up to date on a background
+     * thread, or before its next operation if that comes first. It is
+     * ignored with multi-thread evaluation. Default is false.
+     * 
+     * @return
+     */
+    public boolean isBackgroundRulePropagation() {
+        return this.backgroundRulePropagation;
+    }
+
+    public void setBackgroundRulePropagation(final boolean backgroundRulePropagation) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.backgroundRulePropagation = backgroundRulePropagation;
+    }
+
     public List<Map<String, Object>> getWorkDefinitions() {
         if ( this.workDefinitions == null ) {
             initWorkDefinitions();
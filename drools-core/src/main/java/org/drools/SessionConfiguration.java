@@ -64,6 +64,7 @@ import org.mvel2.MVEL;
  * 
  * drools.keepReference = <true|false>
  * drools.clockType = <pseudo|realtime|heartbeat|implicit>
+ * drools.timerService = <qualified class name>
  */
 public class SessionConfiguration
     implements
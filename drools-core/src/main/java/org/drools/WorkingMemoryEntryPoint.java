@@ -17,6 +17,9 @@
 package org.drools;
 
 
+import java.util.Collection;
+import java.util.List;
+
 import org.drools.FactHandle;
 
 /**
@@ -56,6 +59,20 @@ public interface WorkingMemoryEntryPoint extends org.drools.runtime.rule.Working
     FactHandle insert(Object object,
                       boolean dynamic) throws FactException;
 
+    /**
+     * Assert all the facts, as a single operation that is cheaper than
+     * asserting each of them.
+     * 
+     * @param objects
+     *            The fact objects.
+     * 
+     * @return The fact-handles associated with the objects, in the same order.
+     * 
+     * @throws FactException
+     *             If a RuntimeException error occurs.
+     */
+    List<FactHandle> insertAll(Collection< ? > objects) throws FactException;
+
     /**
      * Retract a fact.
      * 
@@ -82,6 +99,21 @@ public interface WorkingMemoryEntryPoint extends org.drools.runtime.rule.Working
     void update(org.drools.runtime.rule.FactHandle handle,
                 Object object) throws FactException;
 
+    /**
+     * Inform the WorkingMemory that the Facts have been modified, as a single
+     * operation that is cheaper than updating each of them.
+     * 
+     * @param handles
+     *            The fact-handles associated with the facts to modify.
+     * @param objects
+     *            The new values of the facts, in the same order.
+     * 
+     * @throws FactException
+     *             If a RuntimeException error occurs.
+     */
+    void updateAll(List< ? extends org.drools.runtime.rule.FactHandle> handles,
+                   List< ? > objects) throws FactException;
+
     public WorkingMemoryEntryPoint getWorkingMemoryEntryPoint(String name);
 
 }
@@ -22,6 +22,7 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -62,6 +63,18 @@ public class ClassFieldAccessorStore
         lookup = (Map<AccessorKey, BaseLookupEntry>) in.readObject();
     }
 
+    /**
+     * Returns the names of the classes this store has accessors or object
+     * types for.
+     */
+    public Set<String> getClassNames() {
+        final Set<String> classNames = new HashSet<String>();
+        for ( AccessorKey key : this.lookup.keySet() ) {
+            classNames.add( key.getClassName() );
+        }
+        return classNames;
+    }
+
     public void setEagerWire(boolean eagerWire) {
         this.eagerWire = eagerWire;
     }
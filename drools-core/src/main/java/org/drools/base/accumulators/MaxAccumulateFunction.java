@@ -22,22 +22,25 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.Serializable;
 
+import org.drools.core.util.DoubleMultiset;
+
 /**
  * An implementation of an accumulator capable of calculating maximum values
  */
 public class MaxAccumulateFunction implements AccumulateFunction {
 
     protected static class MaxData implements Externalizable {
-        public double max = -Double.MAX_VALUE;
+        // all the accumulated values, so the maximum is found again when one is reversed
+        public DoubleMultiset values = new DoubleMultiset();
         
         public MaxData() {}
 
         public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-            max   = in.readDouble();
+            values   = (DoubleMultiset) in.readObject();
         }
 
         public void writeExternal(ObjectOutput out) throws IOException {
-            out.writeDouble(max);
+            out.writeObject(values);
         }
     }
 
@@ -60,7 +63,7 @@ public class MaxAccumulateFunction implements AccumulateFunction {
      */
     public void init(Serializable context) throws Exception {
         MaxData data = (MaxData) context;
-        data.max = -Double.MAX_VALUE;
+        data.values.clear();
     }
 
     /* (non-Javadoc)
@@ -69,7 +72,7 @@ public class MaxAccumulateFunction implements AccumulateFunction {
     public void accumulate(Serializable context,
                            Object value) {
         MaxData data = (MaxData) context;
-        data.max = Math.max( data.max, ((Number)value).doubleValue() );
+        data.values.add( ((Number)value).doubleValue() );
     }
 
     /* (non-Javadoc)
@@ -77,6 +80,8 @@ public class MaxAccumulateFunction implements AccumulateFunction {
      */
     public void reverse(Serializable context,
                         Object value) throws Exception {
+        MaxData data = (MaxData) context;
+        data.values.remove( ((Number)value).doubleValue() );
     }
 
     /* (non-Javadoc)
@@ -84,14 +89,14 @@ public class MaxAccumulateFunction implements AccumulateFunction {
      */
     public Object getResult(Serializable context) throws Exception {
         MaxData data = (MaxData) context;
-        return new Double( data.max );
+        return new Double( data.values.isEmpty() ? -Double.MAX_VALUE : data.values.last() );
     }
 
     /* (non-Javadoc)
      * @see org.drools.base.accumulators.AccumulateFunction#supportsReverse()
      */
     public boolean supportsReverse() {
-        return false;
+        return true;
     }
 
 }
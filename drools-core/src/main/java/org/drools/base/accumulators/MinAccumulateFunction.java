@@ -22,6 +22,8 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.Serializable;
 
+import org.drools.core.util.DoubleMultiset;
+
 /**
  * An implementation of an accumulator capable of calculating minimun values
  */
@@ -36,16 +38,17 @@ public class MinAccumulateFunction implements AccumulateFunction {
     }
 
     protected static class MinData implements Externalizable {
-        public double min = Double.MAX_VALUE;
+        // all the accumulated values, so the minimum is found again when one is reversed
+        public DoubleMultiset values = new DoubleMultiset();
         
         public MinData() {}
 
         public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-            min   = in.readDouble();
+            values   = (DoubleMultiset) in.readObject();
         }
 
         public void writeExternal(ObjectOutput out) throws IOException {
-            out.writeDouble(min);
+            out.writeObject(values);
         }
     }
 
@@ -61,7 +64,7 @@ public class MinAccumulateFunction implements AccumulateFunction {
      */
     public void init(Serializable context) throws Exception {
         MinData data = (MinData) context;
-        data.min = Double.MAX_VALUE;
+        data.values.clear();
     }
 
     /* (non-Javadoc)
@@ -70,7 +73,7 @@ public class MinAccumulateFunction implements AccumulateFunction {
     public void accumulate(Serializable context,
                            Object value) {
         MinData data = (MinData) context;
-        data.min = Math.min( data.min, ((Number)value).doubleValue() );
+        data.values.add( ((Number)value).doubleValue() );
     }
 
     /* (non-Javadoc)
@@ -78,6 +81,8 @@ public class MinAccumulateFunction implements AccumulateFunction {
      */
     public void reverse(Serializable context,
                         Object value) throws Exception {
+        MinData data = (MinData) context;
+        data.values.remove( ((Number)value).doubleValue() );
     }
 
     /* (non-Javadoc)
@@ -85,14 +90,14 @@ public class MinAccumulateFunction implements AccumulateFunction {
      */
     public Object getResult(Serializable context) throws Exception {
         MinData data = (MinData) context;
-        return new Double( data.min );
+        return new Double( data.values.isEmpty() ? Double.MAX_VALUE : data.values.first() );
     }
 
     /* (non-Javadoc)
      * @see org.drools.base.accumulators.AccumulateFunction#supportsReverse()
      */
     public boolean supportsReverse() {
-        return false;
+        return true;
     }
 
 }
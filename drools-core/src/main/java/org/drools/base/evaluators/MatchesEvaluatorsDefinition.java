@@ -19,9 +19,12 @@ package org.drools.base.evaluators;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.regex.Pattern;
 
 import org.drools.base.BaseEvaluator;
 import org.drools.base.ValueType;
+import org.drools.base.field.PatternFieldImpl;
+import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.rule.VariableRestriction.ObjectVariableContextEntry;
 import org.drools.rule.VariableRestriction.VariableContextEntry;
@@ -119,6 +122,31 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
         return this.evaluators.supportsType( type );
     }
 
+    /**
+     * Returns the compiled pattern for a literal value, which is usually
+     * precompiled by the LiteralRestriction that holds it.
+     */
+    private static Pattern getPattern(final InternalWorkingMemory workingMemory,
+                                      final FieldValue field) {
+        if ( field instanceof PatternFieldImpl ) {
+            return ((PatternFieldImpl) field).getPattern();
+        }
+        return getPattern( workingMemory,
+                           (String) field.getValue() );
+    }
+
+    /**
+     * Returns the compiled pattern for a regular expression only known at
+     * evaluation time, using the rulebase pattern cache whenever possible.
+     */
+    private static Pattern getPattern(final InternalWorkingMemory workingMemory,
+                                      final String regex) {
+        if ( workingMemory == null ) {
+            return Pattern.compile( regex );
+        }
+        return ((InternalRuleBase) workingMemory.getRuleBase()).getRegexPatternCache().getPattern( regex );
+    }
+
     /*  *********************************************************
      *           Evaluator Implementations
      *  *********************************************************
@@ -137,11 +165,10 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
                                 final InternalReadAccessor extractor,
                                 final Object object1, final FieldValue object2) {
             final String value1 = (String) extractor.getValue( workingMemory, object1 );
-            final String value2 = (String) object2.getValue();
             if ( value1 == null ) {
                 return false;
             }
-            return value1.matches( value2 );
+            return getPattern( workingMemory, object2 ).matcher( value1 ).matches();
         }
 
         public boolean evaluateCachedRight(InternalWorkingMemory workingMemory,
@@ -150,7 +177,7 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
             if ( value == null ) {
                 return false;
             }
-            return value.matches( (String) context.declaration.getExtractor().getValue( workingMemory, left ) );
+            return getPattern( workingMemory, (String) context.declaration.getExtractor().getValue( workingMemory, left ) ).matcher( value ).matches();
         }
 
         public boolean evaluateCachedLeft(InternalWorkingMemory workingMemory,
@@ -159,7 +186,7 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
             if ( value == null ) {
                 return false;
             }
-            return value.matches( (String) ((ObjectVariableContextEntry) context).left );
+            return getPattern( workingMemory, (String) ((ObjectVariableContextEntry) context).left ).matcher( value ).matches();
         }
 
         public boolean evaluate(InternalWorkingMemory workingMemory,
@@ -171,7 +198,7 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
             if ( value1 == null ) {
                 return false;
             }
-            return ((String) value1).matches( (String) value2 );
+            return getPattern( workingMemory, (String) value2 ).matcher( (String) value1 ).matches();
         }
 
         public String toString() {
@@ -192,11 +219,10 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
                                 final InternalReadAccessor extractor,
                                 final Object object1, final FieldValue object2) {
             final String value1 = (String) extractor.getValue( workingMemory, object1 );
-            final String value2 = (String) object2.getValue();
             if ( value1 == null ) {
                 return false;
             }
-            return ! value1.matches( value2 );
+            return ! getPattern( workingMemory, object2 ).matcher( value1 ).matches();
         }
 
         public boolean evaluateCachedRight(InternalWorkingMemory workingMemory,
@@ -205,7 +231,7 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
             if ( value == null ) {
                 return false;
             }
-            return ! value.matches( (String) context.declaration.getExtractor().getValue( workingMemory, left ) );
+            return ! getPattern( workingMemory, (String) context.declaration.getExtractor().getValue( workingMemory, left ) ).matcher( value ).matches();
         }
 
         public boolean evaluateCachedLeft(InternalWorkingMemory workingMemory,
@@ -214,7 +240,7 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
             if ( value == null ) {
                 return false;
             }
-            return ! value.matches( (String) ((ObjectVariableContextEntry) context).left );
+            return ! getPattern( workingMemory, (String) ((ObjectVariableContextEntry) context).left ).matcher( value ).matches();
         }
 
         public boolean evaluate(InternalWorkingMemory workingMemory,
@@ -226,7 +252,7 @@ public class MatchesEvaluatorsDefinition implements EvaluatorDefinition {
             if ( value1 == null ) {
                 return false;
             }
-            return ! ((String) value1).matches( (String) value2 );
+            return ! getPattern( workingMemory, (String) value2 ).matcher( (String) value1 ).matches();
         }
 
         public String toString() {
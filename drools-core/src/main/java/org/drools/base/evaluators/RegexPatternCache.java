@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.base.evaluators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded, least recently used cache of compiled regular expressions.
+ *
+ * Literal "matches" constraints get their pattern compiled once, when the
+ * restriction is built, but variable constraints only know the expression
+ * at evaluation time. Each rulebase owns one of these caches, so that the
+ * patterns used in beta evaluations are compiled only once while they
+ * are in use.
+ */
+public class RegexPatternCache {
+
+    public static final int            DEFAULT_MAX_SIZE = 1000;
+
+    private final Map<String, Pattern> patterns;
+
+    private final AtomicLong           hits             = new AtomicLong( 0 );
+    private final AtomicLong           misses           = new AtomicLong( 0 );
+
+    public RegexPatternCache() {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+    public RegexPatternCache(final int maxSize) {
+        this.patterns = new LinkedHashMap<String, Pattern>( 16,
+                                                            0.75f,
+                                                            true ) {
+            private static final long serialVersionUID = 510l;
+
+            protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled pattern for the given regular expression,
+     * compiling and caching it if it is not cached yet.
+     */
+    public Pattern getPattern(final String regex) {
+        synchronized ( this.patterns ) {
+            Pattern pattern = this.patterns.get( regex );
+            if ( pattern != null ) {
+                this.hits.incrementAndGet();
+                return pattern;
+            }
+            this.misses.incrementAndGet();
+            pattern = Pattern.compile( regex );
+            this.patterns.put( regex,
+                               pattern );
+            return pattern;
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int size() {
+        synchronized ( this.patterns ) {
+            return this.patterns.size();
+        }
+    }
+
+    public void clear() {
+        synchronized ( this.patterns ) {
+            this.patterns.clear();
+        }
+        this.hits.set( 0 );
+        this.misses.set( 0 );
+    }
+
+}
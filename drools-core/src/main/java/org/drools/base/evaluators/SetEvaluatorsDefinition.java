@@ -25,6 +25,7 @@ import java.util.Map;
 
 import org.drools.base.BaseEvaluator;
 import org.drools.base.ValueType;
+import org.drools.base.field.LiteralSet;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.rule.VariableRestriction.DoubleVariableContextEntry;
 import org.drools.rule.VariableRestriction.ObjectVariableContextEntry;
@@ -492,6 +493,10 @@ public class SetEvaluatorsDefinition
                                 final FieldValue object2) {
             if ( object2.isNull() ) {
                 return false;
+            } else if ( object2.getValue() instanceof LiteralSet ) {
+                return ((LiteralSet) object2.getValue()).contains( workingMemory,
+                                                                   extractor,
+                                                                   object1 );
             } else if ( object2.isCollectionField() ) {
                 final Collection col = (Collection) object2.getValue();
                 final Object value = extractor.getValue( workingMemory,
@@ -598,6 +603,10 @@ public class SetEvaluatorsDefinition
                                 final FieldValue object2) {
             if ( object2.isNull() ) {
                 return false;
+            } else if ( object2.getValue() instanceof LiteralSet ) {
+                return !((LiteralSet) object2.getValue()).contains( workingMemory,
+                                                                    extractor,
+                                                                    object1 );
             } else if ( object2.isCollectionField() ) {
                 final Collection col = (Collection) object2.getValue();
                 final Object value = extractor.getValue( workingMemory,
@@ -53,7 +53,7 @@ public abstract class BaseByteClassFieldReader extends BaseClassFieldReader {
     }
 
     public Object getValue(InternalWorkingMemory workingMemory, final Object object) {
-        return new Byte( getByteValue( workingMemory, object ) );
+        return Byte.valueOf( getByteValue( workingMemory, object ) );
     }
 
     public boolean getBooleanValue(InternalWorkingMemory workingMemory, final Object object) {
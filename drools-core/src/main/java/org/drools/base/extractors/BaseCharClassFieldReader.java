@@ -49,7 +49,7 @@ public abstract class BaseCharClassFieldReader extends BaseClassFieldReader {
     }
 
     public Object getValue(InternalWorkingMemory workingMemory, final Object object) {
-        return new Character( getCharValue( workingMemory, object ) );
+        return Character.valueOf( getCharValue( workingMemory, object ) );
     }
 
     public boolean getBooleanValue(InternalWorkingMemory workingMemory, final Object object) {
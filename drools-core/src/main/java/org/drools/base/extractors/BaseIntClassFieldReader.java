@@ -49,7 +49,7 @@ public abstract class BaseIntClassFieldReader extends BaseClassFieldReader {
     }
 
     public Object getValue(InternalWorkingMemory workingMemory, final Object object) {
-        return new Integer( getIntValue( workingMemory, object ) );
+        return Integer.valueOf( getIntValue( workingMemory, object ) );
     }
 
     public boolean getBooleanValue(InternalWorkingMemory workingMemory, final Object object) {
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.base.field;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.drools.base.ValueType;
+import org.drools.common.InternalWorkingMemory;
+import org.drools.spi.FieldValue;
+import org.drools.spi.InternalReadAccessor;
+
+/**
+ * An immutable set of literals, built once when a rule is compiled, that a
+ * field is checked to be a member of, as in "type in ( "a", "b", "c" )".
+ *
+ * The literals are converted to the type of the field, so the set contains
+ * the same boxed values the field extractor returns. Sets of int and long
+ * values are kept in primitive open addressed tables and checked against
+ * the primitive value of the field, without boxing it.
+ */
+public abstract class LiteralSet extends AbstractSet
+    implements
+    Externalizable {
+
+    /**
+     * Creates the set of the given literals, for a field of the given type.
+     * Literals must not be null.
+     */
+    public static LiteralSet newInstance(final ValueType type,
+                                         final FieldValue[] values) {
+        if ( type == ValueType.PINTEGER_TYPE || type == ValueType.INTEGER_TYPE ) {
+            final IntLiteralSet set = new IntLiteralSet( values.length );
+            for ( int i = 0; i < values.length; i++ ) {
+                set.addInt( values[i].getIntValue() );
+            }
+            return set;
+        } else if ( type == ValueType.PLONG_TYPE || type == ValueType.LONG_TYPE ) {
+            final LongLiteralSet set = new LongLiteralSet( values.length );
+            for ( int i = 0; i < values.length; i++ ) {
+                set.addLong( values[i].getLongValue() );
+            }
+            return set;
+        }
+
+        final ObjectLiteralSet set = new ObjectLiteralSet();
+        for ( int i = 0; i < values.length; i++ ) {
+            set.set.add( getValue( type,
+                                   values[i] ) );
+        }
+        return set;
+    }
+
+    private static Object getValue(final ValueType type,
+                                   final FieldValue value) {
+        if ( type == ValueType.PSHORT_TYPE || type == ValueType.SHORT_TYPE ) {
+            return Short.valueOf( value.getShortValue() );
+        } else if ( type == ValueType.PBYTE_TYPE || type == ValueType.BYTE_TYPE ) {
+            return Byte.valueOf( value.getByteValue() );
+        } else if ( type == ValueType.PCHAR_TYPE || type == ValueType.CHAR_TYPE ) {
+            return Character.valueOf( value.getCharValue() );
+        } else if ( type == ValueType.PFLOAT_TYPE || type == ValueType.FLOAT_TYPE ) {
+            return Float.valueOf( value.getFloatValue() );
+        } else if ( type == ValueType.PDOUBLE_TYPE || type == ValueType.DOUBLE_TYPE ) {
+            return Double.valueOf( value.getDoubleValue() );
+        } else if ( type == ValueType.PBOOLEAN_TYPE || type == ValueType.BOOLEAN_TYPE ) {
+            return Boolean.valueOf( value.getBooleanValue() );
+        }
+        return value.getValue();
+    }
+
+    /**
+     * Returns true if the value of the field read by the extractor from the
+     * given object is in this set.
+     */
+    public abstract boolean contains(InternalWorkingMemory workingMemory,
+                                     InternalReadAccessor extractor,
+                                     Object object);
+
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(final long l) {
+        final long h = l * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int capacity(final int size) {
+        // at most half full
+        int capacity = 4;
+        while ( capacity < size * 2 ) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Empty slots hold 0, so whether 0 is in the set is kept aside.
+     */
+    public static class IntLiteralSet extends LiteralSet {
+        private int[]   table;
+        private boolean hasZero;
+        private int     size;
+
+        public IntLiteralSet() {
+            this( 0 );
+        }
+
+        IntLiteralSet(final int expectedSize) {
+            this.table = new int[capacity( expectedSize )];
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            final int size = in.readInt();
+            this.table = new int[capacity( size )];
+            for ( int i = 0; i < size; i++ ) {
+                addInt( in.readInt() );
+            }
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt( this.size );
+            if ( this.hasZero ) {
+                out.writeInt( 0 );
+            }
+            for ( int i = 0; i < this.table.length; i++ ) {
+                if ( this.table[i] != 0 ) {
+                    out.writeInt( this.table[i] );
+                }
+            }
+        }
+
+        void addInt(final int value) {
+            if ( value == 0 ) {
+                if ( !this.hasZero ) {
+                    this.hasZero = true;
+                    this.size++;
+                }
+                return;
+            }
+            final int mask = this.table.length - 1;
+            int i = mix( value ) & mask;
+            while ( this.table[i] != 0 ) {
+                if ( this.table[i] == value ) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            this.table[i] = value;
+            this.size++;
+        }
+
+        public boolean containsInt(final int value) {
+            if ( value == 0 ) {
+                return this.hasZero;
+            }
+            final int mask = this.table.length - 1;
+            for ( int i = mix( value ) & mask; this.table[i] != 0; i = (i + 1) & mask ) {
+                if ( this.table[i] == value ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean contains(final Object object) {
+            return object instanceof Integer && containsInt( ((Integer) object).intValue() );
+        }
+
+        public boolean contains(final InternalWorkingMemory workingMemory,
+                                final InternalReadAccessor extractor,
+                                final Object object) {
+            return !extractor.isNullValue( workingMemory,
+                                           object ) && containsInt( extractor.getIntValue( workingMemory,
+                                                                                           object ) );
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public Iterator iterator() {
+            return new Iterator() {
+                private boolean zero = hasZero;
+                private int     index;
+
+                public boolean hasNext() {
+                    if ( this.zero ) {
+                        return true;
+                    }
+                    while ( this.index < table.length && table[this.index] == 0 ) {
+                        this.index++;
+                    }
+                    return this.index < table.length;
+                }
+
+                public Object next() {
+                    if ( !hasNext() ) {
+                        throw new NoSuchElementException();
+                    }
+                    if ( this.zero ) {
+                        this.zero = false;
+                        return Integer.valueOf( 0 );
+                    }
+                    return Integer.valueOf( table[this.index++] );
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException( "A literal set is immutable" );
+                }
+            };
+        }
+    }
+
+    /**
+     * Empty slots hold 0, so whether 0 is in the set is kept aside.
+     */
+    public static class LongLiteralSet extends LiteralSet {
+        private long[]  table;
+        private boolean hasZero;
+        private int     size;
+
+        public LongLiteralSet() {
+            this( 0 );
+        }
+
+        LongLiteralSet(final int expectedSize) {
+            this.table = new long[capacity( expectedSize )];
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            final int size = in.readInt();
+            this.table = new long[capacity( size )];
+            for ( int i = 0; i < size; i++ ) {
+                addLong( in.readLong() );
+            }
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt( this.size );
+            if ( this.hasZero ) {
+                out.writeLong( 0 );
+            }
+            for ( int i = 0; i < this.table.length; i++ ) {
+                if ( this.table[i] != 0 ) {
+                    out.writeLong( this.table[i] );
+                }
+            }
+        }
+
+        void addLong(final long value) {
+            if ( value == 0 ) {
+                if ( !this.hasZero ) {
+                    this.hasZero = true;
+                    this.size++;
+                }
+                return;
+            }
+            final int mask = this.table.length - 1;
+            int i = mix( value ) & mask;
+            while ( this.table[i] != 0 ) {
+                if ( this.table[i] == value ) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            this.table[i] = value;
+            this.size++;
+        }
+
+        public boolean containsLong(final long value) {
+            if ( value == 0 ) {
+                return this.hasZero;
+            }
+            final int mask = this.table.length - 1;
+            for ( int i = mix( value ) & mask; this.table[i] != 0; i = (i + 1) & mask ) {
+                if ( this.table[i] == value ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean contains(final Object object) {
+            return object instanceof Long && containsLong( ((Long) object).longValue() );
+        }
+
+        public boolean contains(final InternalWorkingMemory workingMemory,
+                                final InternalReadAccessor extractor,
+                                final Object object) {
+            return !extractor.isNullValue( workingMemory,
+                                           object ) && containsLong( extractor.getLongValue( workingMemory,
+                                                                                             object ) );
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public Iterator iterator() {
+            return new Iterator() {
+                private boolean zero = hasZero;
+                private int     index;
+
+                public boolean hasNext() {
+                    if ( this.zero ) {
+                        return true;
+                    }
+                    while ( this.index < table.length && table[this.index] == 0 ) {
+                        this.index++;
+                    }
+                    return this.index < table.length;
+                }
+
+                public Object next() {
+                    if ( !hasNext() ) {
+                        throw new NoSuchElementException();
+                    }
+                    if ( this.zero ) {
+                        this.zero = false;
+                        return Long.valueOf( 0 );
+                    }
+                    return Long.valueOf( table[this.index++] );
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException( "A literal set is immutable" );
+                }
+            };
+        }
+    }
+
+    public static class ObjectLiteralSet extends LiteralSet {
+        private HashSet set = new HashSet();
+
+        public ObjectLiteralSet() {
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            this.set = (HashSet) in.readObject();
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeObject( this.set );
+        }
+
+        public boolean contains(final Object object) {
+            return this.set.contains( object );
+        }
+
+        public boolean contains(final InternalWorkingMemory workingMemory,
+                                final InternalReadAccessor extractor,
+                                final Object object) {
+            return this.set.contains( extractor.getValue( workingMemory,
+                                                          object ) );
+        }
+
+        public int size() {
+            return this.set.size();
+        }
+
+        public Iterator iterator() {
+            final Iterator it = this.set.iterator();
+            return new Iterator() {
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                public Object next() {
+                    return it.next();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException( "A literal set is immutable" );
+                }
+            };
+        }
+    }
+
+}
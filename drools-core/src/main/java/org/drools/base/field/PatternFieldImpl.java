@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.base.field;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.util.regex.Pattern;
+
+/**
+ * A String field value that also holds the regular expression
+ * compiled from it, so that literal "matches" constraints do not
+ * need to compile the pattern on every evaluation.
+ */
+public class PatternFieldImpl extends ObjectFieldImpl {
+
+    private static final long serialVersionUID = 510l;
+
+    private transient Pattern pattern;
+
+    public PatternFieldImpl() {
+        super();
+    }
+
+    public PatternFieldImpl(final String regex) {
+        super( regex );
+        this.pattern = Pattern.compile( regex );
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        super.readExternal( in );
+        this.pattern = Pattern.compile( (String) getValue() );
+    }
+
+    public Pattern getPattern() {
+        return this.pattern;
+    }
+
+}
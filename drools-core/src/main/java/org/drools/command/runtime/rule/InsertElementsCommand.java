@@ -31,6 +31,7 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import org.drools.command.Context;
 import org.drools.command.impl.GenericCommand;
 import org.drools.command.impl.KnowledgeCommandContext;
+import org.drools.common.InternalWorkingMemoryEntryPoint;
 import org.drools.core.util.StringUtils;
 import org.drools.impl.StatefulKnowledgeSessionImpl;
 import org.drools.runtime.StatefulKnowledgeSession;
@@ -91,10 +92,13 @@ public class InsertElementsCommand
         } else {
             wmep = ksession.getWorkingMemoryEntryPoint( this.entryPoint );
         }
-        
-        
-        for ( Object object : objects ) {
-            handles.add( ksession.insert( object ) );
+
+        if ( wmep instanceof InternalWorkingMemoryEntryPoint ) {
+            handles.addAll( ((InternalWorkingMemoryEntryPoint) wmep).insertAll( objects ) );
+        } else {
+            for ( Object object : objects ) {
+                handles.add( wmep.insert( object ) );
+            }
         }
 
         if ( outIdentifier != null ) {
@@ -44,6 +44,7 @@ import org.drools.RuntimeDroolsException;
 import org.drools.SessionConfiguration;
 import org.drools.StatefulSession;
 import org.drools.base.ClassFieldAccessorCache;
+import org.drools.base.evaluators.RegexPatternCache;
 import org.drools.core.util.ObjectHashSet;
 import org.drools.definition.type.FactType;
 import org.drools.definition.process.Process;
@@ -118,6 +119,8 @@ abstract public class AbstractRuleBase
 
     private ClassFieldAccessorCache                       classFieldAccessorCache;
 
+    private transient RegexPatternCache                   regexPatternCache;
+
     /**
      * Default constructor - for Externalizable. This should never be used by a user, as it
      * will result in an invalid state for the instance.
@@ -164,6 +167,7 @@ abstract public class AbstractRuleBase
         this.partitionIDs = new CopyOnWriteArrayList<RuleBasePartitionId>();
 
         this.classFieldAccessorCache = new ClassFieldAccessorCache( this.rootClassLoader );
+        this.regexPatternCache = new RegexPatternCache( this.config.getRegexPatternCacheSize() );
     }
 
     private void createRulebaseId(final String id) {
@@ -266,6 +270,7 @@ abstract public class AbstractRuleBase
 
         this.config = (RuleBaseConfiguration) droolsStream.readObject();
         this.config.setClassLoader( droolsStream.getParentClassLoader() );
+        this.regexPatternCache = new RegexPatternCache( this.config.getRegexPatternCacheSize() );
 
         this.pkgs = (Map<String, Package>) droolsStream.readObject();
 
@@ -449,6 +454,7 @@ abstract public class AbstractRuleBase
     public void unlock() {
         boolean lastUnlock = this.lock.getWriteHoldCount() == 1;
         if ( lastUnlock ) {
+            onBeforeLastUnlock();
             this.eventSupport.fireBeforeRuleBaseUnlocked();
         }
         this.lock.writeLock().unlock();
@@ -457,6 +463,15 @@ abstract public class AbstractRuleBase
         }
     }
 
+    /**
+     * Called when the outermost lock is about to be released, while the write lock
+     * is still held. Subclasses may use it to rebuild state derived from the network
+     * once a batch of changes is complete.
+     */
+    protected void onBeforeLastUnlock() {
+        // nothing to do by default
+    }
+
     public void readLock() {
         this.lock.readLock().lock();
     }
@@ -1063,4 +1078,8 @@ abstract public class AbstractRuleBase
     public ClassFieldAccessorCache getClassFieldAccessorCache() {
         return this.classFieldAccessorCache;
     }
+
+    public RegexPatternCache getRegexPatternCache() {
+        return this.regexPatternCache;
+    }
 }
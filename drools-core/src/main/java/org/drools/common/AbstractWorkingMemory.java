@@ -21,6 +21,7 @@ import java.beans.PropertyChangeListener;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -199,6 +200,13 @@ public abstract class AbstractWorkingMemory
 
     private InternalProcessRuntime                               processRuntime;
 
+    /** The updates of the nodes added to the network that this working memory still has to do, in build order */
+    private LinkedList<BaseNode>                                 queuedNodeUpdates;
+    /** The ids of the queued nodes, guarded by queuedNodeUpdates */
+    private BitSet                                               queuedNodeIds;
+    private volatile boolean                                     nodeUpdatesQueued;
+    private boolean                                              updatingNodes;
+
     private transient ObjectMarshallingStrategyStore             marshallingStore;
 
     // ------------------------------------------------------------
@@ -345,6 +353,9 @@ public abstract class AbstractWorkingMemory
         this.opCounter = new AtomicLong( 0 );
         this.lastIdleTimestamp = new AtomicLong( -1 );
 
+        this.queuedNodeUpdates = new LinkedList<BaseNode>();
+        this.queuedNodeIds = new BitSet();
+
         initManagementBeans();
     }
 
@@ -909,6 +920,13 @@ public abstract class AbstractWorkingMemory
                                               activation );
     }
 
+    /**
+     * @see WorkingMemory
+     */
+    public List<FactHandle> insertAll(final Collection< ? > objects) throws FactException {
+        return this.defaultEntryPoint.insertAll( objects );
+    }
+
     public void insert(final InternalFactHandle handle,
                        final Object object,
                        final Rule rule,
@@ -980,6 +998,15 @@ public abstract class AbstractWorkingMemory
                                        activation );
     }
 
+    /**
+     * @see WorkingMemory
+     */
+    public void updateAll(final List< ? extends org.drools.runtime.rule.FactHandle> handles,
+                          final List< ? > objects) throws FactException {
+        this.defaultEntryPoint.updateAll( handles,
+                                          objects );
+    }
+
     public void executeQueuedActions() {
         try {
             startOperation();
@@ -1238,6 +1265,7 @@ public abstract class AbstractWorkingMemory
             this.ruleBase.removeEventListener( (RuleBaseEventListener) it.next() );
         }
         this.stopPartitionManagers();
+        this.agenda.dispose();
         if ( processRuntime != null ) {
             this.processRuntime.dispose();
         }
@@ -1321,6 +1349,69 @@ public abstract class AbstractWorkingMemory
             // means the engine was idle, reset the timestamp
             this.lastIdleTimestamp.set( -1 );
         }
+        if ( this.nodeUpdatesQueued ) {
+            updateQueuedNodes();
+        }
+    }
+
+    public void queueNodeUpdate(final BaseNode node) {
+        synchronized ( this.queuedNodeUpdates ) {
+            this.queuedNodeUpdates.add( node );
+            this.queuedNodeIds.set( node.getId() );
+            this.nodeUpdatesQueued = true;
+        }
+    }
+
+    public boolean isNodeUpdateQueued(final BaseNode node) {
+        if ( !this.nodeUpdatesQueued ) {
+            return false;
+        }
+        synchronized ( this.queuedNodeUpdates ) {
+            return this.queuedNodeIds.get( node.getId() );
+        }
+    }
+
+    public void updateQueuedNodes() {
+        if ( !this.nodeUpdatesQueued ) {
+            return;
+        }
+        try {
+            this.ruleBase.readLock();
+            this.lock.lock();
+            if ( this.updatingNodes ) {
+                // called back while the nodes are updated
+                return;
+            }
+            this.updatingNodes = true;
+            try {
+                // each node is updated from its sources as it was when it was attached,
+                // the nodes after it in build order still ignore what it propagates
+                for ( BaseNode node = nextQueuedNode(); node != null; node = nextQueuedNode() ) {
+                    node.updateNewNode( this );
+                }
+            } finally {
+                this.updatingNodes = false;
+            }
+        } finally {
+            this.lock.unlock();
+            this.ruleBase.readUnlock();
+        }
+    }
+
+    /**
+     * Takes the next node off the queue, from then on it gets the
+     * propagations of this working memory.
+     */
+    private BaseNode nextQueuedNode() {
+        synchronized ( this.queuedNodeUpdates ) {
+            if ( this.queuedNodeUpdates.isEmpty() ) {
+                this.nodeUpdatesQueued = false;
+                return null;
+            }
+            final BaseNode node = this.queuedNodeUpdates.removeFirst();
+            this.queuedNodeIds.clear( node.getId() );
+            return node;
+        }
     }
 
     private EndOperationListener endOperationListener;
@@ -90,6 +90,15 @@ public abstract class BaseNode
 
     public abstract void attach(InternalWorkingMemory[] workingMemories);
 
+    /**
+     * Propagates to this node, once it is attached, the facts and tuples
+     * already in the memories of its sources in the given working memory.
+     * Nodes that need no update do nothing.
+     */
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        // nothing to do by default
+    }
+
     /**
      * A method that is called for all nodes whose network bellow them 
      * changed, after the change is complete, providing them with an oportunity
@@ -27,7 +27,16 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.drools.WorkingMemory;
 import org.drools.base.DefaultKnowledgeHelper;
@@ -112,6 +121,12 @@ public class DefaultAgenda
 
     private int                                                 activationCounter;
 
+    /** Fires the consequences of the @parallel rules, created when first needed. */
+    private ExecutorService                                     consequenceExecutor;
+
+    /** the seconds an idle consequence thread is kept */
+    private static final long                                   CONSEQUENCE_THREAD_KEEP_ALIVE = 60;
+
     // ------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------
@@ -826,11 +841,27 @@ public class DefaultAgenda
      *             If an error occurs while firing an agenda item.
      */
     public boolean fireNextItem(final AgendaFilter filter) throws ConsequenceException {
-        boolean tryagain, result;
+        return fireNextItems( filter,
+                              1 ) > 0;
+    }
+
+    /**
+     * Fires the next activation and, when drools.consequenceThreads is set
+     * and it is an activation of a rule annotated with @parallel, the
+     * activations of such rules that follow it in the same agenda group, up
+     * to the fire limit.
+     * 
+     * @return the number of activations fired
+     */
+    private int fireNextItems(final AgendaFilter filter,
+                              final int fireLimit) throws ConsequenceException {
+        boolean tryagain;
+        int result;
         try {
             do {
                 this.workingMemory.prepareToFireActivation();
-                tryagain = result = false;
+                tryagain = false;
+                result = 0;
                 final InternalAgendaGroup group = (InternalAgendaGroup) getNextFocus();
                 // if there is a group with focus
                 if ( group != null ) {
@@ -839,9 +870,16 @@ public class DefaultAgenda
                     if ( item != null ) {
                         // if that item is allowed to fire
                         if ( filter == null || filter.accept( item ) ) {
-                            // fire it
-                            fireActivation( item );
-                            result = true;
+                            if ( fireLimit != 1 && isParallel( item ) ) {
+                                result = fireParallelActivations( group,
+                                                                  item,
+                                                                  filter,
+                                                                  fireLimit );
+                            } else {
+                                // fire it
+                                fireActivation( item );
+                                result = 1;
+                            }
                         } else {
                             // otherwise cancel it and try the next
                             final EventSupport eventsupport = (EventSupport) this.workingMemory;
@@ -860,6 +898,145 @@ public class DefaultAgenda
         return result;
     }
 
+    /**
+     * Returns true if the activation may be fired in a batch with others, that
+     * is if its rule is annotated with @parallel and it does not belong to an
+     * activation group, whose activations cancel each other.
+     */
+    private boolean isParallel(final Activation activation) {
+        return activation.getRule().isParallel() && activation.getActivationGroupNode() == null && ((InternalRuleBase) this.workingMemory.getRuleBase()).getConfiguration().getConsequenceThreads() > 0;
+    }
+
+    /**
+     * Fires the given activation together with the parallel activations that
+     * follow it in the group. The consequences are evaluated concurrently on
+     * the consequence thread pool, while all the other steps of
+     * fireActivation(), including the events and the handling of the
+     * consequence exceptions, are done by the calling thread in salience
+     * order, before and after the batch.
+     */
+    private synchronized int fireParallelActivations(final InternalAgendaGroup group,
+                                                     final AgendaItem first,
+                                                     final AgendaFilter filter,
+                                                     final int fireLimit) throws ConsequenceException {
+        final List<AgendaItem> batch = new ArrayList<AgendaItem>();
+        batch.add( first );
+        while ( fireLimit < 0 || batch.size() < fireLimit ) {
+            final AgendaItem item = (AgendaItem) group.getNext();
+            if ( item == null ) {
+                break;
+            }
+            if ( !isParallel( item ) || (filter != null && !filter.accept( item )) ) {
+                // put it back, it is fired on its own, dequeuing it cleared its activated flag
+                item.setActivated( true );
+                group.add( item );
+                break;
+            }
+            batch.add( item );
+        }
+
+        this.workingMemory.startOperation();
+        try {
+            final EventSupport eventsupport = (EventSupport) this.workingMemory;
+            final int size = batch.size();
+            final InternalRuleFlowGroup[] ruleFlowGroups = new InternalRuleFlowGroup[size];
+            final List<ConsequenceTask> tasks = new ArrayList<ConsequenceTask>( size );
+            for ( int i = 0; i < size; i++ ) {
+                final AgendaItem item = batch.get( i );
+                increaseDormantActivations();
+                eventsupport.getAgendaEventSupport().fireBeforeActivationFired( item,
+                                                                                this.workingMemory );
+                item.setActivated( false );
+                if ( item.getActivationNode() != null ) {
+                    ruleFlowGroups[i] = (InternalRuleFlowGroup) item.getActivationNode().getParentContainer();
+                    ruleFlowGroups[i].removeActivation( item );
+                }
+                tasks.add( new ConsequenceTask( item,
+                                                this.workingMemory ) );
+            }
+
+            final List<Future<Exception>> results;
+            try {
+                results = getConsequenceExecutor().invokeAll( tasks );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            }
+
+            RuntimeException failure = null;
+            for ( int i = 0; i < size; i++ ) {
+                final AgendaItem item = batch.get( i );
+                final ConsequenceTask task = tasks.get( i );
+                try {
+                    task.knowledgeHelper.cancelRemainingPreviousLogicalDependencies();
+                    task.knowledgeHelper.reset();
+
+                    Exception exception;
+                    try {
+                        exception = results.get( i ).get();
+                    } catch ( ExecutionException e ) {
+                        exception = new RuntimeException( e.getCause() );
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        exception = e;
+                    }
+                    if ( exception != null ) {
+                        handleConsequenceException( item,
+                                                    exception );
+                    }
+
+                    if ( ruleFlowGroups[i] != null ) {
+                        ruleFlowGroups[i].deactivateIfEmpty();
+                    }
+                    retractExpiredEvents( item );
+
+                    eventsupport.getAgendaEventSupport().fireAfterActivationFired( item,
+                                                                                   this.workingMemory );
+                } catch ( RuntimeException e ) {
+                    // the rest of the batch was fired too, so it is completed before the first failure is thrown
+                    if ( failure == null ) {
+                        failure = e;
+                    }
+                }
+            }
+            if ( failure != null ) {
+                throw failure;
+            }
+            return size;
+        } finally {
+            this.workingMemory.endOperation();
+        }
+    }
+
+    /**
+     * Returns the pool the parallel consequences are fired on. Its threads stop once they have been idle
+     * for a while, so sessions that are never disposed, like the stateless ones, don't keep them alive.
+     * When all the threads are busy the consequence is fired by the calling thread.
+     */
+    private synchronized ExecutorService getConsequenceExecutor() {
+        if ( this.consequenceExecutor == null ) {
+            final int threads = ((InternalRuleBase) this.workingMemory.getRuleBase()).getConfiguration().getConsequenceThreads();
+            this.consequenceExecutor = new ThreadPoolExecutor( 0,
+                                                               threads,
+                                                               CONSEQUENCE_THREAD_KEEP_ALIVE,
+                                                               TimeUnit.SECONDS,
+                                                               new SynchronousQueue<Runnable>(),
+                                                               new ConsequenceThreadFactory(),
+                                                               new ThreadPoolExecutor.CallerRunsPolicy() );
+        }
+        return this.consequenceExecutor;
+    }
+
+    /**
+     * Stops the consequence threads, if they were started.
+     */
+    public synchronized void dispose() {
+        if ( this.consequenceExecutor != null ) {
+            this.consequenceExecutor.shutdown();
+            this.consequenceExecutor = null;
+        }
+    }
+
     /**
      * Fire this item.
      * 
@@ -906,37 +1083,15 @@ public class DefaultAgenda
                 this.knowledgeHelper.cancelRemainingPreviousLogicalDependencies();
                 this.knowledgeHelper.reset();
             } catch ( final Exception e ) {
-                if ( this.legacyConsequenceExceptionHandler != null ) {
-                    this.legacyConsequenceExceptionHandler.handleException( activation,
-                                                                            this.workingMemory,
-                                                                            e );
-                } else if ( this.consequenceExceptionHandler != null ) {
-                    this.consequenceExceptionHandler.handleException( activation, this.workingMemory.getKnowledgeRuntime(),
-                                                                      e );
-                } else {
-                    throw new RuntimeException( e );
-                }
+                handleConsequenceException( activation,
+                                            e );
             }
             
             if( ruleFlowGroup != null ) {
                 ruleFlowGroup.deactivateIfEmpty();
             }
 
-            // if the tuple contains expired events 
-            for ( LeftTuple tuple = (LeftTuple) activation.getTuple(); tuple != null; tuple = tuple.getParent() ) {
-                if ( tuple.getLastHandle().isEvent() ) {
-                    EventFactHandle handle = (EventFactHandle) tuple.getLastHandle();
-                    // handles "expire" only in stream mode.
-                    if ( handle.isExpired() ) {
-                        // decrease the activation count for the event
-                        handle.decreaseActivationsCount();
-                        if ( handle.getActivationsCount() == 0 ) {
-                            // and if no more activations, retract the handle
-                            handle.getEntryPoint().retract( handle );
-                        }
-                    }
-                }
-            }
+            retractExpiredEvents( activation );
 
             eventsupport.getAgendaEventSupport().fireAfterActivationFired( activation,
                                                                            this.workingMemory );
@@ -945,6 +1100,38 @@ public class DefaultAgenda
         }
     }
 
+    private void handleConsequenceException(final Activation activation,
+                                            final Exception e) {
+        if ( this.legacyConsequenceExceptionHandler != null ) {
+            this.legacyConsequenceExceptionHandler.handleException( activation,
+                                                                    this.workingMemory,
+                                                                    e );
+        } else if ( this.consequenceExceptionHandler != null ) {
+            this.consequenceExceptionHandler.handleException( activation, this.workingMemory.getKnowledgeRuntime(),
+                                                              e );
+        } else {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private void retractExpiredEvents(final Activation activation) {
+        // if the tuple contains expired events 
+        for ( LeftTuple tuple = (LeftTuple) activation.getTuple(); tuple != null; tuple = tuple.getParent() ) {
+            if ( tuple.getLastHandle().isEvent() ) {
+                EventFactHandle handle = (EventFactHandle) tuple.getLastHandle();
+                // handles "expire" only in stream mode.
+                if ( handle.isExpired() ) {
+                    // decrease the activation count for the event
+                    handle.decreaseActivationsCount();
+                    if ( handle.getActivationsCount() == 0 ) {
+                        // and if no more activations, retract the handle
+                        handle.getEntryPoint().retract( handle );
+                    }
+                }
+            }
+        }
+    }
+
     public void increaseActiveActivations() {
         this.activeActivations++;
     }
@@ -1030,7 +1217,8 @@ public class DefaultAgenda
     public void fireUntilHalt(final AgendaFilter agendaFilter) {
         this.halt.set( false );
         while ( continueFiring( -1 ) ) {
-            boolean fired = fireNextItem( agendaFilter );
+            boolean fired = fireNextItems( agendaFilter,
+                                           -1 ) > 0;
             fired = fired || !((AbstractWorkingMemory) this.workingMemory).getActionQueue().isEmpty();
             this.workingMemory.executeQueuedActions();
             if ( !fired ) {
@@ -1051,9 +1239,12 @@ public class DefaultAgenda
                             int fireLimit) {
         this.halt.set( false );
         int fireCount = 0;
-        while ( continueFiring( fireLimit ) && fireNextItem( agendaFilter ) ) {
-            fireCount++;
-            fireLimit = updateFireLimit( fireLimit );
+        int fired;
+        while ( continueFiring( fireLimit ) && (fired = fireNextItems( agendaFilter,
+                                                                      fireLimit )) > 0 ) {
+            fireCount += fired;
+            fireLimit = updateFireLimit( fireLimit,
+                                         fired );
             this.workingMemory.executeQueuedActions();
         }
         if ( this.focusStack.size() == 1 && getMainAgendaGroup().isEmpty() ) {
@@ -1067,8 +1258,9 @@ public class DefaultAgenda
         return (!halt.get()) && (fireLimit != 0);
     }
 
-    private final int updateFireLimit(final int fireLimit) {
-        return fireLimit > 0 ? fireLimit - 1 : fireLimit;
+    private final int updateFireLimit(final int fireLimit,
+                                      final int fired) {
+        return fireLimit > 0 ? fireLimit - fired : fireLimit;
     }
 
     public void notifyHalt() {
@@ -1085,4 +1277,47 @@ public class DefaultAgenda
     public ConsequenceExceptionHandler getConsequenceExceptionHandler() {
         return this.legacyConsequenceExceptionHandler;
     }
+
+    /**
+     * Evaluates a consequence with its own KnowledgeHelper, returning the
+     * exception it threw, if any, so it is handled by the firing thread.
+     */
+    private static class ConsequenceTask
+        implements
+        Callable<Exception> {
+        private final Activation            activation;
+        private final InternalWorkingMemory workingMemory;
+        private final KnowledgeHelper       knowledgeHelper;
+
+        public ConsequenceTask(final Activation activation,
+                               final InternalWorkingMemory workingMemory) {
+            this.activation = activation;
+            this.workingMemory = workingMemory;
+            this.knowledgeHelper = new DefaultKnowledgeHelper( workingMemory );
+        }
+
+        public Exception call() {
+            try {
+                this.knowledgeHelper.setActivation( this.activation );
+                this.activation.getRule().getConsequence().evaluate( this.knowledgeHelper,
+                                                                     this.workingMemory );
+                return null;
+            } catch ( final Exception e ) {
+                return e;
+            }
+        }
+    }
+
+    private static class ConsequenceThreadFactory
+        implements
+        ThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread( runnable,
+                                              "drools-consequence-" + threadNumber.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
 }
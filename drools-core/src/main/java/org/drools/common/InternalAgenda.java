@@ -111,6 +111,12 @@ public interface InternalAgenda
 
     public void clear();
 
+    /**
+     * Releases the resources held by the agenda, such as the threads that fire
+     * the consequences of the rules annotated with @parallel.
+     */
+    public void dispose();
+
     public void setWorkingMemory(final InternalWorkingMemory workingMemory);
 
     /**
@@ -26,6 +26,7 @@ import org.drools.FactHandle;
 import org.drools.RuleBase;
 import org.drools.RuleBaseConfiguration;
 import org.drools.StatefulSession;
+import org.drools.base.evaluators.RegexPatternCache;
 import org.drools.definition.process.Process;
 import org.drools.reteoo.Rete;
 import org.drools.reteoo.ReteooBuilder;
@@ -148,6 +149,14 @@ public interface InternalRuleBase
      */
     List<RuleBasePartitionId> getPartitionIds();
     
+    /**
+     * Returns the cache of compiled regular expressions used by
+     * "matches" constraints whose pattern is only known at runtime
+     * 
+     * @return
+     */
+    public RegexPatternCache getRegexPatternCache();
+
     /**
      * Acquires a read lock on the rulebase
      */
@@ -177,6 +177,26 @@ public interface InternalWorkingMemory
      * multiple threads/entry-points
      */
     public void endOperation();
+
+    /**
+     * Queues the update of a node just attached to the network, with the
+     * facts and tuples of this working memory. The queued updates are done
+     * in order, before the next operation of this working memory, or when
+     * updateQueuedNodes is called.
+     */
+    public void queueNodeUpdate(BaseNode node);
+
+    /**
+     * Returns true while the update of the node is queued on this working
+     * memory. Until then the node ignores the propagations of this working
+     * memory, as it gets the facts and tuples they carry from its update.
+     */
+    public boolean isNodeUpdateQueued(BaseNode node);
+
+    /**
+     * Does the node updates queued on this working memory, if any.
+     */
+    public void updateQueuedNodes();
     
     /**
      * Returns the number of time units (usually ms) that the engine is idle
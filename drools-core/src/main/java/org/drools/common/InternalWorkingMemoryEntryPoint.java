@@ -16,6 +16,9 @@
 
 package org.drools.common;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.drools.FactException;
 import org.drools.FactHandle;
 import org.drools.RuleBase;
@@ -40,6 +43,11 @@ public interface InternalWorkingMemoryEntryPoint extends WorkingMemoryEntryPoint
                        Rule rule,
                        Activation activation) throws FactException;
 
+    public List<FactHandle> insertAll(Collection< ? > objects) throws FactException;
+
+    public void updateAll(List< ? extends org.drools.runtime.rule.FactHandle> handles,
+                          List< ? > objects) throws FactException;
+
     public EntryPoint getEntryPoint();
     public InternalWorkingMemory getInternalWorkingMemory();
 
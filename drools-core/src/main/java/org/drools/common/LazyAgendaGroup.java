@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.drools.core.util.BinaryHeapQueue;
+import org.drools.spi.Activation;
+
+/**
+ * <code>AgendaGroup</code> implementation that only sorts its activations
+ * when they are needed. Added activations are appended to an unsorted
+ * pending array, and cancelled ones are removed from it in constant time.
+ * The pending activations are moved into the <code>BinaryHeapQueue</code>
+ * in one go, when the group is asked for its next activation, that is when
+ * it has the focus, or for all of its activations.
+ *
+ * Groups that rarely get the focus, and rule flow groups whose activations
+ * are all added when the group is activated, so no longer pay for a heap
+ * insertion per activation.
+ *
+ * While an activation is pending, its queue index is -(position + 2), as -1
+ * already means that it is not queued.
+ */
+public class LazyAgendaGroup
+    implements
+    InternalAgendaGroup {
+
+    private static final long serialVersionUID = 510l;
+
+    private String            name;
+
+    /** Sorted items in the agenda. */
+    private BinaryHeapQueue   queue;
+
+    /** Items added since the group was last read, in no particular order. */
+    private AgendaItem[]      pending;
+    private int               pendingSize;
+
+    private boolean           active;
+
+    public LazyAgendaGroup() {
+
+    }
+
+    public LazyAgendaGroup(final String name,
+                           final InternalRuleBase ruleBase) {
+        this.name = name;
+        this.queue = new BinaryHeapQueue( ruleBase.getConfiguration().getConflictResolver() );
+        this.pending = new AgendaItem[16];
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        name = (String) in.readObject();
+        queue = (BinaryHeapQueue) in.readObject();
+        active = in.readBoolean();
+        pending = new AgendaItem[16];
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        sort();
+        out.writeObject( name );
+        out.writeObject( queue );
+        out.writeBoolean( active );
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void clear() {
+        this.queue.clear();
+        for ( int i = 0; i < this.pendingSize; i++ ) {
+            this.pending[i] = null;
+        }
+        this.pendingSize = 0;
+    }
+
+    public int size() {
+        return this.queue.size() + this.pendingSize;
+    }
+
+    public void add(final Activation activation) {
+        if ( this.pendingSize == this.pending.length ) {
+            final AgendaItem[] pending = new AgendaItem[this.pending.length * 2];
+            System.arraycopy( this.pending,
+                              0,
+                              pending,
+                              0,
+                              this.pendingSize );
+            this.pending = pending;
+        }
+        final AgendaItem item = (AgendaItem) activation;
+        this.pending[this.pendingSize] = item;
+        item.enqueued( -(this.pendingSize + 2) );
+        this.pendingSize++;
+    }
+
+    public Activation getNext() {
+        sort();
+        return (Activation) this.queue.dequeue();
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    public void setActive(final boolean activate) {
+        this.active = activate;
+    }
+
+    public boolean isEmpty() {
+        return this.pendingSize == 0 && this.queue.isEmpty();
+    }
+
+    public Activation[] getActivations() {
+        sort();
+        return (Activation[]) this.queue.toArray( new AgendaItem[this.queue.size()] );
+    }
+
+    public Activation[] getQueue() {
+        sort();
+        return this.queue.getQueueable();
+    }
+
+    /**
+     * Moves the pending activations into the sorted queue.
+     */
+    private void sort() {
+        if ( this.pendingSize > 0 ) {
+            this.queue.enqueueAll( this.pending,
+                                   this.pendingSize );
+            for ( int i = 0; i < this.pendingSize; i++ ) {
+                this.pending[i] = null;
+            }
+            this.pendingSize = 0;
+        }
+    }
+
+    public String toString() {
+        return "AgendaGroup '" + this.name + "'";
+    }
+
+    public boolean equal(final Object object) {
+        if ( (object == null) || !(object instanceof LazyAgendaGroup) ) {
+            return false;
+        }
+
+        if ( ((LazyAgendaGroup) object).name.equals( this.name ) ) {
+            return true;
+        }
+
+        return false;
+    }
+
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+
+    public void setFocus() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void remove(AgendaItem agendaItem) {
+        final int index = agendaItem.getIndex();
+        if ( index < -1 ) {
+            // move the last pending item into the hole
+            final int position = -index - 2;
+            final AgendaItem last = this.pending[--this.pendingSize];
+            this.pending[position] = last;
+            last.enqueued( -(position + 2) );
+            this.pending[this.pendingSize] = null;
+        } else {
+            this.queue.dequeue( index );
+        }
+    }
+}
@@ -20,13 +20,19 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.drools.FactException;
 import org.drools.FactHandle;
 import org.drools.RuleBase;
+import org.drools.RuleBaseConfiguration;
 import org.drools.RuntimeDroolsException;
 import org.drools.WorkingMemory;
 import org.drools.WorkingMemoryEntryPoint;
@@ -73,6 +79,17 @@ public class NamedEntryPoint
 
     protected final ReentrantLock           lock;
 
+    private final ObjectTypeNodeLocks       objectTypeNodeLocks;
+
+    /**
+     * The facts whose insert is propagated holding only the locks of their
+     * object type nodes. They are added to the object store once they are
+     * fully propagated, until then inserts of the same object wait for them.
+     */
+    private final Map<Object, InternalFactHandle> propagatingInserts;
+    private final Condition                 insertsPropagated;
+    private boolean                         insertsSuspended;
+
     public NamedEntryPoint(EntryPoint entryPoint,
                            EntryPointNode entryPointNode,
                            AbstractWorkingMemory wm) {
@@ -93,8 +110,32 @@ public class NamedEntryPoint
         this.lock = lock;
         this.typeConfReg = new ObjectTypeConfigurationRegistry( this.ruleBase );
         this.handleFactory = this.wm.getFactHandleFactory();
-        this.objectStore = new SingleThreadedObjectStore( this.ruleBase.getConfiguration(),
-                                                          this.lock );
+
+        RuleBaseConfiguration conf = this.ruleBase.getConfiguration();
+        if ( conf.isPrimitiveObjectStore() ) {
+            this.objectStore = new PrimitiveObjectStore( conf,
+                                                         this.lock );
+        } else {
+            this.objectStore = new SingleThreadedObjectStore( conf,
+                                                              this.lock );
+        }
+
+        // propagations can only run concurrently if the network below the
+        // object type nodes is evaluated by the partition threads
+        if ( conf.getLockStripes() > 0 && conf.isMultithreadEvaluation() && !conf.isSequential() ) {
+            this.objectTypeNodeLocks = new ObjectTypeNodeLocks( Math.min( conf.getLockStripes(),
+                                                                          ObjectTypeNodeLocks.MAX_STRIPES ) );
+            if ( AssertBehaviour.IDENTITY.equals( conf.getAssertBehaviour() ) ) {
+                this.propagatingInserts = new IdentityHashMap<Object, InternalFactHandle>();
+            } else {
+                this.propagatingInserts = new HashMap<Object, InternalFactHandle>();
+            }
+            this.insertsPropagated = this.lock.newCondition();
+        } else {
+            this.objectTypeNodeLocks = null;
+            this.propagatingInserts = null;
+            this.insertsPropagated = null;
+        }
     }
 
     public void reset() {
@@ -166,6 +207,9 @@ public class NamedEntryPoint
                 this.lock.lock();
                 // check if the object already exists in the WM
                 handle = (InternalFactHandle) this.objectStore.getHandleForObject( object );
+                if ( handle == null && this.propagatingInserts != null ) {
+                    handle = awaitPropagatingInsert( object );
+                }
 
                 if ( typeConf.isTMSEnabled() ) {
                   
@@ -279,9 +323,25 @@ public class NamedEntryPoint
                     if ( handle != null ) {
                         return handle;
                     }
+
+                    if ( this.objectTypeNodeLocks != null && !typeConf.isEvent() && !this.insertsSuspended ) {
+                        handle = this.handleFactory.newFactHandle( object,
+                                                                   typeConf,
+                                                                   this.wm,
+                                                                   this );
+                        if ( dynamic || typeConf.isDynamic() ) {
+                            addPropertyChangeListener( object );
+                        }
+                        insertStriped( handle,
+                                       object,
+                                       rule,
+                                       activation,
+                                       typeConf );
+                        return handle;
+                    }
+
                     handle = createHandle( object,
                                            typeConf );
-
                 }
 
                 // if the dynamic parameter is true or if the user declared the fact type with the meta tag:
@@ -307,6 +367,199 @@ public class NamedEntryPoint
 
     }
 
+    /**
+     * Inserts all the objects as a single operation: the locks are taken and the queued actions are executed
+     * once for the whole batch. The facts are propagated in the order of the objects, each in its own
+     * propagation context, so the activations are created as if the objects were inserted one by one.
+     *
+     * Objects of a type maintained by the truth maintenance system are inserted with the regular insert.
+     * The handles are returned in the order of the objects, with null for null objects.
+     */
+    public List<FactHandle> insertAll(final Collection< ? > objects) throws FactException {
+        final FactHandle[] handles = new FactHandle[objects.size()];
+
+        if ( this.wm.isSequential() ) {
+            int i = 0;
+            for ( Object object : objects ) {
+                handles[i++] = insert( object );
+            }
+            return Arrays.asList( handles );
+        }
+
+        try {
+            this.wm.startOperation();
+            this.ruleBase.readLock();
+            this.lock.lock();
+
+            this.ruleBase.executeQueuedActions();
+
+            this.wm.executeQueuedActions();
+
+            boolean inserted = false;
+            int i = 0;
+            for ( Object object : objects ) {
+                final int index = i++;
+                if ( object == null ) {
+                    // you cannot assert a null object
+                    continue;
+                }
+
+                final ObjectTypeConf typeConf = this.typeConfReg.getObjectTypeConf( this.entryPoint,
+                                                                                    object );
+                if ( typeConf.isTMSEnabled() ) {
+                    handles[index] = insert( object,
+                                             false,
+                                             false,
+                                             null,
+                                             null );
+                    continue;
+                }
+
+                // check if the object already exists in the WM, including earlier in this batch
+                InternalFactHandle handle = (InternalFactHandle) this.objectStore.getHandleForObject( object );
+                if ( handle == null && this.propagatingInserts != null ) {
+                    handle = awaitPropagatingInsert( object );
+                }
+                if ( handle == null ) {
+                    handle = createHandle( object,
+                                           typeConf );
+                    if ( typeConf.isDynamic() ) {
+                        addPropertyChangeListener( object );
+                    }
+
+                    final PropagationContext propagationContext = new PropagationContextImpl( this.wm.getNextPropagationIdCounter(),
+                                                                                              PropagationContext.ASSERTION,
+                                                                                              null,
+                                                                                              null,
+                                                                                              handle,
+                                                                                              this.wm.agenda.getActiveActivations(),
+                                                                                              this.wm.agenda.getDormantActivations(),
+                                                                                              this.entryPoint );
+                    assertObject( handle,
+                                  propagationContext,
+                                  typeConf );
+
+                    this.wm.workingMemoryEventSupport.fireObjectInserted( propagationContext,
+                                                                          handle,
+                                                                          object,
+                                                                          this.wm );
+                    inserted = true;
+                }
+                handles[index] = handle;
+            }
+
+            if ( inserted ) {
+                this.wm.executeQueuedActions();
+            }
+        } finally {
+            this.lock.unlock();
+            this.ruleBase.readUnlock();
+            this.wm.endOperation();
+        }
+        return Arrays.asList( handles );
+    }
+
+    /**
+     * Waits while the object is propagated by a striped insert, and returns its handle once it is in the
+     * object store. Called holding the entry point lock.
+     */
+    private InternalFactHandle awaitPropagatingInsert(final Object object) {
+        InternalFactHandle handle = null;
+        while ( handle == null && this.propagatingInserts.containsKey( object ) ) {
+            this.insertsPropagated.awaitUninterruptibly();
+            handle = (InternalFactHandle) this.objectStore.getHandleForObject( object );
+        }
+        return handle;
+    }
+
+    /**
+     * Propagates the fact of a new handle holding only the locks of its object type nodes, so facts of
+     * other types can be inserted concurrently. Called holding the entry point lock, which is released
+     * during the propagation and taken again to add the handle to the object store. Until then the fact
+     * can't be found, updated or retracted by other threads.
+     */
+    private void insertStriped(final InternalFactHandle handle,
+                               final Object object,
+                               final Rule rule,
+                               final Activation activation,
+                               final ObjectTypeConf typeConf) {
+        this.propagatingInserts.put( object,
+                                     handle );
+
+        PropagationContext propagationContext = null;
+        try {
+            this.ruleBase.executeQueuedActions();
+
+            this.wm.executeQueuedActions();
+
+            if ( activation != null ) {
+                // release resources so that they can be GC'ed
+                activation.getPropagationContext().releaseResources();
+            }
+            propagationContext = new PropagationContextImpl( this.wm.getNextPropagationIdCounter(),
+                                                             PropagationContext.ASSERTION,
+                                                             rule,
+                                                             (activation == null) ? null : (LeftTuple) activation.getTuple(),
+                                                             handle,
+                                                             this.wm.agenda.getActiveActivations(),
+                                                             this.wm.agenda.getDormantActivations(),
+                                                             entryPoint );
+
+            this.lock.unlock();
+            final long mask = this.objectTypeNodeLocks.getMask( typeConf.getObjectTypeNodes() );
+            this.objectTypeNodeLocks.lock( mask );
+            try {
+                this.entryPointNode.assertObject( handle,
+                                                  propagationContext,
+                                                  typeConf,
+                                                  this.wm );
+            } finally {
+                this.objectTypeNodeLocks.unlock( mask );
+                this.lock.lock();
+            }
+        } finally {
+            // the handle is added even if the propagation failed, as a locked insert would have done
+            this.objectStore.addHandle( handle,
+                                        object );
+            this.propagatingInserts.remove( object );
+            this.insertsPropagated.signalAll();
+        }
+
+        this.wm.executeQueuedActions();
+
+        this.wm.workingMemoryEventSupport.fireObjectInserted( propagationContext,
+                                                              handle,
+                                                              object,
+                                                              this.wm );
+    }
+
+    /**
+     * Locks the entry point once the striped inserts in progress are fully propagated, so the facts and
+     * the network memories of the entry point can be read consistently. The inserts started meanwhile
+     * are propagated holding the entry point lock.
+     * 
+     * @return false, leaving the entry point unlocked, if the lock is held by another thread
+     */
+    public boolean tryLockPropagations() {
+        if ( !this.lock.tryLock() ) {
+            return false;
+        }
+        if ( this.propagatingInserts != null ) {
+            this.insertsSuspended = true;
+            while ( !this.propagatingInserts.isEmpty() ) {
+                this.insertsPropagated.awaitUninterruptibly();
+            }
+        }
+        return true;
+    }
+
+    public void unlockPropagations() {
+        if ( this.propagatingInserts != null ) {
+            this.insertsSuspended = false;
+        }
+        this.lock.unlock();
+    }
+
     public void insert(final InternalFactHandle handle,
                        final Object object,
                        final Rule rule,
@@ -329,10 +582,9 @@ public class NamedEntryPoint
                                                                                   this.wm.agenda.getDormantActivations(),
                                                                                   entryPoint );
 
-        this.entryPointNode.assertObject( handle,
-                                          propagationContext,
-                                          typeConf,
-                                          this.wm );
+        assertObject( handle,
+                      propagationContext,
+                      typeConf );
 
         this.wm.executeQueuedActions();
 
@@ -342,6 +594,31 @@ public class NamedEntryPoint
                                                               this.wm );
     }
 
+    /**
+     * Propagates the fact, holding the locks of its object type nodes if they are striped.
+     */
+    private void assertObject(final InternalFactHandle handle,
+                              final PropagationContext propagationContext,
+                              final ObjectTypeConf typeConf) {
+        if ( this.objectTypeNodeLocks == null ) {
+            this.entryPointNode.assertObject( handle,
+                                              propagationContext,
+                                              typeConf,
+                                              this.wm );
+        } else {
+            final long mask = this.objectTypeNodeLocks.getMask( typeConf.getObjectTypeNodes() );
+            this.objectTypeNodeLocks.lock( mask );
+            try {
+                this.entryPointNode.assertObject( handle,
+                                                  propagationContext,
+                                                  typeConf,
+                                                  this.wm );
+            } finally {
+                this.objectTypeNodeLocks.unlock( mask );
+            }
+        }
+    }
+
     public void update(final org.drools.runtime.rule.FactHandle handle,
                        final Object object) throws FactException {
         update( handle,
@@ -371,96 +648,158 @@ public class NamedEntryPoint
             this.wm.startOperation();
             this.ruleBase.executeQueuedActions();
 
-            // the handle might have been disconnected, so reconnect if it has
-            if ( ((InternalFactHandle)factHandle).isDisconnected() ) {
-                factHandle = this.objectStore.reconnect( factHandle );
+            if ( propagateUpdate( factHandle,
+                                  object,
+                                  rule,
+                                  activation ) ) {
+                this.wm.executeQueuedActions();
             }
-            
-            final ObjectTypeConf typeConf = this.typeConfReg.getObjectTypeConf( this.entryPoint,
-                object );
+        } finally {
+            this.wm.endOperation();
+            this.lock.unlock();
+            this.ruleBase.readUnlock();
+        }
+    }
 
-            // only needed if we maintain tms, but either way we must get it before we do the retract
-            int status = -1;
-            if ( typeConf.isTMSEnabled() ) {
-                status = ((InternalFactHandle) factHandle).getEqualityKey().getStatus();
-            }
-            final InternalFactHandle handle = (InternalFactHandle) factHandle;
-            final Object originalObject = handle.getObject();
+    /**
+     * Updates all the facts as a single operation: the locks are taken and the queued actions are executed
+     * once for the whole batch. Each handle is updated with the object at the same position, in its own
+     * propagation context, in the order of the handles.
+     */
+    public void updateAll(final List< ? extends org.drools.runtime.rule.FactHandle> handles,
+                          final List< ? > objects) throws FactException {
+        if ( handles.size() != objects.size() ) {
+            throw new IllegalArgumentException( "There are " + handles.size() + " fact handles for " + objects.size() + " objects" );
+        }
 
-            if ( handle.getId() == -1 || object == null || (handle.isEvent() && ((EventFactHandle) handle).isExpired()) ) {
-                // the handle is invalid, most likely already retracted, so return and we cannot assert a null object
-                return;
+        try {
+            this.ruleBase.readLock();
+            this.lock.lock();
+            this.wm.startOperation();
+            this.ruleBase.executeQueuedActions();
+
+            boolean updated = false;
+            for ( int i = 0, length = handles.size(); i < length; i++ ) {
+                updated |= propagateUpdate( (org.drools.FactHandle) handles.get( i ),
+                                            objects.get( i ),
+                                            null,
+                                            null );
             }
 
-            if ( activation != null ) {
-                // release resources so that they can be GC'ed
-                activation.getPropagationContext().releaseResources();
+            if ( updated ) {
+                this.wm.executeQueuedActions();
             }
+        } finally {
+            this.wm.endOperation();
+            this.lock.unlock();
+            this.ruleBase.readUnlock();
+        }
+    }
 
-            if ( originalObject != object || !AssertBehaviour.IDENTITY.equals( this.ruleBase.getConfiguration().getAssertBehaviour() ) ) {
-                this.objectStore.removeHandle( handle );
+    /**
+     * Updates the fact, holding the locks. Returns false if the handle is no longer valid.
+     */
+    private boolean propagateUpdate(org.drools.FactHandle factHandle,
+                                    final Object object,
+                                    final Rule rule,
+                                    final Activation activation) throws FactException {
+        // the handle might have been disconnected, so reconnect if it has
+        if ( ((InternalFactHandle)factHandle).isDisconnected() ) {
+            factHandle = this.objectStore.reconnect( factHandle );
+        }
+        
+        final ObjectTypeConf typeConf = this.typeConfReg.getObjectTypeConf( this.entryPoint,
+            object );
 
-                // set anyway, so that it updates the hashCodes
-                handle.setObject( object );
-                this.objectStore.addHandle( handle,
-                                            object );
-            }
+        // only needed if we maintain tms, but either way we must get it before we do the retract
+        int status = -1;
+        if ( typeConf.isTMSEnabled() ) {
+            status = ((InternalFactHandle) factHandle).getEqualityKey().getStatus();
+        }
+        final InternalFactHandle handle = (InternalFactHandle) factHandle;
+        final Object originalObject = handle.getObject();
 
-            if ( typeConf.isTMSEnabled() ) {
-            
-                // the hashCode and equality has changed, so we must update the
-                // EqualityKey
-                EqualityKey key = handle.getEqualityKey();
-                key.removeFactHandle( handle );
-            
+        if ( handle.getId() == -1 || object == null || (handle.isEvent() && ((EventFactHandle) handle).isExpired()) ) {
+            // the handle is invalid, most likely already retracted, so return and we cannot assert a null object
+            return false;
+        }
 
-                // If the equality key is now empty, then remove it
-                if ( key.isEmpty() ) {
-                    this.wm.tms.remove( key );
-                }
-    
-                // now use an existing EqualityKey, if it exists, else create a new one
-                key = this.wm.tms.get( object );
-                if ( key == null ) {
-                    key = new EqualityKey( handle,
-                                           status );
-                    this.wm.tms.put( key );
-                } else {
-                    key.addFactHandle( handle );
-                }
-    
-                handle.setEqualityKey( key );
+        if ( activation != null ) {
+            // release resources so that they can be GC'ed
+            activation.getPropagationContext().releaseResources();
+        }
 
+        if ( originalObject != object || !AssertBehaviour.IDENTITY.equals( this.ruleBase.getConfiguration().getAssertBehaviour() ) ) {
+            this.objectStore.removeHandle( handle );
+
+            // set anyway, so that it updates the hashCodes
+            handle.setObject( object );
+            this.objectStore.addHandle( handle,
+                                        object );
+        }
+
+        if ( typeConf.isTMSEnabled() ) {
+        
+            // the hashCode and equality has changed, so we must update the
+            // EqualityKey
+            EqualityKey key = handle.getEqualityKey();
+            key.removeFactHandle( handle );
+        
+
+            // If the equality key is now empty, then remove it
+            if ( key.isEmpty() ) {
+                this.wm.tms.remove( key );
             }
 
-            this.handleFactory.increaseFactHandleRecency( handle );
+            // now use an existing EqualityKey, if it exists, else create a new one
+            key = this.wm.tms.get( object );
+            if ( key == null ) {
+                key = new EqualityKey( handle,
+                                       status );
+                this.wm.tms.put( key );
+            } else {
+                key.addFactHandle( handle );
+            }
 
-            final PropagationContext propagationContext = new PropagationContextImpl( this.wm.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.MODIFICATION,
-                                                                                      rule,
-                                                                                      (activation == null) ? null : (LeftTuple) activation.getTuple(),
-                                                                                      handle,
-                                                                                      this.wm.agenda.getActiveActivations(),
-                                                                                      this.wm.agenda.getDormantActivations(),
-                                                                                      entryPoint );
+            handle.setEqualityKey( key );
+
+        }
+
+        this.handleFactory.increaseFactHandleRecency( handle );
 
+        final PropagationContext propagationContext = new PropagationContextImpl( this.wm.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.MODIFICATION,
+                                                                                  rule,
+                                                                                  (activation == null) ? null : (LeftTuple) activation.getTuple(),
+                                                                                  handle,
+                                                                                  this.wm.agenda.getActiveActivations(),
+                                                                                  this.wm.agenda.getDormantActivations(),
+                                                                                  entryPoint );
+
+        if ( this.objectTypeNodeLocks == null ) {
             this.entryPointNode.modifyObject( handle,
                                               propagationContext,
                                               typeConf,
                                               this.wm );
-
-            this.wm.workingMemoryEventSupport.fireObjectUpdated( propagationContext,
-                                                              (org.drools.FactHandle) factHandle,
-                                                              originalObject,
-                                                              object,
-                                                              this.wm );
-
-           this.wm.executeQueuedActions();
-        } finally {
-            this.wm.endOperation();
-            this.lock.unlock();
-            this.ruleBase.readUnlock();
+        } else {
+            final long mask = this.objectTypeNodeLocks.getMask( typeConf.getObjectTypeNodes() );
+            this.objectTypeNodeLocks.lock( mask );
+            try {
+                this.entryPointNode.modifyObject( handle,
+                                                  propagationContext,
+                                                  typeConf,
+                                                  this.wm );
+            } finally {
+                this.objectTypeNodeLocks.unlock( mask );
+            }
         }
+
+        this.wm.workingMemoryEventSupport.fireObjectUpdated( propagationContext,
+                                                          (org.drools.FactHandle) factHandle,
+                                                          originalObject,
+                                                          object,
+                                                          this.wm );
+        return true;
     }
 
     public void retract(final org.drools.runtime.rule.FactHandle handle) throws FactException {
@@ -513,10 +852,23 @@ public class NamedEntryPoint
             final ObjectTypeConf typeConf = this.typeConfReg.getObjectTypeConf( this.entryPoint,
                 object );
 
-            this.entryPointNode.retractObject( handle,
-                                               propagationContext,
-                                               typeConf,
-                                               this.wm );
+            if ( this.objectTypeNodeLocks == null ) {
+                this.entryPointNode.retractObject( handle,
+                                                   propagationContext,
+                                                   typeConf,
+                                                   this.wm );
+            } else {
+                final long mask = this.objectTypeNodeLocks.getMask( typeConf.getObjectTypeNodes() );
+                this.objectTypeNodeLocks.lock( mask );
+                try {
+                    this.entryPointNode.retractObject( handle,
+                                                       propagationContext,
+                                                       typeConf,
+                                                       this.wm );
+                } finally {
+                    this.objectTypeNodeLocks.unlock( mask );
+                }
+            }
 
             if ( typeConf.isTMSEnabled() ) {
 
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.drools.reteoo.ObjectTypeNode;
+
+/**
+ * A fixed set of locks the ObjectTypeNodes of an entry point are striped
+ * over, so that facts of independent types can be propagated concurrently
+ * while facts reaching the same ObjectTypeNode are still serialized.
+ *
+ * The locks needed by a propagation are represented as a bit mask and are
+ * always acquired in ascending order, so two propagations can never
+ * deadlock on each other.
+ */
+public class ObjectTypeNodeLocks {
+
+    public static final int      MAX_STRIPES = 64;
+
+    private final ReentrantLock[] locks;
+
+    private final long            all;
+
+    public ObjectTypeNodeLocks(final int stripes) {
+        if ( stripes <= 0 || stripes > MAX_STRIPES ) {
+            throw new IllegalArgumentException( "The number of lock stripes must be between 1 and " + MAX_STRIPES + ": " + stripes );
+        }
+        this.locks = new ReentrantLock[stripes];
+        for ( int i = 0; i < stripes; i++ ) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.all = (stripes == MAX_STRIPES) ? -1L : (1L << stripes) - 1;
+    }
+
+    public int getStripes() {
+        return this.locks.length;
+    }
+
+    /**
+     * Returns the mask of the stripes guarding the given nodes.
+     */
+    public long getMask(final ObjectTypeNode[] nodes) {
+        long mask = 0;
+        for ( int i = 0, length = nodes.length; i < length; i++ ) {
+            mask |= 1L << (nodes[i].getId() % this.locks.length);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the mask of all stripes.
+     */
+    public long getMask() {
+        return this.all;
+    }
+
+    public void lock(final long mask) {
+        for ( int i = 0, length = this.locks.length; i < length; i++ ) {
+            if ( (mask & (1L << i)) != 0 ) {
+                this.locks[i].lock();
+            }
+        }
+    }
+
+    public void unlock(final long mask) {
+        for ( int i = this.locks.length - 1; i >= 0; i-- ) {
+            if ( (mask & (1L << i)) != 0 ) {
+                this.locks[i].unlock();
+            }
+        }
+    }
+
+}
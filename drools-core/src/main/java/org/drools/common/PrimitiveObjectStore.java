@@ -0,0 +1,391 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+
+import org.drools.RuleBaseConfiguration;
+import org.drools.RuleBaseConfiguration.AssertBehaviour;
+import org.drools.runtime.ObjectFilter;
+import org.drools.runtime.rule.FactHandle;
+
+/**
+ * An ObjectStore that keeps the fact handles in open addressed tables made
+ * of a primitive key array and a handle array, so no entry object is
+ * allocated per fact.
+ *
+ * Handles are always indexed by their id, which is used for every lookup
+ * by handle. They are also indexed by the identity hash code of their
+ * object and, when the assert behaviour is equality, by the hash code of
+ * their object, for the lookups by object.
+ */
+public class PrimitiveObjectStore
+    implements
+    Externalizable,
+    ObjectStore {
+
+    private HandleTable     idTable;
+    private HandleTable     identityTable;
+    private HandleTable     equalityTable;
+    private AssertBehaviour behaviour;
+    private Lock            lock;
+
+    public PrimitiveObjectStore() {
+
+    }
+
+    public PrimitiveObjectStore(RuleBaseConfiguration conf,
+                                Lock lock) {
+        this.behaviour = conf.getAssertBehaviour();
+        this.lock = lock;
+
+        this.idTable = new HandleTable();
+        this.identityTable = new HandleTable();
+        if ( AssertBehaviour.EQUALITY.equals( this.behaviour ) ) {
+            this.equalityTable = new HandleTable();
+        }
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        behaviour = (AssertBehaviour) in.readObject();
+        lock = (Lock) in.readObject();
+
+        this.idTable = new HandleTable();
+        this.identityTable = new HandleTable();
+        if ( AssertBehaviour.EQUALITY.equals( this.behaviour ) ) {
+            this.equalityTable = new HandleTable();
+        }
+        for ( int i = in.readInt(); i > 0; i-- ) {
+            InternalFactHandle handle = (InternalFactHandle) in.readObject();
+            addHandle( handle,
+                       handle.getObject() );
+        }
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject( behaviour );
+        out.writeObject( lock );
+        out.writeInt( this.idTable.size );
+        InternalFactHandle[] handles = this.idTable.handles;
+        for ( int i = 0; i < handles.length; i++ ) {
+            if ( handles[i] != null ) {
+                out.writeObject( handles[i] );
+            }
+        }
+    }
+
+    public int size() {
+        return this.idTable.size;
+    }
+
+    public boolean isEmpty() {
+        return this.idTable.size == 0;
+    }
+
+    public void clear() {
+        this.idTable.clear();
+        this.identityTable.clear();
+        if ( this.equalityTable != null ) {
+            this.equalityTable.clear();
+        }
+    }
+
+    public Object getObjectForHandle(FactHandle handle) {
+        try {
+            this.lock.lock();
+
+            // Make sure the FactHandle is from this WorkingMemory
+            final InternalFactHandle internalHandle = getHandleForId( ((InternalFactHandle) handle).getId() );
+            if ( internalHandle == null ) {
+                return null;
+            }
+
+            return internalHandle.getObject();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public InternalFactHandle getHandleForObject(Object object) {
+        if ( this.equalityTable == null ) {
+            return getHandleForObjectIdentity( object );
+        }
+
+        final int hashCode = object.hashCode();
+        final HandleTable table = this.equalityTable;
+        final int mask = table.handles.length - 1;
+        for ( int i = HandleTable.mix( hashCode ) & mask;; i = (i + 1) & mask ) {
+            InternalFactHandle handle = table.handles[i];
+            if ( handle == null ) {
+                return null;
+            }
+            if ( table.keys[i] == hashCode ) {
+                Object other = handle.getObject();
+                if ( object == other || object.equals( other ) ) {
+                    return handle;
+                }
+            }
+        }
+    }
+
+    public InternalFactHandle reconnect(FactHandle factHandle) {
+        return getHandleForId( ((InternalFactHandle) factHandle).getId() );
+    }
+
+    public InternalFactHandle getHandleForObjectIdentity(Object object) {
+        final int hashCode = System.identityHashCode( object );
+        final HandleTable table = this.identityTable;
+        final int mask = table.handles.length - 1;
+        for ( int i = HandleTable.mix( hashCode ) & mask;; i = (i + 1) & mask ) {
+            InternalFactHandle handle = table.handles[i];
+            if ( handle == null ) {
+                return null;
+            }
+            if ( table.keys[i] == hashCode && handle.getObject() == object ) {
+                return handle;
+            }
+        }
+    }
+
+    private InternalFactHandle getHandleForId(int id) {
+        final HandleTable table = this.idTable;
+        final int mask = table.handles.length - 1;
+        for ( int i = HandleTable.mix( id ) & mask;; i = (i + 1) & mask ) {
+            InternalFactHandle handle = table.handles[i];
+            if ( handle == null || table.keys[i] == id ) {
+                return handle;
+            }
+        }
+    }
+
+    public void updateHandle(InternalFactHandle handle,
+                             Object object) {
+        removeHandle( handle );
+        handle.setObject( object );
+        addHandle( handle,
+                   object );
+    }
+
+    public void addHandle(InternalFactHandle handle,
+                          Object object) {
+        this.idTable.add( handle.getId(),
+                          handle );
+        this.identityTable.add( handle.getIdentityHashCode(),
+                                handle );
+        if ( this.equalityTable != null ) {
+            this.equalityTable.add( handle.getObjectHashCode(),
+                                    handle );
+        }
+    }
+
+    public void removeHandle(final FactHandle factHandle) {
+        InternalFactHandle handle = getHandleForId( ((InternalFactHandle) factHandle).getId() );
+        if ( handle == null ) {
+            return;
+        }
+        this.idTable.remove( handle.getId(),
+                             handle );
+        this.identityTable.remove( handle.getIdentityHashCode(),
+                                   handle );
+        if ( this.equalityTable != null ) {
+            this.equalityTable.remove( handle.getObjectHashCode(),
+                                       handle );
+        }
+    }
+
+    /**
+     * The iterator works on a copy of the handle table, so it is safe to
+     * retract facts while iterating.
+     */
+    public Iterator iterateObjects() {
+        return new HandleIterator( this.idTable.handles,
+                                   true,
+                                   null );
+    }
+
+    public Iterator iterateObjects(ObjectFilter filter) {
+        return new HandleIterator( this.idTable.handles,
+                                   true,
+                                   filter );
+    }
+
+    public Iterator iterateFactHandles() {
+        return new HandleIterator( this.idTable.handles,
+                                   false,
+                                   null );
+    }
+
+    public Iterator iterateFactHandles(ObjectFilter filter) {
+        return new HandleIterator( this.idTable.handles,
+                                   false,
+                                   filter );
+    }
+
+    /**
+     * A linear probing hash table of handles, where the int key of each
+     * slot is kept in a parallel array. Removals shift the following slots
+     * of the probe sequence back, so there are no tombstones.
+     */
+    static final class HandleTable {
+        private static final int     INITIAL_CAPACITY = 16;
+
+        private int[]                keys;
+        private InternalFactHandle[] handles;
+        private int                  size;
+        private int                  threshold;
+
+        HandleTable() {
+            init( INITIAL_CAPACITY );
+        }
+
+        private void init(final int capacity) {
+            this.keys = new int[capacity];
+            this.handles = new InternalFactHandle[capacity];
+            this.threshold = (capacity >> 1) + (capacity >> 2);
+        }
+
+        static int mix(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        void clear() {
+            init( INITIAL_CAPACITY );
+            this.size = 0;
+        }
+
+        void add(final int key,
+                 final InternalFactHandle handle) {
+            if ( this.size >= this.threshold ) {
+                resize();
+            }
+            final int mask = this.handles.length - 1;
+            int i = mix( key ) & mask;
+            while ( this.handles[i] != null ) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = key;
+            this.handles[i] = handle;
+            this.size++;
+        }
+
+        boolean remove(final int key,
+                       final InternalFactHandle handle) {
+            final int mask = this.handles.length - 1;
+            for ( int i = mix( key ) & mask;; i = (i + 1) & mask ) {
+                InternalFactHandle current = this.handles[i];
+                if ( current == null ) {
+                    return false;
+                }
+                if ( current == handle ) {
+                    delete( i );
+                    this.size--;
+                    return true;
+                }
+            }
+        }
+
+        private void delete(final int slot) {
+            final int mask = this.handles.length - 1;
+            int hole = slot;
+            for ( int i = (slot + 1) & mask; this.handles[i] != null; i = (i + 1) & mask ) {
+                int home = mix( this.keys[i] ) & mask;
+                // only move the entry back if its home slot is not cyclically in (hole, i]
+                boolean move = (i > hole) ? (home <= hole || home > i) : (home <= hole && home > i);
+                if ( move ) {
+                    this.keys[hole] = this.keys[i];
+                    this.handles[hole] = this.handles[i];
+                    hole = i;
+                }
+            }
+            this.keys[hole] = 0;
+            this.handles[hole] = null;
+        }
+
+        private void resize() {
+            final int[] oldKeys = this.keys;
+            final InternalFactHandle[] oldHandles = this.handles;
+            init( oldHandles.length << 1 );
+            final int mask = this.handles.length - 1;
+            for ( int j = 0; j < oldHandles.length; j++ ) {
+                if ( oldHandles[j] != null ) {
+                    int i = mix( oldKeys[j] ) & mask;
+                    while ( this.handles[i] != null ) {
+                        i = (i + 1) & mask;
+                    }
+                    this.keys[i] = oldKeys[j];
+                    this.handles[i] = oldHandles[j];
+                }
+            }
+        }
+    }
+
+    private static final class HandleIterator
+        implements
+        Iterator {
+        private final InternalFactHandle[] handles;
+        private final boolean              objects;
+        private final ObjectFilter         filter;
+        private int                        index;
+        private InternalFactHandle         next;
+
+        HandleIterator(final InternalFactHandle[] handles,
+                       final boolean objects,
+                       final ObjectFilter filter) {
+            this.handles = handles.clone();
+            this.objects = objects;
+            this.filter = filter;
+            setNext();
+        }
+
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        public Object next() {
+            InternalFactHandle current = this.next;
+            if ( current == null ) {
+                throw new NoSuchElementException( "No more elements to return" );
+            }
+            setNext();
+            return this.objects ? current.getObject() : current;
+        }
+
+        private void setNext() {
+            this.next = null;
+            while ( this.index < this.handles.length ) {
+                InternalFactHandle handle = this.handles[this.index++];
+                if ( handle != null && (this.filter == null || this.filter.accept( handle.getObject() )) ) {
+                    this.next = handle;
+                    return;
+                }
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException( "remove() is not support" );
+        }
+    }
+
+}
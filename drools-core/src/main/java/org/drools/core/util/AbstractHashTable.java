@@ -905,4 +905,125 @@ public abstract class AbstractHashTable
         }
 
     }
+
+    /**
+     * Composite index for any number of fields, used beyond the three fields
+     * that have their own unrolled implementations.
+     */
+    public static class MultiCompositeIndex
+        implements
+        Index {
+
+        private static final long serialVersionUID = 510l;
+
+        private FieldIndex[]      indexes;
+
+        private int               startResult;
+
+        public MultiCompositeIndex() {
+
+        }
+
+        public MultiCompositeIndex(final FieldIndex[] indexes,
+                                   final int startResult) {
+            this.startResult = startResult;
+
+            this.indexes = indexes;
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            indexes = (FieldIndex[]) in.readObject();
+            startResult = in.readInt();
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeObject( indexes );
+            out.writeInt( startResult );
+        }
+
+        public FieldIndex getFieldIndex(int index) {
+            if ( index < 0 || index >= this.indexes.length ) {
+                throw new IllegalArgumentException( "Index position " + index + " does not exist" );
+            }
+            return this.indexes[index];
+        }
+
+        public int hashCodeOf(final Object object) {
+            int hashCode = this.startResult;
+
+            for ( int i = 0, length = this.indexes.length; i < length; i++ ) {
+                hashCode = LeftTupleIndexHashTable.PRIME * hashCode + this.indexes[i].extractor.getHashCode( null,
+                                                                                                          object );
+            }
+
+            return rehash( hashCode );
+        }
+
+        public int hashCodeOf(final LeftTuple tuple) {
+            int hashCode = this.startResult;
+
+            for ( int i = 0, length = this.indexes.length; i < length; i++ ) {
+                final Declaration declaration = this.indexes[i].declaration;
+                hashCode = LeftTupleIndexHashTable.PRIME * hashCode + declaration.getHashCode( null,
+                                                                                               tuple.get( declaration ).getObject() );
+            }
+
+            return rehash( hashCode );
+        }
+
+        public boolean equal(final Object right,
+                             final LeftTuple tuple) {
+            for ( int i = 0, length = this.indexes.length; i < length; i++ ) {
+                final FieldIndex index = this.indexes[i];
+                if ( !index.evaluator.evaluate( null,
+                                                index.declaration.getExtractor(),
+                                                tuple.get( index.declaration ).getObject(),
+                                                index.extractor,
+                                                right ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean equal(final LeftTuple tuple1,
+                             final LeftTuple tuple2) {
+            for ( int i = 0, length = this.indexes.length; i < length; i++ ) {
+                final FieldIndex index = this.indexes[i];
+                if ( !index.evaluator.evaluate( null,
+                                                index.declaration.getExtractor(),
+                                                tuple1.get( index.declaration ).getObject(),
+                                                index.declaration.getExtractor(),
+                                                tuple2.get( index.declaration ).getObject() ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean equal(final Object object1,
+                             final Object object2) {
+            for ( int i = 0, length = this.indexes.length; i < length; i++ ) {
+                final FieldIndex index = this.indexes[i];
+                if ( !index.evaluator.evaluate( null,
+                                                index.extractor,
+                                                object1,
+                                                index.extractor,
+                                                object2 ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int rehash(int h) {
+            h += ~(h << 9);
+            h ^= (h >>> 14);
+            h += (h << 4);
+            h ^= (h >>> 10);
+            return h;
+        }
+
+    }
 }
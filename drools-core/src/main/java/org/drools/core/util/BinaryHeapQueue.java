@@ -137,6 +137,42 @@ public class BinaryHeapQueue
         percolateUpMaxHeap( element );
     }
 
+    /**
+     * Inserts the first length elements of the given array into queue. When
+     * they outnumber the elements already queued, the heap is rebuilt bottom
+     * up in linear time instead of percolating each one.
+     *
+     * @param elements the Queueables to be inserted
+     * @param length the number of Queueables to insert
+     */
+    public synchronized void enqueueAll(final Queueable[] elements,
+                                        final int length) {
+        if ( this.size + length + 1 > this.elements.length ) {
+            final Queueable[] grown = new Queueable[Math.max( this.elements.length * 2,
+                                                              this.size + length + 1 )];
+            System.arraycopy( this.elements,
+                              0,
+                              grown,
+                              0,
+                              this.elements.length );
+            this.elements = grown;
+        }
+
+        if ( length <= this.size ) {
+            for ( int i = 0; i < length; i++ ) {
+                percolateUpMaxHeap( elements[i] );
+            }
+        } else {
+            for ( int i = 0; i < length; i++ ) {
+                setElement( ++this.size,
+                            elements[i] );
+            }
+            for ( int i = this.size / 2; i >= 1; i-- ) {
+                percolateDownMaxHeap( i );
+            }
+        }
+    }
+
     /**
      * Returns the Queueable on top of heap and remove it.
      *
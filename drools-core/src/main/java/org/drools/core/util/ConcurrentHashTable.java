@@ -42,6 +42,7 @@ import org.drools.common.InternalFactHandle;
 import org.drools.core.util.AbstractHashTable.DoubleCompositeIndex;
 import org.drools.core.util.AbstractHashTable.FieldIndex;
 import org.drools.core.util.AbstractHashTable.Index;
+import org.drools.core.util.AbstractHashTable.MultiCompositeIndex;
 import org.drools.core.util.AbstractHashTable.SingleIndex;
 import org.drools.core.util.AbstractHashTable.TripleCompositeIndex;
 import org.drools.reteoo.LeftTuple;
@@ -525,7 +526,9 @@ public class ConcurrentHashTable {
                                                        this.startResult );
                 break;
             default :
-                throw new IllegalArgumentException( "FieldIndexHashTable cannot use an index[] of length  great than 3" );
+                this.index = new MultiCompositeIndex( index,
+                                                      this.startResult );
+                break;
         }
         
         if ( !(loadFactor > 0) || initialCapacity < 0 || concurrencyLevel <= 0 ) throw new IllegalArgumentException();
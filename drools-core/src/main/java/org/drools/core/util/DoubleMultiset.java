@@ -0,0 +1,360 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.util;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted multiset of double values, where each distinct value is kept once
+ * with the number of times it was added. Adding and removing a value and
+ * reading the smallest or the largest one are O(log n).
+ *
+ * The values are kept in an AA tree made of primitive arrays, indexed by
+ * node, so no object is allocated per value. Values are ordered as by
+ * Double.compare(), so NaN is greater than any other value and -0.0 is
+ * smaller than 0.0.
+ */
+public class DoubleMultiset
+    implements
+    Externalizable {
+
+    private static final long serialVersionUID = 510l;
+
+    // node 0 is the sentinel leaf, with level 0
+    private static final int  NIL              = 0;
+
+    private double[]          values;
+    private int[]             counts;
+    private int[]             left;
+    private int[]             right;
+    private int[]             level;
+
+    private int               root;
+    // the first never used node
+    private int               next;
+    // the removed nodes, linked through their left child
+    private int               free;
+
+    private int               size;
+
+    // set by remove() when the value was found
+    private boolean           removed;
+
+    public DoubleMultiset() {
+        init( 16 );
+    }
+
+    private void init(final int capacity) {
+        this.values = new double[capacity];
+        this.counts = new int[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.level = new int[capacity];
+        this.root = NIL;
+        this.next = 1;
+        this.free = NIL;
+        this.size = 0;
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        init( 16 );
+        for ( int distinct = in.readInt(); distinct > 0; distinct-- ) {
+            final double value = in.readDouble();
+            for ( int count = in.readInt(); count > 0; count-- ) {
+                add( value );
+            }
+        }
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt( distinct( this.root ) );
+        write( out,
+               this.root );
+    }
+
+    private int distinct(final int node) {
+        return (node == NIL) ? 0 : 1 + distinct( this.left[node] ) + distinct( this.right[node] );
+    }
+
+    private void write(final ObjectOutput out,
+                       final int node) throws IOException {
+        if ( node != NIL ) {
+            write( out,
+                   this.left[node] );
+            out.writeDouble( this.values[node] );
+            out.writeInt( this.counts[node] );
+            write( out,
+                   this.right[node] );
+        }
+    }
+
+    /**
+     * Returns the number of values, counting each occurrence.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void clear() {
+        init( 16 );
+    }
+
+    public void add(final double value) {
+        this.root = insert( this.root,
+                            value );
+        this.size++;
+    }
+
+    /**
+     * Removes one occurrence of the value, returning false if there is none.
+     */
+    public boolean remove(final double value) {
+        this.removed = false;
+        this.root = delete( this.root,
+                            value,
+                            false );
+        if ( this.removed ) {
+            this.size--;
+        }
+        return this.removed;
+    }
+
+    public int count(final double value) {
+        int node = this.root;
+        while ( node != NIL ) {
+            final int c = Double.compare( value,
+                                          this.values[node] );
+            if ( c == 0 ) {
+                return this.counts[node];
+            }
+            node = (c < 0) ? this.left[node] : this.right[node];
+        }
+        return 0;
+    }
+
+    public double first() {
+        if ( this.root == NIL ) {
+            throw new NoSuchElementException( "The multiset is empty" );
+        }
+        int node = this.root;
+        while ( this.left[node] != NIL ) {
+            node = this.left[node];
+        }
+        return this.values[node];
+    }
+
+    public double last() {
+        if ( this.root == NIL ) {
+            throw new NoSuchElementException( "The multiset is empty" );
+        }
+        int node = this.root;
+        while ( this.right[node] != NIL ) {
+            node = this.right[node];
+        }
+        return this.values[node];
+    }
+
+    private int insert(final int node,
+                       final double value) {
+        if ( node == NIL ) {
+            return newNode( value );
+        }
+        final int c = Double.compare( value,
+                                      this.values[node] );
+        if ( c == 0 ) {
+            this.counts[node]++;
+            return node;
+        }
+        // the arrays may grow while inserting, so the child is only stored afterwards
+        if ( c < 0 ) {
+            final int child = insert( this.left[node],
+                                      value );
+            this.left[node] = child;
+        } else {
+            final int child = insert( this.right[node],
+                                      value );
+            this.right[node] = child;
+        }
+        return split( skew( node ) );
+    }
+
+    /**
+     * Removes one occurrence of the value from the subtree, or the whole node
+     * holding it if all is true, and returns the rebalanced subtree.
+     */
+    private int delete(int node,
+                       final double value,
+                       final boolean all) {
+        if ( node == NIL ) {
+            return NIL;
+        }
+        final int c = Double.compare( value,
+                                      this.values[node] );
+        if ( c < 0 ) {
+            this.left[node] = delete( this.left[node],
+                                      value,
+                                      all );
+        } else if ( c > 0 ) {
+            this.right[node] = delete( this.right[node],
+                                       value,
+                                       all );
+        } else {
+            this.removed = true;
+            if ( !all && this.counts[node] > 1 ) {
+                this.counts[node]--;
+                return node;
+            }
+            if ( this.left[node] == NIL && this.right[node] == NIL ) {
+                release( node );
+                return NIL;
+            }
+            // replace the node by its successor or predecessor, that is then removed
+            if ( this.left[node] == NIL ) {
+                int successor = this.right[node];
+                while ( this.left[successor] != NIL ) {
+                    successor = this.left[successor];
+                }
+                this.values[node] = this.values[successor];
+                this.counts[node] = this.counts[successor];
+                this.right[node] = delete( this.right[node],
+                                           this.values[node],
+                                           true );
+            } else {
+                int predecessor = this.left[node];
+                while ( this.right[predecessor] != NIL ) {
+                    predecessor = this.right[predecessor];
+                }
+                this.values[node] = this.values[predecessor];
+                this.counts[node] = this.counts[predecessor];
+                this.left[node] = delete( this.left[node],
+                                          this.values[node],
+                                          true );
+            }
+        }
+
+        // rebalance on the way up
+        final int shouldBe = Math.min( this.level[this.left[node]],
+                                       this.level[this.right[node]] ) + 1;
+        if ( shouldBe < this.level[node] ) {
+            this.level[node] = shouldBe;
+            if ( shouldBe < this.level[this.right[node]] ) {
+                this.level[this.right[node]] = shouldBe;
+            }
+        }
+        node = skew( node );
+        this.right[node] = skew( this.right[node] );
+        if ( this.right[node] != NIL ) {
+            this.right[this.right[node]] = skew( this.right[this.right[node]] );
+        }
+        node = split( node );
+        this.right[node] = split( this.right[node] );
+        return node;
+    }
+
+    private int skew(final int node) {
+        if ( node == NIL || this.level[this.left[node]] != this.level[node] ) {
+            return node;
+        }
+        final int l = this.left[node];
+        this.left[node] = this.right[l];
+        this.right[l] = node;
+        return l;
+    }
+
+    private int split(final int node) {
+        if ( node == NIL || this.level[this.right[this.right[node]]] != this.level[node] ) {
+            return node;
+        }
+        final int r = this.right[node];
+        this.right[node] = this.left[r];
+        this.left[r] = node;
+        this.level[r]++;
+        return r;
+    }
+
+    private int newNode(final double value) {
+        int node;
+        if ( this.free != NIL ) {
+            node = this.free;
+            this.free = this.left[node];
+        } else {
+            if ( this.next == this.values.length ) {
+                grow();
+            }
+            node = this.next++;
+        }
+        this.values[node] = value;
+        this.counts[node] = 1;
+        this.left[node] = NIL;
+        this.right[node] = NIL;
+        this.level[node] = 1;
+        return node;
+    }
+
+    private void release(final int node) {
+        this.right[node] = NIL;
+        this.level[node] = 0;
+        this.left[node] = this.free;
+        this.free = node;
+    }
+
+    private void grow() {
+        final int capacity = this.values.length << 1;
+        this.values = copy( this.values,
+                            capacity );
+        this.counts = copy( this.counts,
+                            capacity );
+        this.left = copy( this.left,
+                          capacity );
+        this.right = copy( this.right,
+                           capacity );
+        this.level = copy( this.level,
+                           capacity );
+    }
+
+    private static double[] copy(final double[] array,
+                                 final int capacity) {
+        final double[] copy = new double[capacity];
+        System.arraycopy( array,
+                          0,
+                          copy,
+                          0,
+                          array.length );
+        return copy;
+    }
+
+    private static int[] copy(final int[] array,
+                              final int capacity) {
+        final int[] copy = new int[capacity];
+        System.arraycopy( array,
+                          0,
+                          copy,
+                          0,
+                          array.length );
+        return copy;
+    }
+
+}
@@ -77,7 +77,9 @@ public class LeftTupleIndexHashTable extends AbstractHashTable
                                                        this.startResult );
                 break;
             default :
-                throw new IllegalArgumentException( "FieldIndexHashTable cannot use an index[] of length  great than 3" );
+                this.index = new MultiCompositeIndex( index,
+                                                      this.startResult );
+                break;
         }
     }
 
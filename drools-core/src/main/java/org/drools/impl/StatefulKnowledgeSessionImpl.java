@@ -398,6 +398,16 @@ public class StatefulKnowledgeSessionImpl
                                                        activation );
     }
 
+    public List<org.drools.FactHandle> insertAll(Collection< ? > objects) throws FactException {
+        return this.session.insertAll( objects );
+    }
+
+    public void updateAll(List< ? extends FactHandle> handles,
+                          List< ? > objects) throws FactException {
+        this.session.updateAll( handles,
+                                objects );
+    }
+
     public EntryPoint getEntryPoint() {
         return session.getEntryPoint();
     }
@@ -24,6 +24,8 @@ import org.drools.io.ResourceChangeScannerConfiguration;
 public class ResourceChangeScannerConfigurationImpl implements ResourceChangeScannerConfiguration {
     
     private int interval;
+
+    private boolean contentHash = true;
     
     public ResourceChangeScannerConfigurationImpl() {
         interval = 60;
@@ -44,6 +46,8 @@ public class ResourceChangeScannerConfigurationImpl implements ResourceChangeSca
         
         if ( name.equals(   "drools.resource.scanner.interval" ) ) {
             setInterval( StringUtils.isEmpty( value ) ? 60 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.resource.scanner.contentHash" ) ) {
+            setContentHash( StringUtils.isEmpty( value ) ? true : Boolean.valueOf( value ) );
         }
     }
 
@@ -55,6 +59,8 @@ public class ResourceChangeScannerConfigurationImpl implements ResourceChangeSca
         
         if ( name.equals(   "drools.resource.scanner.interval" ) ) {
             return Integer.toString( this.interval );
+        } else if ( name.equals( "drools.resource.scanner.contentHash" ) ) {
+            return Boolean.toString( this.contentHash );
         }
         
         return null;
@@ -67,5 +73,17 @@ public class ResourceChangeScannerConfigurationImpl implements ResourceChangeSca
     public void setInterval(int interval) {
         this.interval = interval;
     }
+
+    public boolean isContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * When set, a resource whose modification date changed is only reported
+     * as modified when its contents changed too.
+     */
+    public void setContentHash(boolean contentHash) {
+        this.contentHash = contentHash;
+    }
    
 }
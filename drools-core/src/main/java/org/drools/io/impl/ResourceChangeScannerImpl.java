@@ -16,7 +16,10 @@
 
 package org.drools.io.impl;
 
+import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -42,11 +45,15 @@ public class ResourceChangeScannerImpl
     private Set<Resource>                              directories;
     private SystemEventListener                        listener;
     private int                                        interval;
+    private boolean                                    contentHash;
+    private Map<Resource, byte[]>                      digests;
 
     public ResourceChangeScannerImpl() {
         this.listener = SystemEventListenerFactory.getSystemEventListener();
         this.resources = new HashMap<Resource, Set<ResourceChangeNotifier>>();
         this.directories = new HashSet<Resource>();
+        this.contentHash = true;
+        this.digests = new HashMap<Resource, byte[]>();
         this.setInterval( 60 );
         this.listener.info( "ResourceChangeScanner created with default interval=60" );
     }
@@ -57,6 +64,7 @@ public class ResourceChangeScannerImpl
 
     public void configure(ResourceChangeScannerConfiguration configuration) {
         this.setInterval( ((ResourceChangeScannerConfigurationImpl) configuration).getInterval() );
+        this.contentHash = ((ResourceChangeScannerConfigurationImpl) configuration).isContentHash();
         this.listener.info( "ResourceChangeScanner reconfigured with interval=" + getInterval() );
 
         // restart it if it's already running.
@@ -88,6 +96,36 @@ public class ResourceChangeScannerImpl
             }
             this.listener.debug( "ResourceChangeScanner subcribing notifier=" + notifier + " to resource=" + resource );
             notifiers.add( notifier );
+            if ( this.contentHash && !this.digests.containsKey( resource ) ) {
+                digestUnmodified( resource );
+            }
+        }
+    }
+
+    /**
+     * Records the digest of a resource that was not modified since it was
+     * last read, so the first time it is only touched it is not reported
+     * either. A resource modified since then is left to be reported by the
+     * next scan, as the notifiers may not have its current contents.
+     */
+    private void digestUnmodified(Resource resource) {
+        final InternalResource internalResource = (InternalResource) resource;
+        if ( internalResource.isDirectory() ) {
+            return;
+        }
+        final long lastRead = internalResource.getLastRead();
+        try {
+            if ( lastRead <= 0 || internalResource.getLastModified() > lastRead ) {
+                return;
+            }
+        } catch ( RuntimeException e ) {
+            this.listener.debug( "ResourceChangeScanner unable to get the last modified date of resource=" + resource + " : " + e.getMessage() );
+            return;
+        }
+        final byte[] digest = digest( resource );
+        if ( digest != null ) {
+            this.digests.put( resource,
+                              digest );
         }
     }
 
@@ -103,6 +141,7 @@ public class ResourceChangeScannerImpl
             if ( notifiers.isEmpty() ) {
                 this.listener.debug( "ResourceChangeScanner resource=" + resource + " now has no subscribers" );
                 this.resources.remove( resource );
+                this.digests.remove( resource );
                 this.directories.remove( resource ); // don't bother with
                 // isDirectory check, as
                 // doing a remove is
@@ -186,6 +225,10 @@ public class ResourceChangeScannerImpl
                             changeSet.getResourcesRemoved().add( resource );
                         }
                     } else if ( lastRead < lastModified && lastRead >= 0 ) {
+                        if ( this.contentHash && !isContentModified( resource ) ) {
+                            this.listener.debug( "ResourceChangeScanner touched resource=" + resource + " : " + lastRead + " : " + lastModified );
+                            continue;
+                        }
                         this.listener.debug( "ResourceChangeScanner modified resource=" + resource + " : " + lastRead + " : " + lastModified );
                         // it's modified
                         // iterate notifiers for this resource and add to each
@@ -211,6 +254,7 @@ public class ResourceChangeScannerImpl
             // not to mutate the foreach loop while iterating
             for ( Resource resource : removed ) {
                 this.resources.remove( resource );
+                this.digests.remove( resource );
             }
 
             for ( Entry<ResourceChangeNotifier, ChangeSet> entry : notifications.entrySet() ) {
@@ -221,6 +265,54 @@ public class ResourceChangeScannerImpl
         }
     }
 
+    /**
+     * Compares the digest of the contents of the resource with the one it had
+     * when it was subscribed or last found modified. Reading the contents also
+     * moves the last read date of the resource, so a resource that was only
+     * touched is not read again until its modification date changes again.
+     *
+     * A resource without a previous digest, as it was modified before it was
+     * subscribed, is reported as modified. So is a resource that can't be
+     * read, so the notifiers get to report the error.
+     */
+    private boolean isContentModified(Resource resource) {
+        final byte[] digest = digest( resource );
+        if ( digest == null ) {
+            this.digests.remove( resource );
+            return true;
+        }
+
+        final byte[] previous = this.digests.put( resource,
+                                                  digest );
+        return previous == null || !Arrays.equals( previous,
+                                                   digest );
+    }
+
+    /**
+     * @return the MD5 digest of the contents of the resource, or null if it can't be read
+     */
+    private byte[] digest(Resource resource) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance( "MD5" );
+            final InputStream is = resource.getInputStream();
+            try {
+                final byte[] buffer = new byte[4096];
+                int n;
+                while ( (n = is.read( buffer )) != -1 ) {
+                    md.update( buffer,
+                               0,
+                               n );
+                }
+            } finally {
+                is.close();
+            }
+            return md.digest();
+        } catch ( Exception e ) {
+            this.listener.debug( "ResourceChangeScanner unable to digest resource=" + resource + " : " + e.getMessage() );
+            return null;
+        }
+    }
+
     public void setInterval(int interval) {
         if ( interval <= 0 ) {
             throw new IllegalArgumentException( "Invalid interval time: " + interval + ". It should be a positive number bigger than 0" );
@@ -259,6 +351,7 @@ public class ResourceChangeScannerImpl
     public void reset() {
         this.resources.clear();
         this.directories.clear();
+        this.digests.clear();
     }
 
     private Thread           thread;
@@ -64,6 +64,7 @@ public class UrlResource extends BaseResource
 
     private URL  url;
     private long lastRead = -1;
+    private String eTag;
     private static final String DROOLS_RESOURCE_URLCACHE = "drools.resource.urlcache";
     private String basicAuthentication = "disabled";
     private String username = "";
@@ -207,7 +208,11 @@ public class UrlResource extends BaseResource
 
         }
 
-        return con.getInputStream();
+        InputStream is = con.getInputStream();
+        if ( con instanceof HttpURLConnection ) {
+            this.eTag = con.getHeaderField( "ETag" );
+        }
+        return is;
     }
 
     public Reader getReader() throws IOException {
@@ -278,6 +283,18 @@ public class UrlResource extends BaseResource
             URLConnection conn = getURL().openConnection();
             if ( conn instanceof HttpURLConnection) {
                 ((HttpURLConnection) conn).setRequestMethod( "HEAD" );
+                if ( this.lastRead > 0 ) {
+                    // make it a conditional request, so a server can tell the contents did not change
+                    // even when its last modified date moved, for instance when it is generated
+                    conn.setIfModifiedSince( this.lastRead );
+                    if ( this.eTag != null ) {
+                        conn.setRequestProperty( "If-None-Match",
+                                                 this.eTag );
+                    }
+                    if ( ((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED ) {
+                        return this.lastRead;
+                    }
+                }
             }
             long date =  conn.getLastModified();
             if (date == 0) {
@@ -17,6 +17,7 @@
 package org.drools.management;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -48,8 +49,11 @@ import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 
 import org.drools.base.ClassObjectType;
+import org.drools.common.InternalWorkingMemory;
+import org.drools.common.RuleBasePartitionId;
 import org.drools.reteoo.EntryPointNode;
 import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.PartitionTaskManager;
 import org.drools.reteoo.ReteooRuleBase;
 import org.drools.rule.Package;
 
@@ -64,6 +68,9 @@ public class KnowledgeBaseMonitoring
     private static final String ATTR_GLOBALS = "Globals";
     private static final String ATTR_SESSION_COUNT = "SessionCount";
     private static final String ATTR_ID = "Id";
+    private static final String ATTR_REGEX_CACHE_HITS = "RegexPatternCacheHits";
+    private static final String ATTR_REGEX_CACHE_MISSES = "RegexPatternCacheMisses";
+    private static final String ATTR_PARTITIONS = "Partitions";
 
     private static final String OP_STOP_INTERNAL_MBEANS = "stopInternalMBeans";
     private static final String OP_START_INTERNAL_MBEANS = "startInternalMBeans";
@@ -88,6 +95,16 @@ public class KnowledgeBaseMonitoring
     private static String[]      index           = {"name"};
     private static TabularType   globalsTableType;
 
+    // ************************************************************************************************
+    // Define and instantiate all info related to the partitions table
+    //
+    private static String[]      partitionsColNames = {"partition", "queueDepth", "executedActions", "blockedEnqueues", "waitTime", "executionTime"};
+    private static String[]      partitionsColDescr = {"Partition identifier", "Number of queued actions", "Number of processed actions", "Number of times an inserting thread waited for the queue to have room", "Total time in ms the partition waited for a thread", "Total time in ms spent processing actions"};
+    private static OpenType[]    partitionsColTypes = {SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG};
+    private static CompositeType partitionsType;
+    private static String[]      partitionsIndex    = {"partition"};
+    private static TabularType   partitionsTableType;
+
     static {
         try {
             globalsType = new CompositeType( "globalsType",
@@ -99,6 +116,15 @@ public class KnowledgeBaseMonitoring
                                                 "List of globals",
                                                 globalsType,
                                                 index );
+            partitionsType = new CompositeType( "partitionsType",
+                                                "Partitions row type",
+                                                partitionsColNames,
+                                                partitionsColDescr,
+                                                partitionsColTypes );
+            partitionsTableType = new TabularType( "partitionsTableType",
+                                                   "List of partitions",
+                                                   partitionsType,
+                                                   partitionsIndex );
         } catch ( Exception e ) {
             e.printStackTrace();
         }
@@ -118,7 +144,7 @@ public class KnowledgeBaseMonitoring
      *  Initialize the open mbean metadata
      */
     private void initOpenMBeanInfo() {
-        OpenMBeanAttributeInfoSupport[] attributes = new OpenMBeanAttributeInfoSupport[4];
+        OpenMBeanAttributeInfoSupport[] attributes = new OpenMBeanAttributeInfoSupport[7];
         OpenMBeanConstructorInfoSupport[] constructors = new OpenMBeanConstructorInfoSupport[1];
         OpenMBeanOperationInfoSupport[] operations = new OpenMBeanOperationInfoSupport[2];
         MBeanNotificationInfo[] notifications = new MBeanNotificationInfo[0];
@@ -150,6 +176,24 @@ public class KnowledgeBaseMonitoring
                                                                true,
                                                                false,
                                                                false );
+            attributes[4] = new OpenMBeanAttributeInfoSupport( ATTR_REGEX_CACHE_HITS,
+                                                               "Number of regular expressions found in the pattern cache",
+                                                               SimpleType.LONG,
+                                                               true,
+                                                               false,
+                                                               false );
+            attributes[5] = new OpenMBeanAttributeInfoSupport( ATTR_REGEX_CACHE_MISSES,
+                                                               "Number of regular expressions compiled because they were not in the pattern cache",
+                                                               SimpleType.LONG,
+                                                               true,
+                                                               false,
+                                                               false );
+            attributes[6] = new OpenMBeanAttributeInfoSupport( ATTR_PARTITIONS,
+                                                               "Queue and latency statistics of the rulebase partitions, for all the sessions, when multi-thread evaluation is enabled",
+                                                               partitionsTableType,
+                                                               true,
+                                                               false,
+                                                               false );
             //No arg constructor                
             constructors[0] = new OpenMBeanConstructorInfoSupport( "KnowledgeBaseMonitoringMXBean",
                                                                    "Constructs a KnowledgeBaseMonitoringMXBean instance.",
@@ -220,6 +264,49 @@ public class KnowledgeBaseMonitoring
         return kbase.getWorkingMemoryCounter();
     }
 
+    public long getRegexPatternCacheHits() {
+        return kbase.getRegexPatternCache().getHits();
+    }
+
+    public long getRegexPatternCacheMisses() {
+        return kbase.getRegexPatternCache().getMisses();
+    }
+
+    /**
+     * Returns the statistics of each rulebase partition, summed over all the
+     * sessions of the knowledge base
+     */
+    public TabularData getPartitions() throws OpenDataException {
+        TabularDataSupport partitionsTable = new TabularDataSupport( partitionsTableType );
+        if ( !kbase.getConfiguration().isMultithreadEvaluation() ) {
+            return partitionsTable;
+        }
+        InternalWorkingMemory[] sessions = kbase.getWorkingMemories();
+        for ( RuleBasePartitionId partitionId : kbase.getPartitionIds() ) {
+            long queueDepth = 0;
+            long executedActions = 0;
+            long blockedEnqueues = 0;
+            long waitTime = 0;
+            long executionTime = 0;
+            for ( InternalWorkingMemory session : sessions ) {
+                PartitionTaskManager manager = session.getPartitionTaskManager( partitionId );
+                if ( manager != null ) {
+                    queueDepth += manager.getQueueDepth();
+                    executedActions += manager.getExecutedActions();
+                    blockedEnqueues += manager.getBlockedEnqueues();
+                    waitTime += manager.getWaitTime();
+                    executionTime += manager.getExecutionTime();
+                }
+            }
+            Object[] itemValues = {partitionId.getId(), Long.valueOf( queueDepth ), Long.valueOf( executedActions ), Long.valueOf( blockedEnqueues ), Long.valueOf( TimeUnit.NANOSECONDS.toMillis( waitTime ) ), Long.valueOf( TimeUnit.NANOSECONDS.toMillis( executionTime ) )};
+            CompositeData result = new CompositeDataSupport( partitionsType,
+                                                             partitionsColNames,
+                                                             itemValues );
+            partitionsTable.put( result );
+        }
+        return partitionsTable;
+    }
+
     public void startInternalMBeans() {
         for ( EntryPointNode epn : kbase.getRete().getEntryPointNodes().values() ) {
             for ( ObjectTypeNode otn : epn.getObjectTypeNodes().values() ) {
@@ -261,6 +348,18 @@ public class KnowledgeBaseMonitoring
             }
         } else if ( attributeName.equals( ATTR_PACKAGES ) ) {
             return getPackages();
+        } else if ( attributeName.equals( ATTR_REGEX_CACHE_HITS ) ) {
+            return Long.valueOf( getRegexPatternCacheHits() );
+        } else if ( attributeName.equals( ATTR_REGEX_CACHE_MISSES ) ) {
+            return Long.valueOf( getRegexPatternCacheMisses() );
+        } else if ( attributeName.equals( ATTR_PARTITIONS ) ) {
+            try {
+                return getPartitions();
+            } catch ( OpenDataException e ) {
+                throw new RuntimeOperationsException( new RuntimeException( "Error retrieving partitions list",
+                                                                            e ),
+                                                      "Error retrieving partitions list " + e.getMessage() );
+            }
         }
         throw new AttributeNotFoundException( "Cannot find " + attributeName + " attribute " );
     }
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.marshalling.impl;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Collection;
+
+import org.drools.KnowledgeBase;
+import org.drools.base.ClassFieldAccessor;
+import org.drools.common.InternalRuleBase;
+import org.drools.factmodel.ClassDefinition;
+import org.drools.factmodel.FieldDefinition;
+import org.drools.impl.KnowledgeBaseImpl;
+import org.drools.marshalling.ObjectMarshallingStrategy;
+import org.drools.rule.TypeDeclaration;
+
+/**
+ * An <code>ObjectMarshallingStrategy</code> for the facts whose class was
+ * declared in the rules, with a <code>declare</code> statement. They are
+ * written field by field with the field accessors of the declaration,
+ * instead of with java serialization.
+ *
+ * The layout of a class, that is its name and the names and types of its
+ * fields, is only written the first time an instance of the class is
+ * written to a session stream; following instances only write the id of
+ * the layout and the field values. When read, the fields are matched by
+ * name to the current declaration of the type, so fields that no longer
+ * exist are skipped and new fields keep their default value. A field whose
+ * type changed gets the value converted to its new type, as an int read
+ * into a long field, or keeps its default value when it can not be.
+ *
+ * A declared object is only written once per stream: a fact referring to
+ * another declared fact through one of its fields refers to the same
+ * instance once read, as required to join them.
+ *
+ * It is meant to be put before the serializable strategy:
+ * <pre>
+ * MarshallerFactory.newMarshaller( kbase,
+ *                                  new ObjectMarshallingStrategy[] { new DeclaredTypeMarshallingStrategy( kbase ),
+ *                                                                    MarshallerFactory.newSerializeMarshallingStrategy() } );
+ * </pre>
+ */
+public class DeclaredTypeMarshallingStrategy
+    implements
+    ObjectMarshallingStrategy {
+
+    private static final byte      OBJECT        = 0;
+    private static final byte      BOOLEAN       = 1;
+    private static final byte      BYTE          = 2;
+    private static final byte      CHAR          = 3;
+    private static final byte      SHORT         = 4;
+    private static final byte      INT           = 5;
+    private static final byte      LONG          = 6;
+    private static final byte      FLOAT         = 7;
+    private static final byte      DOUBLE        = 8;
+
+    // how a declared object is written: in full, as the id of a declared object already written to the stream,
+    // or as a reference to a fact object that was written to another stream of the snapshot
+    private static final byte      INSTANCE      = 0;
+    private static final byte      REFERENCE     = 1;
+    private static final byte      FACT_OBJECT   = 2;
+
+    private final InternalRuleBase ruleBase;
+
+    public DeclaredTypeMarshallingStrategy(KnowledgeBase kbase) {
+        this.ruleBase = (InternalRuleBase) ((KnowledgeBaseImpl) kbase).ruleBase;
+    }
+
+    public boolean accept(Object object) {
+        return getClassDefinition( object.getClass() ) != null;
+    }
+
+    public void write(ObjectOutputStream os,
+                      Object object) throws IOException {
+        final MarshallerWriteContext context = (MarshallerWriteContext) os;
+        final Integer index = context.declaredObjects.get( object );
+        if ( index != null ) {
+            os.writeByte( REFERENCE );
+            PersisterHelper.writeVarInt( os,
+                                         index.intValue() );
+            return;
+        } else if ( context.isReplacedFactObject( object ) ) {
+            os.writeByte( FACT_OBJECT );
+            os.writeObject( object );
+            return;
+        }
+        os.writeByte( INSTANCE );
+        context.declaredObjects.put( object,
+                                     context.declaredObjects.size() );
+
+        final Class< ? > clazz = object.getClass();
+
+        ClassLayout layout = context.classLayouts.get( clazz );
+        if ( layout == null ) {
+            final Collection<FieldDefinition> definitions = getClassDefinition( clazz ).getFieldsDefinitions();
+            layout = new ClassLayout( context.classLayouts.size(),
+                                      clazz,
+                                      definitions.toArray( new FieldDefinition[definitions.size()] ) );
+            context.classLayouts.put( clazz,
+                                      layout );
+
+            PersisterHelper.writeVarInt( os,
+                                         layout.id );
+            os.writeUTF( clazz.getName() );
+            PersisterHelper.writeVarInt( os,
+                                         layout.fields.length );
+            for ( int i = 0; i < layout.fields.length; i++ ) {
+                os.writeUTF( layout.fields[i].getName() );
+                os.writeByte( layout.types[i] );
+            }
+        } else {
+            PersisterHelper.writeVarInt( os,
+                                         layout.id );
+        }
+
+        for ( int i = 0; i < layout.fields.length; i++ ) {
+            final ClassFieldAccessor accessor = layout.fields[i].getFieldAccessor();
+            switch ( layout.types[i] ) {
+                case BOOLEAN :
+                    os.writeBoolean( accessor.getBooleanValue( object ) );
+                    break;
+                case BYTE :
+                    os.writeByte( accessor.getByteValue( object ) );
+                    break;
+                case CHAR :
+                    os.writeChar( accessor.getCharValue( object ) );
+                    break;
+                case SHORT :
+                    os.writeShort( accessor.getShortValue( object ) );
+                    break;
+                case INT :
+                    os.writeInt( accessor.getIntValue( object ) );
+                    break;
+                case LONG :
+                    os.writeLong( accessor.getLongValue( object ) );
+                    break;
+                case FLOAT :
+                    os.writeFloat( accessor.getFloatValue( object ) );
+                    break;
+                case DOUBLE :
+                    os.writeDouble( accessor.getDoubleValue( object ) );
+                    break;
+                default :
+                    writeValue( context,
+                                accessor.getValue( object ) );
+            }
+        }
+    }
+
+    /**
+     * Writes the value of an object field. The declared objects are written
+     * with this strategy, so that a fact referring to another declared fact
+     * refers to the same instance once read.
+     */
+    private void writeValue(MarshallerWriteContext context,
+                            Object value) throws IOException {
+        if ( value != null && accept( value ) ) {
+            context.writeBoolean( true );
+            write( context,
+                   value );
+        } else {
+            context.writeBoolean( false );
+            context.writeObject( value );
+        }
+    }
+
+    public Object read(ObjectInputStream os) throws IOException,
+                                            ClassNotFoundException {
+        final MarshallerReaderContext context = (MarshallerReaderContext) os;
+        final byte tag = os.readByte();
+        if ( tag == REFERENCE ) {
+            return context.declaredObjects.get( PersisterHelper.readVarInt( os ) );
+        } else if ( tag == FACT_OBJECT ) {
+            return os.readObject();
+        } else if ( tag != INSTANCE ) {
+            throw new StreamCorruptedException( "Unknown declared object: " + tag );
+        }
+
+        final int id = PersisterHelper.readVarInt( os );
+        final ClassLayout layout;
+        if ( id < context.classLayouts.size() ) {
+            layout = context.classLayouts.get( id );
+        } else if ( id == context.classLayouts.size() ) {
+            layout = readLayout( os,
+                                 id );
+            context.classLayouts.add( layout );
+        } else {
+            throw new StreamCorruptedException( "Unknown declared type layout: " + id );
+        }
+
+        final Object object;
+        try {
+            object = layout.clazz.newInstance();
+        } catch ( Exception e ) {
+            throw new RuntimeException( "Unable to instantiate the declared type " + layout.clazz.getName(),
+                                        e );
+        }
+        // registered before its fields are read, as they may refer back to it
+        context.declaredObjects.add( object );
+
+        for ( int i = 0; i < layout.fields.length; i++ ) {
+            final FieldDefinition field = layout.fields[i];
+            if ( field == null || layout.types[i] != getType( field ) ) {
+                // the field was removed or changed its type since the session was written
+                final Object value = convert( readValue( context,
+                                                         layout.types[i] ),
+                                              field );
+                if ( value != null ) {
+                    field.setValue( object,
+                                    value );
+                }
+                continue;
+            }
+
+            final ClassFieldAccessor accessor = field.getFieldAccessor();
+            switch ( layout.types[i] ) {
+                case BOOLEAN :
+                    accessor.setBooleanValue( object,
+                                              os.readBoolean() );
+                    break;
+                case BYTE :
+                    accessor.setByteValue( object,
+                                           os.readByte() );
+                    break;
+                case CHAR :
+                    accessor.setCharValue( object,
+                                           os.readChar() );
+                    break;
+                case SHORT :
+                    accessor.setShortValue( object,
+                                            os.readShort() );
+                    break;
+                case INT :
+                    accessor.setIntValue( object,
+                                          os.readInt() );
+                    break;
+                case LONG :
+                    accessor.setLongValue( object,
+                                           os.readLong() );
+                    break;
+                case FLOAT :
+                    accessor.setFloatValue( object,
+                                            os.readFloat() );
+                    break;
+                case DOUBLE :
+                    accessor.setDoubleValue( object,
+                                             os.readDouble() );
+                    break;
+                default : {
+                    // the class of an object field may have changed too
+                    final Object value = convert( readValue( context ),
+                                                  field );
+                    if ( value != null ) {
+                        accessor.setValue( object,
+                                           value );
+                    }
+                }
+            }
+        }
+        return object;
+    }
+
+    private ClassLayout readLayout(ObjectInputStream os,
+                                   int id) throws IOException,
+                                          ClassNotFoundException {
+        final String className = os.readUTF();
+        final Class< ? > clazz = this.ruleBase.getRootClassLoader().loadClass( className );
+        final ClassDefinition definition = getClassDefinition( clazz );
+        if ( definition == null ) {
+            throw new IllegalStateException( "Unable to find the declaration of the type " + className );
+        }
+
+        final int size = PersisterHelper.readVarInt( os );
+        final FieldDefinition[] fields = new FieldDefinition[size];
+        final byte[] types = new byte[size];
+        for ( int i = 0; i < size; i++ ) {
+            fields[i] = definition.getField( os.readUTF() );
+            types[i] = os.readByte();
+        }
+        return new ClassLayout( id,
+                                clazz,
+                                fields,
+                                types );
+    }
+
+    private Object readValue(MarshallerReaderContext os,
+                             byte type) throws IOException,
+                                       ClassNotFoundException {
+        switch ( type ) {
+            case BOOLEAN :
+                return Boolean.valueOf( os.readBoolean() );
+            case BYTE :
+                return Byte.valueOf( os.readByte() );
+            case CHAR :
+                return Character.valueOf( os.readChar() );
+            case SHORT :
+                return Short.valueOf( os.readShort() );
+            case INT :
+                return Integer.valueOf( os.readInt() );
+            case LONG :
+                return Long.valueOf( os.readLong() );
+            case FLOAT :
+                return Float.valueOf( os.readFloat() );
+            case DOUBLE :
+                return Double.valueOf( os.readDouble() );
+            default :
+                return readValue( os );
+        }
+    }
+
+    private Object readValue(MarshallerReaderContext context) throws IOException,
+                                                             ClassNotFoundException {
+        return context.readBoolean() ? read( context ) : context.readObject();
+    }
+
+    /**
+     * Converts a value read for a field whose type changed since the session
+     * was written to the current type of the field. Returns null when the
+     * field was removed, or when the value can not be converted, so the field
+     * keeps its default value.
+     */
+    private static Object convert(Object value,
+                                  FieldDefinition field) {
+        if ( field == null || value == null ) {
+            return null;
+        }
+        final Class< ? > type = field.getType();
+        if ( type.isInstance( value ) ) {
+            return value;
+        } else if ( type == boolean.class ) {
+            return (value instanceof Boolean) ? value : null;
+        } else if ( type == char.class ) {
+            return (value instanceof Character) ? value : null;
+        } else if ( !(value instanceof Number) ) {
+            return null;
+        }
+        final Number number = (Number) value;
+        if ( type == byte.class || type == Byte.class ) {
+            return Byte.valueOf( number.byteValue() );
+        } else if ( type == short.class || type == Short.class ) {
+            return Short.valueOf( number.shortValue() );
+        } else if ( type == int.class || type == Integer.class ) {
+            return Integer.valueOf( number.intValue() );
+        } else if ( type == long.class || type == Long.class ) {
+            return Long.valueOf( number.longValue() );
+        } else if ( type == float.class || type == Float.class ) {
+            return Float.valueOf( number.floatValue() );
+        } else if ( type == double.class || type == Double.class ) {
+            return Double.valueOf( number.doubleValue() );
+        }
+        return null;
+    }
+
+    /**
+     * Returns the definition of the class when it was declared in the rules,
+     * and has no super class whose fields would not be in the definition.
+     */
+    private ClassDefinition getClassDefinition(Class< ? > clazz) {
+        if ( clazz.getSuperclass() != Object.class ) {
+            return null;
+        }
+        final TypeDeclaration type = this.ruleBase.getTypeDeclaration( clazz );
+        if ( type == null || type.getTypeClass() != clazz ) {
+            return null;
+        }
+        return type.getTypeClassDef();
+    }
+
+    private static byte getType(FieldDefinition field) {
+        final Class< ? > type = field.getType();
+        if ( !type.isPrimitive() ) {
+            return OBJECT;
+        } else if ( type == boolean.class ) {
+            return BOOLEAN;
+        } else if ( type == byte.class ) {
+            return BYTE;
+        } else if ( type == char.class ) {
+            return CHAR;
+        } else if ( type == short.class ) {
+            return SHORT;
+        } else if ( type == int.class ) {
+            return INT;
+        } else if ( type == long.class ) {
+            return LONG;
+        } else if ( type == float.class ) {
+            return FLOAT;
+        } else {
+            return DOUBLE;
+        }
+    }
+
+    /**
+     * The fields of a declared class, in the order they are written, with
+     * the id the layout has in the stream.
+     */
+    public static class ClassLayout {
+        private final int               id;
+        private final Class< ? >        clazz;
+        private final FieldDefinition[] fields;
+        private final byte[]            types;
+
+        public ClassLayout(int id,
+                           Class< ? > clazz,
+                           FieldDefinition[] fields) {
+            this.id = id;
+            this.clazz = clazz;
+            this.fields = fields;
+            this.types = new byte[fields.length];
+            for ( int i = 0; i < fields.length; i++ ) {
+                this.types[i] = getType( fields[i] );
+            }
+        }
+
+        public ClassLayout(int id,
+                           Class< ? > clazz,
+                           FieldDefinition[] fields,
+                           byte[] types) {
+            this.id = id;
+            this.clazz = clazz;
+            this.fields = fields;
+            this.types = types;
+        }
+    }
+
+}
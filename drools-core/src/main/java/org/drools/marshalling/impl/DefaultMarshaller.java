@@ -19,6 +19,12 @@ package org.drools.marshalling.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.drools.KnowledgeBase;
 import org.drools.KnowledgeBaseFactory;
@@ -26,6 +32,7 @@ import org.drools.RuleBaseConfiguration;
 import org.drools.SessionConfiguration;
 import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
+import org.drools.common.NamedEntryPoint;
 import org.drools.concurrent.CommandExecutor;
 import org.drools.concurrent.ExecutorService;
 import org.drools.impl.InternalKnowledgeBase;
@@ -34,6 +41,7 @@ import org.drools.impl.StatefulKnowledgeSessionImpl;
 import org.drools.marshalling.Marshaller;
 import org.drools.reteoo.ReteooRuleBase;
 import org.drools.reteoo.ReteooStatefulSession;
+import org.drools.reteoo.ReteooWorkingMemory;
 import org.drools.runtime.Environment;
 import org.drools.runtime.KnowledgeSessionConfiguration;
 import org.drools.runtime.StatefulKnowledgeSession;
@@ -49,6 +57,9 @@ public class DefaultMarshaller
     MarshallingConfiguration       marshallingConfig;
     ObjectMarshallingStrategyStore strategyStore;
 
+    /** The threads encoding and decoding the fact objects of the snapshots, shared by the marshallers */
+    private static java.util.concurrent.ExecutorService objectCodec;
+
     public DefaultMarshaller(KnowledgeBase kbase,
                              MarshallingConfiguration marshallingConfig) {
         this.kbase = kbase;
@@ -69,6 +80,49 @@ public class DefaultMarshaller
                                                KnowledgeSessionConfiguration config,
                                                Environment environment) throws IOException,
                                                                              ClassNotFoundException {
+        return unmarshall( stream,
+                           config,
+                           environment,
+                           null );
+    }
+
+    /**
+     * Reads a session written by snapshot, decoding its chunks of fact
+     * objects in parallel, so that the session can be used sooner. As they
+     * are used from several threads, the object marshalling strategies must
+     * be thread safe. The chunks are decoded on daemon threads shared by the
+     * marshallers.
+     */
+    public StatefulKnowledgeSession restore(final InputStream stream,
+                                            KnowledgeSessionConfiguration config,
+                                            Environment environment) throws IOException,
+                                                                          ClassNotFoundException {
+        return restore( stream,
+                        config,
+                        environment,
+                        getObjectCodec() );
+    }
+
+    /**
+     * Reads a session written by snapshot, decoding its chunks of fact
+     * objects in parallel on the threads of the given executor.
+     */
+    public StatefulKnowledgeSession restore(final InputStream stream,
+                                            KnowledgeSessionConfiguration config,
+                                            Environment environment,
+                                            java.util.concurrent.ExecutorService objectDecoder) throws IOException,
+                                                                                               ClassNotFoundException {
+        return unmarshall( stream,
+                           config,
+                           environment,
+                           objectDecoder );
+    }
+
+    private StatefulKnowledgeSession unmarshall(final InputStream stream,
+                                                KnowledgeSessionConfiguration config,
+                                                Environment environment,
+                                                java.util.concurrent.ExecutorService objectDecoder) throws IOException,
+                                                                                                   ClassNotFoundException {
         if ( config == null ) {
             config = KnowledgeBaseFactory.newKnowledgeSessionConfiguration();
         }
@@ -84,6 +138,7 @@ public class DefaultMarshaller
                                                                        this.marshallingConfig.isMarshallProcessInstances(),
                                                                        this.marshallingConfig.isMarshallWorkItems() ,
                                                                        environment);
+        context.objectDecoder = objectDecoder;
 
         int id = ((ReteooRuleBase) ((KnowledgeBaseImpl) this.kbase).ruleBase).nextWorkingMemoryCounter();
         RuleBaseConfiguration conf = ((ReteooRuleBase) ((KnowledgeBaseImpl) this.kbase).ruleBase).getConfiguration();
@@ -125,6 +180,8 @@ public class DefaultMarshaller
      */
     public void marshall(final OutputStream stream,
                          final StatefulKnowledgeSession session) throws IOException {
+        // the nodes of the rules added in the background must be up to date before their memories are written
+        ((StatefulKnowledgeSessionImpl) session).session.updateQueuedNodes();
         MarshallerWriteContext context = new MarshallerWriteContext( stream,
                                                                      (InternalRuleBase) ((InternalKnowledgeBase) kbase).getRuleBase(),
                                                                      (InternalWorkingMemory) ((StatefulKnowledgeSessionImpl) session).session,
@@ -136,4 +193,109 @@ public class DefaultMarshaller
         context.close();
     }
 
+    /**
+     * Writes the session to the channel, as marshall does, but only keeps the
+     * session locked while it is encoded in memory, with the fact objects
+     * encoded in parallel, one chunk of facts per thread. The session then
+     * resumes while the encoded session is written to the channel. As they
+     * are used from several threads, the object marshalling strategies must
+     * be thread safe. The chunks are encoded on daemon threads shared by the
+     * marshallers. The session is read back with unmarshall or restore.
+     * <p>
+     * Only the fact objects whose fields all hold primitives, strings, boxed
+     * primitives, big numbers or enums are encoded in parallel, as they can
+     * not share any object with the rest of the session. The others are
+     * encoded with their handles, and any reference to a fact object is kept,
+     * so the restored session refers to the same instances, as marshall does.
+     */
+    public void snapshot(final WritableByteChannel channel,
+                         final StatefulKnowledgeSession session) throws IOException {
+        snapshot( channel,
+                  session,
+                  getObjectCodec() );
+    }
+
+    /**
+     * Writes the session to the channel as snapshot does, encoding the chunks
+     * of fact objects on the threads of the given executor.
+     */
+    public void snapshot(final WritableByteChannel channel,
+                         final StatefulKnowledgeSession session,
+                         final java.util.concurrent.ExecutorService objectEncoder) throws IOException {
+        ReteooWorkingMemory wm = ((StatefulKnowledgeSessionImpl) session).session;
+        SnapshotOutputStream out = new SnapshotOutputStream();
+        wm.updateQueuedNodes();
+        List<NamedEntryPoint> entryPoints = lockPropagations( wm );
+        wm.getLock().lock();
+        try {
+            MarshallerWriteContext context = new MarshallerWriteContext( out,
+                                                                         (InternalRuleBase) ((InternalKnowledgeBase) kbase).getRuleBase(),
+                                                                         wm,
+                                                                         RuleBaseNodes.getNodeMap( (InternalRuleBase) ((InternalKnowledgeBase) kbase).getRuleBase() ),
+                                                                         wm.getObjectMarshallingStrategyStore(),
+                                                                         this.marshallingConfig.isMarshallProcessInstances(),
+                                                                         this.marshallingConfig.isMarshallWorkItems(),
+                                                                         session.getEnvironment() );
+            context.objectEncoder = objectEncoder;
+            OutputMarshaller.writeSession( context );
+            context.close();
+        } finally {
+            wm.getLock().unlock();
+            unlockPropagations( entryPoints );
+        }
+        out.writeTo( channel );
+    }
+
+    /**
+     * Locks all the entry points of the session once the inserts they are propagating are done, so no
+     * fact is written half propagated. They are locked all at once or not at all, as a thread holding
+     * one of them may need another one to execute its queued actions.
+     */
+    private static List<NamedEntryPoint> lockPropagations(final InternalWorkingMemory wm) {
+        final List<NamedEntryPoint> locked = new ArrayList<NamedEntryPoint>();
+        while ( true ) {
+            boolean complete = true;
+            for ( Object entryPoint : wm.getEntryPoints().values() ) {
+                if ( !((NamedEntryPoint) entryPoint).tryLockPropagations() ) {
+                    complete = false;
+                    break;
+                }
+                locked.add( (NamedEntryPoint) entryPoint );
+            }
+            if ( complete ) {
+                return locked;
+            }
+            unlockPropagations( locked );
+            locked.clear();
+            Thread.yield();
+        }
+    }
+
+    private static void unlockPropagations(final List<NamedEntryPoint> entryPoints) {
+        for ( int i = entryPoints.size() - 1; i >= 0; i-- ) {
+            entryPoints.get( i ).unlockPropagations();
+        }
+    }
+
+    private static synchronized java.util.concurrent.ExecutorService getObjectCodec() {
+        if ( objectCodec == null ) {
+            objectCodec = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+                                                        new ObjectCodecThreadFactory() );
+        }
+        return objectCodec;
+    }
+
+    private static class ObjectCodecThreadFactory
+        implements
+        ThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread( runnable,
+                                              "drools-marshalling-" + threadNumber.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.marshalling.impl;
+
+import java.io.Serializable;
+
+/**
+ * Written in place of a fact object that was encoded in a chunk of a
+ * snapshot, so that the objects referencing it are restored with the same
+ * instance.
+ */
+public class FactObjectReference
+    implements
+    Serializable {
+    private static final long serialVersionUID = 510l;
+
+    private final int         index;
+
+    public FactObjectReference(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+}
@@ -16,12 +16,21 @@
 
 package org.drools.marshalling.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.drools.RuntimeDroolsException;
 import org.drools.SessionConfiguration;
@@ -29,7 +38,6 @@ import org.drools.base.ClassObjectType;
 import org.drools.common.AbstractWorkingMemory;
 import org.drools.common.AgendaItem;
 import org.drools.common.BaseNode;
-import org.drools.common.BinaryHeapQueueAgendaGroup;
 import org.drools.common.DefaultAgenda;
 import org.drools.common.DefaultFactHandle;
 import org.drools.common.EqualityKey;
@@ -107,7 +115,7 @@ public class InputMarshaller {
     public static ReteooStatefulSession readSession(ReteooStatefulSession session,
                                                     MarshallerReaderContext context) throws IOException,
                                                                                     ClassNotFoundException {
-        boolean multithread = context.readBoolean();
+        boolean multithread = readHeader( context );
         int handleId = context.readInt();
         long handleCounter = context.readLong();
         long propagationCounter = context.readLong();
@@ -170,6 +178,23 @@ public class InputMarshaller {
                                                                              ClassNotFoundException {
         return readSession( context, id, executor, EnvironmentFactory.newEnvironment(), new SessionConfiguration().getDefaultInstance() );
     }
+
+    /**
+     * Reads the format version of the session and returns whether the
+     * session was multithreaded. The sessions written before there was a
+     * version start with that flag, and are read in the legacy format.
+     */
+    private static boolean readHeader(MarshallerReaderContext context) throws IOException {
+        int version = context.readUnsignedByte();
+        if ( version < PersisterHelper.FORMAT_VERSION ) {
+            context.formatVersion = PersisterHelper.LEGACY_FORMAT_VERSION;
+            return version != 0;
+        } else if ( version > PersisterHelper.FORMAT_VERSION ) {
+            throw new StreamCorruptedException( "Unsupported session format version: " + version );
+        }
+        context.formatVersion = version;
+        return context.readBoolean();
+    }
     
     public static ReteooStatefulSession readSession(MarshallerReaderContext context,
                                                     int id,
@@ -178,7 +203,7 @@ public class InputMarshaller {
                                                     SessionConfiguration config) throws IOException,
                                                                              ClassNotFoundException {
 
-        boolean multithread = context.readBoolean();
+        boolean multithread = readHeader( context );
         
         FactHandleFactory handleFactory = context.ruleBase.newFactHandleFactory( context.readInt(),
                                                                                  context.readLong() );
@@ -245,8 +270,8 @@ public class InputMarshaller {
                                   DefaultAgenda agenda) throws IOException {
         ObjectInputStream stream = context.stream;
         while ( stream.readShort() == PersisterEnums.AGENDA_GROUP ) {
-            BinaryHeapQueueAgendaGroup group = new BinaryHeapQueueAgendaGroup( stream.readUTF(),
-                                                                               context.ruleBase );
+            InternalAgendaGroup group = context.ruleBase.getConfiguration().getAgendaGroupFactory().createAgendaGroup( stream.readUTF(),
+                                                                                                                      context.ruleBase );
             group.setActive( stream.readBoolean() );
             agenda.getAgendaGroupsMap().put( group.getName(),
                                              group );
@@ -290,7 +315,7 @@ public class InputMarshaller {
         TruthMaintenanceSystem tms = context.wm.getTruthMaintenanceSystem();
         while ( stream.readShort() == PersisterEnums.EQUALITY_KEY ) {
             int status = stream.readInt();
-            int factHandleId = stream.readInt();
+            int factHandleId = PersisterHelper.readCompactInt( context );
             InternalFactHandle handle = (InternalFactHandle) context.handles.get( factHandleId );
             
             // ObjectTypeConf state is not marshalled, so it needs to be re-determined
@@ -303,7 +328,7 @@ public class InputMarshaller {
                                                status );
             handle.setEqualityKey( key );
             while ( stream.readShort() == PersisterEnums.FACT_HANDLE ) {
-                factHandleId = stream.readInt();
+                factHandleId = PersisterHelper.readCompactInt( context );
                 handle = (InternalFactHandle) context.handles.get( factHandleId );
                 key.addFactHandle( handle );
                 handle.setEqualityKey( key );
@@ -320,7 +345,7 @@ public class InputMarshaller {
 
         if ( stream.readBoolean() ) {
             InternalFactHandle initialFactHandle = wm.getInitialFactHandle();
-            int sinkId = stream.readInt();
+            int sinkId = PersisterHelper.readCompactInt( context );
             ObjectTypeNode initialFactNode = (ObjectTypeNode) context.sinks.get( sinkId );
             ObjectHashSet initialFactMemory = (ObjectHashSet) context.wm.getNodeMemory( initialFactNode );
 
@@ -331,10 +356,23 @@ public class InputMarshaller {
 
         int size = stream.readInt();
 
+        // the fact objects that were encoded in parallel are written ahead of their handles
+        Object[] objects = null;
+        if ( context.formatVersion >= PersisterHelper.FORMAT_VERSION && stream.readBoolean() ) {
+            objects = readFactObjects( context );
+            context.resolveFactObjects( objects );
+        }
+
         // load the handles
         InternalFactHandle[] handles = new InternalFactHandle[size];
+        int next = 0;
         for ( int i = 0; i < size; i++ ) {
-            InternalFactHandle handle = readFactHandle( context );
+            Object object = null;
+            if ( objects != null && !stream.readBoolean() ) {
+                object = objects[next++];
+            }
+            InternalFactHandle handle = readFactHandle( context,
+                                                        object );
 
             context.handles.put( handle.getId(),
                                  handle );
@@ -364,7 +402,7 @@ public class InputMarshaller {
 
         InternalFactHandle handle = wm.getInitialFactHandle();
         while ( stream.readShort() == PersisterEnums.LEFT_TUPLE ) {
-            LeftTupleSink sink = (LeftTupleSink) context.sinks.get( stream.readInt() );
+            LeftTupleSink sink = (LeftTupleSink) context.sinks.get( PersisterHelper.readCompactInt( context ) );
             LeftTuple leftTuple = new LeftTuple( handle,
                                                  sink,
                                                  true );
@@ -381,12 +419,23 @@ public class InputMarshaller {
 
     public static InternalFactHandle readFactHandle(MarshallerReaderContext context) throws IOException,
                                                                                     ClassNotFoundException {
-        int id = context.stream.readInt();
-        long recency = context.stream.readLong();
+        return readFactHandle( context,
+                               null );
+    }
 
-        int strategyIndex = context.stream.readInt();
-        ObjectMarshallingStrategy strategy = context.resolverStrategyFactory.getStrategy( strategyIndex );
-        Object object = strategy.read( context.stream );
+    /**
+     * Reads a handle whose object was already read, or that is read from the
+     * stream when it is null.
+     */
+    private static InternalFactHandle readFactHandle(MarshallerReaderContext context,
+                                                     Object object) throws IOException,
+                                                                   ClassNotFoundException {
+        int id = PersisterHelper.readCompactInt( context );
+        long recency = PersisterHelper.readCompactLong( context );
+
+        if ( object == null ) {
+            object = readFactObject( context );
+        }
         
         WorkingMemoryEntryPoint entryPoint = null;
         if(context.readBoolean()){
@@ -404,6 +453,89 @@ public class InputMarshaller {
         return handle;
     }
 
+    private static Object readFactObject(MarshallerReaderContext context) throws IOException,
+                                                                          ClassNotFoundException {
+        int strategyIndex = PersisterHelper.readCompactInt( context );
+        ObjectMarshallingStrategy strategy = context.resolverStrategyFactory.getStrategy( strategyIndex );
+        return strategy.read( context.stream );
+    }
+
+    /**
+     * Reads the chunks of fact objects written by a parallel snapshot, each
+     * one with its own stream. When the context has an object decoder, the
+     * chunks are decoded in parallel on its threads.
+     */
+    private static Object[] readFactObjects(final MarshallerReaderContext context) throws IOException,
+                                                                                  ClassNotFoundException {
+        ObjectInputStream stream = context.stream;
+        int size = PersisterHelper.readVarInt( stream );
+        List<Future<Object[]>> chunks = new ArrayList<Future<Object[]>>();
+        for ( int count = PersisterHelper.readVarInt( stream ); count > 0; count-- ) {
+            final byte[] bytes = new byte[stream.readInt()];
+            stream.readFully( bytes );
+
+            Callable<Object[]> chunk = new Callable<Object[]>() {
+                public Object[] call() throws Exception {
+                    return readFactObjects( context,
+                                            bytes );
+                }
+            };
+            if ( context.objectDecoder != null ) {
+                chunks.add( context.objectDecoder.submit( chunk ) );
+            } else {
+                FutureTask<Object[]> task = new FutureTask<Object[]>( chunk );
+                task.run();
+                chunks.add( task );
+            }
+        }
+
+        Object[] objects = new Object[size];
+        int position = 0;
+        for ( Future<Object[]> chunk : chunks ) {
+            Object[] chunkObjects;
+            try {
+                chunkObjects = chunk.get();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while decoding the fact objects" );
+            } catch ( ExecutionException e ) {
+                if ( e.getCause() instanceof IOException ) {
+                    throw (IOException) e.getCause();
+                } else if ( e.getCause() instanceof ClassNotFoundException ) {
+                    throw (ClassNotFoundException) e.getCause();
+                }
+                throw new RuntimeException( "Unable to decode the fact objects",
+                                            e.getCause() );
+            }
+            System.arraycopy( chunkObjects,
+                              0,
+                              objects,
+                              position,
+                              chunkObjects.length );
+            position += chunkObjects.length;
+        }
+        return objects;
+    }
+
+    private static Object[] readFactObjects(MarshallerReaderContext context,
+                                            byte[] bytes) throws IOException,
+                                                         ClassNotFoundException {
+        MarshallerReaderContext chunkContext = new MarshallerReaderContext( new ByteArrayInputStream( bytes ),
+                                                                            context.ruleBase,
+                                                                            context.sinks,
+                                                                            context.resolverStrategyFactory,
+                                                                            context.marshalProcessInstances,
+                                                                            context.marshalWorkItems,
+                                                                            context.env );
+        chunkContext.wm = context.wm;
+        Object[] objects = new Object[PersisterHelper.readVarInt( chunkContext )];
+        for ( int i = 0; i < objects.length; i++ ) {
+            objects[i] = readFactObject( chunkContext );
+        }
+        chunkContext.close();
+        return objects;
+    }
+
     public static void readRightTuples(InternalFactHandle factHandle,
                                        MarshallerReaderContext context) throws IOException {
         ObjectInputStream stream = context.stream;
@@ -417,7 +549,7 @@ public class InputMarshaller {
                                       InternalFactHandle factHandle) throws IOException {
         ObjectInputStream stream = context.stream;
 
-        int sinkId = stream.readInt();
+        int sinkId = PersisterHelper.readCompactInt( context );
         RightTupleSink sink = (sinkId >= 0) ? (RightTupleSink) context.sinks.get( sinkId ) : null;
 
         RightTuple rightTuple = new RightTuple( factHandle,
@@ -447,9 +579,9 @@ public class InputMarshaller {
         ObjectInputStream stream = context.stream;
 
         while ( stream.readShort() == PersisterEnums.LEFT_TUPLE ) {
-            int nodeId = stream.readInt();
+            int nodeId = PersisterHelper.readCompactInt( context );
             LeftTupleSink sink = (LeftTupleSink) context.sinks.get( nodeId );
-            int factHandleId = stream.readInt();
+            int factHandleId = PersisterHelper.readCompactInt( context );
             LeftTuple leftTuple = new LeftTuple( context.handles.get( factHandleId ),
                                                  sink,
                                                  true );
@@ -472,8 +604,8 @@ public class InputMarshaller {
                 memory.getLeftTupleMemory().add( parentLeftTuple );
 
                 while ( stream.readShort() == PersisterEnums.RIGHT_TUPLE ) {
-                    LeftTupleSink childSink = (LeftTupleSink) sinks.get( stream.readInt() );
-                    int factHandleId = stream.readInt();
+                    LeftTupleSink childSink = (LeftTupleSink) sinks.get( PersisterHelper.readCompactInt( context ) );
+                    int factHandleId = PersisterHelper.readCompactInt( context );
                     RightTupleKey key = new RightTupleKey( factHandleId,
                                                            sink );
                     RightTuple rightTuple = context.rightTuples.get( key );
@@ -489,7 +621,7 @@ public class InputMarshaller {
             }
             case NodeTypeEnums.EvalConditionNode : {
                 while ( stream.readShort() == PersisterEnums.LEFT_TUPLE ) {
-                    LeftTupleSink childSink = (LeftTupleSink) sinks.get( stream.readInt() );
+                    LeftTupleSink childSink = (LeftTupleSink) sinks.get( PersisterHelper.readCompactInt( context ) );
                     LeftTuple childLeftTuple = new LeftTuple( parentLeftTuple,
                                                               childSink,
                                                               true );
@@ -506,7 +638,7 @@ public class InputMarshaller {
                     memory.getLeftTupleMemory().add( parentLeftTuple );
 
                     while ( stream.readShort() == PersisterEnums.LEFT_TUPLE ) {
-                        LeftTupleSink childSink = (LeftTupleSink) sinks.get( stream.readInt() );
+                        LeftTupleSink childSink = (LeftTupleSink) sinks.get( PersisterHelper.readCompactInt( context ) );
                         LeftTuple childLeftTuple = new LeftTuple( parentLeftTuple,
                                                                   childSink,
                                                                   true );
@@ -515,7 +647,7 @@ public class InputMarshaller {
                     }
 
                 } else {
-                    int factHandleId = stream.readInt();
+                    int factHandleId = PersisterHelper.readCompactInt( context );
                     RightTupleKey key = new RightTupleKey( factHandleId,
                                                            sink );
                     RightTuple rightTuple = context.rightTuples.get( key );
@@ -531,7 +663,7 @@ public class InputMarshaller {
                 if ( type == PersisterEnums.LEFT_TUPLE_NOT_BLOCKED ) {
                     memory.getLeftTupleMemory().add( parentLeftTuple );
                 } else {
-                    int factHandleId = stream.readInt();
+                    int factHandleId = PersisterHelper.readCompactInt( context );
                     RightTupleKey key = new RightTupleKey( factHandleId,
                                                            sink );
                     RightTuple rightTuple = context.rightTuples.get( key );
@@ -540,7 +672,7 @@ public class InputMarshaller {
                     rightTuple.addBlocked( parentLeftTuple );
 
                     while ( stream.readShort() == PersisterEnums.LEFT_TUPLE ) {
-                        LeftTupleSink childSink = (LeftTupleSink) sinks.get( stream.readInt() );
+                        LeftTupleSink childSink = (LeftTupleSink) sinks.get( PersisterHelper.readCompactInt( context ) );
                         LeftTuple childLeftTuple = new LeftTuple( parentLeftTuple,
                                                                   childSink,
                                                                   true );
@@ -574,7 +706,7 @@ public class InputMarshaller {
                 while ( (head = stream.readShort()) != PersisterEnums.END ) {
                     switch ( head ) {
                         case PersisterEnums.RIGHT_TUPLE : {
-                            int factHandleId = stream.readInt();
+                            int factHandleId = PersisterHelper.readCompactInt( context );
                             RightTupleKey key = new RightTupleKey( factHandleId,
                                                                    sink );
                             RightTuple rightTuple = context.rightTuples.get( key );
@@ -586,7 +718,7 @@ public class InputMarshaller {
                             break;
                         }
                         case PersisterEnums.LEFT_TUPLE : {
-                            LeftTupleSink childSink = (LeftTupleSink) sinks.get( stream.readInt() );
+                            LeftTupleSink childSink = (LeftTupleSink) sinks.get( PersisterHelper.readCompactInt( context ) );
                             LeftTuple childLeftTuple = new LeftTuple( parentLeftTuple,
                                                                       accctx.result,
                                                                       childSink,
@@ -606,8 +738,8 @@ public class InputMarshaller {
                 // RIANs generate new fact handles on-demand to wrap tuples and need special procedures when de-serializing from persistent storage
                 ObjectHashMap memory = (ObjectHashMap) context.wm.getNodeMemory( (NodeMemory) sink );
                 // create fact handle
-                int id = stream.readInt();
-                long recency = stream.readLong();
+                int id = PersisterHelper.readCompactInt( context );
+                long recency = PersisterHelper.readCompactLong( context );
                 InternalFactHandle handle = new DefaultFactHandle( id,
                                                                    parentLeftTuple,
                                                                    recency,
@@ -638,8 +770,8 @@ public class InputMarshaller {
                     matches.put( handle.getObject(), handle.getFirstRightTuple() );
                 }
                 while( stream.readShort() == PersisterEnums.RIGHT_TUPLE ) {
-                    LeftTupleSink childSink = (LeftTupleSink) sinks.get( stream.readInt() );
-                    int factHandleId = stream.readInt();
+                    LeftTupleSink childSink = (LeftTupleSink) sinks.get( PersisterHelper.readCompactInt( context ) );
+                    int factHandleId = PersisterHelper.readCompactInt( context );
                     RightTupleKey key = new RightTupleKey( factHandleId,
                                                            null ); // created tuples in from node always use null sink
                     RightTuple rightTuple = context.rightTuples.get( key );
@@ -677,7 +809,7 @@ public class InputMarshaller {
 
         long activationNumber = stream.readLong();
 
-        int pos = stream.readInt();
+        int pos = PersisterHelper.readCompactInt( context );
         LeftTuple leftTuple = context.terminalTupleMap.get( pos );
 
         int salience = stream.readInt();
@@ -731,7 +863,7 @@ public class InputMarshaller {
 
         TruthMaintenanceSystem tms = context.wm.getTruthMaintenanceSystem();
         while ( stream.readShort() == PersisterEnums.LOGICAL_DEPENDENCY ) {
-            int factHandleId = stream.readInt();
+            int factHandleId = PersisterHelper.readCompactInt( context );
             InternalFactHandle handle = (InternalFactHandle) context.handles.get( factHandleId );
             tms.addLogicalDependency( handle,
                                       activation,
@@ -767,13 +899,13 @@ public class InputMarshaller {
 
         LeftTuple leftTuple = null;
         if ( stream.readBoolean() ) {
-            int tuplePos = stream.readInt();
+            int tuplePos = PersisterHelper.readCompactInt( context );
             leftTuple = (LeftTuple) context.terminalTupleMap.get( tuplePos );
         }
 
         long propagationNumber = stream.readLong();
 
-        int factHandleId = stream.readInt();
+        int factHandleId = PersisterHelper.readCompactInt( context );
         InternalFactHandle factHandle = context.handles.get( factHandleId );
 
         int activeActivations = stream.readInt();
@@ -20,13 +20,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.drools.common.BaseNode;
 import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
+import org.drools.marshalling.impl.DeclaredTypeMarshallingStrategy.ClassLayout;
 import org.drools.marshalling.ObjectMarshallingStrategy;
 import org.drools.reteoo.LeftTuple;
 import org.drools.reteoo.RightTuple;
@@ -47,6 +51,10 @@ public class MarshallerReaderContext extends ObjectInputStream {
 
     public final Map<RightTupleKey, RightTuple>     rightTuples;
     public final Map<Integer, LeftTuple>            terminalTupleMap;
+    public final List<ClassLayout>                  classLayouts;
+
+    /** The declared objects read from the stream, in the order they were written */
+    public final List<Object>                       declaredObjects;
 
     public final ObjectMarshallingStrategyStore resolverStrategyFactory;
     public final Map<String, EntryPoint>            entryPoints;
@@ -56,6 +64,15 @@ public class MarshallerReaderContext extends ObjectInputStream {
     public final boolean                            marshalProcessInstances;
     public final boolean                            marshalWorkItems;
     public final Environment                        env;
+
+    /** The format version of the session, read from its header */
+    public int                                      formatVersion = PersisterHelper.FORMAT_VERSION;
+
+    /** When set, the chunks of fact objects of a snapshot are decoded in parallel on its threads */
+    public ExecutorService                          objectDecoder;
+
+    private Object[]                                factObjects;
+
     public MarshallerReaderContext(InputStream stream,
                                    InternalRuleBase ruleBase,
                                    Map<Integer, BaseNode> sinks,
@@ -82,6 +99,8 @@ public class MarshallerReaderContext extends ObjectInputStream {
         this.handles = new HashMap<Integer, InternalFactHandle>();
         this.rightTuples = new HashMap<RightTupleKey, RightTuple>();
         this.terminalTupleMap = new HashMap<Integer, LeftTuple>();
+        this.classLayouts = new ArrayList<ClassLayout>();
+        this.declaredObjects = new ArrayList<Object>();
         this.entryPoints = new HashMap<String, EntryPoint>();
         this.propagationContexts = new HashMap<Long, PropagationContext>();
         if(resolverStrategyFactory == null){
@@ -95,6 +114,23 @@ public class MarshallerReaderContext extends ObjectInputStream {
         this.env = env;
     }
     
+    /**
+     * From now on, resolves the references written in place of the fact
+     * objects that were decoded apart from this stream.
+     */
+    public void resolveFactObjects(Object[] factObjects) {
+        this.factObjects = factObjects;
+        enableResolveObject( true );
+    }
+
+    @Override
+    protected Object resolveObject(Object object) throws IOException {
+        if ( object instanceof FactObjectReference ) {
+            return this.factObjects[((FactObjectReference) object).getIndex()];
+        }
+        return object;
+    }
+
     @Override
     protected Class< ? > resolveClass(ObjectStreamClass desc) throws IOException,
                                                              ClassNotFoundException {
@@ -20,12 +20,15 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.drools.common.BaseNode;
 import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
+import org.drools.marshalling.impl.DeclaredTypeMarshallingStrategy.ClassLayout;
 import org.drools.marshalling.ObjectMarshallingStrategy;
 import org.drools.reteoo.LeftTuple;
 import org.drools.runtime.Environment;
@@ -43,6 +46,16 @@ public class MarshallerWriteContext extends ObjectOutputStream {
 
     public final Map<LeftTuple, Integer>        terminalTupleMap;
 
+    public final Map<Class< ? >, ClassLayout>   classLayouts;
+
+    /** The declared objects written to the stream, by their index */
+    public final Map<Object, Integer>           declaredObjects;
+
+    /** When set, the fact objects are encoded in parallel on its threads */
+    public ExecutorService                      objectEncoder;
+
+    private Map<Object, Integer>                factObjects;
+
     public final boolean                        marshalProcessInstances;
     public final boolean                        marshalWorkItems;
     public final Environment                    env;
@@ -84,14 +97,35 @@ public class MarshallerWriteContext extends ObjectOutputStream {
         }
 
         this.terminalTupleMap = new IdentityHashMap<LeftTuple, Integer>();
+        this.classLayouts = new HashMap<Class< ? >, ClassLayout>();
+        this.declaredObjects = new IdentityHashMap<Object, Integer>();
 
         this.marshalProcessInstances = marshalProcessInstances;
         this.marshalWorkItems = marshalWorkItems;
         this.env = env;
         
     }
-    
-     
-    
-    
+
+    /**
+     * From now on, writes a reference in place of each of the given fact
+     * objects, which were already encoded apart from this stream.
+     */
+    public void replaceFactObjects(Map<Object, Integer> factObjects) {
+        this.factObjects = factObjects;
+        enableReplaceObject( true );
+    }
+
+    /**
+     * Tells whether the object is one of the fact objects encoded apart from
+     * this stream, that are written as references.
+     */
+    public boolean isReplacedFactObject(Object object) {
+        return this.factObjects != null && this.factObjects.containsKey( object );
+    }
+
+    @Override
+    protected Object replaceObject(Object object) throws IOException {
+        Integer index = this.factObjects.get( object );
+        return (index != null) ? new FactObjectReference( index ) : object;
+    }
 }
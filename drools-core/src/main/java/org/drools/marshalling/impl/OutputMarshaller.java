@@ -16,17 +16,32 @@
 
 package org.drools.marshalling.impl;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.drools.InitialFact;
 import org.drools.base.ClassObjectType;
@@ -67,6 +82,22 @@ import org.drools.spi.RuleFlowGroup;
 
 public class OutputMarshaller {
 
+    /** The number of fact objects encoded by each task, when they are encoded in parallel */
+    private static final int OBJECT_CHUNK_SIZE = 4096;
+
+    /** The immutable types whose instances are encoded as values */
+    private static final Set<Class< ? >> VALUE_TYPES = new HashSet<Class< ? >>( Arrays.<Class< ? >> asList( String.class,
+                                                                                                           Boolean.class,
+                                                                                                           Character.class,
+                                                                                                           Byte.class,
+                                                                                                           Short.class,
+                                                                                                           Integer.class,
+                                                                                                           Long.class,
+                                                                                                           Float.class,
+                                                                                                           Double.class,
+                                                                                                           BigInteger.class,
+                                                                                                           BigDecimal.class ) );
+
     private static ProcessMarshaller processMarshaller = createProcessMarshaller();
 
     private static ProcessMarshaller createProcessMarshaller() {
@@ -80,6 +111,8 @@ public class OutputMarshaller {
     public static void writeSession(MarshallerWriteContext context) throws IOException {
         ReteooWorkingMemory wm = (ReteooWorkingMemory) context.wm;
         
+        context.writeByte( PersisterHelper.FORMAT_VERSION );
+
         final boolean multithread = wm.isPartitionManagersActive();
         // is multi-thread active?
         if( multithread ) {
@@ -225,12 +258,14 @@ public class OutputMarshaller {
             stream.writeShort( PersisterEnums.EQUALITY_KEY );
             stream.writeInt( key.getStatus() );
             InternalFactHandle handle = key.getFactHandle();
-            stream.writeInt( handle.getId() );
+            PersisterHelper.writeVarInt( stream,
+                                         handle.getId() );
             //context.out.println( "EqualityKey int:" + key.getStatus() + " int:" + handle.getId() );
             if ( key.getOtherFactHandle() != null && !key.getOtherFactHandle().isEmpty() ) {
                 for ( InternalFactHandle handle2 : key.getOtherFactHandle() ) {
                     stream.writeShort( PersisterEnums.FACT_HANDLE );
-                    stream.writeInt( handle2.getId() );
+                    PersisterHelper.writeVarInt( stream,
+                                                 handle2.getId() );
                     //context.out.println( "OtherHandle int:" + handle2.getId() );
                 }
             }
@@ -257,16 +292,41 @@ public class OutputMarshaller {
 
         writeInitialFactHandleRightTuples( context );
 
-        stream.writeInt( wm.getObjectStore().size() );
+        InternalFactHandle[] handles = orderFacts( wm.getObjectStore() );
+        stream.writeInt( handles.length );
+
+        // with an encoder, the fact objects that can not share any object with the rest of the session
+        // are encoded in parallel and written ahead of their handles, the others are written with them
+        final boolean encoded = context.objectEncoder != null;
+        stream.writeBoolean( encoded );
+        Map<Object, Integer> factObjects = null;
+        if ( encoded ) {
+            factObjects = writeFactObjects( context,
+                                            handles );
+            // the references to these objects are written as such, to restore them with the same instances
+            context.replaceFactObjects( factObjects );
+        }
 
         // Write out FactHandles
-        for ( InternalFactHandle handle : orderFacts( wm.getObjectStore() ) ) {
+        int next = 0;
+        for ( InternalFactHandle handle : handles ) {
             //stream.writeShort( PersisterEnums.FACT_HANDLE );
             //InternalFactHandle handle = (InternalFactHandle) it.next();
+            boolean writeObject = true;
+            if ( encoded ) {
+                // the objects were encoded in the order of their first handle, any other handle refers to them
+                Integer index = factObjects.get( handle.getObject() );
+                writeObject = index == null || index.intValue() != next;
+                if ( !writeObject ) {
+                    next++;
+                }
+                stream.writeBoolean( writeObject );
+            }
             writeFactHandle( context,
                              stream,
                              objectMarshallingStrategyStore,
-                             handle );
+                             handle,
+                             writeObject );
 
             writeRightTuples( handle,
                               context );
@@ -285,22 +345,31 @@ public class OutputMarshaller {
                                         ObjectOutputStream stream,
                                         ObjectMarshallingStrategyStore objectMarshallingStrategyStore,
                                         InternalFactHandle handle) throws IOException {
-        stream.writeInt( handle.getId() );
-        stream.writeLong( handle.getRecency() );
+        writeFactHandle( context,
+                         stream,
+                         objectMarshallingStrategyStore,
+                         handle,
+                         true );
+    }
+
+    private static void writeFactHandle(MarshallerWriteContext context,
+                                        ObjectOutputStream stream,
+                                        ObjectMarshallingStrategyStore objectMarshallingStrategyStore,
+                                        InternalFactHandle handle,
+                                        boolean writeObject) throws IOException {
+        PersisterHelper.writeVarInt( stream,
+                                     handle.getId() );
+        PersisterHelper.writeVarLong( stream,
+                                      handle.getRecency() );
 
         //context.out.println( "Object : int:" + handle.getId() + " long:" + handle.getRecency() );
         //context.out.println( handle.getObject() );
 
-        Object object = handle.getObject();
-
-        int index = objectMarshallingStrategyStore.getStrategy( object );
-        
-        ObjectMarshallingStrategy strategy = objectMarshallingStrategyStore.getStrategy( index );
-
-        stream.writeInt( index );
-
-        strategy.write( stream,
-                        object );
+        if ( writeObject ) {
+            writeFactObject( stream,
+                             objectMarshallingStrategyStore,
+                             handle.getObject() );
+        }
         if( handle.getEntryPoint() instanceof InternalWorkingMemoryEntryPoint ){
             String entryPoint = ((InternalWorkingMemoryEntryPoint)handle.getEntryPoint()).getEntryPoint().getEntryPointId();
             if(entryPoint!=null && !entryPoint.equals("")){
@@ -316,6 +385,129 @@ public class OutputMarshaller {
 
     }
 
+    private static void writeFactObject(ObjectOutputStream stream,
+                                        ObjectMarshallingStrategyStore objectMarshallingStrategyStore,
+                                        Object object) throws IOException {
+        int index = objectMarshallingStrategyStore.getStrategy( object );
+        
+        ObjectMarshallingStrategy strategy = objectMarshallingStrategyStore.getStrategy( index );
+
+        PersisterHelper.writeVarInt( stream,
+                                     index );
+
+        strategy.write( stream,
+                        object );
+    }
+
+    /**
+     * Encodes the objects of the handles that are self contained in chunks,
+     * each one with its own stream on a thread of the context's encoder, and
+     * writes the chunks in the order of the handles. Returns the index of
+     * each of these objects.
+     */
+    private static Map<Object, Integer> writeFactObjects(final MarshallerWriteContext context,
+                                                         final InternalFactHandle[] handles) throws IOException {
+        final Map<Object, Integer> factObjects = new IdentityHashMap<Object, Integer>();
+        final List<Object> objects = new ArrayList<Object>();
+        Map<Class< ? >, Boolean> selfContained = new HashMap<Class< ? >, Boolean>();
+        for ( InternalFactHandle handle : handles ) {
+            Object object = handle.getObject();
+            if ( !factObjects.containsKey( object ) && isSelfContained( object.getClass(),
+                                                                          selfContained ) ) {
+                factObjects.put( object,
+                                 objects.size() );
+                objects.add( object );
+            }
+        }
+
+        final List<Future<byte[]>> chunks = new ArrayList<Future<byte[]>>();
+        for ( int start = 0; start < objects.size(); start += OBJECT_CHUNK_SIZE ) {
+            final int from = start;
+            final int to = Math.min( start + OBJECT_CHUNK_SIZE,
+                                     objects.size() );
+            chunks.add( context.objectEncoder.submit( new Callable<byte[]>() {
+                public byte[] call() throws Exception {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    MarshallerWriteContext chunkContext = new MarshallerWriteContext( bytes,
+                                                                                      context.ruleBase,
+                                                                                      context.wm,
+                                                                                      context.sinks,
+                                                                                      context.objectMarshallingStrategyStore,
+                                                                                      context.marshalProcessInstances,
+                                                                                      context.marshalWorkItems,
+                                                                                      context.env );
+                    PersisterHelper.writeVarInt( chunkContext,
+                                                 to - from );
+                    for ( int i = from; i < to; i++ ) {
+                        writeFactObject( chunkContext,
+                                         chunkContext.objectMarshallingStrategyStore,
+                                         objects.get( i ) );
+                    }
+                    chunkContext.close();
+                    return bytes.toByteArray();
+                }
+            } ) );
+        }
+
+        ObjectOutputStream stream = context.stream;
+        PersisterHelper.writeVarInt( stream,
+                                     objects.size() );
+        PersisterHelper.writeVarInt( stream,
+                                     chunks.size() );
+        for ( Future<byte[]> chunk : chunks ) {
+            byte[] bytes;
+            try {
+                bytes = chunk.get();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while encoding the fact objects" );
+            } catch ( ExecutionException e ) {
+                if ( e.getCause() instanceof IOException ) {
+                    throw (IOException) e.getCause();
+                }
+                throw new RuntimeException( "Unable to encode the fact objects",
+                                            e.getCause() );
+            }
+            stream.writeInt( bytes.length );
+            stream.write( bytes );
+        }
+        return factObjects;
+    }
+
+    /**
+     * Tells whether the instances of the class only hold values, so that
+     * encoding them apart from the rest of the session does not lose any
+     * shared reference.
+     */
+    private static boolean isSelfContained(Class< ? > clazz,
+                                           Map<Class< ? >, Boolean> cache) {
+        Boolean cached = cache.get( clazz );
+        if ( cached != null ) {
+            return cached;
+        }
+        boolean selfContained = !clazz.isArray() && !Externalizable.class.isAssignableFrom( clazz );
+        for ( Class< ? > type = clazz; selfContained && type != null && type != Object.class; type = type.getSuperclass() ) {
+            for ( Method method : type.getDeclaredMethods() ) {
+                if ( method.getName().equals( "writeObject" ) || method.getName().equals( "writeReplace" ) ) {
+                    selfContained = false;
+                }
+            }
+            for ( Field field : type.getDeclaredFields() ) {
+                int modifiers = field.getModifiers();
+                if ( !Modifier.isStatic( modifiers ) && !Modifier.isTransient( modifiers ) && !isValue( field.getType() ) ) {
+                    selfContained = false;
+                }
+            }
+        }
+        cache.put( clazz,
+                   selfContained );
+        return selfContained;
+    }
+
+    private static boolean isValue(Class< ? > type) {
+        return type.isPrimitive() || type.isEnum() || VALUE_TYPES.contains( type );
+    }
+
     public static InternalFactHandle[] orderFacts(ObjectStore objectStore) {
         // this method is just needed for testing purposes, to allow round tripping
         int size = objectStore.size();
@@ -352,7 +544,8 @@ public class OutputMarshaller {
             if ( initialFactMemory != null && !initialFactMemory.isEmpty() ) {
                 //context.out.println( "InitialFactMemory true int:" + initialFactNode.getId() );
                 stream.writeBoolean( true );
-                stream.writeInt( initialFactNode.getId() );
+                PersisterHelper.writeVarInt( stream,
+                                             initialFactNode.getId() );
 
                 //context.out.println( "InitialFact RightTuples" );
                 writeRightTuples( context.wm.getInitialFactHandle(),
@@ -375,7 +568,8 @@ public class OutputMarshaller {
         for ( LeftTuple leftTuple = handle.getFirstLeftTuple(); leftTuple != null; leftTuple = (LeftTuple) leftTuple.getLeftParentNext() ) {
             stream.writeShort( PersisterEnums.LEFT_TUPLE );
 
-            stream.writeInt( leftTuple.getLeftTupleSink().getId() );
+            PersisterHelper.writeVarInt( stream,
+                                         leftTuple.getLeftTupleSink().getId() );
             //context.out.println( "LeftTuple sinkId:" + leftTuple.getLeftTupleSink().getId() );
             writeLeftTuple( leftTuple,
                             context,
@@ -405,7 +599,8 @@ public class OutputMarshaller {
         InternalWorkingMemory wm = context.wm;
         // right tuples created in a "FromNode" have no sink, so we need to handle that appropriatelly
         int id = rightTuple.getRightTupleSink() != null ? rightTuple.getRightTupleSink().getId() : -1;
-        stream.writeInt( id );
+        PersisterHelper.writeVarInt( stream,
+                                     id );
         //context.out.println( "RightTuple sinkId:" + (rightTuple.getRightTupleSink() != null ? rightTuple.getRightTupleSink().getId() : -1) );
     }
 
@@ -421,8 +616,10 @@ public class OutputMarshaller {
             for ( LeftTuple leftTuple = handle.getFirstLeftTuple(); leftTuple != null; leftTuple = (LeftTuple) leftTuple.getLeftParentNext() ) {
                 stream.writeShort( PersisterEnums.LEFT_TUPLE );
 
-                stream.writeInt( leftTuple.getLeftTupleSink().getId() );
-                stream.writeInt( handle.getId() );
+                PersisterHelper.writeVarInt( stream,
+                                             leftTuple.getLeftTupleSink().getId() );
+                PersisterHelper.writeVarInt( stream,
+                                             handle.getId() );
 
                 //context.out.println( "LeftTuple sinkId:" + leftTuple.getLeftTupleSink().getId() + " handleId:" + handle.getId() );
                 writeLeftTuple( leftTuple,
@@ -448,8 +645,10 @@ public class OutputMarshaller {
                 //context.out.println( "JoinNode" );
                 for ( LeftTuple childLeftTuple = leftTuple.firstChild; childLeftTuple != null; childLeftTuple = (LeftTuple) childLeftTuple.getLeftParentNext() ) {
                     stream.writeShort( PersisterEnums.RIGHT_TUPLE );
-                    stream.writeInt( childLeftTuple.getLeftTupleSink().getId() );
-                    stream.writeInt( childLeftTuple.getRightParent().getFactHandle().getId() );
+                    PersisterHelper.writeVarInt( stream,
+                                                 childLeftTuple.getLeftTupleSink().getId() );
+                    PersisterHelper.writeVarInt( stream,
+                                                 childLeftTuple.getRightParent().getFactHandle().getId() );
                     //context.out.println( "RightTuple int:" + childLeftTuple.getLeftTupleSink().getId() + " int:" + childLeftTuple.getRightParent().getFactHandle().getId() );
                     writeLeftTuple( childLeftTuple,
                                     context,
@@ -463,7 +662,8 @@ public class OutputMarshaller {
                 //context.out.println( ".... EvalConditionNode" );
                 for ( LeftTuple childLeftTuple = leftTuple.firstChild; childLeftTuple != null; childLeftTuple = (LeftTuple) childLeftTuple.getLeftParentNext() ) {
                     stream.writeShort( PersisterEnums.LEFT_TUPLE );
-                    stream.writeInt( childLeftTuple.getLeftTupleSink().getId() );
+                    PersisterHelper.writeVarInt( stream,
+                                                 childLeftTuple.getLeftTupleSink().getId() );
                     writeLeftTuple( childLeftTuple,
                                     context,
                                     recurse );
@@ -480,7 +680,8 @@ public class OutputMarshaller {
 
                     for ( LeftTuple childLeftTuple = leftTuple.firstChild; childLeftTuple != null; childLeftTuple = (LeftTuple) childLeftTuple.getLeftParentNext() ) {
                         stream.writeShort( PersisterEnums.LEFT_TUPLE );
-                        stream.writeInt( childLeftTuple.getLeftTupleSink().getId() );
+                        PersisterHelper.writeVarInt( stream,
+                                                     childLeftTuple.getLeftTupleSink().getId() );
                         writeLeftTuple( childLeftTuple,
                                         context,
                                         recurse );
@@ -489,7 +690,8 @@ public class OutputMarshaller {
 
                 } else {
                     stream.writeShort( PersisterEnums.LEFT_TUPLE_BLOCKED );
-                    stream.writeInt( leftTuple.getBlocker().getFactHandle().getId() );
+                    PersisterHelper.writeVarInt( stream,
+                                                 leftTuple.getBlocker().getFactHandle().getId() );
                 }
                 break;
             }
@@ -499,11 +701,13 @@ public class OutputMarshaller {
                     stream.writeShort( PersisterEnums.LEFT_TUPLE_NOT_BLOCKED );
                 } else {
                     stream.writeShort( PersisterEnums.LEFT_TUPLE_BLOCKED );
-                    stream.writeInt( leftTuple.getBlocker().getFactHandle().getId() );
+                    PersisterHelper.writeVarInt( stream,
+                                                 leftTuple.getBlocker().getFactHandle().getId() );
 
                     for ( LeftTuple childLeftTuple = leftTuple.firstChild; childLeftTuple != null; childLeftTuple = (LeftTuple) childLeftTuple.getLeftParentNext() ) {
                         stream.writeShort( PersisterEnums.LEFT_TUPLE );
-                        stream.writeInt( childLeftTuple.getLeftTupleSink().getId() );
+                        PersisterHelper.writeVarInt( stream,
+                                                     childLeftTuple.getLeftTupleSink().getId() );
                         writeLeftTuple( childLeftTuple,
                                         context,
                                         recurse );
@@ -533,12 +737,14 @@ public class OutputMarshaller {
                         // this is a matching record, so, associate the right tuples
                         //context.out.println( "RightTuple(match) int:" + childLeftTuple.getLeftTupleSink().getId() + " int:" + childLeftTuple.getRightParent().getFactHandle().getId() );
                         stream.writeShort( PersisterEnums.RIGHT_TUPLE );
-                        stream.writeInt( childLeftTuple.getRightParent().getFactHandle().getId() );
+                        PersisterHelper.writeVarInt( stream,
+                                                     childLeftTuple.getRightParent().getFactHandle().getId() );
                     } else {
                         // this is a propagation record
                         //context.out.println( "RightTuple(propagation) int:" + childLeftTuple.getLeftTupleSink().getId() + " int:" + childLeftTuple.getRightParent().getFactHandle().getId() );
                         stream.writeShort( PersisterEnums.LEFT_TUPLE );
-                        stream.writeInt( childLeftTuple.getLeftTupleSink().getId() );
+                        PersisterHelper.writeVarInt( stream,
+                                                     childLeftTuple.getLeftTupleSink().getId() );
                         writeLeftTuple( childLeftTuple,
                                         context,
                                         recurse );
@@ -555,8 +761,10 @@ public class OutputMarshaller {
                 InternalFactHandle ifh = (InternalFactHandle) memory.get( leftTuple );
                 // first we serialize the generated fact handle ID
                 //context.out.println( "FactHandle id:"+ifh.getId() );
-                stream.writeInt( ifh.getId() );
-                stream.writeLong( ifh.getRecency() );
+                PersisterHelper.writeVarInt( stream,
+                                             ifh.getId() );
+                PersisterHelper.writeVarLong( stream,
+                                              ifh.getRecency() );
                 
                 writeRightTuples( ifh, context );
 
@@ -583,8 +791,10 @@ public class OutputMarshaller {
               stream.writeShort( PersisterEnums.END );
               for ( LeftTuple childLeftTuple = leftTuple.firstChild; childLeftTuple != null; childLeftTuple = (LeftTuple) childLeftTuple.getLeftParentNext() ) {
                   stream.writeShort( PersisterEnums.RIGHT_TUPLE );
-                  stream.writeInt( childLeftTuple.getLeftTupleSink().getId() );
-                  stream.writeInt( childLeftTuple.getRightParent().getFactHandle().getId() );
+                  PersisterHelper.writeVarInt( stream,
+                                               childLeftTuple.getLeftTupleSink().getId() );
+                  PersisterHelper.writeVarInt( stream,
+                                               childLeftTuple.getRightParent().getFactHandle().getId() );
                   //context.out.println( "RightTuple int:" + childLeftTuple.getLeftTupleSink().getId() + " int:" + childLeftTuple.getRightParent().getFactHandle().getId() );
                   writeLeftTuple( childLeftTuple,
                                   context,
@@ -645,7 +855,8 @@ public class OutputMarshaller {
 
         stream.writeLong( agendaItem.getActivationNumber() );
 
-        stream.writeInt( context.terminalTupleMap.get( leftTuple ) );
+        PersisterHelper.writeVarInt( stream,
+                                     context.terminalTupleMap.get( leftTuple ) );
 
         stream.writeInt( agendaItem.getSalience() );
 
@@ -675,7 +886,8 @@ public class OutputMarshaller {
         if ( list != null && !list.isEmpty() ) {
             for ( LogicalDependency node = (LogicalDependency) list.getFirst(); node != null; node = (LogicalDependency) node.getNext() ) {
                 stream.writeShort( PersisterEnums.LOGICAL_DEPENDENCY );
-                stream.writeInt( ((InternalFactHandle) node.getFactHandle()).getId() );
+                PersisterHelper.writeVarInt( stream,
+                                             ((InternalFactHandle) node.getFactHandle()).getId() );
                 //context.out.println( "Logical Depenency : int " + ((InternalFactHandle) node.getFactHandle()).getId() );
             }
         }
@@ -728,16 +940,19 @@ public class OutputMarshaller {
         LeftTuple tupleOrigin = pc.getLeftTupleOrigin();
         if ( tupleOrigin != null && tuples.containsKey( tupleOrigin )) {
             stream.writeBoolean( true );
-            stream.writeInt( tuples.get( tupleOrigin ) );
+            PersisterHelper.writeVarInt( stream,
+                                         tuples.get( tupleOrigin ) );
         } else {
             stream.writeBoolean( false );
         }
 
         stream.writeLong( pc.getPropagationNumber() );
         if ( pc.getFactHandleOrigin() != null ) {
-            stream.writeInt( ((InternalFactHandle)pc.getFactHandleOrigin()).getId() );
+            PersisterHelper.writeVarInt( stream,
+                                         ((InternalFactHandle)pc.getFactHandleOrigin()).getId() );
         } else {
-            stream.writeInt( -1 );
+            PersisterHelper.writeVarInt( stream,
+                                         -1 );
         }
 
         stream.writeInt( pc.getActiveActivations() );
@@ -16,7 +16,10 @@
 
 package org.drools.marshalling.impl;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.io.StreamCorruptedException;
 
 import org.drools.common.WorkingMemoryAction;
 import org.drools.common.RuleFlowGroupImpl.DeactivateCallback;
@@ -26,6 +29,16 @@ import org.drools.reteoo.ReteooWorkingMemory.WorkingMemoryReteAssertAction;
 import org.drools.reteoo.ReteooWorkingMemory.WorkingMemoryReteExpireAction;
 
 public class PersisterHelper {
+    /**
+     * The version of the session format, written ahead of the session. The
+     * sessions written before there was a version start with a boolean, so
+     * they read as version 0 or 1, and are read in the legacy format.
+     */
+    public static final int FORMAT_VERSION        = 2;
+
+    /** The format of the sessions written with fixed length ids */
+    public static final int LEGACY_FORMAT_VERSION = 1;
+
     public static WorkingMemoryAction readWorkingMemoryAction(MarshallerReaderContext context) throws IOException, ClassNotFoundException {
         int type = context.readInt();
         switch(type) {
@@ -51,4 +64,66 @@ public class PersisterHelper {
     public void write(MarshallerWriteContext context) throws IOException {
         
     }
+
+    /**
+     * Writes the int 7 bits at a time, so the fact handle and node ids, that
+     * are small and non negative, take 1 or 2 bytes instead of 4.
+     */
+    public static void writeVarInt(DataOutput stream,
+                                   int value) throws IOException {
+        while ( (value & ~0x7F) != 0 ) {
+            stream.writeByte( (value & 0x7F) | 0x80 );
+            value >>>= 7;
+        }
+        stream.writeByte( value );
+    }
+
+    public static int readVarInt(DataInput stream) throws IOException {
+        int value = 0;
+        for ( int shift = 0; shift < 32; shift += 7 ) {
+            final byte b = stream.readByte();
+            value |= (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException( "Malformed variable length int" );
+    }
+
+    public static void writeVarLong(DataOutput stream,
+                                    long value) throws IOException {
+        while ( (value & ~0x7FL) != 0 ) {
+            stream.writeByte( ((int) value & 0x7F) | 0x80 );
+            value >>>= 7;
+        }
+        stream.writeByte( (int) value );
+    }
+
+    public static long readVarLong(DataInput stream) throws IOException {
+        long value = 0;
+        for ( int shift = 0; shift < 64; shift += 7 ) {
+            final byte b = stream.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException( "Malformed variable length long" );
+    }
+
+    /**
+     * Reads an id written with writeVarInt, or with writeInt by a session of
+     * the legacy format.
+     */
+    public static int readCompactInt(MarshallerReaderContext context) throws IOException {
+        return (context.formatVersion < FORMAT_VERSION) ? context.readInt() : readVarInt( context );
+    }
+
+    /**
+     * Reads a long written with writeVarLong, or with writeLong by a session
+     * of the legacy format.
+     */
+    public static long readCompactLong(MarshallerReaderContext context) throws IOException {
+        return (context.formatVersion < FORMAT_VERSION) ? context.readLong() : readVarLong( context );
+    }
 }
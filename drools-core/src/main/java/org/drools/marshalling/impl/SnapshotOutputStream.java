@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.marshalling.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An <code>OutputStream</code> that keeps a session snapshot in memory, in
+ * fixed size blocks, so that growing it never copies what was already
+ * written, until it is written to a channel once the session was released.
+ */
+public class SnapshotOutputStream extends OutputStream {
+
+    private static final int   BLOCK_SIZE = 64 * 1024;
+
+    private final List<byte[]> blocks;
+    private byte[]             block;
+    private int                position;
+
+    public SnapshotOutputStream() {
+        this.blocks = new ArrayList<byte[]>();
+        this.block = new byte[BLOCK_SIZE];
+    }
+
+    public void write(int b) {
+        if ( this.position == this.block.length ) {
+            nextBlock();
+        }
+        this.block[this.position++] = (byte) b;
+    }
+
+    public void write(byte[] bytes,
+                      int offset,
+                      int length) {
+        while ( length > 0 ) {
+            if ( this.position == this.block.length ) {
+                nextBlock();
+            }
+            final int count = Math.min( length,
+                                        this.block.length - this.position );
+            System.arraycopy( bytes,
+                              offset,
+                              this.block,
+                              this.position,
+                              count );
+            this.position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void nextBlock() {
+        this.blocks.add( this.block );
+        this.block = new byte[BLOCK_SIZE];
+        this.position = 0;
+    }
+
+    /**
+     * Returns the number of bytes written so far
+     */
+    public long size() {
+        return (long) this.blocks.size() * BLOCK_SIZE + this.position;
+    }
+
+    /**
+     * Writes all the bytes written so far to the channel.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        for ( byte[] bytes : this.blocks ) {
+            writeFully( channel,
+                        ByteBuffer.wrap( bytes ) );
+        }
+        writeFully( channel,
+                    ByteBuffer.wrap( this.block,
+                                     0,
+                                     this.position ) );
+    }
+
+    private static void writeFully(WritableByteChannel channel,
+                                   ByteBuffer buffer) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+    }
+
+}
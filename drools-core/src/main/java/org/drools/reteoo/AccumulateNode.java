@@ -228,6 +228,9 @@ public class AccumulateNode extends BetaNode {
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
 
         final AccumulateMemory memory = (AccumulateMemory) workingMemory.getNodeMemory( this );
 
@@ -115,21 +115,27 @@ public class AlphaNode extends ObjectSource
         attach();
 
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.RULE_ADDITION,
-                                                                                      null,
-                                                                                      null,
-                                                                                      null );
-            this.source.updateSink( this,
-                                    propagationContext,
-                                    workingMemory );
+            updateNewNode( workingMemories[i] );
         }
     }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.RULE_ADDITION,
+                                                                                  null,
+                                                                                  null,
+                                                                                  null );
+        this.source.updateSink( this,
+                                propagationContext,
+                                workingMemory );
+    }
+
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         final AlphaMemory memory = (AlphaMemory) workingMemory.getNodeMemory( this );
         if ( this.constraint.isAllowed( factHandle,
                                         workingMemory,
@@ -145,6 +151,9 @@ public class AlphaNode extends ObjectSource
                              final ModifyPreviousTuples modifyPreviousTuples,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         final AlphaMemory memory = (AlphaMemory) workingMemory.getNodeMemory( this );
         if ( this.constraint.isAllowed( factHandle,
                                         workingMemory,
@@ -270,20 +270,22 @@ public abstract class BetaNode extends LeftTupleSource
         attach();
 
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.RULE_ADDITION,
-                                                                                      null,
-                                                                                      null,
-                                                                                      null );
-            this.rightInput.updateSink( this,
-                                        propagationContext,
-                                        workingMemory );
-            this.leftInput.updateSink( this,
-                                       propagationContext,
-                                       workingMemory );
+            updateNewNode( workingMemories[i] );
         }
+    }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.RULE_ADDITION,
+                                                                                  null,
+                                                                                  null,
+                                                                                  null );
+        this.rightInput.updateSink( this,
+                                    propagationContext,
+                                    workingMemory );
+        this.leftInput.updateSink( this,
+                                   propagationContext,
+                                   workingMemory );
     }
 
     protected void doRemove(final RuleRemovalContext context,
@@ -365,6 +367,9 @@ public abstract class BetaNode extends LeftTupleSource
                              ModifyPreviousTuples modifyPreviousTuples,
                              PropagationContext context,
                              InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         RightTuple rightTuple = modifyPreviousTuples.removeRightTuple( this );
         if ( rightTuple != null ) {
             rightTuple.reAdd();
@@ -72,6 +72,9 @@ public class CompositeLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter
                                          final boolean leftTupleMemoryEnabled) {
 
         for ( LeftTupleSinkNode sink = this.sinks.getFirst(); sink != null; sink = sink.getNextLeftTupleSinkNode() ) {
+            if ( workingMemory.isNodeUpdateQueued( (BaseNode) sink ) ) {
+                continue;
+            }
             LeftTuple newLeftTuple = new LeftTuple( leftTuple,
                                                     rightTuple,
                                                     currentLeftChild,
@@ -90,6 +93,9 @@ public class CompositeLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter
                                          final InternalWorkingMemory workingMemory,
                                          final boolean leftTupleMemoryEnabled) {
         for ( LeftTupleSinkNode sink = this.sinks.getFirst(); sink != null; sink = sink.getNextLeftTupleSinkNode() ) {
+            if ( workingMemory.isNodeUpdateQueued( (BaseNode) sink ) ) {
+                continue;
+            }
             doPropagateAssertLeftTuple( context,
                                         workingMemory,
                                         sink,
@@ -104,6 +110,9 @@ public class CompositeLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter
                                                   final InternalWorkingMemory workingMemory,
                                                   final boolean leftTupleMemoryEnabled) {
         for ( LeftTupleSinkNode sink = this.sinks.getFirst(); sink != null; sink = sink.getNextLeftTupleSinkNode() ) {
+            if ( workingMemory.isNodeUpdateQueued( (BaseNode) sink ) ) {
+                continue;
+            }
             doPropagateAssertLeftTuple( context,
                                         workingMemory,
                                         sink,
@@ -201,6 +210,9 @@ public class CompositeLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter
                                            InternalWorkingMemory workingMemory,
                                            LeftTuple leftTuple,
                                            LeftTupleSink sink) {
+     if ( workingMemory.isNodeUpdateQueued( (BaseNode) sink ) ) {
+         return;
+     }
      sink.assertLeftTuple( leftTuple, context, workingMemory );
  }
 
@@ -260,6 +272,9 @@ public class CompositeLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter
                                       PropagationContext context,
                                       InternalWorkingMemory workingMemory) {
         for ( LeftTupleSinkNode sink = this.sinks.getFirst(); sink != null; sink = sink.getNextLeftTupleSinkNode() ) {
+            if ( workingMemory.isNodeUpdateQueued( (BaseNode) sink ) ) {
+                continue;
+            }
             doPropagateModifyObject( factHandle,
                                      modifyPreviousTuples,
                                      context,
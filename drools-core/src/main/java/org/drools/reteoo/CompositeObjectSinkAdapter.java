@@ -16,8 +16,12 @@
 
 package org.drools.reteoo;
 
+import org.drools.base.FieldFactory;
 import org.drools.base.ValueType;
+import org.drools.base.evaluators.ComparableEvaluatorsDefinition;
 import org.drools.base.evaluators.Operator;
+import org.drools.base.evaluators.SetEvaluatorsDefinition;
+import org.drools.base.field.LiteralSet;
 import org.drools.common.BaseNode;
 import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalWorkingMemory;
@@ -59,6 +63,18 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
 
     ObjectHashMap             hashedSinkMap;
 
+    // sinks checking that a field is a member of a literal set, see addLiteralSetSink(), until hashed they are kept in otherSinks
+    ObjectSinkNodeList        hashedLiteralSetSinks;
+
+    LinkedList                literalSetFieldIndexes;
+
+    ObjectHashMap             literalSetSinkMap;
+
+    // sinks comparing a numeric field with a literal, see addRangeSink(), until indexed they are kept in otherSinks
+    ObjectSinkNodeList        indexedRangeSinks;
+
+    LinkedList                rangeIndexes;
+
     private int               alphaNodeHashingThreshold;
 
     public CompositeObjectSinkAdapter() {
@@ -80,6 +96,11 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         hashedFieldIndexes = (LinkedList) in.readObject();
         hashedSinkMap = (ObjectHashMap) in.readObject();
         alphaNodeHashingThreshold = in.readInt();
+        hashedLiteralSetSinks = (ObjectSinkNodeList) in.readObject();
+        literalSetFieldIndexes = (LinkedList) in.readObject();
+        literalSetSinkMap = (ObjectHashMap) in.readObject();
+        indexedRangeSinks = (ObjectSinkNodeList) in.readObject();
+        rangeIndexes = (LinkedList) in.readObject();
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
@@ -89,6 +110,11 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         out.writeObject( hashedFieldIndexes );
         out.writeObject( hashedSinkMap );
         out.writeInt( alphaNodeHashingThreshold );
+        out.writeObject( hashedLiteralSetSinks );
+        out.writeObject( literalSetFieldIndexes );
+        out.writeObject( literalSetSinkMap );
+        out.writeObject( indexedRangeSinks );
+        out.writeObject( rangeIndexes );
     }
 
     public ObjectSinkNodeList getOthers() {
@@ -103,6 +129,18 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         return this.hashedSinkMap;
     }
 
+    public ObjectHashMap getLiteralSetSinkMap() {
+        return this.literalSetSinkMap;
+    }
+
+    public ObjectSinkNodeList getHashedLiteralSetSinks() {
+        return this.hashedLiteralSetSinks;
+    }
+
+    public ObjectSinkNodeList getIndexedRangeSinks() {
+        return this.indexedRangeSinks;
+    }
+
     public void addObjectSink(final ObjectSink sink) {
         if ( sink instanceof AlphaNode ) {
             final AlphaNode alphaNode = (AlphaNode) sink;
@@ -137,6 +175,18 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                     }
                     return;
                 }
+
+                if ( isLiteralSetConstraint( literalConstraint ) ) {
+                    addLiteralSetSink( alphaNode,
+                                       literalConstraint );
+                    return;
+                }
+
+                if ( isRangeConstraint( literalConstraint ) ) {
+                    addRangeSink( alphaNode,
+                                  literalConstraint );
+                    return;
+                }
             }
         }
 
@@ -181,6 +231,18 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
 
                     return;
                 }
+
+                if ( isLiteralSetConstraint( literalConstraint ) ) {
+                    removeLiteralSetSink( alphaNode,
+                                          literalConstraint );
+                    return;
+                }
+
+                if ( isRangeConstraint( literalConstraint ) ) {
+                    removeRangeSink( alphaNode,
+                                     literalConstraint );
+                    return;
+                }
             }
         }
 
@@ -271,6 +333,355 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         fieldIndex.setHashed( false );
     }
 
+    /**
+     * A memberOf constraint against a set of literals is true for each of the literals, so once there are enough
+     * of them on the same field, the sink is hashed under each literal in the set, like equality constraints are,
+     * and an object is only propagated to the sinks whose set contains its value. As several sets may contain the
+     * same literal, the map holds an array of sinks for each literal.
+     */
+    private boolean isLiteralSetConstraint(final LiteralConstraint literalConstraint) {
+        if ( literalConstraint.getEvaluator().getOperator() != SetEvaluatorsDefinition.MEMBEROF || !(literalConstraint.getField().getValue() instanceof LiteralSet) ) {
+            return false;
+        }
+        // only types the hash keys compare the same way the literal set does
+        final ValueType vtype = literalConstraint.getFieldExtractor().getValueType();
+        return vtype.isIntegerNumber() || vtype.isFloatNumber() || vtype.isBoolean() || vtype == ValueType.STRING_TYPE;
+    }
+
+    private void addLiteralSetSink(final AlphaNode alphaNode,
+                                   final LiteralConstraint literalConstraint) {
+        final InternalReadAccessor readAccessor = literalConstraint.getFieldExtractor();
+        final int index = readAccessor.getIndex();
+
+        if ( this.literalSetFieldIndexes == null ) {
+            this.literalSetFieldIndexes = new LinkedList();
+        }
+        FieldIndex fieldIndex = findFieldIndex( this.literalSetFieldIndexes,
+                                                index );
+        if ( fieldIndex == null ) {
+            fieldIndex = new FieldIndex( index,
+                                         readAccessor );
+            this.literalSetFieldIndexes.add( fieldIndex );
+        }
+        fieldIndex.increaseCounter();
+
+        if ( fieldIndex.isHashed() ) {
+            hashLiteralSetSink( alphaNode );
+            return;
+        }
+
+        // until the field is hashed the sink is propagated in turn with the other sinks, as it always was
+        if ( this.otherSinks == null ) {
+            this.otherSinks = new ObjectSinkNodeList();
+        }
+        this.otherSinks.add( alphaNode );
+
+        if ( fieldIndex.getCount() >= this.alphaNodeHashingThreshold && this.alphaNodeHashingThreshold != 0 ) {
+            hashLiteralSetSinks( fieldIndex );
+        }
+    }
+
+    private void removeLiteralSetSink(final AlphaNode alphaNode,
+                                      final LiteralConstraint literalConstraint) {
+        final int index = literalConstraint.getFieldExtractor().getIndex();
+        final FieldIndex fieldIndex = findFieldIndex( this.literalSetFieldIndexes,
+                                                      index );
+        fieldIndex.decreaseCounter();
+
+        if ( fieldIndex.isHashed() ) {
+            unhashLiteralSetSink( alphaNode );
+            if ( fieldIndex.getCount() <= this.alphaNodeHashingThreshold - 1 ) {
+                unHashLiteralSetSinks( fieldIndex );
+            }
+        } else {
+            this.otherSinks.remove( alphaNode );
+        }
+
+        if ( fieldIndex.getCount() == 0 ) {
+            this.literalSetFieldIndexes.remove( fieldIndex );
+            if ( this.literalSetFieldIndexes.isEmpty() ) {
+                this.literalSetFieldIndexes = null;
+            }
+        }
+        if ( this.otherSinks != null && this.otherSinks.isEmpty() ) {
+            this.otherSinks = null;
+        }
+        if ( this.hashedLiteralSetSinks != null && this.hashedLiteralSetSinks.isEmpty() ) {
+            this.hashedLiteralSetSinks = null;
+        }
+    }
+
+    /**
+     * Moves the literal set sinks on the field out of the other sinks into the hashed ones. From then on they are
+     * propagated before the hashable and other sinks, rather than in the order they were added.
+     */
+    private void hashLiteralSetSinks(final FieldIndex fieldIndex) {
+        ObjectSinkNode currentSink = this.otherSinks.getFirst();
+        while ( currentSink != null ) {
+            final ObjectSinkNode sink = currentSink;
+            // position to the next sink now, as the sink is moved to the hashed list
+            currentSink = currentSink.getNextObjectSinkNode();
+            if ( isLiteralSetSink( sink,
+                                   fieldIndex.getIndex() ) ) {
+                final AlphaNode alphaNode = (AlphaNode) sink;
+                this.otherSinks.remove( alphaNode );
+                hashLiteralSetSink( alphaNode );
+            }
+        }
+        if ( this.otherSinks.isEmpty() ) {
+            this.otherSinks = null;
+        }
+        fieldIndex.setHashed( true );
+    }
+
+    private boolean isLiteralSetSink(final ObjectSinkNode sink,
+                                     final int index) {
+        if ( !(sink instanceof AlphaNode) || !(((AlphaNode) sink).getConstraint() instanceof LiteralConstraint) ) {
+            return false;
+        }
+        final LiteralConstraint literalConstraint = (LiteralConstraint) ((AlphaNode) sink).getConstraint();
+        return literalConstraint.getFieldExtractor().getIndex() == index && isLiteralSetConstraint( literalConstraint );
+    }
+
+    private void unHashLiteralSetSinks(final FieldIndex fieldIndex) {
+        ObjectSinkNode currentSink = this.hashedLiteralSetSinks.getFirst();
+        while ( currentSink != null ) {
+            final AlphaNode alphaNode = (AlphaNode) currentSink;
+            currentSink = currentSink.getNextObjectSinkNode();
+            if ( fieldIndex.getIndex() == ((LiteralConstraint) alphaNode.getConstraint()).getFieldExtractor().getIndex() ) {
+                unhashLiteralSetSink( alphaNode );
+                if ( this.otherSinks == null ) {
+                    this.otherSinks = new ObjectSinkNodeList();
+                }
+                this.otherSinks.add( alphaNode );
+            }
+        }
+        fieldIndex.setHashed( false );
+    }
+
+    /**
+     * Adds the sink to the hashed list and to the entries of all the literals in its set.
+     */
+    private void hashLiteralSetSink(final AlphaNode alphaNode) {
+        final LiteralConstraint literalConstraint = (LiteralConstraint) alphaNode.getConstraint();
+        final InternalReadAccessor readAccessor = literalConstraint.getFieldExtractor();
+        final int index = readAccessor.getIndex();
+
+        if ( this.hashedLiteralSetSinks == null ) {
+            this.hashedLiteralSetSinks = new ObjectSinkNodeList();
+        }
+        this.hashedLiteralSetSinks.add( alphaNode );
+
+        if ( this.literalSetSinkMap == null ) {
+            this.literalSetSinkMap = new ObjectHashMap();
+        }
+        for ( java.util.Iterator it = ((LiteralSet) literalConstraint.getField().getValue()).iterator(); it.hasNext(); ) {
+            final HashKey hashKey = new HashKey( index,
+                                                 FieldFactory.getFieldValue( it.next() ),
+                                                 readAccessor );
+            final AlphaNode[] sinks = (AlphaNode[]) this.literalSetSinkMap.get( hashKey );
+            if ( sinks == null ) {
+                this.literalSetSinkMap.put( hashKey,
+                                            new AlphaNode[]{alphaNode},
+                                            false );
+            } else {
+                final AlphaNode[] newSinks = new AlphaNode[sinks.length + 1];
+                System.arraycopy( sinks,
+                                  0,
+                                  newSinks,
+                                  0,
+                                  sinks.length );
+                newSinks[sinks.length] = alphaNode;
+                this.literalSetSinkMap.put( hashKey,
+                                            newSinks );
+            }
+        }
+    }
+
+    private void unhashLiteralSetSink(final AlphaNode alphaNode) {
+        final LiteralConstraint literalConstraint = (LiteralConstraint) alphaNode.getConstraint();
+        final InternalReadAccessor readAccessor = literalConstraint.getFieldExtractor();
+        final int index = readAccessor.getIndex();
+
+        this.hashedLiteralSetSinks.remove( alphaNode );
+        for ( java.util.Iterator it = ((LiteralSet) literalConstraint.getField().getValue()).iterator(); it.hasNext(); ) {
+            final HashKey hashKey = new HashKey( index,
+                                                 FieldFactory.getFieldValue( it.next() ),
+                                                 readAccessor );
+            final AlphaNode[] sinks = (AlphaNode[]) this.literalSetSinkMap.get( hashKey );
+            if ( sinks.length == 1 ) {
+                this.literalSetSinkMap.remove( hashKey );
+            } else {
+                final AlphaNode[] newSinks = new AlphaNode[sinks.length - 1];
+                for ( int i = 0, j = 0; i < sinks.length; i++ ) {
+                    if ( sinks[i] != alphaNode ) {
+                        newSinks[j++] = sinks[i];
+                    }
+                }
+                this.literalSetSinkMap.put( hashKey,
+                                            newSinks );
+            }
+        }
+        if ( this.literalSetSinkMap.isEmpty() ) {
+            this.literalSetSinkMap = null;
+        }
+    }
+
+    /**
+     * A comparison of a numeric field with a literal, using <, <=, > or >=, is true for all the values on one
+     * side of the literal. Once there are enough of them on the same field, the sinks are sorted by their literal
+     * in a RangeIndex, and an object is only propagated to the sinks found by a binary search for its value,
+     * instead of each sink testing it in turn.
+     */
+    private boolean isRangeConstraint(final LiteralConstraint literalConstraint) {
+        final org.drools.spi.Evaluator evaluator = literalConstraint.getEvaluator();
+        if ( RangeIndex.getOperatorIndex( evaluator.getOperator() ) == -1 || literalConstraint.getField().isNull() ) {
+            return false;
+        }
+        // only the built in evaluators are known to compare the values as numbers
+        if ( evaluator.getClass().getDeclaringClass() != ComparableEvaluatorsDefinition.class ) {
+            return false;
+        }
+        // and they have to read the values with the same width as the field
+        final int rangeType = RangeIndex.getRangeType( literalConstraint.getFieldExtractor().getValueType() );
+        if ( rangeType == -1 || rangeType != RangeIndex.getRangeType( evaluator.getValueType() ) ) {
+            return false;
+        }
+        return !Double.isNaN( RangeIndex.getDoubleThreshold( rangeType,
+                                                             literalConstraint.getField() ) );
+    }
+
+    private void addRangeSink(final AlphaNode alphaNode,
+                              final LiteralConstraint literalConstraint) {
+        final InternalReadAccessor readAccessor = literalConstraint.getFieldExtractor();
+        final int index = readAccessor.getIndex();
+
+        if ( this.rangeIndexes == null ) {
+            this.rangeIndexes = new LinkedList();
+        }
+        RangeIndex rangeIndex = (RangeIndex) findFieldIndex( this.rangeIndexes,
+                                                             index );
+        if ( rangeIndex == null ) {
+            rangeIndex = new RangeIndex( index,
+                                         readAccessor );
+            this.rangeIndexes.add( rangeIndex );
+        }
+        rangeIndex.increaseCounter();
+
+        if ( rangeIndex.isHashed() ) {
+            rangeIndex.add( alphaNode );
+            if ( this.indexedRangeSinks == null ) {
+                this.indexedRangeSinks = new ObjectSinkNodeList();
+            }
+            this.indexedRangeSinks.add( alphaNode );
+            return;
+        }
+
+        // until the field is indexed the sink is propagated in turn with the other sinks, as it always was
+        if ( this.otherSinks == null ) {
+            this.otherSinks = new ObjectSinkNodeList();
+        }
+        this.otherSinks.add( alphaNode );
+
+        if ( rangeIndex.getCount() >= this.alphaNodeHashingThreshold && this.alphaNodeHashingThreshold != 0 ) {
+            indexRangeSinks( rangeIndex );
+        }
+    }
+
+    private void removeRangeSink(final AlphaNode alphaNode,
+                                 final LiteralConstraint literalConstraint) {
+        final int index = literalConstraint.getFieldExtractor().getIndex();
+        final RangeIndex rangeIndex = (RangeIndex) findFieldIndex( this.rangeIndexes,
+                                                                   index );
+        rangeIndex.decreaseCounter();
+
+        if ( rangeIndex.isHashed() ) {
+            rangeIndex.remove( alphaNode );
+            this.indexedRangeSinks.remove( alphaNode );
+            if ( rangeIndex.getCount() <= this.alphaNodeHashingThreshold - 1 ) {
+                unindexRangeSinks( rangeIndex );
+            }
+        } else {
+            this.otherSinks.remove( alphaNode );
+        }
+
+        if ( rangeIndex.getCount() == 0 ) {
+            this.rangeIndexes.remove( rangeIndex );
+            if ( this.rangeIndexes.isEmpty() ) {
+                this.rangeIndexes = null;
+            }
+        }
+        if ( this.otherSinks != null && this.otherSinks.isEmpty() ) {
+            this.otherSinks = null;
+        }
+        if ( this.indexedRangeSinks != null && this.indexedRangeSinks.isEmpty() ) {
+            this.indexedRangeSinks = null;
+        }
+    }
+
+    /**
+     * Moves the range sinks on the field out of the other sinks into the index. From then on they are propagated
+     * before the hashable and other sinks, rather than in the order they were added.
+     */
+    private void indexRangeSinks(final RangeIndex rangeIndex) {
+        ObjectSinkNode currentSink = this.otherSinks.getFirst();
+        while ( currentSink != null ) {
+            final ObjectSinkNode sink = currentSink;
+            // position to the next sink now, as the sink is moved to the indexed list
+            currentSink = currentSink.getNextObjectSinkNode();
+            if ( isRangeSink( sink,
+                              rangeIndex.getIndex() ) ) {
+                final AlphaNode alphaNode = (AlphaNode) sink;
+                this.otherSinks.remove( alphaNode );
+                rangeIndex.add( alphaNode );
+                if ( this.indexedRangeSinks == null ) {
+                    this.indexedRangeSinks = new ObjectSinkNodeList();
+                }
+                this.indexedRangeSinks.add( alphaNode );
+            }
+        }
+        if ( this.otherSinks.isEmpty() ) {
+            this.otherSinks = null;
+        }
+        rangeIndex.setHashed( true );
+    }
+
+    private boolean isRangeSink(final ObjectSinkNode sink,
+                                final int index) {
+        if ( !(sink instanceof AlphaNode) || !(((AlphaNode) sink).getConstraint() instanceof LiteralConstraint) ) {
+            return false;
+        }
+        final LiteralConstraint literalConstraint = (LiteralConstraint) ((AlphaNode) sink).getConstraint();
+        return literalConstraint.getFieldExtractor().getIndex() == index && isRangeConstraint( literalConstraint );
+    }
+
+    private void unindexRangeSinks(final RangeIndex rangeIndex) {
+        ObjectSinkNode currentSink = this.indexedRangeSinks != null ? this.indexedRangeSinks.getFirst() : null;
+        while ( currentSink != null ) {
+            final AlphaNode alphaNode = (AlphaNode) currentSink;
+            currentSink = currentSink.getNextObjectSinkNode();
+            if ( rangeIndex.getIndex() == ((LiteralConstraint) alphaNode.getConstraint()).getFieldExtractor().getIndex() ) {
+                rangeIndex.remove( alphaNode );
+                this.indexedRangeSinks.remove( alphaNode );
+                if ( this.otherSinks == null ) {
+                    this.otherSinks = new ObjectSinkNodeList();
+                }
+                this.otherSinks.add( alphaNode );
+            }
+        }
+        rangeIndex.setHashed( false );
+    }
+
+    private static FieldIndex findFieldIndex(final LinkedList fieldIndexes,
+                                             final int index) {
+        for ( FieldIndex node = (FieldIndex) fieldIndexes.getFirst(); node != null; node = (FieldIndex) node.getNext() ) {
+            if ( node.getIndex() == index ) {
+                return node;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns a FieldIndex which Keeps a count on how many times a particular field is used with an equality check
      * in the sinks.
@@ -362,6 +773,36 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
             }
         }
 
+        // only fields with enough literal set sinks are hashed, their sinks go ahead of the hashable and other sinks,
+        // the literal set sinks on any other field are still among the other sinks, in the order they were added
+        if ( this.literalSetSinkMap != null ) {
+            for ( FieldIndex fieldIndex = (FieldIndex) this.literalSetFieldIndexes.getFirst(); fieldIndex != null; fieldIndex = (FieldIndex) fieldIndex.getNext() ) {
+                if ( !fieldIndex.isHashed() ) {
+                    continue;
+                }
+                final AlphaNode[] sinks = (AlphaNode[]) this.literalSetSinkMap.get( new HashKey( fieldIndex.getIndex(),
+                                                                                                 object,
+                                                                                                 fieldIndex.getFieldExtractor() ) );
+                if ( sinks != null ) {
+                    for ( int i = 0; i < sinks.length; i++ ) {
+                        sinks[i].getSinkPropagator().propagateAssertObject( factHandle, context, workingMemory );
+                    }
+                }
+            }
+        }
+
+        // only fields with enough range sinks are indexed, their sinks go ahead of the hashable and other sinks,
+        // the range sinks on any other field are still among the other sinks, in the order they were added
+        if ( this.indexedRangeSinks != null ) {
+            for ( RangeIndex rangeIndex = (RangeIndex) this.rangeIndexes.getFirst(); rangeIndex != null; rangeIndex = (RangeIndex) rangeIndex.getNext() ) {
+                if ( rangeIndex.isHashed() ) {
+                    rangeIndex.propagateAssertObject( factHandle,
+                                                      context,
+                                                      workingMemory );
+                }
+            }
+        }
+
         // propagate unhashed
         if ( this.hashableSinks != null ) {
             for ( ObjectSinkNode sink = this.hashableSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
@@ -411,6 +852,37 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
             }
         }
 
+        // only fields with enough literal set sinks are hashed, their sinks go ahead of the hashable and other sinks,
+        // the literal set sinks on any other field are still among the other sinks, in the order they were added
+        if ( this.literalSetSinkMap != null ) {
+            for ( FieldIndex fieldIndex = (FieldIndex) this.literalSetFieldIndexes.getFirst(); fieldIndex != null; fieldIndex = (FieldIndex) fieldIndex.getNext() ) {
+                if ( !fieldIndex.isHashed() ) {
+                    continue;
+                }
+                final AlphaNode[] sinks = (AlphaNode[]) this.literalSetSinkMap.get( new HashKey( fieldIndex.getIndex(),
+                                                                                                 object,
+                                                                                                 fieldIndex.getFieldExtractor() ) );
+                if ( sinks != null ) {
+                    for ( int i = 0; i < sinks.length; i++ ) {
+                        sinks[i].getSinkPropagator().propagateModifyObject( factHandle, modifyPreviousTuples, context, workingMemory );
+                    }
+                }
+            }
+        }
+
+        // only fields with enough range sinks are indexed, their sinks go ahead of the hashable and other sinks,
+        // the range sinks on any other field are still among the other sinks, in the order they were added
+        if ( this.indexedRangeSinks != null ) {
+            for ( RangeIndex rangeIndex = (RangeIndex) this.rangeIndexes.getFirst(); rangeIndex != null; rangeIndex = (RangeIndex) rangeIndex.getNext() ) {
+                if ( rangeIndex.isHashed() ) {
+                    rangeIndex.propagateModifyObject( factHandle,
+                                                      modifyPreviousTuples,
+                                                      context,
+                                                      workingMemory );
+                }
+            }
+        }
+
         // propagate unhashed
         if ( this.hashableSinks != null ) {
             for ( ObjectSinkNode sink = this.hashableSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
@@ -489,6 +961,23 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                 }
             }
         }
+
+        if ( this.hashedLiteralSetSinks != null ) {
+            for ( ObjectSinkNode sink = this.hashedLiteralSetSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
+                if ( candidate.equals( sink ) ) {
+                    return (BaseNode) sink;
+                }
+            }
+        }
+
+
+        if ( this.indexedRangeSinks != null ) {
+            for ( ObjectSinkNode sink = this.indexedRangeSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
+                if ( candidate.equals( sink ) ) {
+                    return (BaseNode) sink;
+                }
+            }
+        }
         return null;
     }
 
@@ -514,11 +1003,26 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                 sinks[at++] = (ObjectSink) entry.getValue();
             }
         }
+
+        if ( this.hashedLiteralSetSinks != null ) {
+            for ( ObjectSinkNode sink = this.hashedLiteralSetSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
+                sinks[at++] = sink;
+            }
+        }
+
+
+        if ( this.indexedRangeSinks != null ) {
+            for ( ObjectSinkNode sink = this.indexedRangeSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
+                sinks[at++] = sink;
+            }
+        }
         return sinks;
     }
 
     public int size() {
-        return (this.otherSinks != null ? this.otherSinks.size() : 0) + (this.hashableSinks != null ? this.hashableSinks.size() : 0) + (this.hashedSinkMap != null ? this.hashedSinkMap.size() : 0);
+        return (this.otherSinks != null ? this.otherSinks.size() : 0) + (this.hashableSinks != null ? this.hashableSinks.size() : 0) + (this.hashedSinkMap != null ? this.hashedSinkMap.size() : 0)
+               + (this.hashedLiteralSetSinks != null ? this.hashedLiteralSetSinks.size() : 0)
+               + (this.indexedRangeSinks != null ? this.indexedRangeSinks.size() : 0);
     }
 
     public static class HashKey
@@ -892,4 +1396,391 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
             this.previous = previous;
         }
     }
+
+    /**
+     * The sinks comparing the same numeric field with a literal, with one array for each of the <, <=, > and >=
+     * operators, sorted by the literal. The values are compared as longs, or as doubles for the decimal fields,
+     * which gives the same results as the evaluators, as they read the field with its own width.
+     */
+    public static class RangeIndex extends FieldIndex {
+        private static final long serialVersionUID = 510l;
+
+        static final int          BYTE             = 0;
+        static final int          SHORT            = 1;
+        static final int          INT              = 2;
+        static final int          LONG             = 3;
+        static final int          FLOAT            = 4;
+        static final int          DOUBLE           = 5;
+
+        private static final int  LESS             = 0;
+        private static final int  LESS_OR_EQUAL    = 1;
+        private static final int  GREATER          = 2;
+        private static final int  GREATER_OR_EQUAL = 3;
+
+        private int               rangeType;
+
+        private Thresholds[]      thresholds;
+
+        public RangeIndex() {
+        }
+
+        public RangeIndex(final int index,
+                          final InternalReadAccessor fieldExtractor) {
+            super( index,
+                   fieldExtractor );
+            this.rangeType = getRangeType( fieldExtractor.getValueType() );
+            this.thresholds = new Thresholds[4];
+            for ( int i = 0; i < this.thresholds.length; i++ ) {
+                this.thresholds[i] = new Thresholds( isDecimal() );
+            }
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            super.readExternal( in );
+            rangeType = in.readInt();
+            thresholds = (Thresholds[]) in.readObject();
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            super.writeExternal( out );
+            out.writeInt( rangeType );
+            out.writeObject( thresholds );
+        }
+
+        static int getRangeType(final ValueType vtype) {
+            if ( vtype == ValueType.PBYTE_TYPE || vtype == ValueType.BYTE_TYPE ) {
+                return BYTE;
+            } else if ( vtype == ValueType.PSHORT_TYPE || vtype == ValueType.SHORT_TYPE ) {
+                return SHORT;
+            } else if ( vtype == ValueType.PINTEGER_TYPE || vtype == ValueType.INTEGER_TYPE ) {
+                return INT;
+            } else if ( vtype == ValueType.PLONG_TYPE || vtype == ValueType.LONG_TYPE ) {
+                return LONG;
+            } else if ( vtype == ValueType.PFLOAT_TYPE || vtype == ValueType.FLOAT_TYPE ) {
+                return FLOAT;
+            } else if ( vtype == ValueType.PDOUBLE_TYPE || vtype == ValueType.DOUBLE_TYPE ) {
+                return DOUBLE;
+            }
+            return -1;
+        }
+
+        static int getOperatorIndex(final Operator operator) {
+            if ( operator == Operator.LESS ) {
+                return LESS;
+            } else if ( operator == Operator.LESS_OR_EQUAL ) {
+                return LESS_OR_EQUAL;
+            } else if ( operator == Operator.GREATER ) {
+                return GREATER;
+            } else if ( operator == Operator.GREATER_OR_EQUAL ) {
+                return GREATER_OR_EQUAL;
+            }
+            return -1;
+        }
+
+        static long getLongThreshold(final int rangeType,
+                                     final FieldValue value) {
+            // the literal is narrowed to the width of the field, as the evaluators do
+            switch ( rangeType ) {
+                case BYTE :
+                    return value.getByteValue();
+                case SHORT :
+                    return value.getShortValue();
+                case INT :
+                    return value.getIntValue();
+                default :
+                    return value.getLongValue();
+            }
+        }
+
+        static double getDoubleThreshold(final int rangeType,
+                                         final FieldValue value) {
+            switch ( rangeType ) {
+                case FLOAT :
+                    return value.getFloatValue();
+                case DOUBLE :
+                    return value.getDoubleValue();
+                default :
+                    return getLongThreshold( rangeType,
+                                             value );
+            }
+        }
+
+        private boolean isDecimal() {
+            return this.rangeType == FLOAT || this.rangeType == DOUBLE;
+        }
+
+        public void add(final AlphaNode alphaNode) {
+            final LiteralConstraint literalConstraint = (LiteralConstraint) alphaNode.getConstraint();
+            final Thresholds thresholds = this.thresholds[getOperatorIndex( literalConstraint.getEvaluator().getOperator() )];
+            if ( isDecimal() ) {
+                thresholds.add( alphaNode,
+                                0,
+                                getDoubleThreshold( this.rangeType,
+                                                    literalConstraint.getField() ) );
+            } else {
+                thresholds.add( alphaNode,
+                                getLongThreshold( this.rangeType,
+                                                  literalConstraint.getField() ),
+                                0 );
+            }
+        }
+
+        public void remove(final AlphaNode alphaNode) {
+            final LiteralConstraint literalConstraint = (LiteralConstraint) alphaNode.getConstraint();
+            this.thresholds[getOperatorIndex( literalConstraint.getEvaluator().getOperator() )].remove( alphaNode );
+        }
+
+        public void propagateAssertObject(final InternalFactHandle factHandle,
+                                          final PropagationContext context,
+                                          final InternalWorkingMemory workingMemory) {
+            propagate( factHandle,
+                       null,
+                       context,
+                       workingMemory,
+                       false );
+        }
+
+        public void propagateModifyObject(final InternalFactHandle factHandle,
+                                          final ModifyPreviousTuples modifyPreviousTuples,
+                                          final PropagationContext context,
+                                          final InternalWorkingMemory workingMemory) {
+            propagate( factHandle,
+                       modifyPreviousTuples,
+                       context,
+                       workingMemory,
+                       true );
+        }
+
+        private void propagate(final InternalFactHandle factHandle,
+                               final ModifyPreviousTuples modifyPreviousTuples,
+                               final PropagationContext context,
+                               final InternalWorkingMemory workingMemory,
+                               final boolean modify) {
+            final Object object = factHandle.getObject();
+            final InternalReadAccessor extractor = getFieldExtractor();
+            if ( extractor.isNullValue( null,
+                                        object ) ) {
+                // no comparison with null is true
+                return;
+            }
+
+            final boolean decimal = isDecimal();
+            long lvalue = 0;
+            double dvalue = 0;
+            if ( decimal ) {
+                dvalue = this.rangeType == FLOAT ? extractor.getFloatValue( null,
+                                                                            object ) : extractor.getDoubleValue( null,
+                                                                                                                 object );
+                if ( Double.isNaN( dvalue ) ) {
+                    return;
+                }
+            } else {
+                lvalue = extractor.getLongValue( null,
+                                                 object );
+            }
+
+            for ( int i = 0; i < 4; i++ ) {
+                final Thresholds thresholds = this.thresholds[i];
+                if ( thresholds.size == 0 ) {
+                    continue;
+                }
+                // for <, the sinks after the literals lower than or equal to the value, for <= after the lower ones,
+                // for > the sinks with a lower literal and for >= the ones with a lower or equal literal
+                final boolean inclusive = i == LESS || i == GREATER_OR_EQUAL;
+                final int split = decimal ? thresholds.countBelow( dvalue,
+                                                                   inclusive ) : thresholds.countBelow( lvalue,
+                                                                                                        inclusive );
+                final int from = i == LESS || i == LESS_OR_EQUAL ? split : 0;
+                final int to = i == LESS || i == LESS_OR_EQUAL ? thresholds.size : split;
+
+                final AlphaNode[] sinks = thresholds.sinks;
+                for ( int j = from; j < to; j++ ) {
+                    // go straight to the AlphaNode's propagator, as we know it's true and no need to retest
+                    if ( modify ) {
+                        sinks[j].getSinkPropagator().propagateModifyObject( factHandle,
+                                                                            modifyPreviousTuples,
+                                                                            context,
+                                                                            workingMemory );
+                    } else {
+                        sinks[j].getSinkPropagator().propagateAssertObject( factHandle,
+                                                                            context,
+                                                                            workingMemory );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The sinks of one operator of a RangeIndex, sorted by their literal, the ones with the same literal
+     * in the order they were added.
+     */
+    public static class Thresholds
+        implements
+        Externalizable {
+        private static final long serialVersionUID = 510l;
+
+        private boolean           decimal;
+        private long[]            lvalues;
+        private double[]          dvalues;
+        private AlphaNode[]       sinks;
+        private int               size;
+
+        public Thresholds() {
+        }
+
+        public Thresholds(final boolean decimal) {
+            this.decimal = decimal;
+            if ( decimal ) {
+                this.dvalues = new double[4];
+            } else {
+                this.lvalues = new long[4];
+            }
+            this.sinks = new AlphaNode[4];
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            decimal = in.readBoolean();
+            lvalues = (long[]) in.readObject();
+            dvalues = (double[]) in.readObject();
+            sinks = (AlphaNode[]) in.readObject();
+            size = in.readInt();
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeBoolean( decimal );
+            out.writeObject( lvalues );
+            out.writeObject( dvalues );
+            out.writeObject( sinks );
+            out.writeInt( size );
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public void add(final AlphaNode sink,
+                        final long lvalue,
+                        final double dvalue) {
+            if ( this.size == this.sinks.length ) {
+                final int length = this.sinks.length * 2;
+                final AlphaNode[] sinks = new AlphaNode[length];
+                System.arraycopy( this.sinks,
+                                  0,
+                                  sinks,
+                                  0,
+                                  this.size );
+                this.sinks = sinks;
+                if ( this.decimal ) {
+                    final double[] dvalues = new double[length];
+                    System.arraycopy( this.dvalues,
+                                      0,
+                                      dvalues,
+                                      0,
+                                      this.size );
+                    this.dvalues = dvalues;
+                } else {
+                    final long[] lvalues = new long[length];
+                    System.arraycopy( this.lvalues,
+                                      0,
+                                      lvalues,
+                                      0,
+                                      this.size );
+                    this.lvalues = lvalues;
+                }
+            }
+
+            final int position = this.decimal ? countBelow( dvalue,
+                                                            true ) : countBelow( lvalue,
+                                                                                 true );
+            System.arraycopy( this.sinks,
+                              position,
+                              this.sinks,
+                              position + 1,
+                              this.size - position );
+            this.sinks[position] = sink;
+            if ( this.decimal ) {
+                System.arraycopy( this.dvalues,
+                                  position,
+                                  this.dvalues,
+                                  position + 1,
+                                  this.size - position );
+                this.dvalues[position] = dvalue;
+            } else {
+                System.arraycopy( this.lvalues,
+                                  position,
+                                  this.lvalues,
+                                  position + 1,
+                                  this.size - position );
+                this.lvalues[position] = lvalue;
+            }
+            this.size++;
+        }
+
+        public boolean remove(final AlphaNode sink) {
+            for ( int i = 0; i < this.size; i++ ) {
+                if ( this.sinks[i] == sink ) {
+                    final int moved = this.size - i - 1;
+                    System.arraycopy( this.sinks,
+                                      i + 1,
+                                      this.sinks,
+                                      i,
+                                      moved );
+                    if ( this.decimal ) {
+                        System.arraycopy( this.dvalues,
+                                          i + 1,
+                                          this.dvalues,
+                                          i,
+                                          moved );
+                    } else {
+                        System.arraycopy( this.lvalues,
+                                          i + 1,
+                                          this.lvalues,
+                                          i,
+                                          moved );
+                    }
+                    this.sinks[--this.size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the number of literals lower than the value, or lower than or equal to it when inclusive.
+         */
+        public int countBelow(final long value,
+                              final boolean inclusive) {
+            int low = 0;
+            int high = this.size;
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                final long threshold = this.lvalues[mid];
+                if ( threshold < value || (inclusive && threshold == value) ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        public int countBelow(final double value,
+                              final boolean inclusive) {
+            int low = 0;
+            int high = this.size;
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                final double threshold = this.dvalues[mid];
+                if ( threshold < value || (inclusive && threshold == value) ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
 }
@@ -260,19 +260,22 @@ public class EntryPointNode extends ObjectSource
         attach();
 
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            workingMemory.updateEntryPointsCache();
-            final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.RULE_ADDITION,
-                                                                                      null,
-                                                                                      null,
-                                                                                      null );
-            this.source.updateSink( this,
-                                    propagationContext,
-                                    workingMemory );
+            updateNewNode( workingMemories[i] );
         }
     }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        workingMemory.updateEntryPointsCache();
+        final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.RULE_ADDITION,
+                                                                                  null,
+                                                                                  null,
+                                                                                  null );
+        this.source.updateSink( this,
+                                propagationContext,
+                                workingMemory );
+    }
+
     protected void doRemove(final RuleRemovalContext context,
                             final ReteooBuilder builder,
                             final BaseNode node,
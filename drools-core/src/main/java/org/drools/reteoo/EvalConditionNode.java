@@ -126,18 +126,21 @@ public class EvalConditionNode extends LeftTupleSource
         attach();
 
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.RULE_ADDITION,
-                                                                                      null,
-                                                                                      null,
-                                                                                      null );
-            this.tupleSource.updateSink( this,
-                                         propagationContext,
-                                         workingMemory );
+            updateNewNode( workingMemories[i] );
         }
     }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.RULE_ADDITION,
+                                                                                  null,
+                                                                                  null,
+                                                                                  null );
+        this.tupleSource.updateSink( this,
+                                     propagationContext,
+                                     workingMemory );
+    }
+
     public void networkUpdated() {
         this.tupleSource.networkUpdated();
     }
@@ -155,6 +155,9 @@ public class ExistsNode extends BetaNode {
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
 
         final RightTuple rightTuple = new RightTuple( factHandle,
                                                       this );
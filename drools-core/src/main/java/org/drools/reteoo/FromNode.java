@@ -20,7 +20,10 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.drools.RuleBaseConfiguration;
@@ -31,12 +34,14 @@ import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.common.NodeMemory;
 import org.drools.common.PropagationContextImpl;
+import org.drools.core.util.ArrayIterator;
 import org.drools.core.util.FastIterator;
 import org.drools.core.util.Iterator;
 import org.drools.core.util.LeftTupleList;
 import org.drools.core.util.LinkedList;
 import org.drools.reteoo.builder.BuildContext;
 import org.drools.rule.ContextEntry;
+import org.drools.rule.Declaration;
 import org.drools.spi.AlphaNodeFieldConstraint;
 import org.drools.spi.DataProvider;
 import org.drools.spi.PropagationContext;
@@ -57,6 +62,8 @@ public class FromNode extends LeftTupleSource
 
     protected boolean                  tupleMemoryEnabled;
 
+    private int                        resultCacheSize;
+
     public FromNode() {
     }
 
@@ -75,6 +82,7 @@ public class FromNode extends LeftTupleSource
         this.alphaConstraints = constraints;
         this.betaConstraints = (binder == null) ? EmptyBetaConstraints.getInstance() : binder;
         this.tupleMemoryEnabled = tupleMemoryEnabled;
+        this.resultCacheSize = context.getRuleBase().getConfiguration().getFromResultCacheSize();
     }
 
     public void readExternal(ObjectInput in) throws IOException,
@@ -87,6 +95,7 @@ public class FromNode extends LeftTupleSource
         previousTupleSinkNode = (LeftTupleSinkNode) in.readObject();
         nextTupleSinkNode = (LeftTupleSinkNode) in.readObject();
         tupleMemoryEnabled = in.readBoolean();
+        resultCacheSize = in.readInt();
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
@@ -98,6 +107,7 @@ public class FromNode extends LeftTupleSource
         out.writeObject( previousTupleSinkNode );
         out.writeObject( nextTupleSinkNode );
         out.writeBoolean( tupleMemoryEnabled );
+        out.writeInt( resultCacheSize );
     }
 
     /**
@@ -120,10 +130,10 @@ public class FromNode extends LeftTupleSource
                                               workingMemory,
                                               leftTuple );
 
-        for ( final java.util.Iterator< ? > it = this.dataProvider.getResults( leftTuple,
-                                                                               workingMemory,
-                                                                               context,
-                                                                               memory.providerContext ); it.hasNext(); ) {
+        for ( final java.util.Iterator< ? > it = getResults( leftTuple,
+                                                             context,
+                                                             workingMemory,
+                                                             memory ); it.hasNext(); ) {
             final Object object = it.next();
 
             final InternalFactHandle handle = workingMemory.getFactHandleFactory().newFactHandle( object,
@@ -148,6 +158,47 @@ public class FromNode extends LeftTupleSource
         this.betaConstraints.resetTuple( memory.betaMemory.getContext() );
     }
 
+    /**
+     * Returns the results of the data provider for the given tuple. When the
+     * result cache is enabled the results are looked up by the values of the
+     * declarations the expression uses, and the expression is only evaluated
+     * for values it has not seen yet.
+     */
+    private java.util.Iterator< ? > getResults(final LeftTuple leftTuple,
+                                               final PropagationContext context,
+                                               final InternalWorkingMemory workingMemory,
+                                               final FromMemory memory) {
+        if ( memory.resultCache == null ) {
+            return this.dataProvider.getResults( leftTuple,
+                                                 workingMemory,
+                                                 context,
+                                                 memory.providerContext );
+        }
+
+        final Declaration[] declarations = this.dataProvider.getRequiredDeclarations();
+        final Object[] values = new Object[declarations.length];
+        for ( int i = 0; i < declarations.length; i++ ) {
+            values[i] = declarations[i].getValue( workingMemory,
+                                                  leftTuple.get( declarations[i] ).getObject() );
+        }
+        final ResultKey key = new ResultKey( values );
+
+        Object[] results = memory.resultCache.get( key );
+        if ( results == null ) {
+            final List<Object> list = new ArrayList<Object>();
+            for ( final java.util.Iterator< ? > it = this.dataProvider.getResults( leftTuple,
+                                                                                   workingMemory,
+                                                                                   context,
+                                                                                   memory.providerContext ); it.hasNext(); ) {
+                list.add( it.next() );
+            }
+            results = list.toArray();
+            memory.resultCache.put( key,
+                                    results );
+        }
+        return new ArrayIterator( results );
+    }
+
     private void addToCreatedHandlesMap(final Map<Object, RightTuple> matches,
                                         final RightTuple rightTuple) {
         if ( rightTuple.getFactHandle().isValid() ) {
@@ -206,10 +257,10 @@ public class FromNode extends LeftTupleSource
                                               leftTuple );
 
         FastIterator rightIt = LinkedList.fastIterator;
-        for ( final java.util.Iterator< ? > it = this.dataProvider.getResults( leftTuple,
-                                                                               workingMemory,
-                                                                               context,
-                                                                               memory.providerContext ); it.hasNext(); ) {
+        for ( final java.util.Iterator< ? > it = getResults( leftTuple,
+                                                             context,
+                                                             workingMemory,
+                                                             memory ); it.hasNext(); ) {
             final Object object = it.next();
             RightTuple rightTuple = previousMatches.remove( object );
 
@@ -352,18 +403,21 @@ public class FromNode extends LeftTupleSource
         attach();
 
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.RULE_ADDITION,
-                                                                                      null,
-                                                                                      null,
-                                                                                      null );
-            this.tupleSource.updateSink( this,
-                                         propagationContext,
-                                         workingMemory );
+            updateNewNode( workingMemories[i] );
         }
     }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.RULE_ADDITION,
+                                                                                  null,
+                                                                                  null,
+                                                                                  null );
+        this.tupleSource.updateSink( this,
+                                     propagationContext,
+                                     workingMemory );
+    }
+
     public void networkUpdated() {
         this.tupleSource.networkUpdated();
     }
@@ -424,13 +478,31 @@ public class FromNode extends LeftTupleSource
         }
     }
 
+    /**
+     * Tells whether the expression uses a whole fact, as in "from $p.items",
+     * whose values can not key the result cache: facts that are equal may
+     * hold other values, and a fact may change without changing its key.
+     */
+    private boolean usesPatternDeclarations() {
+        for ( Declaration declaration : this.dataProvider.getRequiredDeclarations() ) {
+            if ( declaration.isPatternDeclaration() ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Object createMemory(final RuleBaseConfiguration config) {
         BetaMemory beta = new BetaMemory( new LeftTupleList(),
                                           null,
                                           this.betaConstraints.createContext() );
-        return new FromMemory( beta,
-                               this.dataProvider.createContext(),
-                               this.alphaConstraints );
+        FromMemory memory = new FromMemory( beta,
+                                            this.dataProvider.createContext(),
+                                            this.alphaConstraints );
+        if ( this.resultCacheSize > 0 && !usesPatternDeclarations() ) {
+            memory.resultCache = new ResultCache( this.resultCacheSize );
+        }
+        return memory;
     }
 
     public boolean isLeftTupleMemoryEnabled() {
@@ -489,6 +561,7 @@ public class FromNode extends LeftTupleSource
         public BetaMemory         betaMemory;
         public Object             providerContext;
         public ContextEntry[]     alphaContexts;
+        public ResultCache        resultCache;
 
         public FromMemory(BetaMemory betaMemory,
                           Object providerContext,
@@ -502,4 +575,58 @@ public class FromNode extends LeftTupleSource
         }
     }
 
+    /**
+     * The declaration values a "from" expression was evaluated with.
+     */
+    public static class ResultKey
+        implements
+        Serializable {
+        private static final long serialVersionUID = 510l;
+
+        private final Object[]    values;
+        private final int         hashCode;
+
+        public ResultKey(final Object[] values) {
+            this.values = values;
+            this.hashCode = Arrays.hashCode( values );
+        }
+
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        public boolean equals(final Object object) {
+            if ( this == object ) {
+                return true;
+            }
+            if ( !(object instanceof ResultKey) ) {
+                return false;
+            }
+            final ResultKey other = (ResultKey) object;
+            return this.hashCode == other.hashCode && Arrays.equals( this.values,
+                                                                     other.values );
+        }
+    }
+
+    /**
+     * The results of a "from" expression by declaration values, evicting the
+     * least recently used ones.
+     */
+    public static class ResultCache extends LinkedHashMap<ResultKey, Object[]> {
+        private static final long serialVersionUID = 510l;
+
+        private final int         maxSize;
+
+        public ResultCache(final int maxSize) {
+            super( 16,
+                   0.75f,
+                   true );
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(final Map.Entry<ResultKey, Object[]> eldest) {
+            return size() > this.maxSize;
+        }
+    }
+
 }
@@ -105,6 +105,9 @@ public class JoinNode extends BetaNode {
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         final BetaMemory memory = (BetaMemory) workingMemory.getNodeMemory( this );
 
         RightTuple rightTuple = createRightTuple( factHandle,
@@ -98,18 +98,21 @@ public class LeftInputAdapterNode extends LeftTupleSource
         attach();
 
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                      PropagationContext.RULE_ADDITION,
-                                                                                      null,
-                                                                                      null,
-                                                                                      null );
-            this.objectSource.updateSink( this,
-                                          propagationContext,
-                                          workingMemory );
+            updateNewNode( workingMemories[i] );
         }
     }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                  PropagationContext.RULE_ADDITION,
+                                                                                  null,
+                                                                                  null,
+                                                                                  null );
+        this.objectSource.updateSink( this,
+                                      propagationContext,
+                                      workingMemory );
+    }
+
     public void networkUpdated() {
         this.objectSource.networkUpdated();
     }
@@ -128,6 +131,9 @@ public class LeftInputAdapterNode extends LeftTupleSource
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         boolean useLeftMemory = true;
         if ( !this.leftTupleMemoryEnabled ) {
             // This is a hack, to not add closed DroolsQuery objects
@@ -153,6 +159,9 @@ public class LeftInputAdapterNode extends LeftTupleSource
                              final ModifyPreviousTuples modifyPreviousTuples,
                              PropagationContext context,
                              InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         this.sink.propagateModifyObject( factHandle,
                                          modifyPreviousTuples,
                                          context,
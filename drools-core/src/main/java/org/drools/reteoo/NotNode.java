@@ -103,6 +103,9 @@ public class NotNode extends BetaNode {
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         final RightTuple rightTuple = createRightTuple( factHandle,
                                                         this );
 
@@ -154,10 +154,19 @@ public class ObjectTypeNode extends ObjectSource
         return this.objectType.isAssignableFrom( objectType );
     }
 
+    /**
+     * Sets the compiled network used to propagate asserted facts to the children
+     * of this node. Passing null switches this node back to the interpreted network.
+     */
     public void setCompiledNetwork(CompiledNetwork compiledNetwork) {
+        if ( compiledNetwork != null ) {
+            compiledNetwork.setObjectTypeNode( this );
+        }
         this.compiledNetwork = compiledNetwork;
+    }
 
-        this.compiledNetwork.setObjectTypeNode( this );
+    public CompiledNetwork getCompiledNetwork() {
+        return this.compiledNetwork;
     }
 
     /**
@@ -172,6 +181,9 @@ public class ObjectTypeNode extends ObjectSource
     public void assertObject(final InternalFactHandle factHandle,
                              final PropagationContext context,
                              final InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         if ( this.objectMemoryEnabled ) {
             final ObjectHashSet memory = (ObjectHashSet) workingMemory.getNodeMemory( this );
             memory.add( factHandle,
@@ -244,6 +256,9 @@ public class ObjectTypeNode extends ObjectSource
                              ModifyPreviousTuples modifyPreviousTuples,
                              PropagationContext context,
                              InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         if ( this.skipOnModify && context.getDormantActivations() == 0 ) {
             // we do this after the shadowproxy update, just so that its up to date for the future
             return;
@@ -288,19 +303,22 @@ public class ObjectTypeNode extends ObjectSource
         // might have already added facts matching this ObjectTypeNode
         // to working memories
         for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
-            final InternalWorkingMemory workingMemory = workingMemories[i];
-            final PropagationContextImpl propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                          PropagationContext.RULE_ADDITION,
-                                                                                          null,
-                                                                                          null,
-                                                                                          null );
-            propagationContext.setEntryPoint( ((EntryPointNode) this.source).getEntryPoint() );
-            this.source.updateSink( this,
-                                    propagationContext,
-                                    workingMemory );
+            updateNewNode( workingMemories[i] );
         }
     }
 
+    public void updateNewNode(final InternalWorkingMemory workingMemory) {
+        final PropagationContextImpl propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                                      PropagationContext.RULE_ADDITION,
+                                                                                      null,
+                                                                                      null,
+                                                                                      null );
+        propagationContext.setEntryPoint( ((EntryPointNode) this.source).getEntryPoint() );
+        this.source.updateSink( this,
+                                propagationContext,
+                                workingMemory );
+    }
+
     public void networkUpdated() {
         this.skipOnModify = canSkipOnModify( this.sink.getSinks(),
                                              true );
@@ -22,9 +22,15 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.drools.common.InternalFactHandle;
+import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.spi.PropagationContext;
 
@@ -42,7 +48,8 @@ public class PartitionTaskManager {
     public PartitionTaskManager(final PartitionManager manager,
                                 final InternalWorkingMemory workingMemory) {
         this.task = new PartitionTask( manager,
-                                       workingMemory );
+                                       workingMemory,
+                                       ((InternalRuleBase) workingMemory.getRuleBase()).getConfiguration().getPartitionQueueSize() );
     }
 
     /**
@@ -55,10 +62,54 @@ public class PartitionTaskManager {
         return this.task.enqueue( action );
     }
 
+    /**
+     * Returns the number of actions waiting to be processed
+     */
+    public int getQueueDepth() {
+        return this.task.queue.size();
+    }
+
+    /**
+     * Returns the number of actions processed so far
+     */
+    public long getExecutedActions() {
+        return this.task.executedActions.get();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, the task waited for a thread
+     * after it was submitted to the thread pool
+     */
+    public long getWaitTime() {
+        return this.task.waitTime.get();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, spent processing actions
+     */
+    public long getExecutionTime() {
+        return this.task.executionTime.get();
+    }
+
+    /**
+     * Returns the number of times the inserting thread was blocked because the
+     * queue was full
+     */
+    public long getBlockedEnqueues() {
+        return this.task.blockedEnqueues.get();
+    }
+
     /**
      * A worker task that keeps processing the nodes queue.
-     * The task uses a non-blocking queue and is re-submitted
-     * for execution for each element that is added to the queue.
+     * The task uses a non-blocking queue and processes up to BATCH_SIZE
+     * actions each time it runs, before it is re-submitted to the thread
+     * pool, so the partitions with the most work are spread over all the
+     * threads instead of keeping one busy.
+     * 
+     * When the queue has a capacity, a thread that is not itself running a
+     * partition task waits for the queue to have room before adding an action,
+     * unless the tasks are on hold for rule firing. Partition tasks never wait,
+     * as they could be waiting for each other.
      */
     public static class PartitionTask
         implements
@@ -83,6 +134,25 @@ public class PartitionTaskManager {
         // true if YieldAction already added to queue
         private AtomicBoolean         isYieldAdded;
 
+        // the maximum number of actions processed each time the task runs
+        private static final int      BATCH_SIZE    = 64;
+
+        // true for the threads running a partition task
+        private static final ThreadLocal<Boolean> inPartitionTask = new ThreadLocal<Boolean>();
+
+        // the number of queued actions the inserting thread waits on, or 0 if the queue is unbounded
+        private final int             capacity;
+        private final ReentrantLock   lock          = new ReentrantLock();
+        private final Condition       notFull       = lock.newCondition();
+        private final AtomicInteger   waiting       = new AtomicInteger();
+
+        // metrics
+        private volatile long         submitTime;
+        private final AtomicLong      executedActions = new AtomicLong();
+        private final AtomicLong      waitTime        = new AtomicLong();
+        private final AtomicLong      executionTime   = new AtomicLong();
+        private final AtomicLong      blockedEnqueues = new AtomicLong();
+
         /**
          * Constructor
          *
@@ -90,6 +160,21 @@ public class PartitionTaskManager {
          */
         public PartitionTask(final PartitionManager manager,
                              final InternalWorkingMemory workingMemory) {
+            this( manager,
+                  workingMemory,
+                  0 );
+        }
+
+        /**
+         * Constructor
+         *
+         * @param workingMemory the working memory reference that is used for node processing
+         * @param capacity the number of queued actions the inserting thread waits on, or 0 for no limit
+         */
+        public PartitionTask(final PartitionManager manager,
+                             final InternalWorkingMemory workingMemory,
+                             final int capacity) {
+            this.capacity = capacity;
             this.queue = new PriorityBlockingQueue<Action>();
             this.manager = manager;
             this.workingMemory = workingMemory;
@@ -99,21 +184,67 @@ public class PartitionTaskManager {
         }
 
         public boolean enqueue(Action action) {
+            if ( this.capacity > 0 && queue.size() >= this.capacity && inPartitionTask.get() == null ) {
+                awaitNotFull();
+            }
             boolean result = queue.add( action );
             addToExecutorQueue();
             return result;
         }
 
+        /**
+         * Blocks the calling thread while the queue is full, as long as the
+         * partition tasks are not on hold. The wait is timed, as tasks may be
+         * put on hold by another thread while it waits.
+         */
+        private void awaitNotFull() {
+            blockedEnqueues.incrementAndGet();
+            waiting.incrementAndGet();
+            lock.lock();
+            try {
+                while ( queue.size() >= this.capacity && !manager.isOnHold() ) {
+                    notFull.await( 10,
+                                   TimeUnit.MILLISECONDS );
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+                waiting.decrementAndGet();
+            }
+        }
+
         /**
          * Default execution method.
          *
          * @see Runnable
          */
         public void run() {
+            inPartitionTask.set( Boolean.TRUE );
             try {
+                long start = System.nanoTime();
+                waitTime.addAndGet( start - submitTime );
+                int executed = 0;
                 Action action = queue.poll();
-                if ( action != null ) {
+                while ( action != null ) {
                     action.execute( workingMemory );
+                    executed++;
+                    if ( executed == BATCH_SIZE || manager.isOnHold() ) {
+                        break;
+                    }
+                    // a yield must be handled by addToExecutorQueue()
+                    Action head = queue.peek();
+                    action = (head == null || head instanceof YieldAction) ? null : queue.poll();
+                }
+                executedActions.addAndGet( executed );
+                executionTime.addAndGet( System.nanoTime() - start );
+                if ( waiting.get() > 0 ) {
+                    lock.lock();
+                    try {
+                        notFull.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
                 }
                 enqueued.set( false );
                 addToExecutorQueue();
@@ -122,6 +253,8 @@ public class PartitionTaskManager {
                 System.err.println( "Partition task manager caught an unexpected exception: " + e.getMessage() );
                 System.err.println( "Drools is capturing the exception to avoid thread death. Please report stack trace to development team." );
                 e.printStackTrace();
+            } finally {
+                inPartitionTask.remove();
             }
         }
 
@@ -147,6 +280,7 @@ public class PartitionTaskManager {
                 }
                 if ( head != null ) {
                     this.setPriority( priority );
+                    this.submitTime = System.nanoTime();
                     manager.execute( this );
                 } else {
                     enqueued.compareAndSet( true,
@@ -367,9 +501,9 @@ public class PartitionTaskManager {
         }
 
         public void execute(InternalWorkingMemory workingMemory) {
-            this.sink.assertLeftTuple( leftTuple,
-                                       context,
-                                       workingMemory );
+            this.sink.retractLeftTuple( leftTuple,
+                                        context,
+                                        workingMemory );
         }
     }
 
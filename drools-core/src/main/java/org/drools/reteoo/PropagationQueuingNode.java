@@ -166,6 +166,9 @@ public class PropagationQueuingNode extends ObjectSource
     public void assertObject(InternalFactHandle factHandle,
                              PropagationContext context,
                              InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         final PropagationQueueingNodeMemory memory = (PropagationQueueingNodeMemory) workingMemory.getNodeMemory( this );
         memory.addAction( new AssertAction( factHandle,
                                             context ) );
@@ -195,6 +198,9 @@ public class PropagationQueuingNode extends ObjectSource
                              ModifyPreviousTuples modifyPreviousTuples,
                              PropagationContext context,
                              InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( this ) ) {
+            return;
+        }
         final PropagationQueueingNodeMemory memory = (PropagationQueueingNodeMemory) workingMemory.getNodeMemory( this );
         memory.addAction( new ModifyAction( factHandle,
                                             modifyPreviousTuples,
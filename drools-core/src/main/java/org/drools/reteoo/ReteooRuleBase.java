@@ -25,6 +25,11 @@ import java.io.ObjectOutput;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.drools.FactException;
 import org.drools.FactHandle;
@@ -33,6 +38,7 @@ import org.drools.RuleBaseConfiguration;
 import org.drools.SessionConfiguration;
 import org.drools.StatefulSession;
 import org.drools.StatelessSession;
+import org.drools.SystemEventListenerFactory;
 import org.drools.common.AbstractRuleBase;
 import org.drools.common.DefaultFactHandle;
 import org.drools.common.DroolsObjectInput;
@@ -51,6 +57,8 @@ import org.drools.management.DroolsManagementAgent;
 import org.drools.marshalling.Marshaller;
 import org.drools.marshalling.MarshallerFactory;
 import org.drools.reteoo.ReteooWorkingMemory.WorkingMemoryReteAssertAction;
+import org.drools.reteoo.compiled.CompiledNetwork;
+import org.drools.reteoo.compiled.CompiledNetworkFactory;
 import org.drools.rule.EntryPoint;
 import org.drools.rule.InvalidPatternException;
 import org.drools.rule.Package;
@@ -79,6 +87,12 @@ public class ReteooRuleBase extends AbstractRuleBase {
 
     private ReteooBuilder     reteooBuilder;
 
+    /** Set when rules are added or removed, so the compiled alpha network is rebuilt on the last unlock */
+    private transient boolean alphaNetworkChanged;
+
+    /** Brings the sessions up to date with the rules added, with background rule propagation */
+    private transient java.util.concurrent.ExecutorService nodeUpdateExecutor;
+
     // ------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------
@@ -221,6 +235,8 @@ public class ReteooRuleBase extends AbstractRuleBase {
         if( !wasDrools ) {
             droolsStream.close();
         }
+
+        compileAlphaNetwork();
     }
 
     // ------------------------------------------------------------
@@ -405,14 +421,91 @@ public class ReteooRuleBase extends AbstractRuleBase {
     }
 
     protected void addRule(final Rule rule) throws InvalidPatternException {
+        discardCompiledAlphaNetwork();
         // This adds the rule. ReteBuilder has a reference to the WorkingMemories and will propagate any existing facts.
         this.reteooBuilder.addRule( rule );
     }
 
     protected void removeRule(final Rule rule) {
+        // the sessions must be up to date with the rules already added before nodes are removed
+        InternalWorkingMemory[] workingMemories = getWorkingMemories();
+        for ( int i = 0; i < workingMemories.length; i++ ) {
+            workingMemories[i].updateQueuedNodes();
+        }
+        discardCompiledAlphaNetwork();
         this.reteooBuilder.removeRule( rule );
     }
 
+    protected void onBeforeLastUnlock() {
+        if ( this.alphaNetworkChanged ) {
+            this.alphaNetworkChanged = false;
+            compileAlphaNetwork();
+        }
+        if ( getConfiguration().isBackgroundRulePropagation() ) {
+            updateQueuedNodesInBackground();
+        }
+    }
+
+    /**
+     * Updates the sessions with the nodes added while the rulebase was
+     * locked, on a background thread. Each update waits for the rulebase to
+     * be unlocked, and a session that is used first updates itself.
+     */
+    private void updateQueuedNodesInBackground() {
+        InternalWorkingMemory[] workingMemories = getWorkingMemories();
+        if ( workingMemories.length == 0 ) {
+            return;
+        }
+        if ( this.nodeUpdateExecutor == null ) {
+            this.nodeUpdateExecutor = Executors.newSingleThreadExecutor( new NodeUpdateThreadFactory() );
+        }
+        for ( int i = 0; i < workingMemories.length; i++ ) {
+            final InternalWorkingMemory workingMemory = workingMemories[i];
+            this.nodeUpdateExecutor.execute( new Runnable() {
+                public void run() {
+                    workingMemory.updateQueuedNodes();
+                }
+            } );
+        }
+    }
+
+    /**
+     * The compiled networks hold references to the nodes below each ObjectTypeNode, so
+     * they are dropped before the network changes. The interpreted network is used until
+     * the rulebase is unlocked and the networks are compiled again.
+     */
+    private void discardCompiledAlphaNetwork() {
+        if ( this.alphaNetworkChanged || !getConfig().isCompiledAlphaNetwork() ) {
+            return;
+        }
+        this.alphaNetworkChanged = true;
+        for ( ObjectTypeNode node : this.rete.getObjectTypeNodes() ) {
+            node.setCompiledNetwork( null );
+        }
+    }
+
+    private void compileAlphaNetwork() {
+        // the compiled network propagates synchronously, so it can't be used with partitions
+        if ( !getConfig().isCompiledAlphaNetwork() || getConfig().isMultithreadEvaluation() ) {
+            return;
+        }
+        List<ObjectTypeNode> nodes = this.rete.getObjectTypeNodes();
+        try {
+            Map<ObjectTypeNode, CompiledNetwork> networks = CompiledNetworkFactory.newCompiledNetworks( nodes,
+                                                                                                        getRootClassLoader() );
+            for ( ObjectTypeNode node : nodes ) {
+                node.setCompiledNetwork( networks.get( node ) );
+            }
+        } catch ( RuntimeException e ) {
+            // the interpreted network is still in place, so it is enough to report the problem
+            SystemEventListenerFactory.getSystemEventListener().exception( "Unable to compile the alpha network, the interpreted network is used instead",
+                                                                           e );
+            for ( ObjectTypeNode node : nodes ) {
+                node.setCompiledNetwork( null );
+            }
+        }
+    }
+
     public int getNodeCount() {
         // may start in 0
         return this.reteooBuilder.getIdGenerator().getLastId() + 1;
@@ -432,4 +525,17 @@ public class ReteooRuleBase extends AbstractRuleBase {
     public void addPackage(final Package newPkg) {
         addPackages( Collections.singleton( newPkg ) );
     }
+
+    private static class NodeUpdateThreadFactory
+        implements
+        ThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread( runnable,
+                                              "drools-rule-propagation-" + threadNumber.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
 }
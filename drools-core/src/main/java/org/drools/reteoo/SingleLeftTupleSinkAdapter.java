@@ -61,6 +61,9 @@ public class SingleLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter {
                                          final PropagationContext context,
                                          final InternalWorkingMemory workingMemory,
                                          boolean leftTupleMemoryEnabled) {
+        if ( workingMemory.isNodeUpdateQueued( (BaseNode) this.sink ) ) {
+            return;
+        }
         doPropagateAssertLeftTuple( context,
                                     workingMemory,
                                     new LeftTuple( leftTuple,
@@ -75,6 +78,9 @@ public class SingleLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter {
                                          final PropagationContext context,
                                          final InternalWorkingMemory workingMemory,
                                          boolean leftTupleMemoryEnabled) {
+        if ( workingMemory.isNodeUpdateQueued( (BaseNode) this.sink ) ) {
+            return;
+        }
         doPropagateAssertLeftTuple( context,
                                     workingMemory,
                                     new LeftTuple( tuple,
@@ -135,6 +141,9 @@ public class SingleLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter {
                                                   final PropagationContext context,
                                                   final InternalWorkingMemory workingMemory,
                                                   boolean leftTupleMemoryEnabled) {
+        if ( workingMemory.isNodeUpdateQueued( (BaseNode) this.sink ) ) {
+            return;
+        }
         doPropagateAssertLeftTuple( context,
                                     workingMemory,
                                     new LeftTuple( factHandle,
@@ -172,6 +181,9 @@ public class SingleLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter {
                                               InternalWorkingMemory workingMemory,
                                               LeftTuple leftTuple,
                                               LeftTupleSink sink) {
+        if ( workingMemory.isNodeUpdateQueued( (BaseNode) sink ) ) {
+            return;
+        }
         sink.assertLeftTuple( leftTuple, context, workingMemory );
     }
 
@@ -225,6 +237,9 @@ public class SingleLeftTupleSinkAdapter extends AbstractLeftTupleSinkAdapter {
                                       ModifyPreviousTuples modifyPreviousTuples,
                                       PropagationContext context,
                                       InternalWorkingMemory workingMemory) {
+        if ( workingMemory.isNodeUpdateQueued( (BaseNode) this.sink ) ) {
+            return;
+        }
         doPropagateModifyLeftTuple( factHandle,
                                     modifyPreviousTuples,
                                     context,
@@ -25,6 +25,7 @@ import org.drools.common.BaseNode;
 import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.common.RuleBasePartitionId;
+import org.drools.reteoo.EntryPointNode;
 import org.drools.reteoo.LeftTupleSource;
 import org.drools.reteoo.ObjectSource;
 import org.drools.reteoo.ReteooBuilder;
@@ -234,6 +235,28 @@ public class BuildContext {
         return this.workingMemories;
     }
 
+    /**
+     * Attaches the new node to the network and updates it with the facts and
+     * tuples of the working memories. With background rule propagation, the
+     * updates are queued on the working memories instead, to be done once the
+     * rulebase is unlocked. Until then the node ignores the propagations of
+     * each working memory. Entry point nodes have no facts to update them
+     * with, and are always updated straight away.
+     */
+    public void attachNode(final BaseNode node) {
+        final InternalWorkingMemory[] workingMemories = getWorkingMemories();
+        if ( workingMemories.length == 0 ) {
+            node.attach();
+        } else if ( this.rulebase.getConfiguration().isBackgroundRulePropagation() && !this.rulebase.getConfiguration().isMultithreadEvaluation() && !(node instanceof EntryPointNode) ) {
+            node.attach();
+            for ( int i = 0, length = workingMemories.length; i < length; i++ ) {
+                workingMemories[i].queueNodeUpdate( node );
+            }
+        } else {
+            node.attach( workingMemories );
+        }
+    }
+
     /**
      * Returns an Id for the next node
      * @return
@@ -143,11 +143,7 @@ public class BuildUtils {
             // set node whit the actual partition label
             node.setPartitionId( partition );
 
-            if ( context.getWorkingMemories().length == 0 ) {
-                node.attach();
-            } else {
-                node.attach( context.getWorkingMemories() );
-            }
+            context.attachNode( node );
             // adds the node to the context list to track all added nodes
             context.getNodes().add( node );
         } else {
@@ -167,11 +167,7 @@ public class ReteooRuleBuilder {
                                               subrule,
                                               context );
         }
-        if ( context.getWorkingMemories().length == 0 ) {
-            ((BaseNode) terminal).attach();
-        } else {
-            ((BaseNode) terminal).attach( context.getWorkingMemories() );
-        }
+        context.attachNode( (BaseNode) terminal );
 
         ((BaseNode) terminal).networkUpdated();
         
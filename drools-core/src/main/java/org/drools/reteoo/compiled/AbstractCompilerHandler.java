@@ -19,7 +19,7 @@ package org.drools.reteoo.compiled;
 import org.drools.base.ClassFieldReader;
 import org.drools.reteoo.AlphaNode;
 import org.drools.reteoo.Sink;
-import org.drools.rule.ContextEntry;
+import org.drools.spi.AlphaNodeFieldConstraint;
 
 /**
  * This handler is used as a base class for all {@link org.drools.reteoo.compiled.NetworkHandler}s used for
@@ -31,10 +31,13 @@ abstract class AbstractCompilerHandler extends NetworkHandlerAdaptor {
 
     private static final String MAP_VARIABLE_NAME_SUFFIX = "ToNodeId";
 
+    private static final String READER_VARIABLE_NAME_SUFFIX = "Reader";
+
     protected Class<?> getVariableType(AlphaNode alphaNode) {
 
-        // for alphas, we use the constraint of the alpha for the declaration
-        return alphaNode.getConstraint().getClass();
+        // for alphas, we use the constraint of the alpha for the declaration. The interface is used, as the
+        // constraint implementation is not always visible from the generated class
+        return AlphaNodeFieldConstraint.class;
     }
 
     protected Class<?> getVariableType(Sink sink) {
@@ -48,10 +51,13 @@ abstract class AbstractCompilerHandler extends NetworkHandlerAdaptor {
         return getVariableName(variableType, alphaNode.getId());
     }
 
-    protected String getContextVariableName(AlphaNode alphaNode) {
-        Class<?> variableType = ContextEntry.class;
-
-        return getVariableName(variableType, alphaNode.getId());
+    /**
+     * Returns the name of the variable holding the AlphaNode itself. The node is needed to get the
+     * per session {@link org.drools.reteoo.AlphaNode.AlphaMemory}, which holds the context entry
+     * used to evaluate the node's constraint.
+     */
+    protected String getNodeVariableName(AlphaNode alphaNode) {
+        return getVariableName(AlphaNode.class, alphaNode.getId());
     }
 
     protected String getVariableName(Sink sink) {
@@ -61,7 +67,32 @@ abstract class AbstractCompilerHandler extends NetworkHandlerAdaptor {
     }
 
     protected String getVariableName(ClassFieldReader fieldReader) {
-        return fieldReader.getFieldName() + MAP_VARIABLE_NAME_SUFFIX;
+        return getIdentifier(fieldReader.getFieldName()) + MAP_VARIABLE_NAME_SUFFIX;
+    }
+
+    protected String getReaderVariableName(ClassFieldReader fieldReader) {
+        return getIdentifier(fieldReader.getFieldName()) + READER_VARIABLE_NAME_SUFFIX;
+    }
+
+    /**
+     * Returns the specified text with every character that is not allowed in a java identifier replaced
+     * by an underscore.
+     */
+    private String getIdentifier(String text) {
+        StringBuilder identifier = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            identifier.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        return identifier.toString();
+    }
+
+    /**
+     * Returns the specified text, with line breaks and backslashes removed, so it can be used in a single line
+     * comment of the generated source. Backslashes are removed as unicode escapes are translated even in comments.
+     */
+    protected String getComment(Object node) {
+        return String.valueOf(node).replace('\r', ' ').replace('\n', ' ').replace('\\', '/');
     }
 
     /**
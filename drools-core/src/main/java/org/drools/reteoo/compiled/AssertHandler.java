@@ -17,6 +17,7 @@
 package org.drools.reteoo.compiled;
 
 import org.drools.base.ClassFieldReader;
+import org.drools.base.ValueType;
 import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.reteoo.AlphaNode;
@@ -26,7 +27,9 @@ import org.drools.reteoo.ObjectTypeNode;
 import org.drools.spi.PropagationContext;
 
 /**
- * todo: document
+ * This handler is used to create the {@link CompiledNetwork#assertObject} method of a generated subclass of
+ * {@link CompiledNetwork}. Non-hashed alphas become if statements evaluating the alpha's constraint, hashed
+ * alphas become a map lookup followed by a switch on the node id, and betas and lias are called directly.
  */
 class AssertHandler extends AbstractCompilerHandler {
     private static final String LOCAL_FACT_VAR_NAME = "fact";
@@ -54,15 +57,13 @@ class AssertHandler extends AbstractCompilerHandler {
     private final boolean alphaNetContainsHashedField;
 
     private final StringBuilder builder;
-    private final String factClassName;
 
-    AssertHandler(StringBuilder builder, String factClassName) {
-        this(builder, factClassName, false);
+    AssertHandler(StringBuilder builder) {
+        this(builder, false);
     }
 
-    AssertHandler(StringBuilder builder, String factClassName, boolean alphaNetContainsHashedField) {
+    AssertHandler(StringBuilder builder, boolean alphaNetContainsHashedField) {
         this.builder = builder;
-        this.factClassName = factClassName;
         this.alphaNetContainsHashedField = alphaNetContainsHashedField;
     }
 
@@ -72,10 +73,9 @@ class AssertHandler extends AbstractCompilerHandler {
 
         // we only need to create a reference to the object, not handle, if there is a hashed alpha in the network
         if (alphaNetContainsHashedField) {
-            // example of what this will look like
-            // ExampleFact fact = (ExampleFact) handle.getObject();
-            builder.append(factClassName).append(" ").append(LOCAL_FACT_VAR_NAME).
-                    append(" = (").append(factClassName).append(")").
+            // example of what this will look like, the fact is only passed to the field readers so no cast is needed
+            // Object fact = handle.getObject();
+            builder.append("Object ").append(LOCAL_FACT_VAR_NAME).append(" = ").
                     append(FACT_HANDLE_PARAM_NAME).append(".getObject();").
                     append(NEWLINE);
         }
@@ -101,8 +101,10 @@ class AssertHandler extends AbstractCompilerHandler {
     public void startNonHashedAlphaNode(AlphaNode alphaNode) {
         builder.append("if ( ").append(getVariableName(alphaNode)).
                 append(".isAllowed(").append(FACT_HANDLE_PARAM_NAME).append(",").
-                append(WORKING_MEMORY_PARAM_NAME).append(", ").
-                append(getContextVariableName(alphaNode)).append(") ) {").append(NEWLINE);
+                append(WORKING_MEMORY_PARAM_NAME).append(", ((").
+                append(AlphaNode.AlphaMemory.class.getCanonicalName()).append(") ").
+                append(WORKING_MEMORY_PARAM_NAME).append(".getNodeMemory(").
+                append(getNodeVariableName(alphaNode)).append(")).context) ) {").append(NEWLINE);
 
     }
 
@@ -114,18 +116,19 @@ class AssertHandler extends AbstractCompilerHandler {
 
     @Override
     public void startHashedAlphaNodes(ClassFieldReader hashedFieldReader) {
-        String attributeName = hashedFieldReader.getFieldName();
-        String localVariableName = attributeName + "NodeId";
+        String readerVariableName = getReaderVariableName(hashedFieldReader);
+        String localVariableName = readerVariableName + "NodeId";
 
-        // todo get accessor smarter because of booleans. Note that right now booleans wouldn't be hashed
-        String attributeGetterName = "get" + Character.toTitleCase(attributeName.charAt(0)) + attributeName.substring(1);
+        // null values are never hashed, so there is nothing to look up
+        builder.append("if ( !").append(readerVariableName).append(".isNullValue(").
+                append(WORKING_MEMORY_PARAM_NAME).append(", ").append(LOCAL_FACT_VAR_NAME).append(") ) {").
+                append(NEWLINE);
 
-        // get the attribute from the fact that we are switching over
+        // get the node id for the attribute of the fact that we are switching over
         builder.append("Integer ").append(localVariableName);
         // todo we are casting to Integer because generics aren't supported
         builder.append(" = (Integer)").append(getVariableName(hashedFieldReader)).append(".get(").
-                append(LOCAL_FACT_VAR_NAME).append(".").append(attributeGetterName)
-                .append("());").append(NEWLINE);
+                append(getKeySource(hashedFieldReader, readerVariableName)).append(");").append(NEWLINE);
 
         // ensure that the value is present in the node map
         builder.append("if(").append(localVariableName).append(" != null) {").append(NEWLINE);
@@ -133,6 +136,25 @@ class AssertHandler extends AbstractCompilerHandler {
         builder.append("switch(").append(localVariableName).append(".intValue()) {").append(NEWLINE);
     }
 
+    /**
+     * Returns the source for reading the map key from the fact. The key has the same type as the one
+     * created by {@link HashedAlphasDeclaration#getKeySource(Object)} for the hashed values.
+     */
+    private String getKeySource(ClassFieldReader hashedFieldReader, String readerVariableName) {
+        ValueType valueType = hashedFieldReader.getValueType();
+        String arguments = "(" + WORKING_MEMORY_PARAM_NAME + ", " + LOCAL_FACT_VAR_NAME + ")";
+
+        if (valueType.isBoolean()) {
+            return "(" + readerVariableName + ".getBooleanValue" + arguments + " ? Boolean.TRUE : Boolean.FALSE)";
+        } else if (valueType.isIntegerNumber()) {
+            return "Long.valueOf(" + readerVariableName + ".getLongValue" + arguments + ")";
+        } else if (valueType.isFloatNumber()) {
+            return "Double.valueOf(" + readerVariableName + ".getDoubleValue" + arguments + ")";
+        } else {
+            return readerVariableName + ".getValue" + arguments;
+        }
+    }
+
     @Override
     public void startHashedAlphaNode(AlphaNode hashedAlpha, Object hashedValue) {
         builder.append("case ").append(hashedAlpha.getId()).append(" : ").append(NEWLINE);
@@ -149,6 +171,8 @@ class AssertHandler extends AbstractCompilerHandler {
         builder.append("}").append(NEWLINE);
         // and if statement for ensuring non-null
         builder.append("}").append(NEWLINE);
+        // and if statement for ensuring the attribute is non-null
+        builder.append("}").append(NEWLINE);
     }
 
     @Override
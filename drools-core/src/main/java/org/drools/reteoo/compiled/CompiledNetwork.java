@@ -16,9 +16,12 @@
 
 package org.drools.reteoo.compiled;
 
+import org.drools.common.InternalFactHandle;
+import org.drools.common.InternalWorkingMemory;
 import org.drools.common.NetworkNode;
 import org.drools.common.RuleBasePartitionId;
 import org.drools.reteoo.*;
+import org.drools.spi.PropagationContext;
 
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -84,6 +87,23 @@ public abstract class CompiledNetwork implements ObjectSink {
         // todo is this needed??
     }
 
+    /**
+     * Only asserts are compiled, modifies are propagated by the interpreted network of the OTN.
+     */
+    public void modifyObject(final InternalFactHandle factHandle,
+                             final ModifyPreviousTuples modifyPreviousTuples,
+                             final PropagationContext context,
+                             final InternalWorkingMemory workingMemory) {
+        objectTypeNode.getSinkPropagator().propagateModifyObject(factHandle,
+                modifyPreviousTuples,
+                context,
+                workingMemory);
+    }
+
+    public ObjectTypeNode getObjectTypeNode() {
+        return objectTypeNode;
+    }
+
     /**
      * Sets the OTN for this network. Calling this method will set all variables in the generated subclasses
      * by walking the {@link org.drools.reteoo.ObjectTypeNode} using a {@link ObjectTypeNodeParser}.
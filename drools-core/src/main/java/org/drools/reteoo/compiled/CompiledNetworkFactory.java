@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo.compiled;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.drools.reteoo.ObjectTypeNode;
+import org.drools.util.ServiceRegistryImpl;
+
+public class CompiledNetworkFactory {
+
+    private static CompiledNetworkFactoryService service;
+
+    public static Map<ObjectTypeNode, CompiledNetwork> newCompiledNetworks(Collection<ObjectTypeNode> objectTypeNodes,
+                                                                           ClassLoader classLoader) {
+        return getCompiledNetworkFactoryService().newCompiledNetworks( objectTypeNodes,
+                                                                       classLoader );
+    }
+
+    public static synchronized void setCompiledNetworkFactoryService(CompiledNetworkFactoryService service) {
+        CompiledNetworkFactory.service = service;
+    }
+
+    public static synchronized CompiledNetworkFactoryService getCompiledNetworkFactoryService() {
+        if ( service == null ) {
+            loadProvider();
+        }
+        return service;
+    }
+
+    private static void loadProvider() {
+        ServiceRegistryImpl.getInstance().addDefault( CompiledNetworkFactoryService.class,
+                                                      "org.drools.reteoo.compiled.CompiledNetworkFactoryServiceImpl" );
+        setCompiledNetworkFactoryService( ServiceRegistryImpl.getInstance().get( CompiledNetworkFactoryService.class ) );
+    }
+
+}
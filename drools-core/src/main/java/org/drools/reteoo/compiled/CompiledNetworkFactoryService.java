@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo.compiled;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.drools.Service;
+import org.drools.reteoo.ObjectTypeNode;
+
+/**
+ * CompiledNetworkFactoryService is used by the ReteooRuleBase to "provide" the concrete implementation that
+ * generates and compiles the {@link CompiledNetwork}s. Compilation needs a java compiler, so the implementation
+ * lives in drools-compiler.
+ */
+public interface CompiledNetworkFactoryService extends Service {
+
+    /**
+     * Compiles a network for each of the specified nodes that can be compiled. Nodes that are not supported
+     * by the compiled network are left out of the returned map, and keep using the interpreted network.
+     *
+     * @param objectTypeNodes nodes to compile
+     * @param classLoader     class loader of the rulebase, used to load the fact classes and generated networks
+     * @return the compiled networks, keyed by the node they were compiled for
+     */
+    Map<ObjectTypeNode, CompiledNetwork> newCompiledNetworks(Collection<ObjectTypeNode> objectTypeNodes,
+                                                             ClassLoader classLoader);
+
+}
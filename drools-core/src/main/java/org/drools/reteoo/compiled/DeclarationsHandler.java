@@ -21,7 +21,8 @@ import org.drools.reteoo.AlphaNode;
 import org.drools.reteoo.BetaNode;
 import org.drools.reteoo.LeftInputAdapterNode;
 import org.drools.reteoo.Sink;
-import org.drools.rule.ContextEntry;
+import org.drools.rule.LiteralConstraint;
+import org.drools.spi.InternalReadAccessor;
 
 import java.util.*;
 
@@ -29,11 +30,12 @@ import java.util.*;
  * This handler is used to create the member declarations section of a generated subclass of a {@link CompiledNetwork}.
  * Currently we only create member variables for the following types of nodes:
  * <p/>
- * <li>Non-hashed {@link AlphaNode}s</li>
+ * <li>Non-hashed {@link AlphaNode}s, both the constraint and the node itself</li>
  * <li>{@link LeftInputAdapterNode}s</li>
  * <li>{@link BetaNode}s</li>
  * <li>A {@link Map} for each set of hashed {@link AlphaNode}s. The keys are the hashed values, and the values are
  * the IDs of the alphas</li>
+ * <li>The field reader for each set of hashed {@link AlphaNode}s</li>
  */
 class DeclarationsHandler extends AbstractCompilerHandler {
     private static final String PRIVATE_MODIFIER = "private";
@@ -63,14 +65,14 @@ class DeclarationsHandler extends AbstractCompilerHandler {
         Class<?> variableType = getVariableType(alphaNode);
         String variableName = getVariableName(alphaNode);
         // comment for variable declaration is just the toString of the node
-        String comment = alphaNode.toString();
+        String comment = getComment(alphaNode);
 
         return PRIVATE_MODIFIER + " " + variableType.getName() + " " + variableName + "; // " + comment;
     }
 
-    private String getContextVariableDeclaration(AlphaNode alphaNode){
-        Class<?> variableType = ContextEntry.class;
-        String variableName = getContextVariableName(alphaNode);
+    private String getNodeVariableDeclaration(AlphaNode alphaNode) {
+        Class<?> variableType = AlphaNode.class;
+        String variableName = getNodeVariableName(alphaNode);
 
         return PRIVATE_MODIFIER + " " + variableType.getName() + " " + variableName + ";";
     }
@@ -79,7 +81,7 @@ class DeclarationsHandler extends AbstractCompilerHandler {
         Class<?> declarationType = getVariableType(sink);
         String variableName = getVariableName(sink);
         // comment for variable declaration is just the toString of the node
-        String comment = sink.toString();
+        String comment = getComment(sink);
 
         return PRIVATE_MODIFIER + " " + declarationType.getName() + " " + variableName + "; // " + comment;
     }
@@ -95,6 +97,13 @@ class DeclarationsHandler extends AbstractCompilerHandler {
                 + " = new " + createType.getName() + "();";
     }
 
+    private String getReaderVariableDeclaration(ClassFieldReader fieldReader) {
+        Class<?> declarationType = InternalReadAccessor.class;
+        String variableName = getReaderVariableName(fieldReader);
+
+        return PRIVATE_MODIFIER + " " + declarationType.getName() + " " + variableName + ";";
+    }
+
     Collection<HashedAlphasDeclaration> getHashedAlphaDeclarations() {
         return Collections.unmodifiableCollection(hashedAlphaDeclarations);
     }
@@ -102,7 +111,7 @@ class DeclarationsHandler extends AbstractCompilerHandler {
     @Override
     public void startNonHashedAlphaNode(AlphaNode alphaNode) {
         builder.append(getVariableDeclaration(alphaNode)).append(NEWLINE);
-        builder.append(getContextVariableDeclaration(alphaNode)).append(NEWLINE);
+        builder.append(getNodeVariableDeclaration(alphaNode)).append(NEWLINE);
     }
 
     @Override
@@ -117,6 +126,11 @@ class DeclarationsHandler extends AbstractCompilerHandler {
 
     @Override
     public void startHashedAlphaNodes(ClassFieldReader hashedFieldReader) {
+        if (hashedFieldReader.getValueType().isChar()) {
+            // chars are hashed as objects, but looked up as numbers, by the interpreted network
+            throw new IllegalArgumentException("Hashed char fields are not supported: " + hashedFieldReader.getFieldName());
+        }
+
         // we create a new hashed alpha that will be used to keep track of the hashes values to node ID for each
         // class field reader.
         currentHashedAlpha = new HashedAlphasDeclaration(getVariableName(hashedFieldReader),
@@ -126,10 +140,18 @@ class DeclarationsHandler extends AbstractCompilerHandler {
         hashedAlphaDeclarations.add(currentHashedAlpha);
 
         builder.append(getVariableDeclaration(hashedFieldReader)).append(NEWLINE);
+        builder.append(getReaderVariableDeclaration(hashedFieldReader)).append(NEWLINE);
     }
 
     @Override
     public void startHashedAlphaNode(AlphaNode hashedAlpha, Object hashedValue) {
+        if (((LiteralConstraint) hashedAlpha.getConstraint()).getField().isNull()) {
+            // a null literal can't be told apart from the default value of a primitive hash key
+            throw new IllegalArgumentException("Hashed null values are not supported: " + hashedAlpha);
+        }
+        // fails fast if the value can't be expressed in the generated source
+        currentHashedAlpha.getKeySource(hashedValue);
+
         currentHashedAlpha.add(hashedValue, String.valueOf(hashedAlpha.getId()));
     }
 }
@@ -60,6 +60,68 @@ class HashedAlphasDeclaration {
         return Collections.unmodifiableSet(hashedValuesToNodeIds.keySet());
     }
 
+    /**
+     * Returns the java source for the map key of the specified hashed value. The keys are created the same way as
+     * {@link org.drools.reteoo.CompositeObjectSinkAdapter.HashKey} does, i.e. integer numbers as Longs and floating
+     * point numbers as Doubles.
+     *
+     * @param hashedValue value of one of the hashed alphas
+     * @return java source creating the key
+     * @throws IllegalArgumentException if the value cannot be expressed as a literal
+     */
+    String getKeySource(Object hashedValue) throws IllegalArgumentException {
+        if (valueType.isBoolean() && hashedValue instanceof Boolean) {
+            return ((Boolean) hashedValue).booleanValue() ? "Boolean.TRUE" : "Boolean.FALSE";
+        } else if (valueType.isIntegerNumber() && hashedValue instanceof Long) {
+            return "Long.valueOf(" + hashedValue + "L)";
+        } else if (valueType.isFloatNumber() && hashedValue instanceof Double) {
+            Double value = (Double) hashedValue;
+            if (value.isNaN() || value.isInfinite()) {
+                throw new IllegalArgumentException("Unsupported hashed value " + hashedValue);
+            }
+            return "Double.valueOf(" + value + ")";
+        } else if (hashedValue instanceof String) {
+            return getStringLiteral((String) hashedValue);
+        }
+        throw new IllegalArgumentException("Unsupported hashed value " + hashedValue + " of type " + valueType);
+    }
+
+    private static String getStringLiteral(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2);
+        literal.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        // three digit octal escapes are used for control characters, as unicode escapes for those
+                        // would be translated before the literal is parsed
+                        literal.append('\\').append(Integer.toOctalString(c + 0400).substring(1));
+                    } else if (c >= 0x7f) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
     String getNodeId(Object hashedValue) {
         return hashedValuesToNodeIds.get(hashedValue);
     }
@@ -23,6 +23,11 @@ import org.drools.reteoo.*;
 import org.drools.rule.LiteralConstraint;
 import org.drools.spi.AlphaNodeFieldConstraint;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class is used for reading an {@link ObjectTypeNode} using callbacks.
  * <p/>
@@ -35,6 +40,10 @@ import org.drools.spi.AlphaNodeFieldConstraint;
  * <p/>
  * Events are fired when each of these network features are encountered, and again when the end of them is encountered.
  * OTN parsing is unidirectional; previously parsed data cannot be re-read without starting the parsing operation again.
+ * <p/>
+ * Only the synchronous propagators, and the sinks listed above, are supported. Any other part of the network
+ * will cause an {@link IllegalArgumentException} to be thrown, so that the caller can keep using the interpreted
+ * network for that OTN.
  */
 public class ObjectTypeNodeParser {
 
@@ -72,7 +81,9 @@ public class ObjectTypeNodeParser {
     }
 
     private void traversePropagator(ObjectSinkPropagator propagator, NetworkHandler handler) {
-        if (propagator instanceof SingleObjectSinkAdapter) {
+        if (propagator instanceof AsyncSingleObjectSinkAdapter || propagator instanceof AsyncCompositeObjectSinkAdapter) {
+            throw new IllegalArgumentException("Asynchronous propagators are not supported: " + propagator.getClass());
+        } else if (propagator instanceof SingleObjectSinkAdapter) {
             // we know there is only a single child sink for this propagator
             ObjectSink sink = propagator.getSinks()[0];
 
@@ -80,9 +91,13 @@ public class ObjectTypeNodeParser {
         } else if (propagator instanceof CompositeObjectSinkAdapter) {
             CompositeObjectSinkAdapter composite = (CompositeObjectSinkAdapter) propagator;
 
+            // same order as the interpreted propagation: hashed alphas first, then the hashable and other sinks
+            traverseHashedAlphaNodes(composite.getHashedSinkMap(), handler);
+            // the literal set and range sinks are tested one by one, as the compiled network has no index for them
+            traverseSinkLisk(composite.getHashedLiteralSetSinks(), handler);
+            traverseSinkLisk(composite.getIndexedRangeSinks(), handler);
             traverseSinkLisk(composite.getHashableSinks(), handler);
             traverseSinkLisk(composite.getOthers(), handler);
-            traverseHashedAlphaNodes(composite.getHashedSinkMap(), handler);
         }
     }
 
@@ -119,26 +134,42 @@ public class ObjectTypeNodeParser {
 
     private void traverseHashedAlphaNodes(ObjectHashMap hashedAlphaNodes, NetworkHandler handler) {
         if (hashedAlphaNodes != null && hashedAlphaNodes.size() > 0) {
-            AlphaNode firstAlpha = getFirstAlphaNode(hashedAlphaNodes);
-            ClassFieldReader hashedFieldReader = getClassFieldReaderForHashedAlpha(firstAlpha);
-
-            // start the hashed alphas
-            handler.startHashedAlphaNodes(hashedFieldReader);
+            // the map holds the hashed alphas of every hashed field, so group them by field index first
+            Map<Integer, List<ObjectHashMap.ObjectEntry>> entriesByIndex = new LinkedHashMap<Integer, List<ObjectHashMap.ObjectEntry>>();
 
             Iterator iter = hashedAlphaNodes.iterator();
             for (ObjectHashMap.ObjectEntry entry = (ObjectHashMap.ObjectEntry) iter.next(); entry != null; entry = (ObjectHashMap.ObjectEntry) iter.next()) {
                 CompositeObjectSinkAdapter.HashKey hashKey = (CompositeObjectSinkAdapter.HashKey) entry.getKey();
-                AlphaNode alphaNode = (AlphaNode) entry.getValue();
-
-                handler.startHashedAlphaNode(alphaNode, hashKey.getObjectValue());
-                // traverse the propagator for each alpha
-                traversePropagator(alphaNode.getSinkPropagator(), handler);
 
-                handler.endHashedAlphaNode(alphaNode, hashKey.getObjectValue());
+                List<ObjectHashMap.ObjectEntry> entries = entriesByIndex.get(hashKey.getIndex());
+                if (entries == null) {
+                    entries = new ArrayList<ObjectHashMap.ObjectEntry>();
+                    entriesByIndex.put(hashKey.getIndex(), entries);
+                }
+                entries.add(entry);
             }
 
-            // end of the hashed alphas
-            handler.endHashedAlphaNodes(hashedFieldReader);
+            for (List<ObjectHashMap.ObjectEntry> entries : entriesByIndex.values()) {
+                AlphaNode firstAlpha = (AlphaNode) entries.get(0).getValue();
+                ClassFieldReader hashedFieldReader = getClassFieldReaderForHashedAlpha(firstAlpha);
+
+                // start the hashed alphas
+                handler.startHashedAlphaNodes(hashedFieldReader);
+
+                for (ObjectHashMap.ObjectEntry entry : entries) {
+                    CompositeObjectSinkAdapter.HashKey hashKey = (CompositeObjectSinkAdapter.HashKey) entry.getKey();
+                    AlphaNode alphaNode = (AlphaNode) entry.getValue();
+
+                    handler.startHashedAlphaNode(alphaNode, hashKey.getObjectValue());
+                    // traverse the propagator for each alpha
+                    traversePropagator(alphaNode.getSinkPropagator(), handler);
+
+                    handler.endHashedAlphaNode(alphaNode, hashKey.getObjectValue());
+                }
+
+                // end of the hashed alphas
+                handler.endHashedAlphaNodes(hashedFieldReader);
+            }
         }
     }
 
@@ -163,6 +194,8 @@ public class ObjectTypeNodeParser {
             handler.startLeftInputAdapterNode(leftInputAdapterNode);
             // todo traverse lia
             handler.endLeftInputAdapterNode(leftInputAdapterNode);
+        } else {
+            throw new IllegalArgumentException("Unsupported sink in compiled network: " + sink.getClass());
         }
     }
 
@@ -170,28 +203,6 @@ public class ObjectTypeNodeParser {
         // todo traverse sink's propagator
     }
 
-    /**
-     * Returns the first {@link org.drools.reteoo.AlphaNode} from the specified {@link ObjectHashMap}.
-     *
-     * @param hashedAlphaNodes map of hashed AlphaNodes
-     * @return first alpha from the specified map
-     * @throws IllegalArgumentException thrown if the map doesn't contain any alpha nodes
-     */
-    private AlphaNode getFirstAlphaNode(final ObjectHashMap hashedAlphaNodes) throws IllegalArgumentException {
-        AlphaNode firstAlphaNode;
-
-        final Iterator iter = hashedAlphaNodes.iterator();
-        final ObjectHashMap.ObjectEntry entry = (ObjectHashMap.ObjectEntry) iter.next();
-
-        if (entry != null) {
-            firstAlphaNode = (AlphaNode) entry.getValue();
-        } else {
-            throw new IllegalArgumentException("ObjectHashMap does not contain any hashed AlphaNodes!");
-        }
-
-        return firstAlphaNode;
-    }
-
     /**
      * Returns the {@link ClassFieldReader} for the hashed AlphaNode. The AlphaNode's constraint has to be a
      * LiteralConstraint. This is the only type of hashed alpha currently supported.
@@ -211,6 +222,10 @@ public class ObjectTypeNodeParser {
         // generated variable name
         final LiteralConstraint literalConstraint = (LiteralConstraint) alphaNode.getConstraint();
 
+        if (!(literalConstraint.getFieldExtractor() instanceof ClassFieldReader)) {
+            throw new IllegalArgumentException("Only support ClassFieldReader hashed AlphaNodes, not " + literalConstraint.getFieldExtractor().getClass());
+        }
+
         return (ClassFieldReader) literalConstraint.getFieldExtractor();
     }
 }
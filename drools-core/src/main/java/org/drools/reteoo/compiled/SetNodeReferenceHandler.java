@@ -16,9 +16,11 @@
 
 package org.drools.reteoo.compiled;
 
+import org.drools.base.ClassFieldReader;
 import org.drools.common.NetworkNode;
 import org.drools.reteoo.*;
-import org.drools.rule.ContextEntry;
+import org.drools.rule.LiteralConstraint;
+import org.drools.spi.InternalReadAccessor;
 
 /**
  * This handler is used to create the member variable assignment statements section of a generated subclass of a
@@ -28,6 +30,7 @@ import org.drools.rule.ContextEntry;
  * <li>Non-hashed {@link AlphaNode}s</li>
  * <li>{@link LeftInputAdapterNode}s</li>
  * <li>{@link BetaNode}s</li>
+ * <li>Hashed {@link AlphaNode}s, for assigning the field reader of their set</li>
  */
 class SetNodeReferenceHandler extends AbstractCompilerHandler {
 
@@ -38,6 +41,11 @@ class SetNodeReferenceHandler extends AbstractCompilerHandler {
 
     private final StringBuilder builder;
 
+    /**
+     * Field reader of the current set of hashed alphas
+     */
+    private ClassFieldReader currentHashedFieldReader;
+
     SetNodeReferenceHandler(StringBuilder builder) {
         this.builder = builder;
     }
@@ -63,18 +71,16 @@ class SetNodeReferenceHandler extends AbstractCompilerHandler {
         return assignmentStatement;
     }
 
-    private String getContextVariableAssignmentStatement(AlphaNode alphaNode) {
-        String contextVariableName = getContextVariableName(alphaNode);
-        String alphaVariableName = getVariableName(alphaNode);
-        String assignmentStatement;
-
-        // we need the constraint for an alpha node assignment, so generate a cast, plus the method call to get
-        // the constraint
-        assignmentStatement = contextVariableName + " = " + alphaVariableName + ".createContextEntry();";
-
-        return assignmentStatement;
+    private String getNodeVariableAssignmentStatement(AlphaNode alphaNode, String nodeVariableName) {
+        return getNodeVariableName(alphaNode) + " = (" + AlphaNode.class.getName() + ")" + nodeVariableName + ";";
     }
 
+    private String getReaderVariableAssignmentStatement(ClassFieldReader fieldReader, String nodeVariableName) {
+        // the reader is taken from the literal constraint of the hashed alpha
+        return getReaderVariableName(fieldReader) + " = (" + InternalReadAccessor.class.getName() + ") (("
+                + LiteralConstraint.class.getName() + ") ((" + AlphaNode.class.getName() + ")" + nodeVariableName
+                + ").getConstraint()).getFieldExtractor();";
+    }
 
     @Override
     public void startObjectTypeNode(ObjectTypeNode objectTypeNode) {
@@ -95,12 +101,13 @@ class SetNodeReferenceHandler extends AbstractCompilerHandler {
     public void startNonHashedAlphaNode(AlphaNode alphaNode) {
         // case statement for the non-hashed alphas looks like the following
         // case 24:
-        //      variableConstraint24 = (VariableConstraint) ((AlphaNode) node).getConstraint();
+        //      alphaNodeFieldConstraint24 = (AlphaNodeFieldConstraint) ((AlphaNode) node).getConstraint();
+        //      alphaNode24 = (AlphaNode) node;
         //      break;
 
         builder.append("case ").append(alphaNode.getId()).append(": ").append(NEWLINE);
         builder.append(getVariableAssignmentStatement(alphaNode, PARAM_NAME)).append(NEWLINE);
-        builder.append(getContextVariableAssignmentStatement(alphaNode)).append(NEWLINE);
+        builder.append(getNodeVariableAssignmentStatement(alphaNode, PARAM_NAME)).append(NEWLINE);
         builder.append("break;").append(NEWLINE);
     }
 
@@ -126,4 +133,20 @@ class SetNodeReferenceHandler extends AbstractCompilerHandler {
         builder.append(getVariableAssignmentStatement(leftInputAdapterNode, PARAM_NAME)).append(NEWLINE);
         builder.append("break;").append(NEWLINE);
     }
+
+    @Override
+    public void startHashedAlphaNodes(ClassFieldReader hashedFieldReader) {
+        currentHashedFieldReader = hashedFieldReader;
+    }
+
+    @Override
+    public void startHashedAlphaNode(AlphaNode hashedAlpha, Object hashedValue) {
+        // case statement for the hashed alphas looks like the following
+        // case 12:
+        //      typeReader = (InternalReadAccessor) ((LiteralConstraint) ((AlphaNode) node).getConstraint()).getFieldExtractor();
+        //      break;
+        builder.append("case ").append(hashedAlpha.getId()).append(": ").append(NEWLINE);
+        builder.append(getReaderVariableAssignmentStatement(currentHashedFieldReader, PARAM_NAME)).append(NEWLINE);
+        builder.append("break;").append(NEWLINE);
+    }
 }
@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
+import org.drools.base.evaluators.MatchesEvaluatorsDefinition;
+import org.drools.base.field.PatternFieldImpl;
 import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.reteoo.LeftTuple;
@@ -55,11 +57,24 @@ public class LiteralRestriction
     public LiteralRestriction(final FieldValue field,
                               final Evaluator evaluator,
                               final InternalReadAccessor fieldExtractor) {
-        this.field = field;
+        this.field = isRegexLiteral( field,
+                                     evaluator ) ? new PatternFieldImpl( (String) field.getValue() ) : field;
         this.evaluator = evaluator;
         this.readAccessor = fieldExtractor;
     }
 
+    /**
+     * Literal "matches" restrictions have their regular expression compiled
+     * once, here, instead of on every evaluation.
+     */
+    private static boolean isRegexLiteral(final FieldValue field,
+                                          final Evaluator evaluator) {
+        if ( field == null || evaluator == null || field instanceof PatternFieldImpl || !(field.getValue() instanceof String) ) {
+            return false;
+        }
+        return evaluator.getOperator() == MatchesEvaluatorsDefinition.MATCHES || evaluator.getOperator() == MatchesEvaluatorsDefinition.NOT_MATCHES;
+    }
+
     public void readExternal(ObjectInput in) throws IOException,
                                             ClassNotFoundException {
         field = (FieldValue) in.readObject();
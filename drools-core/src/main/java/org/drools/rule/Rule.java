@@ -735,6 +735,16 @@ public class Rule
         return this.metaAttributes.keySet();
     }
 
+    /**
+     * Returns true if the rule is annotated with @parallel, declaring that its
+     * consequence does not insert, update or retract facts, or otherwise use the
+     * working memory, so it may be fired concurrently with other such
+     * consequences (see drools.consequenceThreads).
+     */
+    public boolean isParallel() {
+        return this.metaAttributes.containsKey( "parallel" ) && !"false".equals( this.metaAttributes.get( "parallel" ) );
+    }
+
     public void setParent(Rule parent) {
         this.parent = parent;
     }
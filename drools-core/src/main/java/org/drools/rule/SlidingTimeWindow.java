@@ -20,8 +20,6 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.Comparator;
-import java.util.PriorityQueue;
 
 import org.drools.common.EventFactHandle;
 import org.drools.common.InternalFactHandle;
@@ -110,8 +108,9 @@ public class SlidingTimeWindow
                                     final RightTuple rightTuple,
                                     final InternalWorkingMemory workingMemory) {
         SlidingTimeWindowContext queue = (SlidingTimeWindowContext) context;
-        queue.queue.add( rightTuple );
-        if ( queue.queue.peek() == rightTuple ) {
+        queue.add( rightTuple,
+                   getTimestamp( rightTuple ) );
+        if ( queue.peek() == rightTuple ) {
             // update next expiration time 
             updateNextExpiration( rightTuple,
                                   workingMemory,
@@ -131,16 +130,10 @@ public class SlidingTimeWindow
         SlidingTimeWindowContext queue = (SlidingTimeWindowContext) context;
         // it may be a call back to expire the tuple that is already being expired
         if ( queue.expiringTuple != rightTuple ) {
-            if ( queue.queue.peek() == rightTuple ) {
-                // it was the head of the queue
-                queue.queue.poll();
-                // update next expiration time 
-                updateNextExpiration( queue.queue.peek(),
-                                      workingMemory,
-                                      queue );
-            } else {
-                queue.queue.remove( rightTuple );
-            }
+            // the job scheduled for the previous head is left alone, as it reschedules
+            // itself for the next head when it finds nothing to expire
+            queue.remove( rightTuple,
+                          getTimestamp( rightTuple ) );
         }
     }
 
@@ -149,26 +142,35 @@ public class SlidingTimeWindow
         TimerService clock = workingMemory.getTimerService();
         long currentTime = clock.getCurrentTime();
         SlidingTimeWindowContext queue = (SlidingTimeWindowContext) context;
-        RightTuple tuple = queue.queue.peek();
+        // the job that called back is done
+        queue.jobHandle = null;
+
+        // all the tuples due are expired in a single propagation
+        PropagationContextImpl propagationContext = null;
+        RightTuple tuple = queue.peek();
         while ( tuple != null && isExpired( currentTime,
                                             tuple ) ) {
             queue.expiringTuple = tuple;
-            queue.queue.remove();
+            queue.poll();
             final InternalFactHandle handle = tuple.getFactHandle();
             if( handle.isValid()) {
                 // if not expired yet, expire it
-                final PropagationContext propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
-                                                                                          PropagationContext.EXPIRATION,
-                                                                                          null,
-                                                                                          null,
-                                                                                          handle );
+                if ( propagationContext == null ) {
+                    propagationContext = new PropagationContextImpl( workingMemory.getNextPropagationIdCounter(),
+                                                                     PropagationContext.EXPIRATION,
+                                                                     null,
+                                                                     null,
+                                                                     handle );
+                } else {
+                    propagationContext.setFactHandle( handle );
+                }
                 tuple.getRightTupleSink().retractRightTuple( tuple,
                                                              propagationContext,
                                                              workingMemory );
             }
             tuple.unlinkFromRightParent();
             queue.expiringTuple = null;
-            tuple = queue.queue.peek();
+            tuple = queue.peek();
         }
 
         // update next expiration time 
@@ -179,7 +181,11 @@ public class SlidingTimeWindow
 
     private boolean isExpired(final long currentTime,
                               final RightTuple rightTuple) {
-        return ((EventFactHandle) rightTuple.getFactHandle()).getStartTimestamp() + this.size <= currentTime;
+        return getTimestamp( rightTuple ) + this.size <= currentTime;
+    }
+
+    private static long getTimestamp(final RightTuple rightTuple) {
+        return ((EventFactHandle) rightTuple.getFactHandle()).getStartTimestamp();
     }
 
     /**
@@ -188,17 +194,28 @@ public class SlidingTimeWindow
      */
     private void updateNextExpiration(final RightTuple rightTuple,
                                       final InternalWorkingMemory workingMemory,
-                                      final Object context) {
+                                      final SlidingTimeWindowContext context) {
         TimerService clock = workingMemory.getTimerService();
         if ( rightTuple != null ) {
-            long nextTimestamp = ((EventFactHandle) rightTuple.getFactHandle()).getStartTimestamp() + this.size;
-            JobContext jobctx = new BehaviorJobContext( workingMemory,
-                                                        this,
-                                                        context );
+            long nextTimestamp = getTimestamp( rightTuple ) + this.size;
+            if ( context.jobHandle != null ) {
+                if ( context.nextExpiration <= nextTimestamp ) {
+                    // the pending job runs first and reschedules itself
+                    return;
+                }
+                clock.removeJob( context.jobHandle );
+            }
+            if ( context.jobContext == null ) {
+                context.jobContext = new BehaviorJobContext( workingMemory,
+                                                             this,
+                                                             context );
+            }
             JobHandle handle = clock.scheduleJob( job,
-                                                  jobctx,
+                                                  context.jobContext,
                                                   new PointInTimeTrigger( nextTimestamp, null, null ) );
-            jobctx.setJobHandle( handle );
+            context.jobContext.setJobHandle( handle );
+            context.jobHandle = handle;
+            context.nextExpiration = nextTimestamp;
         }
     }
 
@@ -211,42 +228,153 @@ public class SlidingTimeWindow
     }
 
     /**
-     * A Comparator<RightTuple> implementation for the fact queue
+     * The tuples in the window, ordered by timestamp in a ring buffer. Events
+     * usually arrive in timestamp order, so they are appended in O(1), and a
+     * late event is moved back from the tail past the later ones only.
+     * Retracted tuples are found by a binary search on the timestamps and
+     * left as empty slots, skipped at the head and dropped when the buffer
+     * is compacted.
      */
-    private static class SlidingTimeWindowComparator
-        implements
-        Comparator<RightTuple> {
-        public int compare(RightTuple t1,
-                           RightTuple t2) {
-            final EventFactHandle e1 = (EventFactHandle) t1.getFactHandle();
-            final EventFactHandle e2 = (EventFactHandle) t2.getFactHandle();
-            return (e1.getStartTimestamp() < e2.getStartTimestamp()) ? -1 : (e1.getStartTimestamp() == e2.getStartTimestamp() ? 0 : 1);
-        }
-    }
-
-    private static class SlidingTimeWindowContext
+    static class SlidingTimeWindowContext
         implements
         Externalizable {
 
-        public PriorityQueue<RightTuple> queue;
-        public RightTuple                expiringTuple;
+        private RightTuple[]      tuples;
+        private long[]            timestamps;
+        private int               head;
+        // the number of slots in use, empty ones included
+        private int               count;
+        private int               size;
+
+        public RightTuple         expiringTuple;
+
+        public BehaviorJobContext jobContext;
+        // the pending expiration job and its time, if any
+        public JobHandle          jobHandle;
+        public long               nextExpiration;
 
         public SlidingTimeWindowContext() {
-            this.queue = new PriorityQueue<RightTuple>( 16, // arbitrary size... can we improve it?
-                                                        new SlidingTimeWindowComparator() );
+            this.tuples = new RightTuple[16];
+            this.timestamps = new long[16];
         }
 
         public void readExternal(ObjectInput in) throws IOException,
                                                 ClassNotFoundException {
-            this.queue = (PriorityQueue<RightTuple>) in.readObject();
+            RightTuple[] tuples = (RightTuple[]) in.readObject();
+            this.tuples = new RightTuple[16];
+            this.timestamps = new long[16];
+            for ( int i = 0; i < tuples.length; i++ ) {
+                add( tuples[i],
+                     getTimestamp( tuples[i] ) );
+            }
             this.expiringTuple = (RightTuple) in.readObject();
         }
 
         public void writeExternal(ObjectOutput out) throws IOException {
-            out.writeObject( this.queue );
+            RightTuple[] tuples = new RightTuple[this.size];
+            for ( int i = 0, j = 0; i < this.count; i++ ) {
+                RightTuple tuple = this.tuples[slot( i )];
+                if ( tuple != null ) {
+                    tuples[j++] = tuple;
+                }
+            }
+            out.writeObject( tuples );
             out.writeObject( this.expiringTuple );
         }
 
+        private int slot(final int index) {
+            return (this.head + index) & (this.tuples.length - 1);
+        }
+
+        public void add(final RightTuple tuple,
+                        final long timestamp) {
+            if ( this.count == this.tuples.length ) {
+                resize( this.size < this.count / 2 ? this.tuples.length : this.tuples.length << 1 );
+            }
+            int index = this.count;
+            while ( index > 0 && this.timestamps[slot( index - 1 )] > timestamp ) {
+                this.tuples[slot( index )] = this.tuples[slot( index - 1 )];
+                this.timestamps[slot( index )] = this.timestamps[slot( index - 1 )];
+                index--;
+            }
+            this.tuples[slot( index )] = tuple;
+            this.timestamps[slot( index )] = timestamp;
+            this.count++;
+            this.size++;
+        }
+
+        /**
+         * Returns the tuple with the oldest timestamp, or null if the window is empty
+         */
+        public RightTuple peek() {
+            while ( this.count > 0 && this.tuples[this.head] == null ) {
+                this.head = slot( 1 );
+                this.count--;
+            }
+            return (this.count > 0) ? this.tuples[this.head] : null;
+        }
+
+        public RightTuple poll() {
+            final RightTuple tuple = peek();
+            if ( tuple != null ) {
+                this.tuples[this.head] = null;
+                this.head = slot( 1 );
+                this.count--;
+                this.size--;
+            }
+            return tuple;
+        }
+
+        public boolean remove(final RightTuple tuple,
+                              final long timestamp) {
+            // the first slot with the timestamp
+            int low = 0;
+            int high = this.count;
+            while ( low < high ) {
+                final int middle = (low + high) >>> 1;
+                if ( this.timestamps[slot( middle )] < timestamp ) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for ( int index = low; index < this.count && this.timestamps[slot( index )] == timestamp; index++ ) {
+                if ( this.tuples[slot( index )] == tuple ) {
+                    this.tuples[slot( index )] = null;
+                    this.size--;
+                    if ( this.count > 16 && this.size < this.count / 4 ) {
+                        resize( this.tuples.length );
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Moves the tuples to new arrays of the given capacity, dropping the empty slots
+         */
+        private void resize(final int capacity) {
+            final RightTuple[] tuples = new RightTuple[capacity];
+            final long[] timestamps = new long[capacity];
+            int j = 0;
+            for ( int i = 0; i < this.count; i++ ) {
+                final int slot = slot( i );
+                if ( this.tuples[slot] != null ) {
+                    tuples[j] = this.tuples[slot];
+                    timestamps[j++] = this.timestamps[slot];
+                }
+            }
+            this.tuples = tuples;
+            this.timestamps = timestamps;
+            this.head = 0;
+            this.count = j;
+        }
+
     }
 
     private static class BehaviorJobContext
@@ -320,20 +320,22 @@ public class VariableRestriction
                                     final LeftTuple tuple) {
             this.reteTuple = tuple;
             this.workingMemory = workingMemory;
+            final Object leftObject = evaluator.prepareLeftObject( tuple.get( this.declaration ) );
             this.leftNull = this.declaration.getExtractor().isNullValue( workingMemory,
-                                                                         evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                         leftObject );
             this.left = this.declaration.getExtractor().getValue( workingMemory,
-                                                                  evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                  leftObject );
         }
 
         public void updateFromFactHandle(final InternalWorkingMemory workingMemory,
                                          final InternalFactHandle handle) {
             this.object = evaluator.prepareLeftObject( handle );
             this.workingMemory = workingMemory;
+            final Object rightObject = evaluator.prepareRightObject( handle );
             this.rightNull = this.extractor.isNullValue( workingMemory,
-                                                         evaluator.prepareRightObject( handle ) );
+                                                         rightObject );
             this.right = this.extractor.getValue( workingMemory,
-                                                  evaluator.prepareRightObject( handle ) );
+                                                  rightObject );
         }
 
         public void resetTuple() {
@@ -381,20 +383,22 @@ public class VariableRestriction
                                     final LeftTuple tuple) {
             this.reteTuple = tuple;
             this.workingMemory = workingMemory;
+            final Object leftObject = evaluator.prepareLeftObject( tuple.get( this.declaration ) );
             this.leftNull = this.declaration.getExtractor().isNullValue( workingMemory,
-                                                                         evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                         leftObject );
             this.left = this.declaration.getExtractor().getValue( workingMemory,
-                                                                  evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                  leftObject );
         }
 
         public void updateFromFactHandle(final InternalWorkingMemory workingMemory,
                                          final InternalFactHandle handle) {
             this.object = evaluator.prepareLeftObject( handle );
             this.workingMemory = workingMemory;
+            final Object rightObject = evaluator.prepareRightObject( handle );
             this.rightNull = this.extractor.isNullValue( workingMemory,
-                                                         evaluator.prepareRightObject( handle ) );
+                                                         rightObject );
             this.right = this.extractor.getValue( workingMemory,
-                                                  evaluator.prepareRightObject( handle ) );
+                                                  rightObject );
         }
 
         public void resetTuple() {
@@ -443,12 +447,13 @@ public class VariableRestriction
                                     final LeftTuple tuple) {
             this.reteTuple = tuple;
             this.workingMemory = workingMemory;
+            final Object leftObject = evaluator.prepareLeftObject( tuple.get( this.declaration ) );
             this.leftNull = this.declaration.getExtractor().isNullValue( workingMemory,
-                                                                         evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                         leftObject );
 
             if ( !leftNull ) {
                 this.left = this.declaration.getExtractor().getLongValue( workingMemory,
-                                                                          evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                          leftObject );
             } else {
                 this.left = 0;
             }
@@ -458,12 +463,13 @@ public class VariableRestriction
                                          final InternalFactHandle handle) {
             this.object = evaluator.prepareLeftObject( handle );
             this.workingMemory = workingMemory;
+            final Object rightObject = evaluator.prepareRightObject( handle );
             this.rightNull = this.extractor.isNullValue( workingMemory,
-                                                         evaluator.prepareRightObject( handle ) );
+                                                         rightObject );
 
             if ( !rightNull ) { // avoid a NullPointerException
                 this.right = this.extractor.getLongValue( workingMemory,
-                                                          evaluator.prepareRightObject( handle ) );
+                                                          rightObject );
             } else {
                 this.right = 0;
             }
@@ -505,12 +511,13 @@ public class VariableRestriction
                                     final LeftTuple tuple) {
             this.reteTuple = tuple;
             this.workingMemory = workingMemory;
+            final Object leftObject = evaluator.prepareLeftObject( tuple.get( this.declaration ) );
             this.leftNull = this.declaration.getExtractor().isNullValue( workingMemory,
-                                                                         evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                         leftObject );
 
             if ( !leftNull ) {
                 this.left = this.declaration.getExtractor().getCharValue( workingMemory,
-                                                                          evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                          leftObject );
             } else {
                 this.left = 0;
             }
@@ -520,12 +527,13 @@ public class VariableRestriction
                                          final InternalFactHandle handle) {
             this.object = evaluator.prepareLeftObject( handle );
             this.workingMemory = workingMemory;
+            final Object rightObject = evaluator.prepareRightObject( handle );
             this.rightNull = this.extractor.isNullValue( workingMemory,
-                                                         evaluator.prepareRightObject( handle ) );
+                                                         rightObject );
 
             if ( !rightNull ) { // avoid a NullPointerException
                 this.right = this.extractor.getCharValue( workingMemory,
-                                                          evaluator.prepareRightObject( handle ) );
+                                                          rightObject );
             } else {
                 this.right = 0;
             }
@@ -567,12 +575,13 @@ public class VariableRestriction
                                     final LeftTuple tuple) {
             this.reteTuple = tuple;
             this.workingMemory = workingMemory;
+            final Object leftObject = evaluator.prepareLeftObject( tuple.get( this.declaration ) );
             this.leftNull = this.declaration.getExtractor().isNullValue( workingMemory,
-                                                                         evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                         leftObject );
 
             if ( !leftNull ) {
                 this.left = this.declaration.getExtractor().getDoubleValue( workingMemory,
-                                                                            evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                            leftObject );
             } else {
                 this.left = 0;
             }
@@ -582,12 +591,13 @@ public class VariableRestriction
                                          final InternalFactHandle handle) {
             this.object = evaluator.prepareLeftObject( handle );
             this.workingMemory = workingMemory;
+            final Object rightObject = evaluator.prepareRightObject( handle );
             this.rightNull = this.extractor.isNullValue( workingMemory,
-                                                         evaluator.prepareRightObject( handle ) );
+                                                         rightObject );
 
             if ( !rightNull ) { // avoid a NullPointerException
                 this.right = this.extractor.getDoubleValue( workingMemory,
-                                                            evaluator.prepareRightObject( handle ) );
+                                                            rightObject );
             } else {
                 this.right = 0;
             }
@@ -628,12 +638,13 @@ public class VariableRestriction
                                     final LeftTuple tuple) {
             this.reteTuple = tuple;
             this.workingMemory = workingMemory;
+            final Object leftObject = evaluator.prepareLeftObject( tuple.get( this.declaration ) );
             this.leftNull = this.declaration.getExtractor().isNullValue( workingMemory,
-                                                                         evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                         leftObject );
 
             if ( !leftNull ) {
                 this.left = this.declaration.getExtractor().getBooleanValue( workingMemory,
-                                                                             evaluator.prepareLeftObject( tuple.get( this.declaration ) ) );
+                                                                             leftObject );
             } else {
                 this.left = false;
             }
@@ -643,12 +654,13 @@ public class VariableRestriction
                                          final InternalFactHandle handle) {
             this.object = evaluator.prepareLeftObject( handle );
             this.workingMemory = workingMemory;
+            final Object rightObject = evaluator.prepareRightObject( handle );
             this.rightNull = this.extractor.isNullValue( workingMemory,
-                                                         evaluator.prepareRightObject( handle ) );
+                                                         rightObject );
 
             if ( !rightNull ) { // avoid a NullPointerException
                 this.right = this.extractor.getBooleanValue( workingMemory,
-                                                             evaluator.prepareRightObject( handle ) );
+                                                             rightObject );
             } else {
                 this.right = false;
             }
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.time.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.drools.SystemEventListenerFactory;
+import org.drools.time.Job;
+import org.drools.time.JobContext;
+import org.drools.time.JobHandle;
+import org.drools.time.SessionClock;
+import org.drools.time.TimerService;
+import org.drools.time.Trigger;
+
+/**
+ * A timer service for sessions with a very large number of pending jobs,
+ * such as the expirations of millions of events in STREAM mode, using the
+ * system clock as the clock.
+ *
+ * Jobs are kept in a hierarchical timing wheel: four wheels of 256 slots,
+ * where a slot of the first wheel holds the jobs due in one tick and a slot
+ * of each following wheel covers a whole turn of the previous one. When the
+ * first wheel completes a turn, the next slot of the second wheel is
+ * cascaded into it, and so on. Scheduling and removing a job are O(1), and
+ * all the jobs due in a tick are run as one batch by a single thread.
+ *
+ * Jobs are run with the precision of a tick, 1 millisecond by default. It is
+ * selected for the sessions with:
+ * <pre>
+ * drools.timerService = org.drools.time.impl.TimingWheelTimerService
+ * </pre>
+ */
+public class TimingWheelTimerService
+    implements
+    TimerService,
+    SessionClock {
+
+    private static final int     WHEEL_BITS = 8;
+    private static final int     WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int     WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int     LEVELS     = 4;
+
+    private final long           tickDuration;
+
+    // the first job of each slot, with the jobs of a slot doubly linked
+    private final TimerJobHandle[][] wheels;
+    // the number of jobs in the first wheel, that is only checked every tick when not empty
+    private int                  firstWheelSize;
+    private int                  size;
+
+    // the last tick whose jobs were run
+    private long                 currentTick;
+
+    private Thread               worker;
+    private boolean              shutdown;
+
+    public TimingWheelTimerService() {
+        this( 1 );
+    }
+
+    /**
+     * @param tickDuration the duration of a tick in milliseconds
+     */
+    public TimingWheelTimerService(long tickDuration) {
+        if ( tickDuration < 1 ) {
+            throw new IllegalArgumentException( "The tick duration must be at least 1 millisecond: " + tickDuration );
+        }
+        this.tickDuration = tickDuration;
+        this.wheels = new TimerJobHandle[LEVELS][WHEEL_SIZE];
+        this.currentTick = getCurrentTime() / tickDuration;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    public long getTickDuration() {
+        return this.tickDuration;
+    }
+
+    public synchronized void shutdown() {
+        this.shutdown = true;
+        for ( int level = 0; level < LEVELS; level++ ) {
+            for ( int index = 0; index < WHEEL_SIZE; index++ ) {
+                this.wheels[level][index] = null;
+            }
+        }
+        this.firstWheelSize = 0;
+        this.size = 0;
+        notifyAll();
+    }
+
+    public JobHandle scheduleJob(Job job,
+                                 JobContext ctx,
+                                 Trigger trigger) {
+        Date date = trigger.nextFireTime();
+
+        if ( date != null ) {
+            TimerJobHandle handle = new TimerJobHandle( job,
+                                                        ctx,
+                                                        trigger );
+            schedule( handle,
+                      date );
+            return handle;
+        } else {
+            return null;
+        }
+    }
+
+    public synchronized boolean removeJob(JobHandle jobHandle) {
+        TimerJobHandle handle = (TimerJobHandle) jobHandle;
+        handle.cancelled = true;
+        if ( handle.level < 0 ) {
+            return false;
+        }
+        unlink( handle );
+        return true;
+    }
+
+    /**
+     * Returns the number of pending jobs
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public long getTimeToNextJob() {
+        return 0;
+    }
+
+    private synchronized void schedule(final TimerJobHandle handle,
+                                       final Date date) {
+        if ( this.shutdown || handle.cancelled ) {
+            return;
+        }
+        // jobs never run early, and the current tick was already run, so late jobs run on the next one
+        handle.tick = Math.max( (date.getTime() + this.tickDuration - 1) / this.tickDuration,
+                                this.currentTick + 1 );
+        link( handle );
+
+        if ( this.worker == null ) {
+            this.worker = new Thread( new Worker(),
+                                      "drools-timing-wheel" );
+            this.worker.setDaemon( true );
+            this.worker.start();
+        } else if ( this.size == 1 || handle.level == 0 ) {
+            // the worker may be waiting past the tick of this job
+            notifyAll();
+        }
+    }
+
+    /**
+     * Puts the job in the slot of the first wheel whose turn covers its tick.
+     */
+    private void link(final TimerJobHandle handle) {
+        final long delta = handle.tick - this.currentTick;
+        int level = 0;
+        while ( level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1))) ) {
+            level++;
+        }
+
+        int index;
+        if ( level == LEVELS - 1 && delta >= (1L << (WHEEL_BITS * LEVELS)) ) {
+            // past the last wheel, so the job waits in the slot cascaded last, and is cascaded again
+            index = (int) (((this.currentTick >>> (WHEEL_BITS * level)) + WHEEL_MASK) & WHEEL_MASK);
+        } else {
+            index = (int) ((handle.tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        }
+
+        final TimerJobHandle[] wheel = this.wheels[level];
+        handle.level = level;
+        handle.index = index;
+        handle.previous = null;
+        handle.next = wheel[index];
+        if ( handle.next != null ) {
+            handle.next.previous = handle;
+        }
+        wheel[index] = handle;
+
+        if ( level == 0 ) {
+            this.firstWheelSize++;
+        }
+        this.size++;
+    }
+
+    private void unlink(final TimerJobHandle handle) {
+        if ( handle.previous != null ) {
+            handle.previous.next = handle.next;
+        } else {
+            this.wheels[handle.level][handle.index] = handle.next;
+        }
+        if ( handle.next != null ) {
+            handle.next.previous = handle.previous;
+        }
+
+        if ( handle.level == 0 ) {
+            this.firstWheelSize--;
+        }
+        this.size--;
+        handle.level = -1;
+        handle.previous = null;
+        handle.next = null;
+    }
+
+    /**
+     * Moves the jobs of a slot to the wheels below it, returning true if the
+     * slot was the first one, so the next wheel has to be cascaded too.
+     */
+    private boolean cascade(final int level) {
+        final int index = (int) ((this.currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        TimerJobHandle handle = this.wheels[level][index];
+        this.wheels[level][index] = null;
+        while ( handle != null ) {
+            final TimerJobHandle next = handle.next;
+            this.size--;
+            link( handle );
+            handle = next;
+        }
+        return index == 0;
+    }
+
+    /**
+     * Runs the ticks up to the given one, adding the jobs due to the batch.
+     */
+    private void advance(final long tick,
+                         final List<TimerJobHandle> batch) {
+        while ( this.currentTick < tick ) {
+            this.currentTick++;
+            final int index = (int) (this.currentTick & WHEEL_MASK);
+            if ( index == 0 ) {
+                for ( int level = 1; level < LEVELS && cascade( level ); level++ ) {
+                    // continue with the next wheel
+                }
+            }
+
+            for ( TimerJobHandle handle = this.wheels[0][index]; handle != null; ) {
+                final TimerJobHandle next = handle.next;
+                handle.level = -1;
+                handle.previous = null;
+                handle.next = null;
+                batch.add( handle );
+                this.firstWheelSize--;
+                this.size--;
+                handle = next;
+            }
+            this.wheels[0][index] = null;
+
+            if ( this.firstWheelSize == 0 && this.size > 0 && this.currentTick < tick ) {
+                // nothing is due before the next turn of the first wheel, so go straight to it
+                final long turn = ((this.currentTick >>> WHEEL_BITS) + 1) << WHEEL_BITS;
+                this.currentTick = Math.min( turn,
+                                             tick ) - 1;
+            } else if ( this.size == 0 ) {
+                this.currentTick = tick;
+            }
+        }
+    }
+
+    private void execute(final TimerJobHandle handle) {
+        if ( handle.cancelled ) {
+            return;
+        }
+        try {
+            handle.job.execute( handle.ctx );
+
+            // our triggers allow for flexible rescheduling
+            Date date = handle.trigger.nextFireTime();
+            if ( date != null ) {
+                schedule( handle,
+                          date );
+            }
+        } catch ( Exception e ) {
+            // as with the JDKTimerService, a job that fails is not run again
+            SystemEventListenerFactory.getSystemEventListener().exception( e );
+        }
+    }
+
+    private class Worker
+        implements
+        Runnable {
+
+        public void run() {
+            final List<TimerJobHandle> batch = new ArrayList<TimerJobHandle>();
+            while ( true ) {
+                synchronized ( TimingWheelTimerService.this ) {
+                    while ( !shutdown && batch.isEmpty() ) {
+                        advance( getCurrentTime() / tickDuration,
+                                 batch );
+                        if ( !batch.isEmpty() ) {
+                            break;
+                        }
+
+                        long wait = 0;
+                        if ( size > 0 ) {
+                            // wake up on the next tick that may have jobs due
+                            long tick = currentTick + 1;
+                            if ( firstWheelSize == 0 ) {
+                                tick = ((currentTick >>> WHEEL_BITS) + 1) << WHEEL_BITS;
+                            }
+                            wait = Math.max( 1,
+                                             tick * tickDuration - getCurrentTime() );
+                        }
+                        try {
+                            TimingWheelTimerService.this.wait( wait );
+                        } catch ( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                    if ( shutdown ) {
+                        return;
+                    }
+                }
+
+                // the jobs are run outside of the lock, so they can schedule and remove jobs
+                for ( int i = 0, length = batch.size(); i < length; i++ ) {
+                    execute( batch.get( i ) );
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    public static class TimerJobHandle
+        implements
+        JobHandle {
+
+        private final Job        job;
+        private final JobContext ctx;
+        private final Trigger    trigger;
+
+        private long             tick;
+        // the wheel and the slot the job is in, or -1 when it is not pending
+        private int              level = -1;
+        private int              index;
+        private TimerJobHandle   previous;
+        private TimerJobHandle   next;
+
+        private volatile boolean cancelled;
+
+        public TimerJobHandle(Job job,
+                              JobContext ctx,
+                              Trigger trigger) {
+            this.job = job;
+            this.ctx = ctx;
+            this.trigger = trigger;
+        }
+
+        public Job getJob() {
+            return this.job;
+        }
+
+        public Trigger getTrigger() {
+            return this.trigger;
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+    }
+
+}
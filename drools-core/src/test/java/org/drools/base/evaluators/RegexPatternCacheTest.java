@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.base.evaluators;
+
+import static org.junit.Assert.*;
+
+import java.util.regex.Pattern;
+
+import org.drools.base.field.ObjectFieldImpl;
+import org.drools.base.field.PatternFieldImpl;
+import org.drools.rule.LiteralRestriction;
+import org.junit.Test;
+
+public class RegexPatternCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        RegexPatternCache cache = new RegexPatternCache( 10 );
+
+        Pattern first = cache.getPattern( ".*foo" );
+        Pattern second = cache.getPattern( ".*foo" );
+
+        assertSame( first,
+                    second );
+        assertEquals( 1,
+                      cache.getHits() );
+        assertEquals( 1,
+                      cache.getMisses() );
+        assertEquals( 1,
+                      cache.size() );
+    }
+
+    @Test
+    public void testEviction() {
+        RegexPatternCache cache = new RegexPatternCache( 2 );
+
+        cache.getPattern( "a" );
+        cache.getPattern( "b" );
+        // touch "a", so "b" becomes the eldest entry
+        cache.getPattern( "a" );
+        cache.getPattern( "c" );
+
+        assertEquals( 2,
+                      cache.size() );
+
+        cache.getPattern( "a" );
+        assertEquals( 2,
+                      cache.getHits() );
+
+        cache.getPattern( "b" );
+        assertEquals( 4,
+                      cache.getMisses() );
+    }
+
+    @Test
+    public void testLiteralRestrictionPrecompilesPattern() {
+        LiteralRestriction restriction = new LiteralRestriction( new ObjectFieldImpl( ".*foo" ),
+                                                                 MatchesEvaluatorsDefinition.StringMatchesEvaluator.INSTANCE,
+                                                                 null );
+        assertTrue( restriction.getField() instanceof PatternFieldImpl );
+        assertEquals( ".*foo",
+                      ((PatternFieldImpl) restriction.getField()).getPattern().pattern() );
+
+        restriction = new LiteralRestriction( new ObjectFieldImpl( "foo" ),
+                                              EqualityEvaluatorsDefinition.StringEqualEvaluator.INSTANCE,
+                                              null );
+        assertFalse( restriction.getField() instanceof PatternFieldImpl );
+    }
+
+}
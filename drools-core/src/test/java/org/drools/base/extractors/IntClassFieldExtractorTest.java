@@ -112,6 +112,11 @@ public class IntClassFieldExtractorTest extends BaseClassFieldExtractorsTest {
         assertEquals( IntClassFieldExtractorTest.VALUE,
                              ((Number) this.reader.getValue( null,
                                                              this.bean )).intValue() );
+        // small values are boxed with the Integer cache
+        assertSame( this.reader.getValue( null,
+                                          this.bean ),
+                    this.reader.getValue( null,
+                                          this.bean ) );
     }
 
     @Test
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.base.field;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.drools.Cheese;
+import org.drools.base.ClassFieldAccessorCache;
+import org.drools.base.ClassFieldAccessorStore;
+import org.drools.base.ValueType;
+import org.drools.core.util.DroolsStreamUtils;
+import org.drools.spi.FieldValue;
+import org.drools.spi.InternalReadAccessor;
+import org.junit.Test;
+
+public class LiteralSetTest {
+
+    private static FieldValue[] longs(long... values) {
+        FieldValue[] fields = new FieldValue[values.length];
+        for ( int i = 0; i < values.length; i++ ) {
+            fields[i] = new LongFieldImpl( values[i] );
+        }
+        return fields;
+    }
+
+    @Test
+    public void testIntSet() {
+        LiteralSet set = LiteralSet.newInstance( ValueType.PINTEGER_TYPE,
+                                                 longs( 0, 5, -7, 5, 1024 ) );
+        assertTrue( set instanceof LiteralSet.IntLiteralSet );
+        assertEquals( 4,
+                      set.size() );
+        assertTrue( set.contains( Integer.valueOf( 0 ) ) );
+        assertTrue( set.contains( Integer.valueOf( -7 ) ) );
+        assertTrue( set.contains( Integer.valueOf( 1024 ) ) );
+        assertFalse( set.contains( Integer.valueOf( 6 ) ) );
+        assertFalse( set.contains( Long.valueOf( 5 ) ) );
+
+        Set<Object> elements = new HashSet<Object>();
+        for ( Iterator it = set.iterator(); it.hasNext(); ) {
+            elements.add( it.next() );
+        }
+        assertEquals( 4,
+                      elements.size() );
+        assertTrue( elements.contains( Integer.valueOf( 0 ) ) );
+    }
+
+    @Test
+    public void testLongSet() {
+        LiteralSet set = LiteralSet.newInstance( ValueType.LONG_TYPE,
+                                                 longs( Long.MAX_VALUE, 3, 1L << 40 ) );
+        assertTrue( set instanceof LiteralSet.LongLiteralSet );
+        assertEquals( 3,
+                      set.size() );
+        assertTrue( set.contains( Long.valueOf( 1L << 40 ) ) );
+        assertTrue( set.contains( Long.valueOf( Long.MAX_VALUE ) ) );
+        assertFalse( set.contains( Long.valueOf( 0 ) ) );
+    }
+
+    @Test
+    public void testManyValues() {
+        long[] values = new long[1000];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = i * 31L;
+        }
+        LiteralSet set = LiteralSet.newInstance( ValueType.PINTEGER_TYPE,
+                                                 longs( values ) );
+        for ( int i = 0; i < values.length * 31; i++ ) {
+            assertEquals( i % 31 == 0,
+                          set.contains( Integer.valueOf( i ) ) );
+        }
+    }
+
+    @Test
+    public void testObjectSet() throws Exception {
+        ClassFieldAccessorStore store = new ClassFieldAccessorStore();
+        store.setClassFieldAccessorCache( new ClassFieldAccessorCache( Thread.currentThread().getContextClassLoader() ) );
+        store.setEagerWire( true );
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "type",
+                                                          getClass().getClassLoader() );
+
+        LiteralSet set = LiteralSet.newInstance( ValueType.STRING_TYPE,
+                                                 new FieldValue[]{new ObjectFieldImpl( "stilton" ), new ObjectFieldImpl( "brie" )} );
+        assertTrue( set.contains( null,
+                                  extractor,
+                                  new Cheese( "brie",
+                                              10 ) ) );
+        assertFalse( set.contains( null,
+                                   extractor,
+                                   new Cheese( "cheddar",
+                                               10 ) ) );
+        assertFalse( set.contains( null,
+                                   extractor,
+                                   new Cheese( null,
+                                               10 ) ) );
+    }
+
+    @Test
+    public void testPrimitiveFieldSet() throws Exception {
+        ClassFieldAccessorStore store = new ClassFieldAccessorStore();
+        store.setClassFieldAccessorCache( new ClassFieldAccessorCache( Thread.currentThread().getContextClassLoader() ) );
+        store.setEagerWire( true );
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "price",
+                                                          getClass().getClassLoader() );
+
+        LiteralSet set = LiteralSet.newInstance( extractor.getValueType(),
+                                                 longs( 0, 10 ) );
+        assertTrue( set.contains( null,
+                                  extractor,
+                                  new Cheese( "brie",
+                                              10 ) ) );
+        assertTrue( set.contains( null,
+                                  extractor,
+                                  new Cheese( "brie",
+                                              0 ) ) );
+        assertFalse( set.contains( null,
+                                   extractor,
+                                   new Cheese( "brie",
+                                               11 ) ) );
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        LiteralSet ints = LiteralSet.newInstance( ValueType.PINTEGER_TYPE,
+                                                  longs( 0, 1, 2, 99 ) );
+        assertEquals( ints,
+                      DroolsStreamUtils.streamIn( DroolsStreamUtils.streamOut( ints ) ) );
+
+        LiteralSet longs = LiteralSet.newInstance( ValueType.PLONG_TYPE,
+                                                   longs( 0, -1 ) );
+        assertEquals( longs,
+                      DroolsStreamUtils.streamIn( DroolsStreamUtils.streamOut( longs ) ) );
+
+        LiteralSet strings = LiteralSet.newInstance( ValueType.STRING_TYPE,
+                                                     new FieldValue[]{new ObjectFieldImpl( "a" ), new ObjectFieldImpl( "b" )} );
+        assertEquals( strings,
+                      DroolsStreamUtils.streamIn( DroolsStreamUtils.streamOut( strings ) ) );
+    }
+
+}
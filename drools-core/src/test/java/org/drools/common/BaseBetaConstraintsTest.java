@@ -87,7 +87,14 @@ public abstract class BaseBetaConstraintsTest {
 
     protected void checkBetaConstraints(VariableConstraint[] constraints,
                                         Class cls) {
-        RuleBaseConfiguration config = new RuleBaseConfiguration();
+        checkBetaConstraints( constraints,
+                              cls,
+                              new RuleBaseConfiguration() );
+    }
+
+    protected void checkBetaConstraints(VariableConstraint[] constraints,
+                                        Class cls,
+                                        RuleBaseConfiguration config) {
         int depth = config.getCompositeKeyDepth();
 
         BetaConstraints betaConstraints = null;
@@ -17,6 +17,7 @@
 package org.drools.common;
 
 import org.drools.Cheese;
+import org.drools.RuleBaseConfiguration;
 import org.drools.base.evaluators.Operator;
 import org.drools.rule.VariableConstraint;
 
@@ -169,4 +170,28 @@ public class DefaultBetaConstraintsTest extends BaseBetaConstraintsTest {
         checkBetaConstraints( constraints, DefaultBetaConstraints.class );
     }
 
+    @Test
+    public void testCompositeIndexBeyondThreeFields() {
+        RuleBaseConfiguration config = new RuleBaseConfiguration();
+        config.setCompositeKeyDepth( 5 );
+
+        VariableConstraint constraint0 = ( VariableConstraint ) getConstraint( "cheeseType1", Operator.EQUAL, "type", Cheese.class );
+        VariableConstraint constraint1 = ( VariableConstraint ) getConstraint( "cheeseType2", Operator.NOT_EQUAL, "type", Cheese.class );
+        VariableConstraint constraint2 = ( VariableConstraint ) getConstraint( "cheeseType3", Operator.EQUAL, "type", Cheese.class );
+        VariableConstraint constraint3 = ( VariableConstraint ) getConstraint( "cheeseType4", Operator.EQUAL, "type", Cheese.class );
+        VariableConstraint constraint4 = ( VariableConstraint ) getConstraint( "cheeseType5", Operator.EQUAL, "type", Cheese.class );
+        VariableConstraint constraint5 = ( VariableConstraint ) getConstraint( "cheeseType6", Operator.EQUAL, "type", Cheese.class );
+        VariableConstraint constraint6 = ( VariableConstraint ) getConstraint( "cheeseType7", Operator.EQUAL, "type", Cheese.class );
+
+        VariableConstraint[] constraints = new VariableConstraint[] { constraint0, constraint1, constraint2, constraint3 };
+        checkBetaConstraints( constraints, DefaultBetaConstraints.class, config );
+
+        constraints = new VariableConstraint[] { constraint0, constraint1, constraint2, constraint3, constraint4, constraint5 };
+        checkBetaConstraints( constraints, DefaultBetaConstraints.class, config );
+
+        // only the first five are indexed
+        constraints = new VariableConstraint[] { constraint0, constraint1, constraint2, constraint3, constraint4, constraint5, constraint6 };
+        checkBetaConstraints( constraints, DefaultBetaConstraints.class, config );
+    }
+
 }
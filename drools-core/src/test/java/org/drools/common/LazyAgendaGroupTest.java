@@ -0,0 +1,277 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.spi.Activation;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyAgendaGroupTest {
+
+    private InternalRuleBase ruleBase;
+
+    @Before
+    public void setUp() {
+        this.ruleBase = new ReteooRuleBase( "x" );
+    }
+
+    private AgendaItem newItem(InternalAgendaGroup group,
+                               long activationNumber,
+                               int salience) {
+        AgendaItem item = new AgendaItem( activationNumber,
+                                          null,
+                                          salience,
+                                          null,
+                                          null );
+        item.setAgendaGroup( group );
+        return item;
+    }
+
+    private List<Long> drain(InternalAgendaGroup group) {
+        List<Long> numbers = new ArrayList<Long>();
+        for ( Activation activation = group.getNext(); activation != null; activation = group.getNext() ) {
+            numbers.add( activation.getActivationNumber() );
+        }
+        assertTrue( group.isEmpty() );
+        return numbers;
+    }
+
+    @Test
+    public void testPendingIndex() {
+        LazyAgendaGroup group = new LazyAgendaGroup( "group",
+                                                     this.ruleBase );
+        AgendaItem a = newItem( group,
+                                1,
+                                0 );
+        AgendaItem b = newItem( group,
+                                2,
+                                0 );
+        AgendaItem c = newItem( group,
+                                3,
+                                0 );
+        group.add( a );
+        group.add( b );
+        group.add( c );
+
+        // -1 means not queued, so the pending positions start at -2
+        assertEquals( -2,
+                      a.getIndex() );
+        assertEquals( -3,
+                      b.getIndex() );
+        assertEquals( -4,
+                      c.getIndex() );
+        assertEquals( 3,
+                      group.size() );
+
+        // reading the group moves them into the heap
+        assertEquals( 3,
+                      group.getActivations().length );
+        assertTrue( a.getIndex() >= 1 );
+        assertTrue( b.getIndex() >= 1 );
+        assertTrue( c.getIndex() >= 1 );
+        assertEquals( 3,
+                      group.size() );
+    }
+
+    @Test
+    public void testRemovePending() {
+        LazyAgendaGroup group = new LazyAgendaGroup( "group",
+                                                     this.ruleBase );
+        AgendaItem a = newItem( group,
+                                1,
+                                0 );
+        AgendaItem b = newItem( group,
+                                2,
+                                0 );
+        AgendaItem c = newItem( group,
+                                3,
+                                0 );
+        AgendaItem d = newItem( group,
+                                4,
+                                0 );
+        group.add( a );
+        group.add( b );
+        group.add( c );
+        group.add( d );
+
+        // the last pending item takes the place of the removed one
+        a.dequeue();
+        assertEquals( -1,
+                      a.getIndex() );
+        assertEquals( -2,
+                      d.getIndex() );
+        assertEquals( -3,
+                      b.getIndex() );
+        assertEquals( -4,
+                      c.getIndex() );
+        assertEquals( 3,
+                      group.size() );
+
+        // removing the last pending item moves nothing
+        c.dequeue();
+        assertEquals( -1,
+                      c.getIndex() );
+        assertEquals( -2,
+                      d.getIndex() );
+        assertEquals( -3,
+                      b.getIndex() );
+        assertEquals( 2,
+                      group.size() );
+
+        d.dequeue();
+        assertEquals( -2,
+                      b.getIndex() );
+
+        List<Long> numbers = drain( group );
+        assertEquals( 1,
+                      numbers.size() );
+        assertEquals( 2,
+                      numbers.get( 0 ).longValue() );
+    }
+
+    @Test
+    public void testRemoveSorted() {
+        LazyAgendaGroup group = new LazyAgendaGroup( "group",
+                                                     this.ruleBase );
+        AgendaItem a = newItem( group,
+                                1,
+                                0 );
+        AgendaItem b = newItem( group,
+                                2,
+                                0 );
+        AgendaItem c = newItem( group,
+                                3,
+                                0 );
+        group.add( a );
+        group.add( b );
+        assertSame( b,
+                    group.getNext() );
+
+        // one item is in the heap, the other one is pending
+        group.add( c );
+        assertTrue( a.getIndex() >= 1 );
+        assertEquals( -2,
+                      c.getIndex() );
+        a.dequeue();
+        assertEquals( 1,
+                      group.size() );
+        assertSame( c,
+                    group.getNext() );
+        assertTrue( group.isEmpty() );
+    }
+
+    @Test
+    public void testFiringOrder() {
+        LazyAgendaGroup lazy = new LazyAgendaGroup( "lazy",
+                                                    this.ruleBase );
+        BinaryHeapQueueAgendaGroup eager = new BinaryHeapQueueAgendaGroup( "eager",
+                                                                           this.ruleBase );
+        List<AgendaItem> lazyItems = new ArrayList<AgendaItem>();
+        List<AgendaItem> eagerItems = new ArrayList<AgendaItem>();
+        // more than the initial capacity of the pending array
+        for ( int i = 0; i < 40; i++ ) {
+            int salience = (i * 7) % 5;
+            AgendaItem item = newItem( lazy,
+                                       i,
+                                       salience );
+            lazy.add( item );
+            lazyItems.add( item );
+            item = newItem( eager,
+                            i,
+                            salience );
+            eager.add( item );
+            eagerItems.add( item );
+
+            if ( i == 20 ) {
+                // part of the items are sorted before the others are added
+                assertEquals( eager.getNext().getActivationNumber(),
+                              lazy.getNext().getActivationNumber() );
+            }
+        }
+        for ( int i = 0; i < 40; i += 3 ) {
+            lazyItems.get( i ).dequeue();
+            eagerItems.get( i ).dequeue();
+        }
+        assertEquals( eager.size(),
+                      lazy.size() );
+
+        assertEquals( drain( eager ),
+                      drain( lazy ) );
+    }
+
+    @Test
+    public void testWriteExternal() throws Exception {
+        LazyAgendaGroup group = new LazyAgendaGroup( "group",
+                                                     this.ruleBase );
+        group.setActive( true );
+        group.add( newItem( group,
+                            1,
+                            0 ) );
+        group.add( newItem( group,
+                            2,
+                            10 ) );
+        group.add( newItem( group,
+                            3,
+                            0 ) );
+
+        // the pending items are written sorted
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( group );
+        out.close();
+        ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+        LazyAgendaGroup copy = (LazyAgendaGroup) in.readObject();
+        in.close();
+
+        assertEquals( "group",
+                      copy.getName() );
+        assertTrue( copy.isActive() );
+        assertEquals( 3,
+                      copy.size() );
+
+        // items can be added to the group that was read
+        AgendaItem item = newItem( copy,
+                                   4,
+                                   5 );
+        copy.add( item );
+        assertEquals( -2,
+                      item.getIndex() );
+
+        List<Long> numbers = drain( copy );
+        assertEquals( 4,
+                      numbers.size() );
+        assertEquals( 2,
+                      numbers.get( 0 ).longValue() );
+        assertEquals( 4,
+                      numbers.get( 1 ).longValue() );
+        assertEquals( 3,
+                      numbers.get( 2 ).longValue() );
+        assertEquals( 1,
+                      numbers.get( 3 ).longValue() );
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.drools.Cheese;
+import org.drools.Person;
+import org.drools.RuleBaseFactory;
+import org.drools.base.ClassObjectType;
+import org.drools.reteoo.EntryPointNode;
+import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.reteoo.builder.BuildContext;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ObjectTypeNodeLocksTest {
+    private BuildContext   buildContext;
+    private EntryPointNode entryPoint;
+
+    @Before
+    public void setUp() throws Exception {
+        ReteooRuleBase ruleBase = (ReteooRuleBase) RuleBaseFactory.newRuleBase();
+        this.buildContext = new BuildContext( ruleBase,
+                                              ruleBase.getReteooBuilder().getIdGenerator() );
+        this.entryPoint = new EntryPointNode( 0,
+                                              ruleBase.getRete(),
+                                              buildContext );
+    }
+
+    @Test
+    public void testMask() {
+        ObjectTypeNodeLocks locks = new ObjectTypeNodeLocks( 4 );
+
+        ObjectTypeNode cheese = new ObjectTypeNode( 5,
+                                                    this.entryPoint,
+                                                    new ClassObjectType( Cheese.class ),
+                                                    this.buildContext );
+        ObjectTypeNode person = new ObjectTypeNode( 6,
+                                                    this.entryPoint,
+                                                    new ClassObjectType( Person.class ),
+                                                    this.buildContext );
+
+        assertEquals( 2,
+                      locks.getMask( new ObjectTypeNode[]{cheese} ) );
+        assertEquals( 6,
+                      locks.getMask( new ObjectTypeNode[]{cheese, person} ) );
+        assertEquals( 15,
+                      locks.getMask() );
+        assertEquals( -1L,
+                      new ObjectTypeNodeLocks( ObjectTypeNodeLocks.MAX_STRIPES ).getMask() );
+    }
+
+    @Test
+    public void testInvalidStripes() {
+        try {
+            new ObjectTypeNodeLocks( 0 );
+            fail( "Zero stripes must not be accepted" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+        try {
+            new ObjectTypeNodeLocks( ObjectTypeNodeLocks.MAX_STRIPES + 1 );
+            fail( "More stripes than bits in the mask must not be accepted" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testDisjointStripesDoNotBlock() throws Exception {
+        final ObjectTypeNodeLocks locks = new ObjectTypeNodeLocks( 4 );
+        final AtomicBoolean done = new AtomicBoolean( false );
+
+        locks.lock( 1 );
+        try {
+            Thread other = new Thread( new Runnable() {
+                public void run() {
+                    locks.lock( 6 );
+                    locks.unlock( 6 );
+                    done.set( true );
+                }
+            } );
+            other.start();
+            other.join();
+        } finally {
+            locks.unlock( 1 );
+        }
+
+        assertTrue( done.get() );
+    }
+
+    @Test(timeout = 10000)
+    public void testSharedStripeBlocks() throws Exception {
+        final ObjectTypeNodeLocks locks = new ObjectTypeNodeLocks( 4 );
+        final AtomicBoolean done = new AtomicBoolean( false );
+
+        Thread other;
+        locks.lock( 3 );
+        try {
+            other = new Thread( new Runnable() {
+                public void run() {
+                    locks.lock( 2 );
+                    done.set( true );
+                    locks.unlock( 2 );
+                }
+            } );
+            other.start();
+            other.join( 200 );
+            assertFalse( done.get() );
+        } finally {
+            locks.unlock( 3 );
+        }
+
+        other.join();
+        assertTrue( done.get() );
+    }
+
+}
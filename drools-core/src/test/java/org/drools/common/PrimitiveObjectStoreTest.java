@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.drools.Cheese;
+import org.drools.RuleBaseConfiguration;
+import org.drools.RuleBaseConfiguration.AssertBehaviour;
+import org.drools.reteoo.ReteooFactHandleFactory;
+import org.junit.Test;
+
+public class PrimitiveObjectStoreTest {
+
+    private ReteooFactHandleFactory factory = new ReteooFactHandleFactory();
+
+    private PrimitiveObjectStore newStore(AssertBehaviour behaviour) {
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setAssertBehaviour( behaviour );
+        return new PrimitiveObjectStore( conf,
+                                         new ReentrantLock() );
+    }
+
+    private InternalFactHandle add(ObjectStore store,
+                                   Object object) {
+        InternalFactHandle handle = this.factory.newFactHandle( object,
+                                                                null,
+                                                                null,
+                                                                null );
+        store.addHandle( handle,
+                         object );
+        return handle;
+    }
+
+    @Test
+    public void testIdentity() {
+        PrimitiveObjectStore store = newStore( AssertBehaviour.IDENTITY );
+
+        Cheese stilton = new Cheese( "stilton",
+                                     10 );
+        InternalFactHandle handle = add( store,
+                                         stilton );
+
+        assertEquals( 1,
+                      store.size() );
+        assertSame( handle,
+                    store.getHandleForObject( stilton ) );
+        assertSame( handle,
+                    store.getHandleForObjectIdentity( stilton ) );
+        assertNull( store.getHandleForObject( new Cheese( "stilton",
+                                                          10 ) ) );
+        assertSame( stilton,
+                    store.getObjectForHandle( handle ) );
+
+        store.removeHandle( handle );
+        assertTrue( store.isEmpty() );
+        assertNull( store.getHandleForObject( stilton ) );
+        assertNull( store.getObjectForHandle( handle ) );
+    }
+
+    @Test
+    public void testEquality() {
+        PrimitiveObjectStore store = newStore( AssertBehaviour.EQUALITY );
+
+        Cheese stilton = new Cheese( "stilton",
+                                     10 );
+        InternalFactHandle handle = add( store,
+                                         stilton );
+
+        Cheese equal = new Cheese( "stilton",
+                                   10 );
+        assertSame( handle,
+                    store.getHandleForObject( equal ) );
+        assertNull( store.getHandleForObjectIdentity( equal ) );
+        assertSame( handle,
+                    store.getHandleForObjectIdentity( stilton ) );
+
+        Cheese brie = new Cheese( "brie",
+                                  5 );
+        store.updateHandle( handle,
+                            brie );
+        assertSame( brie,
+                    handle.getObject() );
+        assertSame( handle,
+                    store.getHandleForObjectIdentity( brie ) );
+        assertNull( store.getHandleForObjectIdentity( stilton ) );
+        assertEquals( 1,
+                      store.size() );
+    }
+
+    @Test
+    public void testManyHandles() {
+        PrimitiveObjectStore store = newStore( AssertBehaviour.IDENTITY );
+
+        Object[] objects = new Object[1000];
+        InternalFactHandle[] handles = new InternalFactHandle[objects.length];
+        for ( int i = 0; i < objects.length; i++ ) {
+            objects[i] = new Object();
+            handles[i] = add( store,
+                              objects[i] );
+        }
+        assertEquals( objects.length,
+                      store.size() );
+
+        // removing shifts the following entries back, so the others must still be found
+        for ( int i = 0; i < objects.length; i += 2 ) {
+            store.removeHandle( handles[i] );
+        }
+        assertEquals( objects.length / 2,
+                      store.size() );
+        for ( int i = 0; i < objects.length; i++ ) {
+            if ( i % 2 == 0 ) {
+                assertNull( store.getHandleForObject( objects[i] ) );
+            } else {
+                assertSame( handles[i],
+                            store.getHandleForObject( objects[i] ) );
+                assertSame( handles[i],
+                            store.reconnect( handles[i] ) );
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveWhileIterating() {
+        PrimitiveObjectStore store = newStore( AssertBehaviour.IDENTITY );
+
+        for ( int i = 0; i < 100; i++ ) {
+            add( store,
+                 new Object() );
+        }
+
+        int count = 0;
+        for ( Iterator it = store.iterateFactHandles(); it.hasNext(); ) {
+            store.removeHandle( (InternalFactHandle) it.next() );
+            count++;
+        }
+        assertEquals( 100,
+                      count );
+        assertTrue( store.isEmpty() );
+        assertFalse( store.iterateObjects().hasNext() );
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.util;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.drools.base.accumulators.MaxAccumulateFunction;
+import org.drools.base.accumulators.MinAccumulateFunction;
+import org.junit.Test;
+
+public class DoubleMultisetTest {
+
+    @Test
+    public void testAddRemove() {
+        DoubleMultiset set = new DoubleMultiset();
+        assertTrue( set.isEmpty() );
+
+        set.add( 5 );
+        set.add( 1 );
+        set.add( 5 );
+        set.add( 9 );
+        assertEquals( 4,
+                      set.size() );
+        assertEquals( 2,
+                      set.count( 5 ) );
+        assertEquals( 1.0,
+                      set.first(),
+                      0 );
+        assertEquals( 9.0,
+                      set.last(),
+                      0 );
+
+        assertTrue( set.remove( 9 ) );
+        assertFalse( set.remove( 9 ) );
+        assertEquals( 5.0,
+                      set.last(),
+                      0 );
+        assertTrue( set.remove( 5 ) );
+        assertEquals( 5.0,
+                      set.last(),
+                      0 );
+        assertTrue( set.remove( 5 ) );
+        assertEquals( 1.0,
+                      set.last(),
+                      0 );
+        assertTrue( set.remove( 1 ) );
+        assertTrue( set.isEmpty() );
+    }
+
+    @Test
+    public void testRandomOperations() {
+        DoubleMultiset set = new DoubleMultiset();
+        TreeMap<Double, Integer> expected = new TreeMap<Double, Integer>();
+        Random random = new Random( 0 );
+        int size = 0;
+        for ( int i = 0; i < 20000; i++ ) {
+            double value = random.nextInt( 500 );
+            Integer count = expected.get( value );
+            if ( random.nextBoolean() ) {
+                set.add( value );
+                expected.put( value,
+                              count == null ? 1 : count + 1 );
+                size++;
+            } else {
+                assertEquals( count != null,
+                              set.remove( value ) );
+                if ( count != null ) {
+                    size--;
+                    if ( count == 1 ) {
+                        expected.remove( value );
+                    } else {
+                        expected.put( value,
+                                      count - 1 );
+                    }
+                }
+            }
+            assertEquals( size,
+                          set.size() );
+            if ( size > 0 ) {
+                assertEquals( expected.firstKey().doubleValue(),
+                              set.first(),
+                              0 );
+                assertEquals( expected.lastKey().doubleValue(),
+                              set.last(),
+                              0 );
+            }
+        }
+        for ( Map.Entry<Double, Integer> entry : expected.entrySet() ) {
+            assertEquals( entry.getValue().intValue(),
+                          set.count( entry.getKey() ) );
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        DoubleMultiset set = new DoubleMultiset();
+        for ( int i = 0; i < 100; i++ ) {
+            set.add( i % 7 );
+        }
+        DoubleMultiset copy = (DoubleMultiset) DroolsStreamUtils.streamIn( DroolsStreamUtils.streamOut( set ) );
+        assertEquals( 100,
+                      copy.size() );
+        assertEquals( 15,
+                      copy.count( 0 ) );
+        assertEquals( 6.0,
+                      copy.last(),
+                      0 );
+    }
+
+    @Test
+    public void testReverseMinMax() throws Exception {
+        MaxAccumulateFunction max = new MaxAccumulateFunction();
+        MinAccumulateFunction min = new MinAccumulateFunction();
+        assertTrue( max.supportsReverse() );
+        assertTrue( min.supportsReverse() );
+
+        Serializable maxContext = max.createContext();
+        Serializable minContext = min.createContext();
+        max.init( maxContext );
+        min.init( minContext );
+        for ( int i = 1; i <= 3; i++ ) {
+            max.accumulate( maxContext,
+                            Integer.valueOf( i ) );
+            min.accumulate( minContext,
+                            Integer.valueOf( i ) );
+        }
+        max.reverse( maxContext,
+                     Integer.valueOf( 3 ) );
+        min.reverse( minContext,
+                     Integer.valueOf( 1 ) );
+        assertEquals( 2.0,
+                      ((Double) max.getResult( maxContext )).doubleValue(),
+                      0 );
+        assertEquals( 2.0,
+                      ((Double) min.getResult( minContext )).doubleValue(),
+                      0 );
+
+        max.reverse( maxContext,
+                     Integer.valueOf( 1 ) );
+        max.reverse( maxContext,
+                     Integer.valueOf( 2 ) );
+        assertEquals( -Double.MAX_VALUE,
+                      ((Double) max.getResult( maxContext )).doubleValue(),
+                      0 );
+    }
+
+}
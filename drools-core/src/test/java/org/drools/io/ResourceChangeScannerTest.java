@@ -16,6 +16,15 @@
 
 package org.drools.io;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.ChangeSet;
+import org.drools.io.impl.FileSystemResource;
+import org.drools.io.impl.ResourceChangeNotifierImpl;
+import org.drools.io.impl.ResourceChangeScannerImpl;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -96,4 +105,85 @@ public class ResourceChangeScannerTest {
 
     }
 
+    @Test
+    public void testTouchedResourceIsNotModified() throws Exception {
+        File file = File.createTempFile( "drools",
+                                         ".drl" );
+        file.deleteOnExit();
+        write( file,
+               "rule1" );
+
+        FileSystemResource resource = new FileSystemResource( file );
+        resource.getInputStream().close();
+
+        final List<ChangeSet> changeSets = new ArrayList<ChangeSet>();
+        ResourceChangeNotifierImpl notifier = new ResourceChangeNotifierImpl() {
+            public void publishChangeSet(ChangeSet changeSet) {
+                changeSets.add( changeSet );
+            }
+        };
+        ResourceChangeScannerImpl scanner = new ResourceChangeScannerImpl();
+        scanner.subscribeNotifier( notifier,
+                                   resource );
+
+        // the contents read before it was subscribed
+        assertTrue( file.setLastModified( resource.getLastRead() + 2000 ) );
+        scanner.scan();
+        assertEquals( 0,
+                      changeSets.size() );
+
+        // the same contents again
+        assertTrue( file.setLastModified( resource.getLastRead() + 2000 ) );
+        scanner.scan();
+        assertEquals( 0,
+                      changeSets.size() );
+
+        write( file,
+               "rule2" );
+        assertTrue( file.setLastModified( resource.getLastRead() + 2000 ) );
+        scanner.scan();
+        assertEquals( 1,
+                      changeSets.size() );
+        assertTrue( changeSets.get( 0 ).getResourcesModified().contains( resource ) );
+    }
+
+    @Test
+    public void testResourceModifiedBeforeSubscribingIsModified() throws Exception {
+        File file = File.createTempFile( "drools",
+                                         ".drl" );
+        file.deleteOnExit();
+        write( file,
+               "rule1" );
+
+        FileSystemResource resource = new FileSystemResource( file );
+        resource.getInputStream().close();
+
+        // changed after it was read, but before the notifier subscribed to it
+        write( file,
+               "rule2" );
+        assertTrue( file.setLastModified( resource.getLastRead() + 2000 ) );
+
+        final List<ChangeSet> changeSets = new ArrayList<ChangeSet>();
+        ResourceChangeNotifierImpl notifier = new ResourceChangeNotifierImpl() {
+            public void publishChangeSet(ChangeSet changeSet) {
+                changeSets.add( changeSet );
+            }
+        };
+        ResourceChangeScannerImpl scanner = new ResourceChangeScannerImpl();
+        scanner.subscribeNotifier( notifier,
+                                   resource );
+
+        scanner.scan();
+        assertEquals( 1,
+                      changeSets.size() );
+        assertTrue( changeSets.get( 0 ).getResourcesModified().contains( resource ) );
+    }
+
+    private void write(File file,
+                       String contents) throws Exception {
+        FileWriter writer = new FileWriter( file );
+        writer.write( contents );
+        writer.close();
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.marshalling.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import org.drools.marshalling.ObjectMarshallingStrategy;
+import org.junit.Test;
+
+public class PersisterHelperTest {
+
+    private static final int[] INTS = {0, 1, 127, 128, 300, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+
+    private static MarshallerReaderContext newReaderContext(ByteArrayOutputStream bytes) throws IOException {
+        return new MarshallerReaderContext( new ByteArrayInputStream( bytes.toByteArray() ),
+                                            null,
+                                            null,
+                                            new ObjectMarshallingStrategyStore( new ObjectMarshallingStrategy[0] ),
+                                            null );
+    }
+
+    @Test
+    public void testVarIntRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        for ( int value : INTS ) {
+            PersisterHelper.writeVarInt( out,
+                                         value );
+            PersisterHelper.writeVarLong( out,
+                                          value * 3L );
+        }
+        PersisterHelper.writeVarLong( out,
+                                      Long.MIN_VALUE );
+        out.close();
+
+        MarshallerReaderContext context = newReaderContext( bytes );
+        for ( int value : INTS ) {
+            assertEquals( value,
+                          PersisterHelper.readCompactInt( context ) );
+            assertEquals( value * 3L,
+                          PersisterHelper.readCompactLong( context ) );
+        }
+        assertEquals( Long.MIN_VALUE,
+                      PersisterHelper.readCompactLong( context ) );
+        context.close();
+    }
+
+    @Test
+    public void testSmallIdsTakeOneByte() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( bytes );
+        PersisterHelper.writeVarInt( out,
+                                     127 );
+        assertEquals( 1,
+                      bytes.size() );
+        PersisterHelper.writeVarInt( out,
+                                     128 );
+        assertEquals( 3,
+                      bytes.size() );
+    }
+
+    @Test
+    public void testLegacyFormatReadsFixedLengthIds() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        for ( int value : INTS ) {
+            out.writeInt( value );
+            out.writeLong( value * 3L );
+        }
+        out.close();
+
+        MarshallerReaderContext context = newReaderContext( bytes );
+        context.formatVersion = PersisterHelper.LEGACY_FORMAT_VERSION;
+        for ( int value : INTS ) {
+            assertEquals( value,
+                          PersisterHelper.readCompactInt( context ) );
+            assertEquals( value * 3L,
+                          PersisterHelper.readCompactLong( context ) );
+        }
+        context.close();
+    }
+}
@@ -33,8 +33,11 @@ import org.drools.RuleBaseFactory;
 import org.drools.base.ClassFieldAccessorCache;
 import org.drools.base.ClassFieldAccessorStore;
 import org.drools.base.ValueType;
+import org.drools.base.evaluators.ComparableEvaluatorsDefinition;
 import org.drools.base.evaluators.EqualityEvaluatorsDefinition;
 import org.drools.base.evaluators.Operator;
+import org.drools.base.evaluators.SetEvaluatorsDefinition;
+import org.drools.base.field.LiteralSet;
 import org.drools.base.field.LongFieldImpl;
 import org.drools.base.field.ObjectFieldImpl;
 import org.drools.common.DisconnectedWorkingMemoryEntryPoint;
@@ -46,6 +49,7 @@ import org.drools.reteoo.builder.BuildContext;
 import org.drools.rule.Behavior;
 import org.drools.rule.LiteralConstraint;
 import org.drools.rule.PredicateConstraint;
+import org.drools.spi.FieldValue;
 import org.drools.spi.InternalReadAccessor;
 import org.drools.spi.PropagationContext;
 
@@ -356,6 +360,312 @@ public class CompositeObjectSinkAdapterTest {
         assertNull( ad.hashedSinkMap );
     }
 
+    @Test
+    public void testTripleAlphaLiteralSet() {
+        final CompositeObjectSinkAdapter ad = new CompositeObjectSinkAdapter();
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "type",
+                                                          this.getClass().getClassLoader() );
+
+        final AlphaNode al1 = newMemberOfNode( extractor,
+                                               new String[]{"stilton", "brie"} );
+        final AlphaNode al2 = newMemberOfNode( extractor,
+                                               new String[]{"brie", "cheddar"} );
+        final AlphaNode al3 = newMemberOfNode( extractor,
+                                               new String[]{"stinky"} );
+
+        ad.addObjectSink( al1 );
+        ad.addObjectSink( al2 );
+        assertNull( ad.literalSetSinkMap );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+
+        ad.addObjectSink( al3 );
+
+        //this should now be hashed under each literal
+        assertNull( ad.otherSinks );
+        assertEquals( 3,
+                      ad.hashedLiteralSetSinks.size() );
+        assertEquals( 4,
+                      ad.literalSetSinkMap.size() );
+        AlphaNode[] sinks = (AlphaNode[]) ad.literalSetSinkMap.get( new CompositeObjectSinkAdapter.HashKey( extractor.getIndex(),
+                                                                                                              new Cheese( "brie",
+                                                                                                                          10 ),
+                                                                                                              extractor ) );
+        assertEquals( 2,
+                      sinks.length );
+        assertEquals( 3,
+                      ad.getSinks().length );
+        assertEquals( 3,
+                      ad.size() );
+
+        //now remove one, check the hashing is undone
+        ad.removeObjectSink( al2 );
+        assertNull( ad.literalSetSinkMap );
+        assertNull( ad.hashedLiteralSetSinks );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+    }
+
+    @Test
+    public void testLiteralSetSinksBelowThresholdKeepTheirOrder() {
+        final CompositeObjectSinkAdapter ad = new CompositeObjectSinkAdapter();
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "type",
+                                                          this.getClass().getClassLoader() );
+
+        final AlphaNode predicate1 = new AlphaNode( buildContext.getNextId(),
+                                                    new PredicateConstraint( null,
+                                                                             null ),
+                                                    null,
+                                                    buildContext );
+        final AlphaNode memberOf1 = newMemberOfNode( extractor,
+                                                     new String[]{"stilton", "brie"} );
+        final AlphaNode predicate2 = new AlphaNode( buildContext.getNextId(),
+                                                    new PredicateConstraint( null,
+                                                                             null ),
+                                                    null,
+                                                    buildContext );
+        final AlphaNode memberOf2 = newMemberOfNode( extractor,
+                                                     new String[]{"brie", "cheddar"} );
+
+        ad.addObjectSink( predicate1 );
+        ad.addObjectSink( memberOf1 );
+        ad.addObjectSink( predicate2 );
+        ad.addObjectSink( memberOf2 );
+
+        // not hashed yet, so they are propagated in the order they were added
+        assertNull( ad.hashedLiteralSetSinks );
+        assertSame( predicate1,
+                    ad.otherSinks.getFirst() );
+        assertSame( memberOf1,
+                    predicate1.getNextObjectSinkNode() );
+        assertSame( predicate2,
+                    memberOf1.getNextObjectSinkNode() );
+        assertSame( memberOf2,
+                    predicate2.getNextObjectSinkNode() );
+
+        final AlphaNode memberOf3 = newMemberOfNode( extractor,
+                                                     new String[]{"stinky"} );
+        ad.addObjectSink( memberOf3 );
+
+        // the hashing only takes the literal set sinks
+        assertEquals( 3,
+                      ad.hashedLiteralSetSinks.size() );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+        assertSame( predicate1,
+                    ad.otherSinks.getFirst() );
+        assertSame( predicate2,
+                    ad.otherSinks.getLast() );
+
+        ad.removeObjectSink( memberOf3 );
+        assertNull( ad.hashedLiteralSetSinks );
+        assertNull( ad.literalSetSinkMap );
+        assertEquals( 4,
+                      ad.otherSinks.size() );
+        assertEquals( 4,
+                      ad.size() );
+    }
+
+    private AlphaNode newMemberOfNode(final InternalReadAccessor extractor,
+                                      final String[] values) {
+        final FieldValue[] fields = new FieldValue[values.length];
+        for ( int i = 0; i < values.length; i++ ) {
+            fields[i] = new ObjectFieldImpl( values[i] );
+        }
+        final LiteralConstraint lit = new LiteralConstraint( extractor,
+                                                             new SetEvaluatorsDefinition().getEvaluator( ValueType.STRING_TYPE,
+                                                                                                         SetEvaluatorsDefinition.MEMBEROF ),
+                                                             new ObjectFieldImpl( LiteralSet.newInstance( ValueType.STRING_TYPE,
+                                                                                                          fields ) ) );
+        return new AlphaNode( buildContext.getNextId(),
+                              lit,
+                              new MockObjectSource( buildContext.getNextId() ),
+                              buildContext );
+    }
+
+    @Test
+    public void testRangeIndex() {
+        final CompositeObjectSinkAdapter ad = new CompositeObjectSinkAdapter();
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "price",
+                                                          this.getClass().getClassLoader() );
+
+        final MockObjectSink greater10 = new MockObjectSink();
+        final AlphaNode al1 = newRangeNode( extractor,
+                                            Operator.GREATER,
+                                            10,
+                                            greater10 );
+        final MockObjectSink greaterOrEqual20 = new MockObjectSink();
+        final AlphaNode al2 = newRangeNode( extractor,
+                                            Operator.GREATER_OR_EQUAL,
+                                            20,
+                                            greaterOrEqual20 );
+        final MockObjectSink less15 = new MockObjectSink();
+        final AlphaNode al3 = newRangeNode( extractor,
+                                            Operator.LESS,
+                                            15,
+                                            less15 );
+        final MockObjectSink lessOrEqual30 = new MockObjectSink();
+        final AlphaNode al4 = newRangeNode( extractor,
+                                            Operator.LESS_OR_EQUAL,
+                                            30,
+                                            lessOrEqual30 );
+        final MockObjectSink greater20 = new MockObjectSink();
+        final AlphaNode al5 = newRangeNode( extractor,
+                                            Operator.GREATER,
+                                            20,
+                                            greater20 );
+
+        ad.addObjectSink( al1 );
+        ad.addObjectSink( al2 );
+        assertNull( ad.indexedRangeSinks );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+
+        ad.addObjectSink( al3 );
+        ad.addObjectSink( al4 );
+        ad.addObjectSink( al5 );
+
+        // this should now be indexed
+        assertNull( ad.otherSinks );
+        assertEquals( 5,
+                      ad.indexedRangeSinks.size() );
+        assertEquals( 5,
+                      ad.getSinks().length );
+
+        ad.propagateAssertObject( newCheeseHandle( 20 ),
+                                  null,
+                                  null );
+        assertEquals( 1,
+                      greater10.getAsserted().size() );
+        assertEquals( 1,
+                      greaterOrEqual20.getAsserted().size() );
+        assertEquals( 0,
+                      less15.getAsserted().size() );
+        assertEquals( 1,
+                      lessOrEqual30.getAsserted().size() );
+        assertEquals( 0,
+                      greater20.getAsserted().size() );
+
+        ad.propagateAssertObject( newCheeseHandle( 10 ),
+                                  null,
+                                  null );
+        assertEquals( 1,
+                      greater10.getAsserted().size() );
+        assertEquals( 1,
+                      greaterOrEqual20.getAsserted().size() );
+        assertEquals( 1,
+                      less15.getAsserted().size() );
+        assertEquals( 2,
+                      lessOrEqual30.getAsserted().size() );
+        assertEquals( 0,
+                      greater20.getAsserted().size() );
+
+        // now remove enough of them, check the index is undone
+        ad.removeObjectSink( al2 );
+        ad.removeObjectSink( al5 );
+        assertEquals( 3,
+                      ad.indexedRangeSinks.size() );
+        ad.removeObjectSink( al1 );
+        assertNull( ad.indexedRangeSinks );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+        assertEquals( 2,
+                      ad.size() );
+    }
+
+    private AlphaNode newRangeNode(final InternalReadAccessor extractor,
+                                   final Operator operator,
+                                   final int value,
+                                   final MockObjectSink sink) {
+        final LiteralConstraint lit = new LiteralConstraint( extractor,
+                                                             new ComparableEvaluatorsDefinition().getEvaluator( ValueType.PINTEGER_TYPE,
+                                                                                                                operator ),
+                                                             new LongFieldImpl( value ) );
+        final AlphaNode alphaNode = new AlphaNode( buildContext.getNextId(),
+                                                   lit,
+                                                   new MockObjectSource( buildContext.getNextId() ),
+                                                   buildContext );
+        alphaNode.addObjectSink( sink );
+        return alphaNode;
+    }
+
+    private InternalFactHandle newCheeseHandle(final int price) {
+        return new ReteooFactHandleFactory().newFactHandle( new Cheese( "brie",
+                                                                        price ),
+                                                            null,
+                                                            null,
+                                                            new DisconnectedWorkingMemoryEntryPoint( "DEFAULT" ) );
+    }
+
+    @Test
+    public void testRangeSinksBelowThresholdKeepTheirOrder() {
+        final CompositeObjectSinkAdapter ad = new CompositeObjectSinkAdapter();
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "price",
+                                                          this.getClass().getClassLoader() );
+
+        final AlphaNode predicate1 = new AlphaNode( buildContext.getNextId(),
+                                                    new PredicateConstraint( null,
+                                                                             null ),
+                                                    null,
+                                                    buildContext );
+        final AlphaNode greater10 = newRangeNode( extractor,
+                                                  Operator.GREATER,
+                                                  10,
+                                                  new MockObjectSink() );
+        final AlphaNode predicate2 = new AlphaNode( buildContext.getNextId(),
+                                                    new PredicateConstraint( null,
+                                                                             null ),
+                                                    null,
+                                                    buildContext );
+        final AlphaNode less15 = newRangeNode( extractor,
+                                               Operator.LESS,
+                                               15,
+                                               new MockObjectSink() );
+
+        ad.addObjectSink( predicate1 );
+        ad.addObjectSink( greater10 );
+        ad.addObjectSink( predicate2 );
+        ad.addObjectSink( less15 );
+
+        // not indexed yet, so they are propagated in the order they were added
+        assertNull( ad.indexedRangeSinks );
+        assertSame( predicate1,
+                    ad.otherSinks.getFirst() );
+        assertSame( greater10,
+                    predicate1.getNextObjectSinkNode() );
+        assertSame( predicate2,
+                    greater10.getNextObjectSinkNode() );
+        assertSame( less15,
+                    predicate2.getNextObjectSinkNode() );
+
+        final AlphaNode lessOrEqual30 = newRangeNode( extractor,
+                                                      Operator.LESS_OR_EQUAL,
+                                                      30,
+                                                      new MockObjectSink() );
+        ad.addObjectSink( lessOrEqual30 );
+
+        // the index only takes the range sinks
+        assertEquals( 3,
+                      ad.indexedRangeSinks.size() );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+        assertSame( predicate1,
+                    ad.otherSinks.getFirst() );
+        assertSame( predicate2,
+                    ad.otherSinks.getLast() );
+
+        ad.removeObjectSink( lessOrEqual30 );
+        assertNull( ad.indexedRangeSinks );
+        assertEquals( 4,
+                      ad.otherSinks.size() );
+        assertEquals( 4,
+                      ad.size() );
+    }
+
     @Test
     public void testPropagationWithNullValue() {
 
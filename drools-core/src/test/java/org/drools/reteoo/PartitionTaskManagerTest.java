@@ -25,6 +25,7 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import org.drools.RuleBase;
+import org.drools.RuleBaseConfiguration;
 import org.drools.RuleBaseFactory;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.concurrent.ExternalExecutorService;
@@ -113,4 +114,49 @@ public class PartitionTaskManagerTest {
         verify( action, times(5) ).execute(workingMemory);
     }
 
+    @Test
+    public void testEnqueueWaitsForBoundedQueue() throws InterruptedException {
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setPartitionQueueSize( 2 );
+        RuleBase rulebase = RuleBaseFactory.newRuleBase( conf );
+        InternalWorkingMemory session = (InternalWorkingMemory) rulebase.newStatefulSession();
+        final PartitionManager boundedManager = new PartitionManager( session );
+        PartitionTaskManager boundedTaskManager = new PartitionTaskManager( boundedManager,
+                                                                            session );
+
+        final PartitionTaskManager.Action action = mock( PartitionTaskManager.Action.class );
+        // there is no pool yet, so the queue is full after two actions
+        boundedTaskManager.enqueue( action );
+        boundedTaskManager.enqueue( action );
+        assertEquals( 2,
+                      boundedTaskManager.getQueueDepth() );
+
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        Thread starter = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep( 200 );
+                } catch ( InterruptedException e ) {
+                    return;
+                }
+                boundedManager.setPool( new ExternalExecutorService( pool ) );
+            }
+        };
+        starter.start();
+
+        // waits until the pool drains the queue
+        boundedTaskManager.enqueue( action );
+        assertEquals( 1,
+                      boundedTaskManager.getBlockedEnqueues() );
+
+        for ( int i = 0; i < 100 && boundedTaskManager.getExecutedActions() < 3; i++ ) {
+            Thread.sleep( 20 );
+        }
+        pool.shutdown();
+        assertEquals( 3,
+                      boundedTaskManager.getExecutedActions() );
+        verify( action,
+                times( 3 ) ).execute( session );
+    }
+
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo.compiled;
+
+import static org.junit.Assert.*;
+
+import org.drools.base.ValueType;
+import org.junit.Test;
+
+public class HashedAlphasDeclarationTest {
+
+    @Test
+    public void testKeySource() {
+        HashedAlphasDeclaration longs = new HashedAlphasDeclaration( "ageToNodeId",
+                                                                     ValueType.PINTEGER_TYPE );
+        assertEquals( "Long.valueOf(42L)",
+                      longs.getKeySource( new Long( 42 ) ) );
+
+        HashedAlphasDeclaration booleans = new HashedAlphasDeclaration( "aliveToNodeId",
+                                                                        ValueType.PBOOLEAN_TYPE );
+        assertEquals( "Boolean.TRUE",
+                      booleans.getKeySource( Boolean.TRUE ) );
+
+        HashedAlphasDeclaration doubles = new HashedAlphasDeclaration( "priceToNodeId",
+                                                                       ValueType.PDOUBLE_TYPE );
+        assertEquals( "Double.valueOf(1.5)",
+                      doubles.getKeySource( new Double( 1.5 ) ) );
+    }
+
+    @Test
+    public void testStringKeySourceIsEscaped() {
+        HashedAlphasDeclaration strings = new HashedAlphasDeclaration( "nameToNodeId",
+                                                                       ValueType.STRING_TYPE );
+        assertEquals( "\"a\\\"b\\\\c\\n\\0015\\u00e9\"",
+                      strings.getKeySource( "a\"b\\c\n\u00015é" ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedKey() {
+        HashedAlphasDeclaration doubles = new HashedAlphasDeclaration( "priceToNodeId",
+                                                                       ValueType.PDOUBLE_TYPE );
+        doubles.getKeySource( new Double( Double.NaN ) );
+    }
+
+}
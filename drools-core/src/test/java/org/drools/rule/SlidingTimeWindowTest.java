@@ -0,0 +1,388 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.rule;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ClockType;
+import org.drools.SessionConfiguration;
+import org.drools.common.EventFactHandle;
+import org.drools.common.InternalWorkingMemory;
+import org.drools.reteoo.MockRightTupleSink;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.reteoo.RightTuple;
+import org.drools.rule.SlidingTimeWindow.SlidingTimeWindowContext;
+import org.drools.time.impl.PseudoClockScheduler;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlidingTimeWindowTest {
+
+    private InternalWorkingMemory wm;
+    private PseudoClockScheduler  clock;
+    private MockRightTupleSink    sink;
+    private int                   nextId;
+
+    @Before
+    public void setUp() {
+        SessionConfiguration conf = new SessionConfiguration();
+        conf.setClockType( ClockType.PSEUDO_CLOCK );
+        this.wm = (InternalWorkingMemory) new ReteooRuleBase( "x" ).newStatefulSession( conf,
+                                                                                         null );
+        this.clock = (PseudoClockScheduler) this.wm.getTimerService();
+        this.sink = new MockRightTupleSink();
+    }
+
+    private RightTuple newTuple(long timestamp) {
+        int id = ++this.nextId;
+        return new RightTuple( new EventFactHandle( id,
+                                                    "event" + id,
+                                                    id,
+                                                    timestamp,
+                                                    0,
+                                                    null ),
+                               this.sink );
+    }
+
+    private List<RightTuple> pollAll(SlidingTimeWindowContext context) {
+        List<RightTuple> tuples = new ArrayList<RightTuple>();
+        for ( RightTuple tuple = context.poll(); tuple != null; tuple = context.poll() ) {
+            tuples.add( tuple );
+        }
+        assertTrue( context.isEmpty() );
+        return tuples;
+    }
+
+    private void advanceTime(long millis) {
+        this.clock.advanceTime( millis,
+                                TimeUnit.MILLISECONDS );
+        this.wm.executeQueuedActions();
+    }
+
+    private RightTuple getRetracted(int index) {
+        return (RightTuple) ((Object[]) this.sink.getRetracted().get( index ))[0];
+    }
+
+    @Test
+    public void testOutOfOrderInserts() {
+        SlidingTimeWindowContext context = new SlidingTimeWindowContext();
+        RightTuple t10 = newTuple( 10 );
+        RightTuple t30 = newTuple( 30 );
+        RightTuple t20 = newTuple( 20 );
+        RightTuple t5 = newTuple( 5 );
+        RightTuple t30b = newTuple( 30 );
+        context.add( t10,
+                     10 );
+        context.add( t30,
+                     30 );
+        context.add( t20,
+                     20 );
+        context.add( t5,
+                     5 );
+        context.add( t30b,
+                     30 );
+
+        assertSame( t5,
+                    context.peek() );
+        List<RightTuple> tuples = pollAll( context );
+        // the tuples with the same timestamp are kept in insertion order
+        assertEquals( 5,
+                      tuples.size() );
+        assertSame( t5,
+                    tuples.get( 0 ) );
+        assertSame( t10,
+                    tuples.get( 1 ) );
+        assertSame( t20,
+                    tuples.get( 2 ) );
+        assertSame( t30,
+                    tuples.get( 3 ) );
+        assertSame( t30b,
+                    tuples.get( 4 ) );
+        assertNull( context.peek() );
+    }
+
+    @Test
+    public void testRemove() {
+        SlidingTimeWindowContext context = new SlidingTimeWindowContext();
+        RightTuple a = newTuple( 10 );
+        RightTuple b = newTuple( 20 );
+        RightTuple c = newTuple( 20 );
+        RightTuple d = newTuple( 30 );
+        context.add( a,
+                     10 );
+        context.add( b,
+                     20 );
+        context.add( c,
+                     20 );
+        context.add( d,
+                     30 );
+
+        assertTrue( context.remove( c,
+                                    20 ) );
+        assertFalse( context.remove( c,
+                                     20 ) );
+        // a tuple is only found by its own timestamp
+        assertFalse( context.remove( b,
+                                     25 ) );
+
+        // the empty slot of the head is skipped
+        assertTrue( context.remove( a,
+                                    10 ) );
+        assertSame( b,
+                    context.peek() );
+
+        List<RightTuple> tuples = pollAll( context );
+        assertEquals( 2,
+                      tuples.size() );
+        assertSame( b,
+                    tuples.get( 0 ) );
+        assertSame( d,
+                    tuples.get( 1 ) );
+    }
+
+    @Test
+    public void testWraparound() {
+        SlidingTimeWindowContext context = new SlidingTimeWindowContext();
+        for ( int i = 0; i < 12; i++ ) {
+            context.add( newTuple( i * 10 ),
+                         i * 10 );
+        }
+        for ( int i = 0; i < 12; i++ ) {
+            context.poll();
+        }
+
+        // the head is near the end of the buffer, so these wrap around to its start
+        RightTuple t140 = newTuple( 140 );
+        RightTuple t120 = newTuple( 120 );
+        RightTuple t160 = newTuple( 160 );
+        RightTuple t130 = newTuple( 130 );
+        RightTuple t100 = newTuple( 100 );
+        context.add( t140,
+                     140 );
+        context.add( t120,
+                     120 );
+        context.add( t160,
+                     160 );
+        context.add( t130,
+                     130 );
+        context.add( t100,
+                     100 );
+        assertTrue( context.remove( t160,
+                                    160 ) );
+
+        List<RightTuple> tuples = pollAll( context );
+        assertEquals( 4,
+                      tuples.size() );
+        assertSame( t100,
+                    tuples.get( 0 ) );
+        assertSame( t120,
+                    tuples.get( 1 ) );
+        assertSame( t130,
+                    tuples.get( 2 ) );
+        assertSame( t140,
+                    tuples.get( 3 ) );
+    }
+
+    @Test
+    public void testCompactionOnRemove() {
+        SlidingTimeWindowContext context = new SlidingTimeWindowContext();
+        List<RightTuple> all = new ArrayList<RightTuple>();
+        for ( int i = 0; i < 64; i++ ) {
+            RightTuple tuple = newTuple( i );
+            all.add( tuple );
+            context.add( tuple,
+                         i );
+        }
+
+        // removing most of the tuples compacts the buffer along the way
+        List<RightTuple> expected = new ArrayList<RightTuple>();
+        for ( int i = 0; i < 64; i++ ) {
+            if ( i % 5 == 0 ) {
+                expected.add( all.get( i ) );
+            } else {
+                assertTrue( context.remove( all.get( i ),
+                                            i ) );
+            }
+        }
+
+        // the remaining tuples are still found after the compaction
+        assertTrue( context.remove( all.get( 10 ),
+                                    10 ) );
+        expected.remove( 2 );
+        RightTuple late = newTuple( 7 );
+        context.add( late,
+                     7 );
+        expected.add( 2,
+                      late );
+
+        assertEquals( expected,
+                      pollAll( context ) );
+    }
+
+    @Test
+    public void testCompactionOnAdd() {
+        SlidingTimeWindowContext context = new SlidingTimeWindowContext();
+        List<RightTuple> all = new ArrayList<RightTuple>();
+        for ( int i = 0; i < 16; i++ ) {
+            RightTuple tuple = newTuple( i );
+            all.add( tuple );
+            context.add( tuple,
+                         i );
+        }
+        List<RightTuple> expected = new ArrayList<RightTuple>();
+        for ( int i = 0; i < 16; i++ ) {
+            if ( i % 3 == 0 ) {
+                expected.add( all.get( i ) );
+            } else {
+                assertTrue( context.remove( all.get( i ),
+                                            i ) );
+            }
+        }
+
+        // the buffer is full of mostly empty slots, so it is compacted instead of growing
+        RightTuple t16 = newTuple( 16 );
+        context.add( t16,
+                     16 );
+        expected.add( t16 );
+        RightTuple late = newTuple( 7 );
+        context.add( late,
+                     7 );
+        expected.add( 3,
+                      late );
+
+        assertEquals( expected,
+                      pollAll( context ) );
+    }
+
+    @Test
+    public void testExpiration() {
+        SlidingTimeWindow window = new SlidingTimeWindow( 10 );
+        Object context = window.createContext();
+        long now = this.clock.getCurrentTime();
+        RightTuple t0 = newTuple( now );
+        RightTuple t5 = newTuple( now + 5 );
+        window.assertRightTuple( context,
+                                 t0,
+                                 this.wm );
+        window.assertRightTuple( context,
+                                 t5,
+                                 this.wm );
+        assertEquals( 10,
+                      this.clock.getTimeToNextJob() );
+
+        advanceTime( 10 );
+        assertEquals( 1,
+                      this.sink.getRetracted().size() );
+        assertSame( t0,
+                    getRetracted( 0 ) );
+        assertEquals( 5,
+                      this.clock.getTimeToNextJob() );
+
+        advanceTime( 5 );
+        assertEquals( 2,
+                      this.sink.getRetracted().size() );
+        assertSame( t5,
+                    getRetracted( 1 ) );
+        assertEquals( -1,
+                      this.clock.getTimeToNextJob() );
+    }
+
+    @Test
+    public void testLateEventReschedulesExpiration() {
+        SlidingTimeWindow window = new SlidingTimeWindow( 10 );
+        Object context = window.createContext();
+        long now = this.clock.getCurrentTime();
+        RightTuple t5 = newTuple( now + 5 );
+        RightTuple t0 = newTuple( now );
+        RightTuple t20 = newTuple( now + 20 );
+        window.assertRightTuple( context,
+                                 t5,
+                                 this.wm );
+        assertEquals( 15,
+                      this.clock.getTimeToNextJob() );
+
+        // the late event expires first, so the job is moved earlier
+        window.assertRightTuple( context,
+                                 t0,
+                                 this.wm );
+        assertEquals( 10,
+                      this.clock.getTimeToNextJob() );
+
+        // a later event leaves the job alone
+        window.assertRightTuple( context,
+                                 t20,
+                                 this.wm );
+        assertEquals( 10,
+                      this.clock.getTimeToNextJob() );
+
+        advanceTime( 10 );
+        assertEquals( 1,
+                      this.sink.getRetracted().size() );
+        assertSame( t0,
+                    getRetracted( 0 ) );
+        assertEquals( 5,
+                      this.clock.getTimeToNextJob() );
+
+        advanceTime( 20 );
+        assertEquals( 3,
+                      this.sink.getRetracted().size() );
+        assertSame( t5,
+                    getRetracted( 1 ) );
+        assertSame( t20,
+                    getRetracted( 2 ) );
+        assertEquals( -1,
+                      this.clock.getTimeToNextJob() );
+    }
+
+    @Test
+    public void testRetractedHeadReschedulesOnExpiration() {
+        SlidingTimeWindow window = new SlidingTimeWindow( 10 );
+        Object context = window.createContext();
+        long now = this.clock.getCurrentTime();
+        RightTuple t0 = newTuple( now );
+        RightTuple t5 = newTuple( now + 5 );
+        window.assertRightTuple( context,
+                                 t0,
+                                 this.wm );
+        window.assertRightTuple( context,
+                                 t5,
+                                 this.wm );
+
+        // the job of the retracted head still runs, and finds nothing to expire
+        window.retractRightTuple( context,
+                                  t0,
+                                  this.wm );
+        assertEquals( 10,
+                      this.clock.getTimeToNextJob() );
+        advanceTime( 10 );
+        assertEquals( 0,
+                      this.sink.getRetracted().size() );
+        assertEquals( 5,
+                      this.clock.getTimeToNextJob() );
+
+        advanceTime( 5 );
+        assertEquals( 1,
+                      this.sink.getRetracted().size() );
+        assertSame( t5,
+                    getRetracted( 0 ) );
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.time.impl;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.drools.ClockType;
+import org.drools.SessionConfiguration;
+import org.drools.time.JobHandle;
+import org.drools.time.TimerService;
+import org.drools.time.TimerServiceFactory;
+import org.drools.time.Trigger;
+import org.drools.time.impl.JDKTimerServiceTest.HelloWorldJob;
+import org.drools.time.impl.JDKTimerServiceTest.HelloWorldJobContext;
+
+public class TimingWheelTimerServiceTest {
+
+    private TimerService newTimerService() {
+        Properties properties = new Properties();
+        properties.setProperty( "drools.timerService",
+                                TimingWheelTimerService.class.getName() );
+        SessionConfiguration config = new SessionConfiguration( properties );
+        config.setClockType( ClockType.REALTIME_CLOCK );
+        TimerService timeService = TimerServiceFactory.getTimerService( config );
+        assertTrue( timeService instanceof TimingWheelTimerService );
+        return timeService;
+    }
+
+    @Test
+    public void testSingleExecutionJob() throws Exception {
+        TimerService timeService = newTimerService();
+        Trigger trigger = new JDKTimerServiceTest.DelayedTrigger( System.currentTimeMillis() + 100 );
+        HelloWorldJobContext ctx = new HelloWorldJobContext( "hello world",
+                                                             timeService );
+        timeService.scheduleJob( new HelloWorldJob(),
+                                 ctx,
+                                 trigger );
+        Thread.sleep( 50 );
+        assertEquals( 0,
+                      ctx.getList().size() );
+        Thread.sleep( 450 );
+        timeService.shutdown();
+        assertEquals( 1,
+                      ctx.getList().size() );
+    }
+
+    @Test
+    public void testRepeatedExecutionJob() throws Exception {
+        TimerService timeService = newTimerService();
+        long now = System.currentTimeMillis();
+        Trigger trigger = new JDKTimerServiceTest.DelayedTrigger( new long[]{now + 100, now + 200, now + 300} );
+        HelloWorldJobContext ctx = new HelloWorldJobContext( "hello world",
+                                                             timeService );
+        timeService.scheduleJob( new HelloWorldJob(),
+                                 ctx,
+                                 trigger );
+        Thread.sleep( 500 );
+        timeService.shutdown();
+        assertEquals( 3,
+                      ctx.getList().size() );
+    }
+
+    @Test
+    public void testRemoveJob() throws Exception {
+        TimingWheelTimerService timeService = (TimingWheelTimerService) newTimerService();
+        long now = System.currentTimeMillis();
+        HelloWorldJobContext ctx = new HelloWorldJobContext( "hello world",
+                                                             timeService );
+        JobHandle[] handles = new JobHandle[1000];
+        for ( int i = 0; i < handles.length; i++ ) {
+            // spread over a few turns of the first wheels
+            handles[i] = timeService.scheduleJob( new HelloWorldJob(),
+                                                  ctx,
+                                                  new JDKTimerServiceTest.DelayedTrigger( now + 100 + i * 70 ) );
+        }
+        assertEquals( 1000,
+                      timeService.size() );
+        for ( int i = 0; i < handles.length; i++ ) {
+            if ( i >= 3 ) {
+                assertTrue( timeService.removeJob( handles[i] ) );
+            }
+        }
+        assertFalse( timeService.removeJob( handles[3] ) );
+        assertEquals( 3,
+                      timeService.size() );
+
+        Thread.sleep( 500 );
+        timeService.shutdown();
+        assertEquals( 3,
+                      ctx.getList().size() );
+        assertEquals( 0,
+                      timeService.size() );
+    }
+
+}
@@ -102,4 +102,37 @@ public class BinaryHeapPriorityQueueTest {
         //        System.out.println( "elapsedEnqueue = " + elapsedEnqueue );
         //        System.out.println( "elapsedDequeue = " + elapsedDequeue );
     }
+
+    @Test
+    public void testEnqueueAll() {
+        final Random random = new Random( 0 );
+        final BinaryHeapQueue queue = new BinaryHeapQueue( NaturalComparator.INSTANCE,
+                                                           4 );
+
+        // the first batch rebuilds the heap, the second one is percolated up
+        final int[] batches = new int[]{1000, 300};
+        int total = 0;
+        for ( int b = 0; b < batches.length; b++ ) {
+            final Queueable[] elements = new Queueable[batches[b] + 10];
+            for ( int i = 0; i < batches[b]; i++ ) {
+                elements[i] = new LongQueueable( queue,
+                                                 random.nextInt( 500 ) );
+            }
+            queue.enqueueAll( elements,
+                              batches[b] );
+            total += batches[b];
+            assertEquals( total,
+                          queue.size() );
+        }
+
+        long last = Long.MAX_VALUE;
+        while ( !queue.isEmpty() ) {
+            final long value = Long.parseLong( queue.dequeue().toString() );
+            assertTrue( value <= last );
+            last = value;
+            total--;
+        }
+        assertEquals( 0,
+                      total );
+    }
 }
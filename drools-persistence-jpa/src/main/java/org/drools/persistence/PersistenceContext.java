@@ -1,6 +1,9 @@
 package org.drools.persistence;
 
+import java.util.List;
+
 import org.drools.persistence.info.SessionInfo;
+import org.drools.persistence.info.SessionJournalEntry;
 import org.drools.persistence.info.WorkItemInfo;
 
 public interface PersistenceContext {
@@ -23,4 +26,13 @@ public interface PersistenceContext {
 
     WorkItemInfo merge(WorkItemInfo workItemInfo);
 
+    void persist(SessionJournalEntry journalEntry);
+
+    /**
+     * Returns the journal entries of the session, in the order they were written.
+     */
+    List<SessionJournalEntry> findSessionJournalEntries(Integer sessionId);
+
+    void removeSessionJournalEntries(Integer sessionId);
+
 }
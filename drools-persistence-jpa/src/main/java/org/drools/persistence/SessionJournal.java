@@ -0,0 +1,459 @@
+package org.drools.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.KnowledgeBase;
+import org.drools.command.Command;
+import org.drools.command.runtime.GetGlobalCommand;
+import org.drools.command.runtime.GetIdCommand;
+import org.drools.command.runtime.rule.GetFactHandleCommand;
+import org.drools.command.runtime.rule.GetFactHandlesCommand;
+import org.drools.command.runtime.rule.GetObjectCommand;
+import org.drools.command.runtime.rule.GetObjectsCommand;
+import org.drools.command.runtime.rule.InsertElementsCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
+import org.drools.command.runtime.rule.InsertObjectInEntryPointCommand;
+import org.drools.command.runtime.rule.ModifyCommand;
+import org.drools.command.runtime.rule.RetractCommand;
+import org.drools.command.runtime.rule.UpdateCommand;
+import org.drools.common.DroolsObjectInputStream;
+import org.drools.common.InternalFactHandle;
+import org.drools.common.InternalRuleBase;
+import org.drools.conf.EventProcessingOption;
+import org.drools.event.rule.AfterActivationFiredEvent;
+import org.drools.event.rule.DefaultAgendaEventListener;
+import org.drools.event.rule.ObjectInsertedEvent;
+import org.drools.event.rule.ObjectRetractedEvent;
+import org.drools.event.rule.ObjectUpdatedEvent;
+import org.drools.event.rule.WorkingMemoryEventListener;
+import org.drools.impl.KnowledgeBaseImpl;
+import org.drools.marshalling.ObjectMarshallingStrategy;
+import org.drools.persistence.info.SessionInfo;
+import org.drools.persistence.info.SessionJournalEntry;
+import org.drools.rule.EntryPoint;
+import org.drools.rule.Package;
+import org.drools.rule.Rule;
+import org.drools.rule.TypeDeclaration;
+import org.drools.runtime.Environment;
+import org.drools.runtime.EnvironmentName;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+import org.drools.runtime.rule.WorkingMemoryEntryPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the fact level changes of a persistent session, so that a command
+ * that only inserts, updates or retracts a few facts appends them to the
+ * journal instead of writing a snapshot of the whole session. A snapshot is
+ * still written, and the journal cleared, when the journal grows past its
+ * limits or when a command may have changed state the journal can't
+ * replay, such as fired rules, agenda focus, processes or timers.
+ *
+ * When the session is loaded the journal is replayed on top of the last
+ * snapshot. Replaying an insert does not fire rules, so the agenda ends up
+ * with the same pending activations as the journaled session.
+ *
+ * The journal is enabled by setting the "drools.persistence.journal"
+ * environment entry to true. It is only used for knowledge bases in cloud
+ * mode, without events or rule timers, as the state of those depends on the
+ * time the facts were inserted.
+ *
+ * Unlike a snapshot, the journal has the following limitations:
+ * <ul>
+ * <li>Each entry serializes its fact on its own, with the marshalling
+ * strategies of the environment. Facts that reference each other, or the
+ * same object, are replayed as distinct copies, unless they are written by
+ * a placeholder strategy such as the JPA one.</li>
+ * <li>The facts are serialized when the command is flushed, so they are
+ * written as they are at the end of the command. A change made in place to
+ * a fact, without updating it, in a later command is not journaled, and is
+ * lost when the session is loaded again, whereas a snapshot would have
+ * kept it. Facts must be updated, or modified, for their changes to be
+ * kept.</li>
+ * </ul>
+ */
+public class SessionJournal {
+
+    public static final String JOURNAL_ENABLED     = "drools.persistence.journal";
+    public static final String MAX_ENTRIES         = "drools.persistence.journal.maxEntries";
+    public static final String MAX_BYTES           = "drools.persistence.journal.maxBytes";
+
+    public static final int    DEFAULT_MAX_ENTRIES = 1000;
+    public static final int    DEFAULT_MAX_BYTES   = 1024 * 1024;
+
+    private static final Set<Class< ? >> JOURNALED_COMMANDS = new HashSet<Class< ? >>( Arrays.<Class< ? >> asList( InsertObjectCommand.class,
+                                                                                                                 InsertObjectInEntryPointCommand.class,
+                                                                                                                 InsertElementsCommand.class,
+                                                                                                                 UpdateCommand.class,
+                                                                                                                 ModifyCommand.class,
+                                                                                                                 RetractCommand.class,
+                                                                                                                 GetObjectCommand.class,
+                                                                                                                 GetObjectsCommand.class,
+                                                                                                                 GetFactHandleCommand.class,
+                                                                                                                 GetFactHandlesCommand.class,
+                                                                                                                 GetGlobalCommand.class,
+                                                                                                                 GetIdCommand.class ) );
+
+    private static final Logger          logger             = LoggerFactory.getLogger( SessionJournal.class );
+
+    private final Environment              env;
+    private final ClassLoader              classLoader;
+    private final int                      maxEntries;
+    private final int                      maxBytes;
+
+    private final JournalListener          journalListener  = new JournalListener();
+    private final FiredRulesListener       firedRulesListener = new FiredRulesListener();
+
+    private List<PendingEntry>             pendingEntries   = new ArrayList<PendingEntry>();
+    private long                           nextSequenceNumber;
+    private int                            entriesSinceSnapshot;
+    private long                           bytesSinceSnapshot;
+    private boolean                        snapshotRequired;
+    private boolean                        recording        = true;
+    private Date                           lastModificationDate;
+
+    public SessionJournal(KnowledgeBase kbase,
+                          Environment env) {
+        this.env = env;
+        this.classLoader = ((InternalRuleBase) ((KnowledgeBaseImpl) kbase).getRuleBase()).getRootClassLoader();
+        this.maxEntries = getIntValue( env,
+                                       MAX_ENTRIES,
+                                       DEFAULT_MAX_ENTRIES );
+        this.maxBytes = getIntValue( env,
+                                     MAX_BYTES,
+                                     DEFAULT_MAX_BYTES );
+    }
+
+    /**
+     * Returns true if the journal is enabled in the environment and the
+     * knowledge base has no time dependent state.
+     */
+    public static boolean isEnabled(KnowledgeBase kbase,
+                                    Environment env) {
+        Object enabled = env.get( JOURNAL_ENABLED );
+        if ( enabled == null || !Boolean.valueOf( enabled.toString() ) ) {
+            return false;
+        }
+
+        InternalRuleBase ruleBase = (InternalRuleBase) ((KnowledgeBaseImpl) kbase).getRuleBase();
+        if ( ruleBase.getConfiguration().getEventProcessingMode() != EventProcessingOption.CLOUD ) {
+            logger.warn( "The session journal is not supported in stream mode, sessions are always written as snapshots" );
+            return false;
+        }
+        for ( Package pkg : ruleBase.getPackages() ) {
+            for ( Rule rule : pkg.getRules() ) {
+                if ( rule.getTimer() != null ) {
+                    logger.warn( "The session journal is not supported for rules with timers, sessions are always written as snapshots" );
+                    return false;
+                }
+            }
+            for ( TypeDeclaration type : pkg.getTypeDeclarations().values() ) {
+                if ( type.getRole() == TypeDeclaration.Role.EVENT ) {
+                    logger.warn( "The session journal is not supported for events, sessions are always written as snapshots" );
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int getIntValue(Environment env,
+                                   String name,
+                                   int defaultValue) {
+        Object value = env.get( name );
+        if ( value == null ) {
+            return defaultValue;
+        }
+        return (value instanceof Number) ? ((Number) value).intValue() : Integer.parseInt( value.toString() );
+    }
+
+    /**
+     * Registers the listeners that record the changes of the session. It is
+     * safe to call this again after the session was reloaded.
+     */
+    public void attach(StatefulKnowledgeSession ksession) {
+        ksession.removeEventListener( this.journalListener );
+        ksession.removeEventListener( this.firedRulesListener );
+        ksession.addEventListener( this.journalListener );
+        ksession.addEventListener( this.firedRulesListener );
+    }
+
+    public Date getLastModificationDate() {
+        return this.lastModificationDate;
+    }
+
+    public void setLastModificationDate(Date lastModificationDate) {
+        this.lastModificationDate = lastModificationDate;
+    }
+
+    public boolean isSnapshotRequired() {
+        return this.snapshotRequired || this.entriesSinceSnapshot >= this.maxEntries || this.bytesSinceSnapshot >= this.maxBytes;
+    }
+
+    /**
+     * Writes the changes made by the command, either as journal entries or,
+     * if the command can't be journaled or the journal is full, as a new
+     * snapshot of the session. Must be called before the transaction is
+     * committed.
+     */
+    public void flush(Command< ? > command,
+                      SessionInfo sessionInfo,
+                      SessionMarshallingHelper marshallingHelper,
+                      PersistenceContext persistenceContext) {
+        if ( !JOURNALED_COMMANDS.contains( command.getClass() ) ) {
+            this.snapshotRequired = true;
+        }
+
+        // the facts are written as they are at the end of the command
+        List<SessionJournalEntry> entries = new ArrayList<SessionJournalEntry>( this.pendingEntries.size() );
+        if ( !this.snapshotRequired ) {
+            for ( PendingEntry pendingEntry : this.pendingEntries ) {
+                SessionJournalEntry entry = pendingEntry.toEntry();
+                entries.add( entry );
+                this.bytesSinceSnapshot += entry.getObjectByteArray() != null ? entry.getObjectByteArray().length : 0;
+            }
+        }
+
+        if ( isSnapshotRequired() ) {
+            persistenceContext.removeSessionJournalEntries( sessionInfo.getId() );
+            if ( this.lastModificationDate != null ) {
+                sessionInfo.setLastModificationDate( this.lastModificationDate );
+            }
+            sessionInfo.setData( marshallingHelper.getSnapshot() );
+
+            this.entriesSinceSnapshot = 0;
+            this.bytesSinceSnapshot = 0;
+            this.snapshotRequired = false;
+        } else {
+            for ( SessionJournalEntry entry : entries ) {
+                entry.setSessionId( sessionInfo.getId() );
+                persistenceContext.persist( entry );
+            }
+        }
+        this.pendingEntries = new ArrayList<PendingEntry>();
+    }
+
+    /**
+     * Applies the journal entries to the session, which has just been loaded
+     * from the last snapshot. This also resets the journal to the state of
+     * the entries, discarding any changes that were not flushed.
+     */
+    public void replay(StatefulKnowledgeSession ksession,
+                       List<SessionJournalEntry> entries) {
+        this.pendingEntries = new ArrayList<PendingEntry>();
+        this.entriesSinceSnapshot = 0;
+        this.bytesSinceSnapshot = 0;
+        this.snapshotRequired = false;
+
+        // fact handles by the id they had when the entry was written
+        Map<String, Map<Integer, FactHandle>> factHandles = new HashMap<String, Map<Integer, FactHandle>>();
+
+        this.recording = false;
+        try {
+            for ( SessionJournalEntry entry : entries ) {
+                WorkingMemoryEntryPoint entryPoint = getEntryPoint( ksession,
+                                                                    entry.getEntryPointId() );
+                Map<Integer, FactHandle> handles = factHandles.get( entry.getEntryPointId() );
+                if ( handles == null ) {
+                    handles = new HashMap<Integer, FactHandle>();
+                    for ( Object handle : entryPoint.getFactHandles() ) {
+                        handles.put( ((InternalFactHandle) handle).getId(),
+                                     (FactHandle) handle );
+                    }
+                    factHandles.put( entry.getEntryPointId(),
+                                     handles );
+                }
+
+                switch ( entry.getType() ) {
+                    case SessionJournalEntry.INSERT :
+                        handles.put( entry.getFactHandleId(),
+                                     entryPoint.insert( readObject( entry.getObjectByteArray() ) ) );
+                        break;
+                    case SessionJournalEntry.UPDATE :
+                        entryPoint.update( getFactHandle( handles,
+                                                          entry ),
+                                           readObject( entry.getObjectByteArray() ) );
+                        break;
+                    case SessionJournalEntry.RETRACT :
+                        entryPoint.retract( getFactHandle( handles,
+                                                           entry ) );
+                        handles.remove( entry.getFactHandleId() );
+                        break;
+                }
+
+                this.nextSequenceNumber = entry.getSequenceNumber() + 1;
+                this.entriesSinceSnapshot++;
+                this.bytesSinceSnapshot += entry.getObjectByteArray() != null ? entry.getObjectByteArray().length : 0;
+            }
+        } finally {
+            this.recording = true;
+        }
+    }
+
+    private WorkingMemoryEntryPoint getEntryPoint(StatefulKnowledgeSession ksession,
+                                                  String entryPointId) {
+        if ( entryPointId == null || EntryPoint.DEFAULT.getEntryPointId().equals( entryPointId ) ) {
+            return ksession;
+        }
+        return ksession.getWorkingMemoryEntryPoint( entryPointId );
+    }
+
+    private FactHandle getFactHandle(Map<Integer, FactHandle> handles,
+                                     SessionJournalEntry entry) {
+        FactHandle handle = handles.get( entry.getFactHandleId() );
+        if ( handle == null ) {
+            throw new IllegalStateException( "Unable to replay the session journal, fact handle " + entry.getFactHandleId() + " does not exist" );
+        }
+        return handle;
+    }
+
+    private void record(int type,
+                        FactHandle handle,
+                        Object object) {
+        if ( !this.recording ) {
+            return;
+        }
+        InternalFactHandle internalHandle = (InternalFactHandle) handle;
+        String entryPointId = internalHandle.getEntryPoint() != null ? internalHandle.getEntryPoint().getEntryPointId() : null;
+
+        this.pendingEntries.add( new PendingEntry( type,
+                                                   internalHandle.getId(),
+                                                   entryPointId,
+                                                   object,
+                                                   this.nextSequenceNumber++ ) );
+        this.entriesSinceSnapshot++;
+    }
+
+    private ObjectMarshallingStrategy[] getStrategies() {
+        return (ObjectMarshallingStrategy[]) this.env.get( EnvironmentName.OBJECT_MARSHALLING_STRATEGIES );
+    }
+
+    private byte[] writeObject(Object object) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream( baos );
+            ObjectMarshallingStrategy[] strategies = getStrategies();
+            if ( strategies == null ) {
+                out.writeInt( -1 );
+                out.writeObject( object );
+            } else {
+                int index = 0;
+                while ( index < strategies.length && !strategies[index].accept( object ) ) {
+                    index++;
+                }
+                if ( index == strategies.length ) {
+                    throw new IllegalArgumentException( "No marshalling strategy accepts " + object );
+                }
+                out.writeInt( index );
+                strategies[index].write( out,
+                                         object );
+            }
+            out.close();
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to write the session journal entry",
+                                        e );
+        }
+        return baos.toByteArray();
+    }
+
+    private Object readObject(byte[] bytes) {
+        if ( bytes == null ) {
+            return null;
+        }
+        try {
+            ObjectInputStream in = new DroolsObjectInputStream( new ByteArrayInputStream( bytes ),
+                                                                this.classLoader );
+            int index = in.readInt();
+            Object object = (index < 0) ? in.readObject() : getStrategies()[index].read( in );
+            in.close();
+            return object;
+        } catch ( Exception e ) {
+            throw new RuntimeException( "Unable to read the session journal entry",
+                                        e );
+        }
+    }
+
+    /**
+     * A change recorded during the current command, whose fact is only
+     * serialized when the command is flushed.
+     */
+    private class PendingEntry {
+
+        private final int    type;
+        private final int    factHandleId;
+        private final String entryPointId;
+        private final Object object;
+        private final long   sequenceNumber;
+
+        PendingEntry(int type,
+                     int factHandleId,
+                     String entryPointId,
+                     Object object,
+                     long sequenceNumber) {
+            this.type = type;
+            this.factHandleId = factHandleId;
+            this.entryPointId = entryPointId;
+            this.object = object;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        SessionJournalEntry toEntry() {
+            SessionJournalEntry entry = new SessionJournalEntry( this.type,
+                                                                 this.factHandleId,
+                                                                 this.entryPointId,
+                                                                 (this.object != null) ? writeObject( this.object ) : null );
+            entry.setSequenceNumber( this.sequenceNumber );
+            return entry;
+        }
+    }
+
+    private class JournalListener
+        implements
+        WorkingMemoryEventListener {
+
+        public void objectInserted(ObjectInsertedEvent event) {
+            record( SessionJournalEntry.INSERT,
+                    event.getFactHandle(),
+                    event.getObject() );
+        }
+
+        public void objectUpdated(ObjectUpdatedEvent event) {
+            record( SessionJournalEntry.UPDATE,
+                    event.getFactHandle(),
+                    event.getObject() );
+        }
+
+        public void objectRetracted(ObjectRetractedEvent event) {
+            record( SessionJournalEntry.RETRACT,
+                    event.getFactHandle(),
+                    null );
+        }
+    }
+
+    /**
+     * Consequences may change anything in the session, so a snapshot is
+     * taken as soon as a rule fired.
+     */
+    private class FiredRulesListener extends DefaultAgendaEventListener {
+
+        public void afterActivationFired(AfterActivationFiredEvent event) {
+            if ( recording ) {
+                snapshotRequired = true;
+            }
+        }
+    }
+
+}
@@ -23,6 +23,7 @@ import org.drools.persistence.jpa.JpaJDKTimerService;
 import org.drools.persistence.jpa.JpaPersistenceContextManager;
 import org.drools.persistence.jpa.processinstance.JPAWorkItemManager;
 import org.drools.persistence.jta.JtaTransactionManager;
+import org.drools.persistence.map.NonTransactionalPersistentSession;
 import org.drools.runtime.Environment;
 import org.drools.runtime.EnvironmentName;
 import org.drools.runtime.KnowledgeSessionConfiguration;
@@ -38,6 +39,7 @@ public class SingleSessionCommandService
 
     private SessionInfo                 sessionInfo;
     private SessionMarshallingHelper marshallingHelper;
+    private SessionJournal              journal;
 
     private StatefulKnowledgeSession    ksession;
     private Environment                 env;
@@ -112,7 +114,9 @@ public class SingleSessionCommandService
         this.marshallingHelper = new SessionMarshallingHelper( this.ksession,
                                                                   conf );
         this.sessionInfo.setJPASessionMashallingHelper( this.marshallingHelper );
-        ((InternalKnowledgeRuntime) this.ksession).setEndOperationListener( new EndOperationListenerImpl( this.sessionInfo ) );
+        initJournal( kbase );
+        ((InternalKnowledgeRuntime) this.ksession).setEndOperationListener( new EndOperationListenerImpl( this.sessionInfo,
+                                                                                                          this.journal ) );
         
         // Use the App scoped EntityManager if the user has provided it, and it is open.
 
@@ -188,6 +192,7 @@ public class SingleSessionCommandService
             this.marshallingHelper = new SessionMarshallingHelper( kbase,
                                                                       conf,
                                                                       env );
+            initJournal( kbase );
         }
 
         this.sessionInfo.setJPASessionMashallingHelper( this.marshallingHelper );
@@ -196,10 +201,19 @@ public class SingleSessionCommandService
         this.ksession = this.marshallingHelper.loadSnapshot( this.sessionInfo.getData(),
                                                              this.ksession );
 
+        if ( this.journal != null ) {
+            // bring the session up to date with the changes made since the snapshot
+            this.journal.replay( this.ksession,
+                                 jpm.getApplicationScopedPersistenceContext().findSessionJournalEntries( sessionId ) );
+            this.journal.attach( this.ksession );
+            this.sessionInfo.setJournal( this.journal );
+        }
+
         // update the session id to be the same as the session info id
         ((InternalKnowledgeRuntime) ksession).setId( this.sessionInfo.getId() );
 
-        ((InternalKnowledgeRuntime) this.ksession).setEndOperationListener( new EndOperationListenerImpl( this.sessionInfo ) );
+        ((InternalKnowledgeRuntime) this.ksession).setEndOperationListener( new EndOperationListenerImpl( this.sessionInfo,
+                                                                                                          this.journal ) );
 
         ((JpaJDKTimerService) ((InternalKnowledgeRuntime) ksession).getTimerService()).setCommandService( this );
         
@@ -215,6 +229,23 @@ public class SingleSessionCommandService
 
     }
     
+    private void initJournal(KnowledgeBase kbase) {
+        if ( !SessionJournal.isEnabled( kbase,
+                                        this.env ) ) {
+            return;
+        }
+        if ( jpm.getApplicationScopedPersistenceContext() instanceof NonTransactionalPersistentSession ) {
+            logger.warn( "The session journal is not supported by the map based persistence, sessions are always written as snapshots" );
+            return;
+        }
+        this.journal = new SessionJournal( kbase,
+                                           this.env );
+        if ( this.ksession != null ) {
+            this.journal.attach( this.ksession );
+            this.sessionInfo.setJournal( this.journal );
+        }
+    }
+
     public void initTransactionManager(Environment env) {
         Object tm = env.get( EnvironmentName.TRANSACTION_MANAGER );
         if ( env.get( EnvironmentName.PERSISTENCE_CONTEXT_MANAGER ) != null &&
@@ -264,14 +295,29 @@ public class SingleSessionCommandService
     public static class EndOperationListenerImpl
         implements
         EndOperationListener {
-        private SessionInfo info;
+        private SessionInfo    info;
+        private SessionJournal journal;
 
         public EndOperationListenerImpl(SessionInfo info) {
+            this( info,
+                  null );
+        }
+
+        public EndOperationListenerImpl(SessionInfo info,
+                                        SessionJournal journal) {
             this.info = info;
+            this.journal = journal;
         }
 
         public void endOperation(InternalKnowledgeRuntime kruntime) {
-            this.info.setLastModificationDate( new Date( kruntime.getLastIdleTimestamp() ) );
+            Date date = new Date( kruntime.getLastIdleTimestamp() );
+            if ( this.journal != null ) {
+                // changing the session info would make it write a snapshot, so
+                // the journal keeps the date until it writes the next snapshot
+                this.journal.setLastModificationDate( date );
+            } else {
+                this.info.setLastModificationDate( date );
+            }
         }
     }
 
@@ -294,6 +340,13 @@ public class SingleSessionCommandService
 
             T result = ((GenericCommand<T>) command).execute( this.kContext );
 
+            if ( this.journal != null ) {
+                this.journal.flush( command,
+                                    this.sessionInfo,
+                                    this.marshallingHelper,
+                                    this.jpm.getCommandScopedPersistenceContext() );
+            }
+
             txm.commit();
 
             return result;
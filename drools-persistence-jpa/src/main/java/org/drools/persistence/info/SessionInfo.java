@@ -13,6 +13,7 @@ import javax.persistence.PreUpdate;
 import javax.persistence.Transient;
 import javax.persistence.Version;
 
+import org.drools.persistence.SessionJournal;
 import org.drools.persistence.SessionMarshallingHelper;
 
 @Entity
@@ -33,6 +34,9 @@ public class SessionInfo {
 
     @Transient
     SessionMarshallingHelper helper;
+
+    @Transient
+    SessionJournal           journal;
     
     public SessionInfo() {
         this.startDate = new Date();
@@ -53,6 +57,14 @@ public class SessionInfo {
     public SessionMarshallingHelper getJPASessionMashallingHelper() {
         return helper;
     }
+
+    public void setJournal(SessionJournal journal) {
+        this.journal = journal;
+    }
+
+    public SessionJournal getJournal() {
+        return journal;
+    }
     
     public void setData( byte[] data) {
         this.rulesByteArray = data;
@@ -78,7 +90,11 @@ public class SessionInfo {
     @PrePersist 
     @PreUpdate 
     public void update() {
-        this.rulesByteArray  = this.helper.getSnapshot();
+        // with a journal, snapshots are only written when the journal is flushed,
+        // except for the first one
+        if ( this.journal == null || this.rulesByteArray == null ) {
+            this.rulesByteArray  = this.helper.getSnapshot();
+        }
     }
 
     public void setId(Integer ksessionId) {
@@ -0,0 +1,95 @@
+package org.drools.persistence.info;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * A single fact level change of a session, appended to the journal of the
+ * session instead of writing a new snapshot of the whole session.
+ * 
+ * @see org.drools.persistence.SessionJournal
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"sessionId", "sequenceNumber"}))
+public class SessionJournalEntry {
+
+    public static final int INSERT  = 1;
+    public static final int UPDATE  = 2;
+    public static final int RETRACT = 3;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long            id;
+
+    private Integer         sessionId;
+    private long            sequenceNumber;
+    private int             type;
+    private int             factHandleId;
+    private String          entryPointId;
+    private Date            creationDate;
+
+    private @Lob
+    byte[]                  objectByteArray;
+
+    protected SessionJournalEntry() {
+    }
+
+    public SessionJournalEntry(int type,
+                               int factHandleId,
+                               String entryPointId,
+                               byte[] objectByteArray) {
+        this.type = type;
+        this.factHandleId = factHandleId;
+        this.entryPointId = entryPointId;
+        this.objectByteArray = objectByteArray;
+        this.creationDate = new Date();
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public Integer getSessionId() {
+        return this.sessionId;
+    }
+
+    public void setSessionId(Integer sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getSequenceNumber() {
+        return this.sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public int getType() {
+        return this.type;
+    }
+
+    public int getFactHandleId() {
+        return this.factHandleId;
+    }
+
+    public String getEntryPointId() {
+        return this.entryPointId;
+    }
+
+    public Date getCreationDate() {
+        return this.creationDate;
+    }
+
+    public byte[] getObjectByteArray() {
+        return this.objectByteArray;
+    }
+
+}
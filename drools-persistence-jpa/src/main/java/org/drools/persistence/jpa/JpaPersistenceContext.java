@@ -1,9 +1,12 @@
 package org.drools.persistence.jpa;
 
+import java.util.List;
+
 import javax.persistence.EntityManager;
 
 import org.drools.persistence.PersistenceContext;
 import org.drools.persistence.info.SessionInfo;
+import org.drools.persistence.info.SessionJournalEntry;
 import org.drools.persistence.info.WorkItemInfo;
 
 public class JpaPersistenceContext implements PersistenceContext {
@@ -48,6 +51,25 @@ public class JpaPersistenceContext implements PersistenceContext {
     public WorkItemInfo merge(WorkItemInfo workItemInfo) {
         return em.merge( workItemInfo );
     }
+
+    public void persist(SessionJournalEntry journalEntry) {
+        em.persist( journalEntry );
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<SessionJournalEntry> findSessionJournalEntries(Integer sessionId) {
+        return em.createQuery( "select e from SessionJournalEntry e where e.sessionId = :sessionId order by e.sequenceNumber" )
+                 .setParameter( "sessionId", sessionId )
+                 .getResultList();
+    }
+
+    public void removeSessionJournalEntries(Integer sessionId) {
+        // entries persisted earlier in the transaction must be removed as well
+        em.flush();
+        em.createQuery( "delete from SessionJournalEntry e where e.sessionId = :sessionId" )
+          .setParameter( "sessionId", sessionId )
+          .executeUpdate();
+    }
     
     protected EntityManager getEntityManager() {
         return this.em;
@@ -8,6 +8,7 @@ import java.util.Map;
 
 import org.drools.persistence.PersistenceContext;
 import org.drools.persistence.info.SessionInfo;
+import org.drools.persistence.info.SessionJournalEntry;
 import org.drools.persistence.info.WorkItemInfo;
 
 public class MapBasedPersistenceContext
@@ -96,4 +97,15 @@ public class MapBasedPersistenceContext
         return workItemInfo;
     }
 
+    public void persist(SessionJournalEntry journalEntry) {
+        throw new UnsupportedOperationException( "The session journal is not supported by the map based persistence" );
+    }
+
+    public List<SessionJournalEntry> findSessionJournalEntries(Integer sessionId) {
+        return Collections.emptyList();
+    }
+
+    public void removeSessionJournalEntries(Integer sessionId) {
+    }
+
 }
@@ -1,6 +1,7 @@
 package org.drools.persistence.session;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +20,8 @@ import org.drools.builder.KnowledgeBuilder;
 import org.drools.builder.KnowledgeBuilderError;
 import org.drools.builder.KnowledgeBuilderFactory;
 import org.drools.builder.ResourceType;
+import org.drools.command.CommandFactory;
+import org.drools.definition.type.FactType;
 import org.drools.event.process.ProcessCompletedEvent;
 import org.drools.event.process.ProcessEvent;
 import org.drools.event.process.ProcessEventListener;
@@ -27,12 +30,14 @@ import org.drools.event.process.ProcessNodeTriggeredEvent;
 import org.drools.event.process.ProcessStartedEvent;
 import org.drools.io.ResourceFactory;
 import org.drools.io.impl.ClassPathResource;
+import org.drools.persistence.SessionJournal;
 import org.drools.persistence.jpa.JPAKnowledgeService;
 import org.drools.runtime.Environment;
 import org.drools.runtime.EnvironmentName;
 import org.drools.runtime.StatefulKnowledgeSession;
 import org.drools.runtime.process.ProcessInstance;
 import org.drools.runtime.process.WorkItem;
+import org.drools.runtime.rule.FactHandle;
 
 import bitronix.tm.TransactionManagerServices;
 import bitronix.tm.resource.jdbc.PoolingDataSource;
@@ -212,6 +217,163 @@ public class JpaPersistentStatefulSessionTest extends TestCase {
                       list.size() );
     }
 
+    public void testJournal() {
+        String str = "";
+        str += "package org.drools.test\n";
+        str += "global java.util.List list\n";
+        str += "rule rule1\n";
+        str += "when\n";
+        str += "  $i : Integer(intValue > 0)\n";
+        str += "then\n";
+        str += "  list.add( $i );\n";
+        str += "end\n";
+        str += "\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ),
+                      ResourceType.DRL );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+
+        if ( kbuilder.hasErrors() ) {
+            fail( kbuilder.getErrors().toString() );
+        }
+
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory( "org.drools.persistence.jpa" );
+        Environment env = KnowledgeBaseFactory.newEnvironment();
+        env.set( EnvironmentName.ENTITY_MANAGER_FACTORY,
+                 emf );
+        env.set( EnvironmentName.TRANSACTION_MANAGER,
+                 TransactionManagerServices.getTransactionManager() );
+        env.set( EnvironmentName.GLOBALS, new MapGlobalResolver() );
+        env.set( SessionJournal.JOURNAL_ENABLED, Boolean.TRUE );
+
+        StatefulKnowledgeSession ksession = JPAKnowledgeService.newStatefulKnowledgeSession( kbase, null, env );
+        int id = ksession.getId();
+
+        ksession.insert( 1 );
+        FactHandle handle = ksession.insert( 2 );
+        ksession.insert( 3 );
+        ksession.retract( handle );
+
+        // the changes are only in the journal, so loading the session replays them
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( id, kbase, null, env );
+        List<?> list = new ArrayList<Object>();
+        ksession.setGlobal( "list",
+                            list );
+        ksession.fireAllRules();
+
+        assertEquals( 2,
+                      list.size() );
+        assertTrue( list.contains( 1 ) );
+        assertTrue( list.contains( 3 ) );
+    }
+
+    public void testJournalReplaysUpdates() throws Exception {
+        String str = "";
+        str += "package org.drools.test\n";
+        str += "global java.util.List list\n";
+        str += "declare Counter\n";
+        str += "  name : String\n";
+        str += "  value : int\n";
+        str += "end\n";
+        str += "rule rule1\n";
+        str += "when\n";
+        str += "  Counter( $n : name, value > 2, $v : value )\n";
+        str += "then\n";
+        str += "  list.add( $n + $v );\n";
+        str += "end\n";
+        str += "\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ),
+                      ResourceType.DRL );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+
+        if ( kbuilder.hasErrors() ) {
+            fail( kbuilder.getErrors().toString() );
+        }
+
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory( "org.drools.persistence.jpa" );
+        Environment env = KnowledgeBaseFactory.newEnvironment();
+        env.set( EnvironmentName.ENTITY_MANAGER_FACTORY,
+                 emf );
+        env.set( EnvironmentName.TRANSACTION_MANAGER,
+                 TransactionManagerServices.getTransactionManager() );
+        env.set( EnvironmentName.GLOBALS, new MapGlobalResolver() );
+        env.set( SessionJournal.JOURNAL_ENABLED, Boolean.TRUE );
+
+        StatefulKnowledgeSession ksession = JPAKnowledgeService.newStatefulKnowledgeSession( kbase, null, env );
+        int id = ksession.getId();
+
+        FactType counterType = kbase.getFactType( "org.drools.test",
+                                                  "Counter" );
+        Object a = counterType.newInstance();
+        counterType.set( a, "name", "a" );
+        counterType.set( a, "value", 1 );
+        Object b = counterType.newInstance();
+        counterType.set( b, "name", "b" );
+        counterType.set( b, "value", 1 );
+        FactHandle aHandle = ksession.insert( a );
+        FactHandle bHandle = ksession.insert( b );
+
+        // an update journals the fact as it is when updated
+        counterType.set( a, "value", 5 );
+        ksession.update( aHandle,
+                         a );
+
+        // a modify journals the fact the setters changed
+        ksession.execute( CommandFactory.newModify( bHandle,
+                                                    Arrays.asList( CommandFactory.newSetter( "value",
+                                                                                             "7" ) ) ) );
+
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( id, kbase, null, env );
+        List<?> list = new ArrayList<Object>();
+        ksession.setGlobal( "list",
+                            list );
+        ksession.fireAllRules();
+
+        assertEquals( 2,
+                      list.size() );
+        assertTrue( list.contains( "a5" ) );
+        assertTrue( list.contains( "b7" ) );
+
+        // the replayed facts are updated again, on top of the journal
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( id, kbase, null, env );
+        aHandle = ksession.getFactHandle( getCounter( ksession,
+                                                      counterType,
+                                                      "a" ) );
+        ksession.execute( CommandFactory.newModify( aHandle,
+                                                    Arrays.asList( CommandFactory.newSetter( "value",
+                                                                                             "1" ) ) ) );
+
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( id, kbase, null, env );
+        list = new ArrayList<Object>();
+        ksession.setGlobal( "list",
+                            list );
+        ksession.fireAllRules();
+
+        assertEquals( 1,
+                      list.size() );
+        assertTrue( list.contains( "b7" ) );
+    }
+
+    private Object getCounter(StatefulKnowledgeSession ksession,
+                              FactType counterType,
+                              String name) {
+        for ( Object object : ksession.getObjects() ) {
+            if ( name.equals( counterType.get( object,
+                                               "name" ) ) ) {
+                return object;
+            }
+        }
+        fail( "No counter named " + name );
+        return null;
+    }
+
     public void test1() {
         
     }
@@ -140,6 +140,15 @@ public class ExternalSheetListenerTest {
                     return null;
                 }
 
+                public List<FactHandle> insertAll(Collection<?> arg0)
+                        throws FactException {
+                    List<FactHandle> handles = new ArrayList<FactHandle>();
+                    for (Object fact : arg0) {
+                        handles.add(insert(fact));
+                    }
+                    return handles;
+                }
+
                 public void clearAgenda() {
 
                 }
@@ -204,6 +213,11 @@ public class ExternalSheetListenerTest {
 
                 }
 
+                public void updateAll(List<? extends org.drools.runtime.rule.FactHandle> arg0, List<?> arg1)
+                        throws FactException {
+
+                }
+
                 public void removeEventListener(WorkingMemoryEventListener arg0) {
 
                 }